@@ -60,6 +60,11 @@ android {
         disable += "MissingTranslation"
     }
 
+    testOptions {
+        // android.util.Log is called on the tested paths
+        unitTests.isReturnDefaultValues = true
+    }
+
     flavorDimensions += "default"
     productFlavors {
         create("emulator") { // variant dimension for create emulator
@@ -50,10 +50,10 @@ JNIEXPORT jlong JNICALL Java_javax_microedition_m3g_Loader__1ctor
 /*
  * Class:     javax_microedition_m3g_Loader
  * Method:    _decodeData
- * Signature: (JI[B)I
+ * Signature: (JII[B)I
  */
 JNIEXPORT jint JNICALL Java_javax_microedition_m3g_Loader__1decodeData
-  (JNIEnv *, jclass, jlong, jint, jbyteArray);
+  (JNIEnv *, jclass, jlong, jint, jint, jbyteArray);
 
 /*
  * Class:     javax_microedition_m3g_Loader
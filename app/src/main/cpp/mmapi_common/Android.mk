@@ -7,8 +7,10 @@ LOCAL_MODULE := mmapi_common
 LOCAL_SRC_FILES = \
 	src/PlayerListener.cpp \
 	src/BasePlayer.cpp \
+	src/Mixer.cpp \
 	src/jstring.cpp \
 	src/jbytearray.cpp \
+	src/wavwriter.cpp \
 
 LOCAL_CFLAGS += -O2 \
 
@@ -21,6 +21,8 @@ namespace mmapi {
         PlayerListener *playerListener = nullptr;
         float gainLeft = 1;
         float gainRight = 1;
+        /* Rendered by the shared Mixer instead of own audio stream */
+        bool mixed = false;
     public:
         int64_t duration;
 
@@ -42,6 +44,15 @@ namespace mmapi {
         void setListener(PlayerListener *listener);
         void onErrorAfterClose(oboe::AudioStream *stream, oboe::Result result) override;
 
+        /**
+         * Adds the next frames to the interleaved stereo buffer of the Mixer.
+         * Called on the audio thread of the Mixer.
+         *
+         * @return false if the playback is finished and the player must be removed
+         */
+        virtual bool mix(float *buffer, int32_t numFrames) = 0;
+        void onMixerError();
+
     protected:
         virtual oboe::Result createAudioStream() = 0;
     }; // class BasePlayer
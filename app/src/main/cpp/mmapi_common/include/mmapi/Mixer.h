@@ -0,0 +1,46 @@
+#ifndef MMAPI_MIXER_H
+#define MMAPI_MIXER_H
+
+#include <mutex>
+#include <vector>
+#include <oboe/Oboe.h>
+
+namespace mmapi {
+    class BasePlayer;
+
+    /**
+     * Renders all started players into a single audio stream on one audio thread.
+     * Used instead of the own stream of each player when enabled.
+     */
+    class Mixer : public oboe::AudioStreamCallback {
+        std::mutex mutex;
+        std::vector<BasePlayer *> players;
+        std::shared_ptr<oboe::AudioStream> oboeStream;
+        bool running = false;
+        int32_t idleFrames = 0;
+
+        Mixer() = default;
+    public:
+        static constexpr int32_t SAMPLE_RATE = 44100;
+        static constexpr int32_t CHANNEL_COUNT = 2;
+        static constexpr int32_t BLOCK_FRAMES = 512;
+        static bool enabled;
+
+        Mixer(const Mixer &) = delete;
+
+        static Mixer &getInstance();
+
+        oboe::Result add(BasePlayer *player);
+        void remove(BasePlayer *player);
+
+        oboe::DataCallbackResult onAudioReady(oboe::AudioStream *audioStream,
+                                              void *audioData,
+                                              int32_t numFrames) override;
+        void onErrorAfterClose(oboe::AudioStream *stream, oboe::Result result) override;
+
+    private:
+        oboe::Result openStream();
+    }; // class Mixer
+} // namespace mmapi
+
+#endif //MMAPI_MIXER_H
@@ -0,0 +1,27 @@
+#ifndef MMAPI_WAV_WRITER_H
+#define MMAPI_WAV_WRITER_H
+
+#include <cstdint>
+#include <cstdio>
+
+namespace util {
+    /**
+     * Writes 16-bit PCM RIFF WAVE file, sizes in the header are written on close.
+     */
+    class WavWriter {
+        FILE *file = nullptr;
+        int32_t channels = 0;
+        uint32_t dataSize = 0;
+
+    public:
+        WavWriter() = default;
+        WavWriter(const WavWriter &) = delete;
+        ~WavWriter();
+
+        bool open(const char *path, int32_t sampleRate, int32_t channels);
+        bool write(const int16_t *samples, int32_t numFrames);
+        bool close();
+    };
+}
+
+#endif //MMAPI_WAV_WRITER_H
@@ -3,6 +3,7 @@
 //
 
 #include "BasePlayer.h"
+#include "Mixer.h"
 #include "log.h"
 
 #define LOG_TAG "mmapi"
@@ -15,6 +16,11 @@ namespace mmapi {
     }
 
     oboe::Result BasePlayer::prefetch() {
+        if (Mixer::enabled) {
+            mixed = true;
+            state = PREFETCHED;
+            return oboe::Result::OK;
+        }
         oboe::Result result = createAudioStream();
         if (result == oboe::Result::OK) {
             state = PREFETCHED;
@@ -23,6 +29,13 @@ namespace mmapi {
     }
 
     oboe::Result BasePlayer::start() {
+        if (mixed) {
+            oboe::Result result = Mixer::getInstance().add(this);
+            if (result == oboe::Result::OK) {
+                state = STARTED;
+            }
+            return result;
+        }
         oboe::Result result = oboeStream->start();
         if (result != oboe::Result::OK) {
             ALOGE("%s: can't start audio stream. %s", __func__, oboe::convertToText(result));
@@ -33,6 +46,13 @@ namespace mmapi {
     }
 
     oboe::Result BasePlayer::pause() {
+        if (mixed) {
+            Mixer::getInstance().remove(this);
+            if (state == STARTED) {
+                state = PREFETCHED;
+            }
+            return oboe::Result::OK;
+        }
         if (oboeStream->getState() < oboe::StreamState::Starting ||
             oboeStream->getState() > oboe::StreamState::Started) {
             return oboe::Result::OK;
@@ -46,6 +66,10 @@ namespace mmapi {
     }
 
     void BasePlayer::deallocate() {
+        if (mixed) {
+            Mixer::getInstance().remove(this);
+            mixed = false;
+        }
         if (oboeStream != nullptr) {
             oboeStream->stop();
             oboeStream->close();
@@ -58,10 +82,13 @@ namespace mmapi {
     void BasePlayer::close() {
         if (state == CLOSED) {
             return;
+        } else if (mixed) {
+            Mixer::getInstance().remove(this);
+            mixed = false;
         } else if (state == STARTED) {
             oboeStream->stop();
         }
-        if (state >= PREFETCHED) {
+        if (oboeStream != nullptr) {
             oboeStream->close();
             oboeStream.reset();
         }
@@ -101,6 +128,11 @@ namespace mmapi {
         this->playerListener = listener;
     }
 
+    void BasePlayer::onMixerError() {
+        state = PREFETCHED;
+        playerListener->postEvent(ERROR, 0);
+    }
+
     void BasePlayer::onErrorAfterClose(oboe::AudioStream *stream, oboe::Result result) {
         if (result == oboe::Result::ErrorDisconnected) {
             oboe::Result res = createAudioStream();
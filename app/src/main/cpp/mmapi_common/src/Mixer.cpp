@@ -0,0 +1,123 @@
+#include <algorithm>
+#include "Mixer.h"
+#include "BasePlayer.h"
+#include "log.h"
+
+#define LOG_TAG "mmapi"
+
+namespace mmapi {
+    bool Mixer::enabled = false;
+
+    Mixer &Mixer::getInstance() {
+        static Mixer instance;
+        return instance;
+    }
+
+    oboe::Result Mixer::add(BasePlayer *player) {
+        std::lock_guard<std::mutex> lock(mutex);
+        if (std::find(players.begin(), players.end(), player) == players.end()) {
+            players.push_back(player);
+        }
+        if (running) {
+            return oboe::Result::OK;
+        }
+        oboe::Result result;
+        if (oboeStream == nullptr) {
+            result = openStream();
+        } else {
+            // the stream stops itself when idle, wait for it
+            result = oboeStream->stop();
+        }
+        if (result == oboe::Result::OK) {
+            result = oboeStream->start();
+        }
+        if (result != oboe::Result::OK) {
+            ALOGE("%s: can't start audio stream. %s", __func__, oboe::convertToText(result));
+            players.erase(std::remove(players.begin(), players.end(), player), players.end());
+            return result;
+        }
+        idleFrames = 0;
+        running = true;
+        return result;
+    }
+
+    void Mixer::remove(BasePlayer *player) {
+        // also waits for the player to leave the audio callback
+        std::lock_guard<std::mutex> lock(mutex);
+        players.erase(std::remove(players.begin(), players.end(), player), players.end());
+    }
+
+    oboe::Result Mixer::openStream() {
+        oboe::AudioStreamBuilder builder;
+        builder.setDirection(oboe::Direction::Output);
+        builder.setPerformanceMode(oboe::PerformanceMode::LowLatency);
+        builder.setSharingMode(oboe::SharingMode::Shared);
+        builder.setFormat(oboe::AudioFormat::Float);
+        builder.setChannelCount(CHANNEL_COUNT);
+        builder.setSampleRate(SAMPLE_RATE);
+        builder.setFormatConversionAllowed(true);
+        builder.setSampleRateConversionQuality(oboe::SampleRateConversionQuality::Medium);
+        builder.setFramesPerDataCallback(BLOCK_FRAMES);
+        builder.setCallback(this);
+
+        oboe::Result result = builder.openStream(oboeStream);
+        if (result != oboe::Result::OK) {
+            oboeStream.reset();
+            ALOGE("%s: can't open audio stream. %s", __func__, oboe::convertToText(result));
+        }
+        return result;
+    }
+
+    oboe::DataCallbackResult
+    Mixer::onAudioReady(oboe::AudioStream *audioStream, void *audioData, int32_t numFrames) {
+        auto *buffer = static_cast<float *>(audioData);
+        int32_t numSamples = numFrames * CHANNEL_COUNT;
+        memset(buffer, 0, sizeof(float) * numSamples);
+
+        std::lock_guard<std::mutex> lock(mutex);
+        for (auto it = players.begin(); it != players.end();) {
+            if ((*it)->mix(buffer, numFrames)) {
+                ++it;
+            } else {
+                it = players.erase(it);
+            }
+        }
+        if (players.empty()) {
+            // keep the stream for a while, starting it is slow
+            idleFrames += numFrames;
+            if (idleFrames >= SAMPLE_RATE) {
+                running = false;
+                return oboe::DataCallbackResult::Stop;
+            }
+            return oboe::DataCallbackResult::Continue;
+        }
+        idleFrames = 0;
+        for (int i = 0; i < numSamples; ++i) {
+            buffer[i] = std::min(std::max(buffer[i], -1.0f), 1.0f);
+        }
+        return oboe::DataCallbackResult::Continue;
+    }
+
+    void Mixer::onErrorAfterClose(oboe::AudioStream *stream, oboe::Result result) {
+        std::lock_guard<std::mutex> lock(mutex);
+        oboeStream.reset();
+        running = false;
+        if (result != oboe::Result::ErrorDisconnected) {
+            ALOGE("%s: %s", __func__, oboe::convertToText(result));
+        } else if (!players.empty()) {
+            result = openStream();
+            if (result == oboe::Result::OK) {
+                result = oboeStream->requestStart();
+            }
+            if (result == oboe::Result::OK) {
+                running = true;
+                return;
+            }
+            ALOGE("%s: reconnect error=%s", __func__, oboe::convertToText(result));
+        }
+        for (BasePlayer *player : players) {
+            player->onMixerError();
+        }
+        players.clear();
+    }
+} // namespace mmapi
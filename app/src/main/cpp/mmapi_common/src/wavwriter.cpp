@@ -0,0 +1,64 @@
+#include "wavwriter.h"
+
+namespace util {
+    static void putInt(uint8_t *dst, uint32_t value) {
+        dst[0] = value;
+        dst[1] = value >> 8;
+        dst[2] = value >> 16;
+        dst[3] = value >> 24;
+    }
+
+    static void putShort(uint8_t *dst, uint16_t value) {
+        dst[0] = value;
+        dst[1] = value >> 8;
+    }
+
+    WavWriter::~WavWriter() {
+        close();
+    }
+
+    bool WavWriter::open(const char *path, int32_t sampleRate, int32_t numChannels) {
+        file = fopen(path, "wb");
+        if (file == nullptr) {
+            return false;
+        }
+        channels = numChannels;
+        dataSize = 0;
+        uint8_t header[44] = {'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'A', 'V', 'E',
+                              'f', 'm', 't', ' ', 16, 0, 0, 0};
+        putShort(header + 20, 1); // PCM
+        putShort(header + 22, numChannels);
+        putInt(header + 24, sampleRate);
+        putInt(header + 28, sampleRate * numChannels * 2);
+        putShort(header + 32, numChannels * 2);
+        putShort(header + 34, 16);
+        header[36] = 'd';
+        header[37] = 'a';
+        header[38] = 't';
+        header[39] = 'a';
+        return fwrite(header, sizeof(header), 1, file) == 1;
+    }
+
+    bool WavWriter::write(const int16_t *samples, int32_t numFrames) {
+        size_t count = numFrames * channels;
+        if (fwrite(samples, sizeof(int16_t), count, file) != count) {
+            return false;
+        }
+        dataSize += count * sizeof(int16_t);
+        return true;
+    }
+
+    bool WavWriter::close() {
+        if (file == nullptr) {
+            return false;
+        }
+        uint8_t size[4];
+        putInt(size, dataSize + 36);
+        bool ok = fseek(file, 4, SEEK_SET) == 0 && fwrite(size, sizeof(size), 1, file) == 1;
+        putInt(size, dataSize);
+        ok = ok && fseek(file, 40, SEEK_SET) == 0 && fwrite(size, sizeof(size), 1, file) == 1;
+        ok = fclose(file) == 0 && ok;
+        file = nullptr;
+        return ok;
+    }
+}
@@ -4,6 +4,7 @@
 
 #include "eas_player.h"
 #include "util/log.h"
+#include "util/wavwriter.h"
 #include "eas_util.h"
 #include "libsonivox/eas_reverb.h"
 
@@ -66,6 +67,57 @@ namespace mmapi {
             return result;
         }
 
+        int32_t Player::render(BaseFile *pFile, const char *output, int32_t maxSeconds) {
+            EAS_DATA_HANDLE easHandle;
+            EAS_RESULT result = EAS_Init(&easHandle);
+            if (result != EAS_SUCCESS) {
+                return result;
+            }
+            if (Player::soundBank != nullptr) {
+                EAS_SetGlobalDLSLib(easHandle, Player::soundBank);
+            }
+            EAS_HANDLE stream;
+            int64_t duration;
+            result = openSource(easHandle, pFile, &stream, &duration);
+            if (result != EAS_SUCCESS) {
+                EAS_Shutdown(easHandle);
+                return result;
+            }
+            const S_EAS_LIB_CONFIG *config = EAS_Config();
+            util::WavWriter wav;
+            if (!wav.open(output, config->sampleRate, config->numChannels)) {
+                result = EAS_ERROR_FILE_OPEN_FAILED;
+            }
+            std::vector<EAS_PCM> buffer(config->mixBufferSize * config->numChannels);
+            int64_t maxFrames = static_cast<int64_t>(maxSeconds) * config->sampleRate;
+            int64_t numFrames = 0;
+            while (result == EAS_SUCCESS) {
+                EAS_STATE state = EAS_STATE_PLAY;
+                EAS_State(easHandle, stream, &state);
+                if (state == EAS_STATE_STOPPED) {
+                    break;
+                } else if (state == EAS_STATE_ERROR) {
+                    result = EAS_FAILURE;
+                    break;
+                } else if (numFrames >= maxFrames) {
+                    result = EAS_ERROR_PARAMETER_RANGE;
+                    break;
+                }
+                EAS_I32 numRendered;
+                result = EAS_Render(easHandle, buffer.data(), config->mixBufferSize, &numRendered);
+                if (result == EAS_SUCCESS && !wav.write(buffer.data(), numRendered)) {
+                    result = EAS_FAILURE;
+                }
+                numFrames += numRendered;
+            }
+            EAS_CloseFile(easHandle, stream);
+            EAS_Shutdown(easHandle);
+            if (!wav.close() && result == EAS_SUCCESS) {
+                result = EAS_FAILURE;
+            }
+            return result;
+        }
+
         oboe::Result Player::createAudioStream() {
             oboe::AudioStreamBuilder builder;
             builder.setDirection(oboe::Direction::Output);
@@ -209,6 +261,27 @@ namespace mmapi {
         oboe::DataCallbackResult
         Player::onAudioReady(oboe::AudioStream *audioStream, void *audioData, int32_t numFrames) {
             memset(audioData, 0, sizeof(EAS_PCM) * easConfig->numChannels * numFrames);
+            if (render(static_cast<EAS_PCM *>(audioData), numFrames)) {
+                return oboe::DataCallbackResult::Continue;
+            }
+            return oboe::DataCallbackResult::Stop;
+        }
+
+        bool Player::mix(float *buffer, int32_t numFrames) {
+            size_t numSamples = numFrames * easConfig->numChannels;
+            if (mixBuffer.size() < numSamples) {
+                mixBuffer.resize(numSamples);
+            }
+            EAS_PCM *pcm = mixBuffer.data();
+            memset(pcm, 0, sizeof(EAS_PCM) * numSamples);
+            bool playing = render(pcm, numFrames);
+            for (size_t i = 0; i < numSamples; ++i) {
+                buffer[i] += pcm[i] * (1.0f / 32768.0f);
+            }
+            return playing;
+        }
+
+        bool Player::render(EAS_PCM *buffer, int32_t numFrames) {
             if (seekTime == -1) {
                 EAS_STATE easState = EAS_STATE_PLAY;
                 EAS_State(easHandle, media, &easState);
@@ -219,7 +292,7 @@ namespace mmapi {
                     } else {
                         state = PREFETCHED;
                         playerListener->postEvent(STOP, playTime);
-                        return oboe::DataCallbackResult::Stop;
+                        return false;
                     }
                 }
             }
@@ -233,10 +306,11 @@ namespace mmapi {
                 seekTime = -1;
             }
 
-            auto *stream = static_cast<EAS_PCM *>(audioData);
+            EAS_PCM *stream = buffer;
             int numFramesOutput = 0;
             EAS_RESULT result;
-            for (int i = 0; i < NUM_COMBINE_BUFFERS; i++) {
+            int numBuffers = numFrames / easConfig->mixBufferSize;
+            for (int i = 0; i < numBuffers; i++) {
                 EAS_I32 numRendered;
                 result = EAS_Render(easHandle, stream, easConfig->mixBufferSize, &numRendered);
                 if (result != EAS_SUCCESS) {
@@ -245,7 +319,7 @@ namespace mmapi {
                           __func__,
                           EAS_GetErrorString(result),
                           numFramesOutput);
-                    return oboe::DataCallbackResult::Stop; // Stop processing to prevent infinite loops.
+                    return false; // Stop processing to prevent infinite loops.
                 }
                 for (int j = 0; j < numRendered; ++j) {
                     *stream++ *= gainLeft;
@@ -262,7 +336,7 @@ namespace mmapi {
                 }
                 playTime = pTime != -1 ? pTime * 1000LL : -1;
             }
-            return oboe::DataCallbackResult::Continue;
+            return true;
         }
     } // namespace eas
 } // namespace mmapi
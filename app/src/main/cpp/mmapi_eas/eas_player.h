@@ -5,6 +5,7 @@
 #ifndef MMAPI_EAS_PLAYER_H
 #define MMAPI_EAS_PLAYER_H
 
+#include <vector>
 #include "libsonivox/eas.h"
 #include "eas_file.h"
 #include "mmapi/PlayerListener.h"
@@ -20,6 +21,7 @@ namespace mmapi {
             EAS_DATA_HANDLE easHandle;
             EAS_HANDLE media;
             BaseFile *file;
+            std::vector<EAS_PCM> mixBuffer;
 
         public:
             Player(EAS_DATA_HANDLE easHandle, BaseFile *file, EAS_HANDLE stream, const int64_t duration);
@@ -37,14 +39,17 @@ namespace mmapi {
                                                   void *audioData,
                                                   int32_t numFrames)
                                                   override;
+            bool mix(float *buffer, int32_t numFrames) override;
 
             static int32_t initSoundBank(const char *sound_bank);
             static int32_t createPlayer(const char *locator, Player **pPlayer);
+            static int32_t render(BaseFile *pFile, const char *output, int32_t maxSeconds);
 
         protected:
             oboe::Result createAudioStream() override;
 
         private:
+            bool render(EAS_PCM *buffer, int32_t numFrames);
             static int32_t openSource(EAS_DATA_HANDLE easHandle,
                                       BaseFile *pFile,
                                       EAS_HANDLE *outStream,
@@ -7,6 +7,10 @@
 #include "util/jstring.h"
 #include "eas_util.h"
 #include "util/jbytearray.h"
+#include "mmapi/Mixer.h"
+#include "util/log.h"
+
+#define LOG_TAG "MMAPI"
 
 /* for C++ linkage */
 #ifdef __cplusplus
@@ -151,6 +155,22 @@ JNIEXPORT jint JNICALL Java_ru_woesss_j2me_mmapi_synth_eas_LibEAS_writeMIDI
     return player->writeMIDI(ptr);
 }
 
+JNIEXPORT void JNICALL Java_ru_woesss_j2me_mmapi_synth_eas_LibEAS_setMixerEnabled
+(JNIEnv */*env*/, jobject /*thiz*/, jboolean enabled) {
+    mmapi::Mixer::enabled = enabled;
+}
+
+JNIEXPORT jint JNICALL Java_ru_woesss_j2me_mmapi_synth_eas_LibEAS_render
+(JNIEnv *env, jobject /*thiz*/, jbyteArray data, jstring output, jint maxSeconds) {
+    mmapi::eas::MemFile file(env, data);
+    util::JStringPtr path(env, output);
+    int32_t result = mmapi::eas::Player::render(&file, *path, maxSeconds);
+    if (result != 0) {
+        ALOGW("%s: %s", __func__, mmapi::eas::EAS_GetErrorString(result));
+    }
+    return result;
+}
+
 #ifdef __cplusplus
 } /* end extern "C" */
 #endif
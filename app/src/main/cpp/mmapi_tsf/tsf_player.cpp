@@ -6,10 +6,14 @@
 #define TML_IMPLEMENTATION
 
 #include "tsf_player.h"
+#include "mmapi/Mixer.h"
 #include "util/log.h"
+#include "util/wavwriter.h"
 
 #define LOG_TAG "MMAPI"
 #define NUM_CHANNELS 2
+/** Limit of the release rendered after the last message, notes may ring endlessly */
+#define MAX_TAIL_SECONDS 10
 
 namespace mmapi {
     namespace tiny {
@@ -48,6 +52,59 @@ namespace mmapi {
             return 0;
         }
 
+        int32_t Player::render(util::JByteArrayPtr *data, const char *output, int32_t maxSeconds) {
+            tml_message *midi = tml_load_memory(data->buffer, data->length);
+            if (midi == nullptr) {
+                return -2;
+            }
+            tsf *synth = tsf_copy(soundBank);
+            if (synth == nullptr) {
+                tml_free(midi);
+                return -1;
+            }
+            // the player owns and frees the synth and the midi
+            Player player(synth, midi, -1);
+            player.sampleRate = Mixer::SAMPLE_RATE;
+            synth->outSampleRate = static_cast<float>(player.sampleRate);
+            player.playTime = 0;
+
+            util::WavWriter wav;
+            if (!wav.open(output, player.sampleRate, NUM_CHANNELS)) {
+                return -4;
+            }
+            int32_t result = 0;
+            int64_t maxTime = maxSeconds * 1000000LL;
+            short buffer[TSF_RENDER_EFFECTSAMPLEBLOCK * NUM_CHANNELS];
+            while (player.currentMsg != nullptr) {
+                if (player.playTime >= maxTime) {
+                    result = -5;
+                    break;
+                }
+                player.playTime += TSF_RENDER_EFFECTSAMPLEBLOCK * 1000000LL / player.sampleRate;
+                player.processEvents(true);
+                tsf_render_short(synth, buffer, TSF_RENDER_EFFECTSAMPLEBLOCK);
+                if (!wav.write(buffer, TSF_RENDER_EFFECTSAMPLEBLOCK)) {
+                    result = -4;
+                    break;
+                }
+            }
+            // the messages are over, render the release of the sounding notes as EAS does
+            tsf_note_off_all(synth);
+            int64_t tailEnd = player.playTime + MAX_TAIL_SECONDS * 1000000LL;
+            while (result == 0 && tsf_active_voice_count(synth) > 0
+                   && player.playTime < tailEnd && player.playTime < maxTime) {
+                player.playTime += TSF_RENDER_EFFECTSAMPLEBLOCK * 1000000LL / player.sampleRate;
+                tsf_render_short(synth, buffer, TSF_RENDER_EFFECTSAMPLEBLOCK);
+                if (!wav.write(buffer, TSF_RENDER_EFFECTSAMPLEBLOCK)) {
+                    result = -4;
+                }
+            }
+            if (!wav.close() && result == 0) {
+                result = -4;
+            }
+            return result;
+        }
+
         oboe::Result Player::createAudioStream() {
             oboe::AudioStreamBuilder builder;
             builder.setDirection(oboe::Direction::Output);
@@ -65,7 +122,8 @@ namespace mmapi {
                 return result;
             }
 
-            synth->outSampleRate = oboeStream->getSampleRate();
+            sampleRate = oboeStream->getSampleRate();
+            synth->outSampleRate = static_cast<float>(sampleRate);
             return result;
         }
 
@@ -114,7 +172,12 @@ namespace mmapi {
             if (media == nullptr) {
                 return oboe::Result::ErrorInvalidState;
             }
-            return BasePlayer::prefetch();
+            oboe::Result result = BasePlayer::prefetch();
+            if (result == oboe::Result::OK && mixed) {
+                sampleRate = Mixer::SAMPLE_RATE;
+                synth->outSampleRate = static_cast<float>(sampleRate);
+            }
+            return result;
         }
 
         void Player::processEvents(bool playMode) {
@@ -153,6 +216,27 @@ namespace mmapi {
         oboe::DataCallbackResult
         Player::onAudioReady(oboe::AudioStream *audioStream, void *audioData, int32_t numFrames) {
             memset(audioData, 0, sizeof(float) * NUM_CHANNELS * numFrames);
+            if (render(static_cast<float *>(audioData), numFrames)) {
+                return oboe::DataCallbackResult::Continue;
+            }
+            return oboe::DataCallbackResult::Stop;
+        }
+
+        bool Player::mix(float *buffer, int32_t numFrames) {
+            size_t numSamples = numFrames * NUM_CHANNELS;
+            if (mixBuffer.size() < numSamples) {
+                mixBuffer.resize(numSamples);
+            }
+            float *samples = mixBuffer.data();
+            memset(samples, 0, sizeof(float) * numSamples);
+            bool playing = render(samples, numFrames);
+            for (size_t i = 0; i < numSamples; ++i) {
+                buffer[i] += samples[i];
+            }
+            return playing;
+        }
+
+        bool Player::render(float *buffer, int32_t numFrames) {
             if (seekTime == -1 && currentMsg == nullptr) {
                 seekTime = 0;
                 if (looping == -1 || (--loopCount) > 0) {
@@ -160,7 +244,7 @@ namespace mmapi {
                 } else {
                     state = PREFETCHED;
                     playerListener->postEvent(STOP, playTime);
-                    return oboe::DataCallbackResult::Stop;
+                    return false;
                 }
             }
 
@@ -179,14 +263,14 @@ namespace mmapi {
             }
             //Number of samples to process
             int sampleBlock = TSF_RENDER_EFFECTSAMPLEBLOCK;
-            auto *stream = static_cast<float *>(audioData);
+            float *stream = buffer;
             for (; numFrames > 0; numFrames -= sampleBlock) {
                 //We progress the MIDI playback and then process TSF_RENDER_EFFECTSAMPLEBLOCK samples at once
                 if (sampleBlock > numFrames) {
                     sampleBlock = numFrames;
                 }
 
-                playTime += sampleBlock * 1000000LL / audioStream->getSampleRate();
+                playTime += sampleBlock * 1000000LL / sampleRate;
                 processEvents(true);
 
                 // Render the block of audio samples in float format
@@ -196,7 +280,7 @@ namespace mmapi {
                     *stream++ *= gainRight;
                 }
             }
-            return oboe::DataCallbackResult::Continue;
+            return true;
         }
     } // namespace tiny
 } // namespace mmapi
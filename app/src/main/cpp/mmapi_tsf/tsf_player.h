@@ -5,6 +5,7 @@
 #ifndef MMAPI_TSF_PLAYER_H
 #define MMAPI_TSF_PLAYER_H
 
+#include <vector>
 #include "tsf.h"
 #include "tml.h"
 #include "mmapi/PlayerListener.h"
@@ -19,6 +20,8 @@ namespace mmapi {
             tsf *synth;
             tml_message *media;
             tml_message *currentMsg;
+            int32_t sampleRate = 0;
+            std::vector<float> mixBuffer;
 
         public:
             Player(tsf *synth, tml_message *midi, const int64_t duration);
@@ -31,15 +34,18 @@ namespace mmapi {
 
             oboe::DataCallbackResult
             onAudioReady(oboe::AudioStream *audioStream, void *audioData, int32_t numFrames) override;
+            bool mix(float *buffer, int32_t numFrames) override;
 
             static int32_t initSoundBank(const char *sound_bank);
             static int32_t createPlayer(const char *locator, Player **pPlayer);
+            static int32_t render(util::JByteArrayPtr *data, const char *output, int32_t maxSeconds);
 
         protected:
             oboe::Result createAudioStream() override;
 
         private:
             void processEvents(bool playMode);
+            bool render(float *buffer, int32_t numFrames);
         }; // class Player
     } // namespace tiny
 } // namespace mmapi
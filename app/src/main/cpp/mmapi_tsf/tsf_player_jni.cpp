@@ -6,6 +6,7 @@
 #include "tsf_player.h"
 #include "util/jstring.h"
 #include "util/jbytearray.h"
+#include "mmapi/Mixer.h"
 
 /* for C++ linkage */
 #ifdef __cplusplus
@@ -140,6 +141,18 @@ JNIEXPORT void JNICALL Java_ru_woesss_j2me_mmapi_synth_tsf_LibTSF_setDataSource
     }
 }
 
+JNIEXPORT void JNICALL Java_ru_woesss_j2me_mmapi_synth_tsf_LibTSF_setMixerEnabled
+(JNIEnv */*env*/, jobject /*thiz*/, jboolean enabled) {
+    mmapi::Mixer::enabled = enabled;
+}
+
+JNIEXPORT jint JNICALL Java_ru_woesss_j2me_mmapi_synth_tsf_LibTSF_render
+(JNIEnv *env, jobject /*thiz*/, jbyteArray data, jstring output, jint maxSeconds) {
+    util::JByteArrayPtr ptr(env, data);
+    util::JStringPtr path(env, output);
+    return mmapi::tiny::Player::render(&ptr, *path, maxSeconds);
+}
+
 #ifdef __cplusplus
 } /* end extern "C" */
 #endif
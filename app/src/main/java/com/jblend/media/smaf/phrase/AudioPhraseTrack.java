@@ -24,10 +24,17 @@ public class AudioPhraseTrack extends PhraseTrackBase {
 	}
 
 	public void setPhrase(AudioPhrase p) {
-		phrase = p;
+		setPhraseBase(p);
+		phrase = getState() == NO_DATA ? null : p;
 	}
 
 	public AudioPhrase getPhrase() {
 		return phrase;
 	}
+
+	@Override
+	public void removePhrase() {
+		super.removePhrase();
+		phrase = null;
+	}
 }
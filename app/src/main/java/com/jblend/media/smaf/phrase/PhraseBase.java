@@ -16,18 +16,83 @@
 
 package com.jblend.media.smaf.phrase;
 
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+
+import javax.microedition.io.Connector;
+import javax.microedition.media.MMFConverter;
+import javax.microedition.media.Manager;
+import javax.microedition.media.MediaException;
+import javax.microedition.media.Player;
+
+import ru.playsoftware.j2meloader.util.IOUtils;
 
 abstract class PhraseBase {
-	public PhraseBase(byte[] data) {}
+	private static final String TAG = PhraseBase.class.getSimpleName();
+
+	private final byte[] data;
+	/** Data converted for the player on the first use */
+	private byte[] media;
+	private String type;
 
-	public PhraseBase(String url) throws IOException {}
+	public PhraseBase(byte[] data) {
+		if (data == null) {
+			throw new NullPointerException();
+		}
+		this.data = data;
+	}
+
+	public PhraseBase(String url) throws IOException {
+		this(load(url));
+	}
+
+	private static byte[] load(String url) throws IOException {
+		if (url == null) {
+			throw new NullPointerException();
+		}
+		try (InputStream is = Connector.openInputStream(url)) {
+			return IOUtils.toByteArray(is);
+		}
+	}
 
 	public int getSize() {
-		return 0;
+		return data.length;
 	}
 
 	public int getUseTracks() {
-		return 0;
+		return 1;
+	}
+
+	/** @return the phrase converted to the standard MIDI file, null if it is not a MIDI phrase */
+	synchronized byte[] getMidi() {
+		convert();
+		return "audio/midi".equals(type) ? media : null;
+	}
+
+	/** Creates a player for the phrase the track player can't be loaded with */
+	synchronized Player createPlayer() throws IOException, MediaException {
+		convert();
+		Player player = Manager.createPlayer(new ByteArrayInputStream(media), type);
+		player.prefetch();
+		return player;
+	}
+
+	private void convert() {
+		if (media != null) {
+			return;
+		}
+		media = data;
+		type = "audio/mmf";
+		if (this instanceof Phrase) {
+			try {
+				media = new MMFConverter().convertToMDI(data);
+				type = "audio/midi";
+			} catch (Exception e) {
+				Log.w(TAG, "convert: MMF conversion failed", e);
+			}
+		}
 	}
 }
@@ -16,49 +16,129 @@
 
 package com.jblend.media.smaf.phrase;
 
+/**
+ * Fixed pool of phrase tracks allocated once, tracks are handed out and returned by the MIDlet.
+ * The players of the tracks are kept for the next users of the tracks until the phrase player
+ * is disposed.
+ */
 public class PhrasePlayer {
+	private static final int TRACK_COUNT = 16;
+	private static final int AUDIO_TRACK_COUNT = 16;
 	private static final PhrasePlayer phrasePlayer = new PhrasePlayer();
 
-	protected int trackCount;
-	protected int audioTrackCount;
+	protected int trackCount = TRACK_COUNT;
+	protected int audioTrackCount = AUDIO_TRACK_COUNT;
+
+	private final PhraseTrack[] tracks = new PhraseTrack[TRACK_COUNT];
+	private final AudioPhraseTrack[] audioTracks = new AudioPhraseTrack[AUDIO_TRACK_COUNT];
+
+	{
+		for (int i = 0; i < TRACK_COUNT; i++) {
+			tracks[i] = new PhraseTrack(i);
+		}
+		for (int i = 0; i < AUDIO_TRACK_COUNT; i++) {
+			audioTracks[i] = new AudioPhraseTrack(i);
+		}
+	}
 
 	public static PhrasePlayer getPlayer() {
 		return phrasePlayer;
 	}
 
-	public void disposePlayer() {}
+	public void disposePlayer() {
+		for (PhraseTrack track : tracks) {
+			disposeTrack(track);
+			track.releasePlayer();
+		}
+		for (AudioPhraseTrack track : audioTracks) {
+			disposeAudioTrack(track);
+			track.releasePlayer();
+		}
+	}
 
-	public PhraseTrack getTrack() {
-		return new PhraseTrack(trackCount++);
+	public synchronized PhraseTrack getTrack() {
+		for (PhraseTrack track : tracks) {
+			if (!track.inUse) {
+				track.inUse = true;
+				return track;
+			}
+		}
+		throw new IllegalStateException("no free tracks");
 	}
 
-	public AudioPhraseTrack getAudioTrack() {
-		return new AudioPhraseTrack(audioTrackCount++);
+	public synchronized AudioPhraseTrack getAudioTrack() {
+		for (AudioPhraseTrack track : audioTracks) {
+			if (!track.inUse) {
+				track.inUse = true;
+				return track;
+			}
+		}
+		throw new IllegalStateException("no free audio tracks");
 	}
 
 	public int getTrackCount() {
-		return 16;
+		return trackCount;
 	}
 
 	public int getAudioTrackCount() {
-		return 16;
+		return audioTrackCount;
 	}
 
 	public PhraseTrack getTrack(int track) {
-		return null;
+		if (track < 0 || track >= TRACK_COUNT) {
+			throw new IllegalArgumentException("track=" + track);
+		}
+		return tracks[track];
 	}
 
 	public AudioPhraseTrack getAudioTrack(int track) {
-		return null;
+		if (track < 0 || track >= AUDIO_TRACK_COUNT) {
+			throw new IllegalArgumentException("track=" + track);
+		}
+		return audioTracks[track];
 	}
 
-	public void disposeTrack(PhraseTrack t) {}
+	public void disposeTrack(PhraseTrack t) {
+		t.setSubjectTo(null);
+		t.removePhrase();
+		t.setEventListener(null);
+		synchronized (this) {
+			t.inUse = false;
+		}
+	}
 
-	public void disposeAudioTrack(AudioPhraseTrack t) {}
+	public void disposeAudioTrack(AudioPhraseTrack t) {
+		t.removePhrase();
+		t.setEventListener(null);
+		synchronized (this) {
+			t.inUse = false;
+		}
+	}
 
-	public void kill() {}
+	public void kill() {
+		for (PhraseTrack track : tracks) {
+			track.stop();
+		}
+		for (AudioPhraseTrack track : audioTracks) {
+			track.stop();
+		}
+	}
 
-	public void pause() {}
+	public void pause() {
+		for (PhraseTrack track : tracks) {
+			track.pause();
+		}
+		for (AudioPhraseTrack track : audioTracks) {
+			track.pause();
+		}
+	}
 
-	public void resume() {}
+	public void resume() {
+		for (PhraseTrack track : tracks) {
+			track.resume();
+		}
+		for (AudioPhraseTrack track : audioTracks) {
+			track.resume();
+		}
+	}
 }
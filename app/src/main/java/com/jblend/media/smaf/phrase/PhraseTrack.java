@@ -17,21 +17,57 @@
 package com.jblend.media.smaf.phrase;
 
 public class PhraseTrack extends PhraseTrackBase {
+	private Phrase phrase;
+	private PhraseTrack master;
+
 	PhraseTrack(int id) {
 		super(id);
 	}
 
-	public void setPhrase(Phrase p) {}
+	public void setPhrase(Phrase p) {
+		setPhraseBase(p);
+		phrase = getState() == NO_DATA ? null : p;
+	}
 
 	public Phrase getPhrase() {
-		return null;
+		return phrase;
 	}
 
-	public void removePhrase() {}
+	@Override
+	public void removePhrase() {
+		super.removePhrase();
+		phrase = null;
+	}
 
-	public void setSubjectTo(PhraseTrack master) {}
+	/**
+	 * Makes the track start, stop, pause and resume together with the master track.
+	 *
+	 * @param master the master track, {@code null} to cancel the synchronization
+	 */
+	public void setSubjectTo(PhraseTrack master) {
+		// the chains of masters are checked and changed as a whole
+		synchronized (PhraseTrack.class) {
+			for (PhraseTrack t = master; t != null; t = t.master) {
+				if (t == this) {
+					throw new IllegalArgumentException("tracks can't be subject to each other");
+				}
+			}
+			PhraseTrack old = this.master;
+			if (old != null) {
+				synchronized (old) {
+					old.slaves.remove(this);
+				}
+			}
+			this.master = master;
+			if (master != null) {
+				synchronized (master) {
+					master.slaves.add(this);
+				}
+			}
+		}
+	}
 
 	public PhraseTrack getSyncMaster() {
-		return null;
+		return master;
 	}
 }
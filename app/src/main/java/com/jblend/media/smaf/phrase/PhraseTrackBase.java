@@ -16,7 +16,27 @@
 
 package com.jblend.media.smaf.phrase;
 
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import javax.microedition.amms.control.PanControl;
+import javax.microedition.media.Manager;
+import javax.microedition.media.MediaException;
+import javax.microedition.media.Player;
+import javax.microedition.media.PlayerListener;
+import javax.microedition.media.control.ToneControl;
+import javax.microedition.media.control.VolumeControl;
+
+/**
+ * Track of the {@link PhrasePlayer} pool. The track owns a tone device player created on
+ * the first use, the MIDI phrases are loaded to it, so switching phrases and replaying them
+ * does not create players. The player is closed when the phrase player is disposed.
+ */
 abstract class PhraseTrackBase {
+	private static final String TAG = PhraseTrackBase.class.getSimpleName();
+
 	public static final int NO_DATA = 1;
 	public static final int READY = 2;
 	public static final int PLAYING = 3;
@@ -24,45 +44,289 @@ abstract class PhraseTrackBase {
 	public static final int DEFAULT_VOLUME = 100;
 	public static final int DEFAULT_PANPOT = 64;
 
-	PhraseTrackBase(int id) {}
+	private final int id;
+	/** Tracks subject to this one */
+	final ArrayList<PhraseTrackBase> slaves = new ArrayList<>();
+	boolean inUse;
+	private final PlayerListener playerListener = this::playerUpdate;
+	private PhraseBase phrase;
+	/** Player of the track, reused for the MIDI phrases */
+	private Player sequencer;
+	private ToneControl toneControl;
+	/** Player of the current phrase, the sequencer or one created for the phrase */
+	private Player player;
+	private int state = NO_DATA;
+	private int volume = DEFAULT_VOLUME;
+	private int panpot = DEFAULT_PANPOT;
+	private boolean mute;
+	/** Loops left to play, -1 for the endless playback */
+	private int loopsLeft;
+	private PhraseTrackListener listener;
 
-	public void removePhrase() {}
+	PhraseTrackBase(int id) {
+		this.id = id;
+	}
 
-	public void play() {}
+	synchronized void setPhraseBase(PhraseBase phrase) {
+		removePhrase();
+		if (phrase == null) {
+			return;
+		}
+		try {
+			Player player = loadSequencer(phrase.getMidi());
+			if (player == null) {
+				player = phrase.createPlayer();
+				player.addPlayerListener(playerListener);
+			}
+			this.phrase = phrase;
+			this.player = player;
+			state = READY;
+		} catch (IOException | MediaException e) {
+			Log.w(TAG, "setPhrase: can't prepare phrase", e);
+		}
+	}
 
-	public void play(int loop) {}
+	/**
+	 * Loads the MIDI phrase to the track player.
+	 *
+	 * @return null, if the phrase can't be played by the track player
+	 */
+	private Player loadSequencer(byte[] midi) throws IOException, MediaException {
+		if (midi == null) {
+			return null;
+		}
+		if (sequencer == null) {
+			Player player = Manager.createPlayer(Manager.TONE_DEVICE_LOCATOR);
+			player.realize();
+			ToneControl control = (ToneControl) player.getControl("ToneControl");
+			if (control == null) {
+				player.close();
+				return null;
+			}
+			player.addPlayerListener(playerListener);
+			sequencer = player;
+			toneControl = control;
+		}
+		sequencer.deallocate();
+		try {
+			toneControl.setSequence(midi);
+		} catch (IllegalArgumentException e) {
+			// without the synth the tone device takes the tone sequences only
+			Log.w(TAG, "loadSequencer: ", e);
+			return null;
+		}
+		sequencer.prefetch();
+		return sequencer;
+	}
 
-	public void stop() {}
+	public synchronized void removePhrase() {
+		Player player = this.player;
+		if (player == null) {
+			return;
+		}
+		stopPlayer();
+		if (player != sequencer) {
+			player.close();
+		}
+		this.phrase = null;
+		this.player = null;
+		state = NO_DATA;
+	}
 
-	public void pause() {}
+	/** Closes the track player */
+	synchronized void releasePlayer() {
+		removePhrase();
+		if (sequencer != null) {
+			sequencer.close();
+			sequencer = null;
+			toneControl = null;
+		}
+	}
+
+	public void play() {
+		play(1);
+	}
+
+	/**
+	 * @param loop number of plays, 0 for the endless playback
+	 */
+	public void play(int loop) {
+		if (loop < 0 || loop > 255) {
+			throw new IllegalArgumentException("loop=" + loop);
+		}
+		synchronized (this) {
+			if (state == NO_DATA) {
+				throw new IllegalStateException("phrase is not set");
+			}
+			try {
+				stopPlayer();
+				player.setLoopCount(loop == 0 ? -1 : loop);
+				loopsLeft = loop == 0 ? -1 : loop;
+				updateVolume();
+				player.start();
+				state = PLAYING;
+			} catch (MediaException e) {
+				Log.w(TAG, "play: ", e);
+			}
+		}
+		for (PhraseTrackBase slave : getSlaves()) {
+			if (slave.getState() != NO_DATA) {
+				slave.play(loop);
+			}
+		}
+	}
 
-	public void resume() {}
+	public void stop() {
+		synchronized (this) {
+			if (state == PLAYING || state == PAUSED) {
+				stopPlayer();
+				state = READY;
+			}
+		}
+		for (PhraseTrackBase slave : getSlaves()) {
+			slave.stop();
+		}
+	}
 
-	public int getState() {
-		return PLAYING;
+	public void pause() {
+		boolean paused = false;
+		synchronized (this) {
+			if (state == PLAYING) {
+				try {
+					player.stop();
+					state = PAUSED;
+					paused = true;
+				} catch (MediaException e) {
+					Log.w(TAG, "pause: ", e);
+				}
+			}
+		}
+		if (paused) {
+			postEvent(PhraseEventType.EV_PAUSE);
+		}
+		for (PhraseTrackBase slave : getSlaves()) {
+			slave.pause();
+		}
 	}
 
-	public void setVolume(int value) {}
+	public void resume() {
+		synchronized (this) {
+			if (state == PAUSED) {
+				try {
+					player.start();
+					state = PLAYING;
+				} catch (MediaException e) {
+					Log.w(TAG, "resume: ", e);
+				}
+			}
+		}
+		for (PhraseTrackBase slave : getSlaves()) {
+			slave.resume();
+		}
+	}
+
+	/** Stops the player and rewinds it to the start */
+	private void stopPlayer() {
+		try {
+			player.stop();
+			player.setMediaTime(0);
+		} catch (MediaException e) {
+			Log.w(TAG, "stopPlayer: ", e);
+		}
+	}
+
+	private synchronized PhraseTrackBase[] getSlaves() {
+		return slaves.toArray(new PhraseTrackBase[0]);
+	}
+
+	public synchronized int getState() {
+		return state;
+	}
+
+	public synchronized void setVolume(int value) {
+		if (value < 0 || value > 127) {
+			throw new IllegalArgumentException("volume=" + value);
+		}
+		volume = value;
+		updateVolume();
+	}
 
 	public int getVolume() {
-		return 0;
+		return volume;
 	}
 
-	public void setPanpot(int value) {}
+	public synchronized void setPanpot(int value) {
+		if (value < 0 || value > 127) {
+			throw new IllegalArgumentException("panpot=" + value);
+		}
+		panpot = value;
+		updateVolume();
+	}
 
 	public int getPanpot() {
-		return 0;
+		return panpot;
 	}
 
-	public void mute(boolean mute) {}
+	public synchronized void mute(boolean mute) {
+		this.mute = mute;
+		updateVolume();
+	}
 
 	public boolean isMute() {
-		return true;
+		return mute;
 	}
 
 	public int getID() {
-		return 0;
+		return id;
+	}
+
+	public synchronized void setEventListener(PhraseTrackListener l) {
+		listener = l;
+	}
+
+	/** Applies the track volume and panpot to its player */
+	private void updateVolume() {
+		if (player == null) {
+			return;
+		}
+		VolumeControl volumeControl = (VolumeControl) player.getControl("VolumeControl");
+		if (volumeControl != null) {
+			volumeControl.setLevel(volume * 100 / 127);
+			volumeControl.setMute(mute);
+		}
+		PanControl panControl = (PanControl) player.getControl(PanControl.class.getName());
+		if (panControl != null) {
+			int pan = (panpot - DEFAULT_PANPOT) * 100 / 63;
+			panControl.setPan(Math.max(-100, Math.min(pan, 100)));
+		}
+	}
+
+	private void postEvent(int event) {
+		PhraseTrackListener listener;
+		synchronized (this) {
+			listener = this.listener;
+		}
+		if (listener != null) {
+			listener.eventOccurred(event);
+		}
 	}
 
-	public void setEventListener(PhraseTrackListener l) {}
+	private void playerUpdate(Player player, String event, Object eventData) {
+		if (!PlayerListener.END_OF_MEDIA.equals(event)) {
+			return;
+		}
+		int phraseEvent;
+		synchronized (this) {
+			if (player != this.player || state != PLAYING) {
+				return;
+			}
+			if (loopsLeft == -1 || --loopsLeft > 0) {
+				phraseEvent = PhraseEventType.EV_LOOP;
+			} else {
+				state = READY;
+				phraseEvent = PhraseEventType.EV_END;
+			}
+		}
+		postEvent(phraseEvent);
+	}
 }
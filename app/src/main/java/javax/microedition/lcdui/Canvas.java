@@ -55,6 +55,7 @@ import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -69,6 +70,7 @@ import javax.microedition.lcdui.graphics.ShaderProgram;
 import javax.microedition.lcdui.keyboard.KeyMapper;
 import javax.microedition.lcdui.keyboard.VirtualKeyboard;
 import javax.microedition.lcdui.overlay.FpsCounter;
+import javax.microedition.lcdui.overlay.LatencyMonitor;
 import javax.microedition.lcdui.overlay.Layer;
 import javax.microedition.lcdui.overlay.Overlay;
 import javax.microedition.lcdui.overlay.OverlayView;
@@ -130,6 +132,7 @@ public abstract class Canvas extends Displayable {
 	private final SoftBar softBar = new SoftBar();
 	private final CanvasWrapper canvasWrapper = new CanvasWrapper(settings.screenFilter);
 	private final RectF virtualScreen = new RectF();
+	private final FramePacer framePacer = new FramePacer();
 
 	protected int width, height;
 	protected int maxHeight;
@@ -145,10 +148,10 @@ public abstract class Canvas extends Displayable {
 	private Image offscreen;
 	private Image offscreenCopy;
 	private int onX, onY, onWidth, onHeight;
-	private long lastFrameTime = System.currentTimeMillis();
 	private Handler uiHandler;
 	private Overlay overlay;
 	private FpsCounter fpsCounter;
+	private LatencyMonitor latencyMonitor;
 	private boolean skipLeftSoft;
 	private boolean skipRightSoft;
 
@@ -266,6 +269,7 @@ public abstract class Canvas extends Displayable {
 			offscreenCopy.getBitmap().prepareToDraw();
 			g.drawImage(offscreenCopy, virtualScreen);
 		}
+		LatencyMonitor.framePresented();
 		if (fpsCounter != null) {
 			fpsCounter.increment();
 		}
@@ -617,14 +621,9 @@ public abstract class Canvas extends Displayable {
 	}
 
 	private void limitFps() {
-		if (fpsLimit <= 0) return;
-		try {
-			long millis = (1000 / fpsLimit) - (System.currentTimeMillis() - lastFrameTime);
-			if (millis > 0) Thread.sleep(millis);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		if (fpsLimit > 0) {
+			framePacer.pace(fpsLimit);
 		}
-		lastFrameTime = System.currentTimeMillis();
 	}
 
 	@SuppressLint("NewApi")
@@ -651,6 +650,7 @@ public abstract class Canvas extends Displayable {
 				}
 				surface.unlockCanvasAndPost(canvas);
 			}
+			LatencyMonitor.framePresented();
 			if (fpsCounter != null) {
 				fpsCounter.increment();
 			}
@@ -777,6 +777,7 @@ public abstract class Canvas extends Displayable {
 				GLUtils.texImage2D(GL_TEXTURE_2D, 0, offscreenCopy.getBitmap(), 0);
 			}
 			glDrawArrays(GL_TRIANGLE_STRIP, 0, 4);
+			LatencyMonitor.framePresented();
 			if (fpsCounter != null) {
 				fpsCounter.increment();
 			}
@@ -864,7 +865,7 @@ public abstract class Canvas extends Displayable {
 
 		boolean isPending;
 
-		private int enqueued = 0;
+		private final AtomicInteger enqueued = new AtomicInteger();
 
 		@Override
 		public synchronized void process() {
@@ -885,6 +886,7 @@ public abstract class Canvas extends Displayable {
 			}
 			Graphics g = offscreen.getSingleGraphics();
 			g.reset(l, t, r, b);
+			LatencyMonitor.paintStarted();
 			try {
 				paint(g);
 			} catch (Throwable e) {
@@ -893,6 +895,7 @@ public abstract class Canvas extends Displayable {
 			synchronized (bufferLock) {
 				offscreen.copyTo(offscreenCopy);
 			}
+			LatencyMonitor.paintFinished();
 			if (surface == null || !surface.isValid()) {
 				return;
 			}
@@ -905,12 +908,28 @@ public abstract class Canvas extends Displayable {
 
 		@Override
 		public void enterQueue() {
-			enqueued++;
+			enqueued.incrementAndGet();
+		}
+
+		/**
+		 * The ring queue does not know the last event,
+		 * it gets no more than two repaint events, see {@link #placeableAfter(Event)}
+		 */
+		@Override
+		public boolean tryEnterQueue() {
+			int count;
+			do {
+				count = enqueued.get();
+				if (count >= 2) {
+					return false;
+				}
+			} while (!enqueued.compareAndSet(count, count + 1));
+			return true;
 		}
 
 		@Override
 		public void leaveQueue() {
-			enqueued--;
+			enqueued.decrementAndGet();
 		}
 
 		/**
@@ -961,6 +980,7 @@ public abstract class Canvas extends Displayable {
 
 		@Override
 		public boolean onKey(View v, int keyCode, KeyEvent event) {
+			LatencyMonitor.inputReceived();
 			switch (event.getAction()) {
 				case KeyEvent.ACTION_DOWN -> {
 					return onKeyDown(keyCode, event);
@@ -1025,6 +1045,7 @@ public abstract class Canvas extends Displayable {
 		@Override
 		@SuppressLint("ClickableViewAccessibility")
 		public boolean onTouch(View v, MotionEvent event) {
+			LatencyMonitor.inputReceived();
 			switch (event.getActionMasked()) {
 				case MotionEvent.ACTION_DOWN:
 					if (overlay != null) {
@@ -1146,6 +1167,10 @@ public abstract class Canvas extends Displayable {
 				fpsCounter = new FpsCounter(overlayView);
 				overlayView.addLayer(fpsCounter);
 			}
+			if (LatencyMonitor.ENABLED) {
+				latencyMonitor = new LatencyMonitor(overlayView);
+				overlayView.addLayer(latencyMonitor);
+			}
 			overlayView.addLayer(softBar, 0);
 			overlayView.setVisibility(true);
 			overlay = ContextHolder.getVk();
@@ -1168,6 +1193,11 @@ public abstract class Canvas extends Displayable {
 				overlayView.removeLayer(fpsCounter);
 				fpsCounter = null;
 			}
+			if (latencyMonitor != null) {
+				latencyMonitor.stop();
+				overlayView.removeLayer(latencyMonitor);
+				latencyMonitor = null;
+			}
 			overlayView.removeLayer(softBar);
 			softBar.closeMenu();
 			overlayView.setVisibility(false);
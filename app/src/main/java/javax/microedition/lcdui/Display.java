@@ -76,6 +76,14 @@ public class Display {
 		queue.postEvent(event);
 	}
 
+	/**
+	 * Makes the class loader of the MIDlet the context one of the event thread,
+	 * so the threads started from the MIDlet callbacks inherit it.
+	 */
+	public static void setClassLoader(ClassLoader loader) {
+		queue.setContextClassLoader(loader);
+	}
+
 	static EventQueue getEventQueue() {
 		return queue;
 	}
@@ -0,0 +1,242 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.lcdui;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+import javax.microedition.util.ContextHolder;
+
+/**
+ * Limits the rate of the MIDlet frames. Deadlines are kept in {@link System#nanoTime()}
+ * and advance by the exact frame period, so the sleep overshoot and the millisecond rounding
+ * do not accumulate. In the adaptive mode the deadlines are aligned to the display refresh
+ * and the period is a multiple of the refresh interval, it grows while the MIDlet misses
+ * the deadlines and shrinks back when the frames have enough spare time.
+ */
+final class FramePacer {
+	private static final boolean ADAPTIVE = "adaptive".equals(System.getProperty("lcdui.frame.pacer"));
+	/** The tail of the wait is yielded instead of sleeping, sleep overshoots by about a millisecond */
+	private static final long SPIN_NANOS = 500_000;
+	/** Frames between the changes of the adaptive period */
+	private static final int WINDOW = 30;
+	private static final int MAX_REFRESHES = 6;
+
+	private final Clock clock;
+	private final boolean adaptive;
+	private int fps;
+	/** Frame period of the fps limit, nanoseconds */
+	private long period;
+	/** Start time of the current frame */
+	private long deadline;
+
+	/** Frame period of the adaptive mode in refresh intervals */
+	private int refreshes;
+	private int frames;
+	private int missed;
+	private long minSpare;
+
+	FramePacer() {
+		this(SystemClock.INSTANCE, ADAPTIVE);
+	}
+
+	FramePacer(Clock clock, boolean adaptive) {
+		this.clock = clock;
+		this.adaptive = adaptive;
+	}
+
+	synchronized void pace(int fps) {
+		long now = clock.nanoTime();
+		if (fps != this.fps) {
+			this.fps = fps;
+			period = 1_000_000_000L / fps;
+			refreshes = 0;
+			deadline = now;
+			return;
+		}
+		long target = deadline + (adaptive ? getAdaptivePeriod() : period);
+		if (adaptive) {
+			target = clock.alignToRefresh(target);
+		}
+		long wait = target - now;
+		if (wait > 0) {
+			clock.sleepUntil(target, wait);
+			deadline = target;
+		} else if (-wait > period) {
+			// too late to catch up, don't run a burst of frames
+			deadline = now;
+		} else {
+			deadline = target;
+		}
+		if (adaptive) {
+			adapt(wait);
+		}
+	}
+
+	private long getAdaptivePeriod() {
+		long interval = clock.getRefreshInterval();
+		if (refreshes == 0) {
+			refreshes = getMinRefreshes(interval);
+		}
+		return refreshes * interval;
+	}
+
+	/** @return the least multiple of the refresh interval not shorter than the limit period */
+	private int getMinRefreshes(long interval) {
+		// small tolerance, the fps limit equal to the refresh rate must not skip frames
+		return (int) Math.max((period - interval / 16 + interval - 1) / interval, 1);
+	}
+
+	private void adapt(long wait) {
+		if (wait < 0) {
+			missed++;
+		} else if (frames == 0 || wait < minSpare) {
+			minSpare = wait;
+		}
+		if (++frames < WINDOW) {
+			return;
+		}
+		long interval = clock.getRefreshInterval();
+		if (missed > WINDOW / 2 && refreshes < MAX_REFRESHES) {
+			refreshes++;
+		} else if (missed == 0 && minSpare > interval && refreshes > getMinRefreshes(interval)) {
+			// each frame fits into a shorter period
+			refreshes--;
+		}
+		frames = missed = 0;
+	}
+
+	/** Time and display refresh of the pacer, simulated in the tests */
+	interface Clock {
+		long nanoTime();
+
+		void sleepUntil(long target, long wait);
+
+		long getRefreshInterval();
+
+		/** @return the refresh time nearest to the target, or the target if it is unknown */
+		long alignToRefresh(long target);
+	}
+
+	private static final class SystemClock implements Clock {
+		static final SystemClock INSTANCE = new SystemClock();
+
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+
+		@Override
+		public void sleepUntil(long target, long wait) {
+			try {
+				if (wait > SPIN_NANOS) {
+					wait -= SPIN_NANOS;
+					Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+				}
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+				return;
+			}
+			while (System.nanoTime() < target) {
+				Thread.yield();
+			}
+		}
+
+		@Override
+		public long getRefreshInterval() {
+			return Vsync.getInterval();
+		}
+
+		@Override
+		public long alignToRefresh(long target) {
+			return Vsync.align(target);
+		}
+	}
+
+	/**
+	 * Phase and interval of the display refresh. The vsync time is sampled from
+	 * the {@link Choreographer} about once a second, not on every frame.
+	 */
+	private static final class Vsync {
+		private static final long SAMPLE_NANOS = 1_000_000_000L;
+		private static final long interval;
+		private static final Sampler sampler;
+
+		static long getInterval() {
+			return interval;
+		}
+
+		/** @return the vsync time nearest to the target, or the target if it is unknown */
+		static long align(long target) {
+			if (sampler == null) {
+				return target;
+			}
+			long vsync = sampler.getLastVsync(target);
+			if (vsync == 0) {
+				return target;
+			}
+			long k = Math.round((double) (target - vsync) / interval);
+			return vsync + k * interval;
+		}
+
+		static {
+			float rate = 60.0f;
+			try {
+				WindowManager wm = (WindowManager) ContextHolder.getAppContext()
+						.getSystemService(Context.WINDOW_SERVICE);
+				float displayRate = wm.getDefaultDisplay().getRefreshRate();
+				if (displayRate >= 10.0f) {
+					rate = displayRate;
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			interval = (long) (1_000_000_000L / rate);
+			sampler = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN ? new Sampler() : null;
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static final class Sampler implements Choreographer.FrameCallback, Runnable {
+		private final Handler handler = new Handler(Looper.getMainLooper());
+		private volatile long lastVsync;
+		private volatile boolean requested;
+
+		long getLastVsync(long now) {
+			long vsync = lastVsync;
+			if (now - vsync > Vsync.SAMPLE_NANOS && !requested) {
+				requested = true;
+				handler.post(this);
+			}
+			return vsync;
+		}
+
+		@Override
+		public void run() {
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			lastVsync = frameTimeNanos;
+			requested = false;
+		}
+	}
+}
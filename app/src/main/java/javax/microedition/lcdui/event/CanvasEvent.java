@@ -18,7 +18,10 @@ package javax.microedition.lcdui.event;
 
 import android.util.Log;
 
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 import javax.microedition.lcdui.Canvas;
+import javax.microedition.lcdui.overlay.LatencyMonitor;
 import javax.microedition.util.ArrayStack;
 
 public class CanvasEvent extends Event {
@@ -36,7 +39,7 @@ public class CanvasEvent extends Event {
 	public static final int HIDE_NOTIFY = 7;
 	public static final int SIZE_CHANGED = 8;
 
-	private static final int[] enqueued = new int[9];
+	private static final AtomicIntegerArray enqueued = new AtomicIntegerArray(9);
 
 	private Canvas canvas;
 	private int eventType;
@@ -86,6 +89,9 @@ public class CanvasEvent extends Event {
 
 	@Override
 	public void process() {
+		if (eventType <= POINTER_RELEASED) {
+			LatencyMonitor.inputDispatched();
+		}
 		switch (eventType) {
 			case KEY_PRESSED:
 				try {
@@ -169,12 +175,30 @@ public class CanvasEvent extends Event {
 
 	@Override
 	public void enterQueue() {
-		enqueued[eventType]++;
+		enqueued.incrementAndGet(eventType);
+	}
+
+	@Override
+	public boolean tryEnterQueue() {
+		switch (eventType) {
+			case KEY_REPEATED:
+			case POINTER_DRAGGED:
+				int count;
+				do {
+					count = enqueued.get(eventType);
+					if (count >= 2) {
+						return false;
+					}
+				} while (!enqueued.compareAndSet(eventType, count, count + 1));
+				return true;
+		}
+		enterQueue();
+		return true;
 	}
 
 	@Override
 	public void leaveQueue() {
-		enqueued[eventType]--;
+		enqueued.decrementAndGet(eventType);
 	}
 
 	@Override
@@ -183,9 +207,32 @@ public class CanvasEvent extends Event {
 			switch (eventType) {
 				case KEY_REPEATED:
 				case POINTER_DRAGGED:
-					return enqueued[eventType] < 2;
+					return enqueued.get(eventType) < 2;
 			}
 		}
 		return true;
 	}
+
+	@Override
+	public boolean supersededBy(Event next) {
+		if (!(next instanceof CanvasEvent)) {
+			return false;
+		}
+		CanvasEvent event = (CanvasEvent) next;
+		if (event.canvas != canvas || event.eventType != eventType) {
+			return false;
+		}
+		switch (eventType) {
+			case POINTER_DRAGGED:
+				return event.pointer == pointer;
+			case SIZE_CHANGED:
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean heldWhilePaused() {
+		return eventType <= POINTER_RELEASED;
+	}
 }
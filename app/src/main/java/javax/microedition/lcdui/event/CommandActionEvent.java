@@ -95,4 +95,9 @@ public class CommandActionEvent extends Event {
 	public boolean placeableAfter(Event event) {
 		return true;
 	}
+
+	@Override
+	public boolean heldWhilePaused() {
+		return true;
+	}
 }
\ No newline at end of file
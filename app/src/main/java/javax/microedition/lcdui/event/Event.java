@@ -58,6 +58,18 @@ public abstract class Event implements Runnable {
 	 */
 	public abstract void enterQueue();
 
+	/**
+	 * Called instead of {@link #enterQueue()} and {@link #placeableAfter(Event)}
+	 * by the ring queue, where the last event is not known.
+	 * May be called from several threads at once.
+	 *
+	 * @return true, if the event entered the queue, otherwise it is dropped
+	 */
+	public boolean tryEnterQueue() {
+		enterQueue();
+		return true;
+	}
+
 	/**
 	 * Called when an event has left the queue.
 	 * Here you can increase the count of such events in the queue.
@@ -72,4 +84,26 @@ public abstract class Event implements Runnable {
 	 * @return true, if we agree to that
 	 */
 	public abstract boolean placeableAfter(Event event);
+
+	/**
+	 * Check if this event can be dropped
+	 * because the next event in the queue replaces it.
+	 *
+	 * @param next the event queued right after this one
+	 * @return true, if only the next event should be processed
+	 */
+	public boolean supersededBy(Event next) {
+		return false;
+	}
+
+	/**
+	 * Check if the event must wait for the resume while the MIDlet is paused.
+	 * Input, commands and serial calls would advance the game on the stopped clock,
+	 * other events pass, e.g. hideNotify() is delivered during the pause.
+	 *
+	 * @return true, if the event is held
+	 */
+	public boolean heldWhilePaused() {
+		return false;
+	}
 }
\ No newline at end of file
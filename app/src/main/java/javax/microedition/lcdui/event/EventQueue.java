@@ -17,23 +17,57 @@
 
 package javax.microedition.lcdui.event;
 
+import android.util.Log;
+
+import java.util.concurrent.locks.LockSupport;
+
+import javax.microedition.shell.MidletClock;
 import javax.microedition.util.LinkedList;
 
 /**
  * The event queue. A really complicated thing.
  */
 public class EventQueue implements Runnable {
+	private static final String TAG = EventQueue.class.getSimpleName();
+	/**
+	 * Use the lock-free ring buffer instead of the synchronized list,
+	 * producers never block the event thread, consecutive events replacing
+	 * each other (e.g. pointer drags) are coalesced.
+	 */
+	private static final boolean RING = Boolean.getBoolean("lcdui.event.queue.ring");
+	private static final int RING_CAPACITY = 1024;
+
 	private static boolean immediate;
 
+	private final EventRing ring;
 	private final LinkedList<Event> queue = new LinkedList<>();
 	private final Object waiter = new Object();
 	private final Object interlock = new Object();
 	private final Object callbackLock = new Object();
 
 	private boolean enabled;
-	private Thread thread;
+	private volatile Thread thread;
+	/** Class loader of the MIDlet, inherited by the threads started from its callbacks */
+	private volatile ClassLoader contextClassLoader;
 	private boolean running;
 	private boolean continuerun;
+	private volatile Thread consumer;
+	private volatile boolean parked;
+	/** Events before this ring position are dropped */
+	private volatile long clearTo;
+	/**
+	 * The ring was full, further events go to the locked list until it is drained,
+	 * so the producers (mostly the UI thread) never wait for a stalled event thread
+	 */
+	private volatile boolean overflow;
+
+	public EventQueue() {
+		this(RING);
+	}
+
+	EventQueue(boolean ring) {
+		this.ring = ring ? new EventRing(RING_CAPACITY) : null;
+	}
 
 	/**
 	 * Enable immediate processing mode.
@@ -76,6 +110,11 @@ public class EventQueue implements Runnable {
 			return;      // and nothing to do here
 		}
 
+		if (ring != null) {
+			postRingEvent(event);
+			return;
+		}
+
 		boolean empty;
 
 		synchronized (queue) {   // all operations with the queue must be synchronized (on itself)
@@ -117,12 +156,46 @@ public class EventQueue implements Runnable {
 		}
 	}
 
+	private void postRingEvent(Event event) {
+		if (!event.tryEnterQueue()) {
+			event.recycle();
+			return;
+		}
+		if (overflow || !ring.offer(event)) {
+			synchronized (queue) {
+				// recheck, the event thread may have drained the list meanwhile
+				if (overflow || !ring.offer(event)) {
+					if (!overflow) {
+						Log.w(TAG, "postEvent: ring is full, queueing to the list");
+						overflow = true;
+					}
+					queue.addLast(event);
+				}
+			}
+		}
+		if (parked) {
+			Thread thread = consumer;
+			if (thread != null) {
+				LockSupport.unpark(thread);
+			}
+		}
+	}
+
 	/**
 	 * Check if there is anything in the queue.
 	 *
 	 * @return true, if the queue is empty
 	 */
 	public boolean isEmpty() {
+		if (ring != null) {
+			if (ring.head() < ring.tail()) {
+				return false;
+			}
+			synchronized (queue) {
+				// the overflow flag is reset only when the event thread finds the list empty
+				return queue.isEmpty();
+			}
+		}
 		return queue.isEmpty();
 	}
 
@@ -130,6 +203,16 @@ public class EventQueue implements Runnable {
 	 * Clear the queue.
 	 */
 	public void clear() {
+		if (ring != null) {
+			clearTo = ring.tail();
+			synchronized (queue) {
+				Event event;
+				while ((event = queue.removeFirst()) != null) {
+					dropEvent(event);
+				}
+			}
+			return;
+		}
 		synchronized (queue) {
 			queue.clear();
 		}
@@ -144,10 +227,25 @@ public class EventQueue implements Runnable {
 
 		if (thread == null) {
 			thread = new Thread(this, "MIDletEventQueue");
+			if (contextClassLoader != null) {
+				thread.setContextClassLoader(contextClassLoader);
+			}
 			thread.start();
 		}
 	}
 
+	/**
+	 * Sets the context class loader of the event thread, the thread is started
+	 * before the MIDlet classes are loaded.
+	 */
+	public void setContextClassLoader(ClassLoader loader) {
+		contextClassLoader = loader;
+		Thread thread = this.thread;
+		if (thread != null) {
+			thread.setContextClassLoader(loader);
+		}
+	}
+
 	/**
 	 * Stop the event loop.
 	 * This method is blocked until the loop is completely stopped.
@@ -159,8 +257,14 @@ public class EventQueue implements Runnable {
 			waiter.notifyAll();
 		}
 
+		Thread thread = this.thread;
+		if (thread != null) {
+			// also ends the park on the empty ring and the wait for the MIDlet resume
+			thread.interrupt();
+		}
+
 		synchronized (interlock) {
-			thread = null;
+			this.thread = null;
 		}
 	}
 
@@ -170,6 +274,10 @@ public class EventQueue implements Runnable {
 	@Override
 	public void run() {
 		synchronized (interlock) {
+			if (ring != null) {
+				runRing();
+				return;
+			}
 			running = true;
 
 			while (enabled) {
@@ -180,9 +288,7 @@ public class EventQueue implements Runnable {
 				}
 
 				if (event != null) {
-					synchronized (callbackLock) {
-						event.run();
-					}
+					dispatch(event);
 				} else {
 					synchronized (waiter) {
 						if (continuerun) {
@@ -204,6 +310,85 @@ public class EventQueue implements Runnable {
 		}
 	}
 
+	private void runRing() {
+		consumer = Thread.currentThread();
+		try {
+			while (enabled) {
+				Event event = ring.poll();
+				if (event != null) {
+					Event next;
+					while ((next = ring.peek()) != null && event.supersededBy(next)) {
+						dropEvent(event);
+						event = ring.poll();
+					}
+					if (ring.head() <= clearTo) {
+						dropEvent(event);
+						continue;
+					}
+				} else if (overflow) {
+					// the ring is drained, continue with the overflowed events in order
+					event = pollOverflow();
+				}
+				if (event == null) {
+					parked = true;
+					// recheck after the flag is set, otherwise the wakeup may be lost
+					if (enabled && ring.peek() == null && !overflow) {
+						LockSupport.park(this);
+					}
+					parked = false;
+					// park() returns at once while the flag is set, an interrupt
+					// is not a stop request here, the list mode ignores it too
+					Thread.interrupted();
+					continue;
+				}
+				dispatch(event);
+			}
+		} finally {
+			consumer = null;
+		}
+	}
+
+	private Event pollOverflow() {
+		synchronized (queue) {
+			Event event = queue.removeFirst();
+			if (event == null) {
+				overflow = false;
+			}
+			return event;
+		}
+	}
+
+	private void dispatch(Event event) {
+		if (event.heldWhilePaused() && !awaitMidletRunning()) {
+			dropEvent(event);
+			return;
+		}
+		synchronized (callbackLock) {
+			event.run();
+		}
+	}
+
+	/**
+	 * Game events are held while the MIDlet clock is paused,
+	 * callbacks would advance the game on the stopped time.
+	 *
+	 * @return false, if the wait is interrupted, e.g. by {@link #stopProcessing()}
+	 */
+	private static boolean awaitMidletRunning() {
+		try {
+			MidletClock.awaitRunning();
+			return true;
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static void dropEvent(Event event) {
+		event.leaveQueue();
+		event.recycle();
+	}
+
 	public void serviceRepaints(Event paintEvent) {
 		if (immediate) {
 			return;
@@ -0,0 +1,112 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.microedition.lcdui.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer single-consumer ring buffer of events.
+ * Producers claim slots by CAS on the tail, a slot is published by its sequence number,
+ * the head is owned by the consumer thread.
+ */
+final class EventRing {
+	private final int mask;
+	private final AtomicReferenceArray<Event> slots;
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head;
+
+	/**
+	 * @param capacity the power of two
+	 */
+	EventRing(int capacity) {
+		if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+			throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+		}
+		mask = capacity - 1;
+		slots = new AtomicReferenceArray<>(capacity);
+		sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * @return false if the ring is full
+	 */
+	boolean offer(Event event) {
+		long t;
+		int i;
+		while (true) {
+			t = tail.get();
+			i = (int) t & mask;
+			long seq = sequences.get(i);
+			if (seq == t) {
+				if (tail.compareAndSet(t, t + 1)) {
+					break;
+				}
+			} else if (seq < t) {
+				// the slot is not consumed yet
+				return false;
+			}
+		}
+		slots.set(i, event);
+		sequences.set(i, t + 1);
+		return true;
+	}
+
+	/**
+	 * Called by the consumer only.
+	 *
+	 * @return the first published event, or {@code null} if there is none
+	 */
+	Event peek() {
+		long h = head;
+		int i = (int) h & mask;
+		if (sequences.get(i) != h + 1) {
+			return null;
+		}
+		return slots.get(i);
+	}
+
+	/**
+	 * Called by the consumer only.
+	 *
+	 * @return the removed first event, or {@code null} if there is none
+	 */
+	Event poll() {
+		long h = head;
+		int i = (int) h & mask;
+		if (sequences.get(i) != h + 1) {
+			return null;
+		}
+		Event event = slots.get(i);
+		slots.set(i, null);
+		sequences.set(i, h + mask + 1);
+		head = h + 1;
+		return event;
+	}
+
+	/** @return position of the next event to be consumed */
+	long head() {
+		return head;
+	}
+
+	/** @return position after the last claimed slot */
+	long tail() {
+		return tail.get();
+	}
+}
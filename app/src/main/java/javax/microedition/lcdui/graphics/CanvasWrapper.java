@@ -118,9 +118,17 @@ public class CanvasWrapper {
 	}
 
 	public void drawBackgroundedText(String text) {
+		drawBackgroundedText(text, 0);
+	}
+
+	/**
+	 * @param line the text line from the top of the view
+	 */
+	public void drawBackgroundedText(String text, int line) {
 		float width = textPaint.measureText(text);
-		canvas.drawRect(0, 0, width, textHeight, fillPaint);
-		canvas.drawText(text, width / 2.0f, -textAscent, textPaint);
+		float top = line * textHeight;
+		canvas.drawRect(0, top, width, top + textHeight, fillPaint);
+		canvas.drawText(text, width / 2.0f, top - textAscent, textPaint);
 	}
 
 	public float getTextHeight() {
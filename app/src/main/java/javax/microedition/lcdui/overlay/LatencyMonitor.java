@@ -0,0 +1,282 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.microedition.lcdui.overlay;
+
+import android.util.Log;
+import android.view.View;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.microedition.lcdui.graphics.CanvasWrapper;
+
+import ru.playsoftware.j2meloader.config.Config;
+
+/**
+ * Measures the input-to-photon latency: the time from the input intake on the UI thread
+ * through the event dispatch and the MIDlet paint to the frame presented on the screen.
+ * Inputs arriving while one is measured are not tracked separately.
+ * Percentiles are shown on the overlay, per-frame records are written to a file on stop.
+ * The mean and the standard deviation of the intervals between the frames are tracked too,
+ * they show the frame pacing jitter.
+ */
+public class LatencyMonitor extends TimerTask implements Layer {
+	private static final String TAG = LatencyMonitor.class.getSimpleName();
+	public static final boolean ENABLED = Boolean.getBoolean("lcdui.latency.monitor");
+	private static final int MAX_RECORDS = 4096;
+	/** Fields of a record: intake time and the stage times relative to it */
+	private static final int INTAKE = 0, DISPATCH = 1, PAINT_START = 2, PAINT_END = 3, PRESENT = 4;
+	private static final int RECORD_SIZE = 5;
+	/** Longer frame intervals are pauses of the MIDlet, not the jitter */
+	private static final long MAX_FRAME_INTERVAL = 250_000_000L;
+
+	private static volatile LatencyMonitor instance;
+
+	private final View view;
+	private final Timer timer;
+	private final long[] stages = new long[RECORD_SIZE];
+	private final long[] records = new long[MAX_RECORDS * RECORD_SIZE];
+	private int recordCount;
+	/** Records shown on the overlay start here */
+	private int windowStart;
+	private String text = "lat: -";
+	private String frameText = "frame: -";
+	private long lastFrame;
+	/** Frame interval stats of the overlay window and of the records written on export */
+	private final FrameStats windowFrames = new FrameStats();
+	private final FrameStats exportFrames = new FrameStats();
+
+	public LatencyMonitor(View view) {
+		this.view = view;
+		timer = new Timer("LatencyMonitor", true);
+		timer.scheduleAtFixedRate(this, 0, 1000);
+		instance = this;
+	}
+
+	/** Called on the UI thread when the input is received */
+	public static void inputReceived() {
+		LatencyMonitor monitor = instance;
+		if (monitor != null) {
+			monitor.stamp(INTAKE);
+		}
+	}
+
+	/** Called on the event thread when the input event is dispatched to the MIDlet */
+	public static void inputDispatched() {
+		LatencyMonitor monitor = instance;
+		if (monitor != null) {
+			monitor.stamp(DISPATCH);
+		}
+	}
+
+	public static void paintStarted() {
+		LatencyMonitor monitor = instance;
+		if (monitor != null) {
+			monitor.stamp(PAINT_START);
+		}
+	}
+
+	public static void paintFinished() {
+		LatencyMonitor monitor = instance;
+		if (monitor != null) {
+			monitor.stamp(PAINT_END);
+		}
+	}
+
+	/** Called when the frame is posted to the screen */
+	public static void framePresented() {
+		LatencyMonitor monitor = instance;
+		if (monitor != null) {
+			monitor.stamp(PRESENT);
+			monitor.frame();
+		}
+	}
+
+	private synchronized void stamp(int stage) {
+		long[] stages = this.stages;
+		// each stage is accepted only after the previous one, paint stages are optional
+		switch (stage) {
+			case INTAKE:
+				if (stages[INTAKE] != 0) {
+					return;
+				}
+				break;
+			case DISPATCH:
+				if (stages[INTAKE] == 0 || stages[DISPATCH] != 0) {
+					return;
+				}
+				break;
+			case PAINT_START:
+				if (stages[DISPATCH] == 0 || stages[PAINT_START] != 0) {
+					return;
+				}
+				break;
+			case PAINT_END:
+				if (stages[PAINT_START] == 0 || stages[PAINT_END] != 0) {
+					return;
+				}
+				break;
+			case PRESENT:
+				if (stages[DISPATCH] == 0 || stages[PAINT_START] != 0 && stages[PAINT_END] == 0) {
+					return;
+				}
+				break;
+		}
+		stages[stage] = System.nanoTime();
+		if (stage == PRESENT) {
+			if (recordCount < MAX_RECORDS) {
+				System.arraycopy(stages, 0, records, recordCount++ * RECORD_SIZE, RECORD_SIZE);
+			}
+			Arrays.fill(stages, 0);
+		}
+	}
+
+	private synchronized void frame() {
+		long now = System.nanoTime();
+		long interval = now - lastFrame;
+		lastFrame = now;
+		if (interval < MAX_FRAME_INTERVAL) {
+			windowFrames.add(interval);
+			exportFrames.add(interval);
+		}
+	}
+
+	@Override
+	public void run() {
+		long[] latencies;
+		synchronized (this) {
+			if (windowFrames.count > 0) {
+				frameText = "frame: " + windowFrames;
+				windowFrames.reset();
+			}
+			latencies = getLatencies(windowStart, recordCount);
+			windowStart = recordCount;
+			if (recordCount == MAX_RECORDS) {
+				export();
+				recordCount = windowStart = 0;
+			}
+		}
+		if (latencies.length > 0) {
+			text = "lat: " + formatPercentiles(latencies);
+		}
+		view.postInvalidate();
+	}
+
+	@Override
+	public void paint(CanvasWrapper g) {
+		g.setFillColor(0x90000000);
+		g.setTextColor(0xFF00FF00);
+		g.drawBackgroundedText(text, 1);
+		g.drawBackgroundedText(frameText, 2);
+	}
+
+	public void stop() {
+		instance = null;
+		cancel();
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				export();
+				timer.cancel();
+			}
+		}, 0);
+	}
+
+	/** @return sorted input-to-present times of the records */
+	private long[] getLatencies(int from, int to) {
+		long[] latencies = new long[to - from];
+		for (int i = from; i < to; i++) {
+			int r = i * RECORD_SIZE;
+			latencies[i - from] = records[r + PRESENT] - records[r + INTAKE];
+		}
+		Arrays.sort(latencies);
+		return latencies;
+	}
+
+	private static String formatPercentiles(long[] sorted) {
+		return String.format(Locale.US, "p50=%.1f p95=%.1f p99=%.1f ms",
+				percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99));
+	}
+
+	private static double percentile(long[] sorted, int p) {
+		int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(index, 0)] / 1e6;
+	}
+
+	private synchronized void export() {
+		if (recordCount == 0 && exportFrames.count == 0) {
+			return;
+		}
+		File file = new File(Config.getEmulatorDir(), "latency.csv");
+		boolean header = !file.exists();
+		try (PrintWriter pw = new PrintWriter(new FileWriter(file, true))) {
+			if (header) {
+				pw.println("dispatch_ms,paint_start_ms,paint_end_ms,present_ms");
+			}
+			for (int i = 0; i < recordCount; i++) {
+				int r = i * RECORD_SIZE;
+				long intake = records[r + INTAKE];
+				pw.printf(Locale.US, "%.3f,%s,%s,%.3f%n",
+						(records[r + DISPATCH] - intake) / 1e6,
+						formatStage(records[r + PAINT_START], intake),
+						formatStage(records[r + PAINT_END], intake),
+						(records[r + PRESENT] - intake) / 1e6);
+			}
+			if (recordCount > 0) {
+				pw.println("# " + formatPercentiles(getLatencies(0, recordCount)) + " n=" + recordCount);
+			}
+			if (exportFrames.count > 0) {
+				pw.println("# frame: " + exportFrames + " n=" + exportFrames.count);
+				exportFrames.reset();
+			}
+		} catch (IOException e) {
+			Log.w(TAG, "export: ", e);
+		}
+	}
+
+	private static String formatStage(long time, long intake) {
+		return time == 0 ? "" : String.format(Locale.US, "%.3f", (time - intake) / 1e6);
+	}
+
+	private static final class FrameStats {
+		int count;
+		double sum;
+		double sumSquares;
+
+		void add(long interval) {
+			double ms = interval / 1e6;
+			count++;
+			sum += ms;
+			sumSquares += ms * ms;
+		}
+
+		void reset() {
+			count = 0;
+			sum = sumSquares = 0;
+		}
+
+		@Override
+		public String toString() {
+			double mean = sum / count;
+			double sd = Math.sqrt(Math.max(sumSquares / count - mean * mean, 0));
+			return String.format(Locale.US, "avg=%.2f sd=%.2f ms", mean, sd);
+		}
+	}
+}
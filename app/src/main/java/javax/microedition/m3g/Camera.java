@@ -53,11 +53,16 @@ public class Camera extends Node {
 	}
 
 	public void setGeneric(Transform transform) {
-		_setGeneric(handle, transform.matrix);
+		_setGeneric(handle, transform.getNativeMatrix());
 	}
 
 	public int getProjection(Transform transform) {
-		return _getProjectionAsTransform(handle, transform != null ? transform.matrix : null);
+		if (transform == null) {
+			return _getProjectionAsTransform(handle, null);
+		}
+		int type = _getProjectionAsTransform(handle, transform.getNativeMatrixForWrite());
+		transform.nativeMatrixChanged();
+		return type;
 	}
 
 	public int getProjection(float[] params) {
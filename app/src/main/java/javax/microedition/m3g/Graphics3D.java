@@ -313,7 +313,7 @@ public class Graphics3D {
 		final VertexBuffer finalVertices = vertices;
 		final IndexBuffer finalPrimitives = primitives;
 		final Appearance finalAppearance = appearance;
-		final Transform finalTransform = transform;
+		final byte[] finalTransform = transform != null ? transform.getNativeMatrix() : null;
 		final int finalScope = scope;
 
 		Platform.executeInUIThread(
@@ -324,7 +324,7 @@ public class Graphics3D {
 								finalVertices.handle,
 								finalPrimitives.handle,
 								finalAppearance.handle,
-								finalTransform != null ? finalTransform.matrix : null,
+								finalTransform,
 								finalScope);
 					}
 				});
@@ -343,7 +343,7 @@ public class Graphics3D {
 		integrityCheck();
 
 		final Node finalNode = node;
-		final Transform finalTransform = transform;
+		final byte[] finalTransform = transform != null ? transform.getNativeMatrix() : null;
 
 		Platform.executeInUIThread(
 				new M3gRunnable() {
@@ -351,7 +351,7 @@ public class Graphics3D {
 					public void doRun() {
 						_renderNode(handle,
 								finalNode.handle,
-								finalTransform != null ? finalTransform.matrix : null);
+								finalTransform);
 					}
 				});
 	}
@@ -361,7 +361,7 @@ public class Graphics3D {
 		integrityCheck();
 		_setCamera(handle,
 				camera != null ? camera.handle : 0,
-				transform != null ? transform.matrix : null);
+				transform != null ? transform.getNativeMatrix() : null);
 
 		this.camera = camera;
 	}
@@ -372,7 +372,7 @@ public class Graphics3D {
 		integrityCheck();
 		int index = _addLight(handle,
 				light.handle,
-				transform != null ? transform.matrix : null);
+				transform != null ? transform.getNativeMatrix() : null);
 		if (lights.size() < index + 1) {
 			lights.setSize(index + 1);
 		}
@@ -388,7 +388,7 @@ public class Graphics3D {
 		_setLight(handle,
 				index,
 				light != null ? light.handle : 0,
-				transform != null ? transform.matrix : null);
+				transform != null ? transform.getNativeMatrix() : null);
 		lights.setElementAt(light, index);
 	}
 
@@ -440,7 +440,8 @@ public class Graphics3D {
 	public Camera getCamera(Transform transform) {
 		integrityCheck();
 		if (transform != null) {
-			_getViewTransform(handle, transform.matrix);
+			_getViewTransform(handle, transform.getNativeMatrixForWrite());
+			transform.nativeMatrixChanged();
 		}
 
 		return (Camera) Object3D.getInstance(_getCamera(handle));
@@ -462,9 +463,13 @@ public class Graphics3D {
 			throw new IndexOutOfBoundsException();
 		}
 
-		return (Light) Object3D.getInstance(_getLightTransform(handle,
+		long light = _getLightTransform(handle,
 				index,
-				transform != null ? transform.matrix : null));
+				transform != null ? transform.getNativeMatrixForWrite() : null);
+		if (transform != null) {
+			transform.nativeMatrixChanged();
+		}
+		return (Light) Object3D.getInstance(light);
 	}
 
 	public int getLightCount() {
@@ -122,7 +122,7 @@ class Interface {
 	/**
 	 * Returns the M3G interface instance for the current MIDlet.
 	 */
-	static Interface getInstance() {
+	static synchronized Interface getInstance() {
 		if (instance == null) {
 			instance = new Interface();
 		}
@@ -23,6 +23,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.InflaterInputStream;
 
 import javax.microedition.io.Connector;
 import javax.microedition.io.HttpConnection;
@@ -71,6 +77,12 @@ public class Loader {
 	// Initial buffer length for the xref section
 	private static final int AVG_XREF_SEC_LENGTH = 128;
 
+	// Initial buffer length for the data fed to the native decoder
+	private static final int DECODE_CHUNK_LENGTH = 2048;
+
+	// Background loading for loadAsync() and parallel external references
+	private static ExecutorService sExecutor;
+
 	// Instance specific
 	long handle;
 
@@ -85,6 +97,8 @@ public class Loader {
 	private byte[] iStreamData = null;
 	private int iStreamOffset = 0;
 
+	private LoadListener iListener;
+
 	private Interface iInterface;
 
 	//#ifdef RD_JAVA_OMJ
@@ -148,6 +162,53 @@ public class Loader {
 		}
 	}
 
+	/**
+	 * Loads the resource on a background thread. It is not a part of JSR 184,
+	 * intended for the emulator's own use (e.g. to show progress on a splash screen).
+	 *
+	 * @param name     resource name or URI, as for {@link #load(String)}
+	 * @param listener receives progress and result, called from the loader thread, may be null
+	 * @return future of the loaded objects, the same as returned by {@link #load(String)}
+	 */
+	public static Future<Object3D[]> loadAsync(String name, LoadListener listener) {
+		if (name == null) {
+			throw new NullPointerException();
+		}
+		return getExecutor().submit(() -> {
+			Loader loader = new Loader();
+			loader.iListener = listener;
+			Object3D[] objects;
+			try {
+				objects = loader.loadFromStream(name);
+			} catch (SecurityException e) {
+				if (listener != null) listener.onError(e);
+				throw e;
+			} catch (IOException e) {
+				if (listener != null) listener.onError(e);
+				throw e;
+			} catch (Exception e) {
+				IOException ioe = new IOException("Load error " + e);
+				if (listener != null) listener.onError(ioe);
+				throw ioe;
+			}
+			if (listener != null) listener.onLoaded(objects);
+			return objects;
+		});
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (sExecutor == null) {
+			int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+			sExecutor = Executors.newFixedThreadPool(threads, r -> {
+				Thread thread = new Thread(r, "M3GLoader");
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return sExecutor;
+	}
+
 	/**
 	 * @see javax.microedition.m3g.Loader#load(String)
 	 */
@@ -403,12 +464,17 @@ public class Loader {
 	 * @return An array of newly created Object3D instances
 	 */
 	private Object3D[] buildImage2D(int aColourFormat) throws IOException {
-		InputStream stream;
-		if (iStreamData == null) {
-			stream = getInputStream(iResourceName);
-		} else {
-			stream = new ByteArrayInputStream(iStreamData, iStreamOffset, iStreamData.length - iStreamOffset);
+		if (iStreamData != null) {
+			// Decode straight from the caller's array
+			Image image;
+			try {
+				image = Image.createImage(iStreamData, iStreamOffset, iStreamData.length - iStreamOffset);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e);
+			}
+			return new Object3D[]{new Image2D(aColourFormat, image)};
 		}
+		InputStream stream = getInputStream(iResourceName);
 		// Create an image object
 		Image2D i2d;
 		try {
@@ -479,11 +545,15 @@ public class Loader {
 		else if (aStream.markSupported())
 			aStream.reset(); // Reset is supported in ByteArrayInputStreams
 
+		// Data already in memory is passed to the native decoder as is,
+		// otherwise the stream is fed through one reusable buffer
+		final boolean inMemory = iStreamData != null;
+		byte[] buffer = null;
 		int read = 0;
-		int size = aStream.available();
+		int size = inMemory ? iTotalFileSize : aStream.available();
 
 		if (size == 0) {
-			size = 2048;    // start with some size
+			size = DECODE_CHUNK_LENGTH;    // start with some size
 		}
 
 		while (read < iTotalFileSize) {
@@ -491,15 +561,35 @@ public class Loader {
 				size = iTotalFileSize - read;
 			}
 			// Use native loader to load objects
-			byte[] data = new byte[size];
-			if (aStream.read(data) == -1) {
-				break;
+			byte[] data;
+			int offset;
+			if (inMemory) {
+				if (iStreamOffset + read + size > iStreamData.length) {
+					break;
+				}
+				data = iStreamData;
+				offset = iStreamOffset + read;
+			} else {
+				if (buffer == null || buffer.length < size) {
+					buffer = new byte[Math.max(size, DECODE_CHUNK_LENGTH)];
+				}
+				if (!readFully(aStream, buffer, size)) {
+					break;
+				}
+				data = buffer;
+				offset = 0;
 			}
 			read += size;
 
-			size = _decodeData(handle, 0, data);
-			if (size > 0 && aStream.available() > size) {
-				size = aStream.available();
+			size = _decodeData(handle, offset, size, data);
+			if (iListener != null) {
+				iListener.onProgress(read, iTotalFileSize);
+			}
+			if (size > 0) {
+				int available = inMemory ? iTotalFileSize - read : aStream.available();
+				if (available > size) {
+					size = available;
+				}
 			}
 		}
 		if (size != 0 || read != iTotalFileSize) {
@@ -568,6 +658,7 @@ public class Loader {
 
 		// Decompress data if necessary
 		CountedInputStream uncompressedStream;
+		InflaterInputStream inflaterStream = null;
 		if (compressionScheme == 0) {
 			uncompressedStream = new CountedInputStream(aStream);
 			if (uncompressedLength != totalSectionLength - 13) {
@@ -580,17 +671,10 @@ public class Loader {
 				if (uncompressedLength <= 0 || totalSectionLength - 13 <= 0) {
 					throw new IOException("Section length mismatch [" + iResourceName + "].");
 				}
-				byte[] compressed = new byte[totalSectionLength - 13];
-				aStream.read(compressed);
-
-				byte[] uncompressed = new byte[uncompressedLength];
-
-				// zlib decompression
-				if (!_inflate(compressed, uncompressed)) {
-					throw new IOException("Decompression error.");
-				}
-				uncompressedStream = new CountedInputStream(
-						new ByteArrayInputStream(uncompressed));
+				// zlib decompression, inflated incrementally while the objects are parsed
+				inflaterStream = new InflaterInputStream(
+						new BoundedInputStream(aStream, totalSectionLength - 13));
+				uncompressedStream = new CountedInputStream(inflaterStream);
 			}
 		} else {
 			throw new IOException("Unrecognized compression scheme [" + iResourceName + "].");
@@ -599,28 +683,61 @@ public class Loader {
 		// load all objects in this section
 		uncompressedStream.resetCounter();
 
-		while (uncompressedStream.getCounter() < uncompressedLength) {
-			iLoadedObjects.addElement(loadObject(uncompressedStream));
+		Vector<FutureTask<Object3D>> tasks = new Vector<>();
+		try {
+			while (uncompressedStream.getCounter() < uncompressedLength) {
+				FutureTask<Object3D> task = loadObject(uncompressedStream);
+				tasks.addElement(task);
+				getExecutor().execute(task);
+			}
+
+			if (uncompressedStream.getCounter() != uncompressedLength) {
+				throw new IOException("Section length mismatch [" + iResourceName + "].");
+			}
+		} finally {
+			// Releases the native inflater and skips the unread rest of the section
+			if (inflaterStream != null) {
+				inflaterStream.close();
+			}
 		}
 
-		if (uncompressedStream.getCounter() != uncompressedLength) {
-			throw new IOException("Section length mismatch [" + iResourceName + "].");
+		// Referenced files are loaded in parallel; help with the ones
+		// not started yet, so that nested loads can not starve the pool
+		for (FutureTask<Object3D> task : tasks) {
+			task.run();
+			try {
+				iLoadedObjects.addElement(task.get());
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IOException(cause);
+			}
 		}
 
 		// read checksum
 		int checksum = readUInt32(aStream);
 	}
 
-	private Object3D loadObject(CountedInputStream aStream) throws IOException {
+	private FutureTask<Object3D> loadObject(CountedInputStream aStream) throws IOException {
 		int objectType = readByte(aStream);
 		int length = readUInt32(aStream);
 
 		int expectedCount = aStream.getCounter() + length;
-		Object3D newObject;
+		FutureTask<Object3D> newObject;
 
 		if (objectType == 255) {
 			String xref = readString(aStream);
-			newObject = (new Loader(iFileHistory, iResourceName)).loadFromStream(xref)[0];
+			// Every parallel load gets own copy of the history of the current branch
+			Loader loader = new Loader(new Vector<>(iFileHistory), iResourceName);
+			newObject = new FutureTask<>(() -> loader.loadFromStream(xref)[0]);
 		} else {
 			throw new IOException("Invalid external section [" + iResourceName + "].");
 		}
@@ -639,6 +756,23 @@ public class Loader {
 		return aStream.read();
 	}
 
+	/**
+	 * Read exactly the given number of bytes from a stream
+	 *
+	 * @return false if the end of stream is reached first
+	 */
+	private static boolean readFully(InputStream aStream, byte[] aBuffer, int aLength) throws IOException {
+		int read = 0;
+		while (read < aLength) {
+			int count = aStream.read(aBuffer, read, aLength - read);
+			if (count == -1) {
+				return false;
+			}
+			read += count;
+		}
+		return true;
+	}
+
 	/**
 	 * Read a boolean from a stream
 	 */
@@ -930,6 +1064,70 @@ public class Loader {
 		}
 	}
 
+	class BoundedInputStream extends InputStream {
+		private InputStream iStream;
+		private int iRemaining;
+
+		BoundedInputStream(InputStream aStream, int aLength) {
+			iStream = aStream;
+			iRemaining = aLength;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (iRemaining <= 0) {
+				return -1;
+			}
+			int b = iStream.read();
+			if (b != -1) {
+				iRemaining--;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (iRemaining <= 0) {
+				return -1;
+			}
+			int count = iStream.read(b, off, Math.min(len, iRemaining));
+			if (count > 0) {
+				iRemaining -= count;
+			}
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return Math.min(iRemaining, iStream.available());
+		}
+
+		/**
+		 * Skips the unread rest of the section, the underlying stream is left open
+		 */
+		@Override
+		public void close() throws IOException {
+			while (iRemaining > 0 && read() != -1) ;
+		}
+	}
+
+	/**
+	 * Receives notifications from {@link #loadAsync(String, LoadListener)}
+	 */
+	public interface LoadListener {
+		/**
+		 * Called as the data is passed to the decoder
+		 *
+		 * @param bytesLoaded bytes of the top-level file decoded so far
+		 * @param totalBytes  total file length from the file header
+		 */
+		void onProgress(int bytesLoaded, int totalBytes);
+
+		void onLoaded(Object3D[] objects);
+
+		void onError(Exception e);
+	}
+
 	//#ifdef RD_JAVA_OMJ
 	private void doFinalize() {
 		registeredFinalize();
@@ -946,13 +1144,10 @@ public class Loader {
 		}
 	}
 
-	// zlib decompression
-	private native static boolean _inflate(byte[] data, byte[] buffer);
-
 	// native loader
 	private native static long _ctor(long handle);
 
-	private native static int _decodeData(long handle, int offset, byte[] data);
+	private native static int _decodeData(long handle, int offset, int length, byte[] data);
 
 	private native static void _setExternalReferences(long handle, long[] references);
 
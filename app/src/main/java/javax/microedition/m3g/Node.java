@@ -64,9 +64,13 @@ public abstract class Node extends Transformable {
 	}
 
 	public boolean getTransformTo(Node target, Transform transform) {
-		return _getTransformTo(handle,
+		boolean found = _getTransformTo(handle,
 				target.handle,
-				transform != null ? transform.matrix : null);
+				transform != null ? transform.getNativeMatrixForWrite() : null);
+		if (found && transform != null) {
+			transform.nativeMatrixChanged();
+		}
+		return found;
 	}
 
 	public void setAlignment(Node zReference, int zTarget,
@@ -22,12 +22,27 @@ public class Transform {
 	// Static data
 	//------------------------------------------------------------------
 
+	// Matrix classification, ordered so that the class of a product
+	// is the greater of the classes of its factors
+	static final int TYPE_IDENTITY = 0;
+	static final int TYPE_TRANSLATION = 1;
+	static final int TYPE_AFFINE = 2;
+	static final int TYPE_GENERIC = 3;
+
+	private static final float DEG_TO_RAD = (float) (Math.PI / 180.0);
+
 	//------------------------------------------------------------------
 	// Instance data
 	//------------------------------------------------------------------
 
+	// Row-major 4x4 matrix, authoritative copy of the transformation
+	final float[] elem = new float[16];
+	int type;
+
+	// Native mirror of elem, synchronized lazily when passed to native code.
 	// Check size from m3g_math.h Matrix
-	byte[] matrix = new byte[72];
+	private final byte[] matrix = new byte[72];
+	private boolean nativeDirty = true;
 
 	//------------------------------------------------------------------
 	// Constructor(s)
@@ -54,55 +69,178 @@ public class Transform {
 	//------------------------------------------------------------------
 
 	public void setIdentity() {
-		_setIdentity(matrix);
+		float[] m = elem;
+		for (int i = 0; i < 16; i++) {
+			m[i] = 0.0f;
+		}
+		m[0] = m[5] = m[10] = m[15] = 1.0f;
+		type = TYPE_IDENTITY;
+		nativeDirty = true;
 	}
 
 	public void set(Transform transform) {
-		System.arraycopy(transform.matrix, 0,
-				this.matrix, 0,
-				this.matrix.length);
+		if (transform == null) {
+			throw new NullPointerException();
+		}
+		System.arraycopy(transform.elem, 0, elem, 0, 16);
+		type = transform.type;
+		nativeDirty = true;
 	}
 
 	public void set(float[] matrix) {
-		_setMatrix(this.matrix, matrix);
+		if (matrix == null) {
+			throw new NullPointerException();
+		}
+		if (matrix.length < 16) {
+			throw new IllegalArgumentException();
+		}
+		System.arraycopy(matrix, 0, elem, 0, 16);
+		classify();
 	}
 
 	public void get(float[] matrix) {
-		_getMatrix(this.matrix, matrix);
+		if (matrix == null) {
+			throw new NullPointerException();
+		}
+		if (matrix.length < 16) {
+			throw new IllegalArgumentException();
+		}
+		System.arraycopy(elem, 0, matrix, 0, 16);
 	}
 
 	public void invert() {
-		_invert(matrix);
+		float[] m = elem;
+		switch (type) {
+			case TYPE_IDENTITY:
+				return;
+			case TYPE_TRANSLATION:
+				m[3] = -m[3];
+				m[7] = -m[7];
+				m[11] = -m[11];
+				break;
+			case TYPE_AFFINE:
+				invertAffine(m);
+				break;
+			default:
+				invertGeneric(m);
+				classify();
+				return;
+		}
+		nativeDirty = true;
 	}
 
 	public void transpose() {
-		_transpose(matrix);
+		float[] m = elem;
+		float t;
+		t = m[1]; m[1] = m[4]; m[4] = t;
+		t = m[2]; m[2] = m[8]; m[8] = t;
+		t = m[3]; m[3] = m[12]; m[12] = t;
+		t = m[6]; m[6] = m[9]; m[9] = t;
+		t = m[7]; m[7] = m[13]; m[13] = t;
+		t = m[11]; m[11] = m[14]; m[14] = t;
+		classify();
 	}
 
 	public void postMultiply(Transform transform) {
-		_mul(this.matrix, this.matrix, transform.matrix);
+		if (transform == null) {
+			throw new NullPointerException();
+		}
+		int otherType = transform.type;
+		if (otherType == TYPE_IDENTITY) {
+			return;
+		}
+		if (type == TYPE_IDENTITY) {
+			set(transform);
+			return;
+		}
+		float[] r = transform.elem;
+		if (otherType == TYPE_TRANSLATION) {
+			postTranslate(r[3], r[7], r[11]);
+			return;
+		}
+		float[] m = elem;
+		if (r == m) {
+			// rows of m are overwritten while the product is computed
+			r = r.clone();
+		}
+		if (type != TYPE_GENERIC && otherType != TYPE_GENERIC) {
+			mulAffine(m, r);
+		} else {
+			mulGeneric(m, r);
+		}
+		type = Math.max(type, otherType);
+		nativeDirty = true;
 	}
 
 	public void postScale(float sx, float sy, float sz) {
-		_scale(matrix, sx, sy, sz);
+		if (sx == 1.0f && sy == 1.0f && sz == 1.0f) {
+			return;
+		}
+		float[] m = elem;
+		int rows = type == TYPE_GENERIC ? 16 : 12;
+		for (int i = 0; i < rows; i += 4) {
+			m[i] *= sx;
+			m[i + 1] *= sy;
+			m[i + 2] *= sz;
+		}
+		if (type < TYPE_AFFINE) {
+			type = TYPE_AFFINE;
+		}
+		nativeDirty = true;
 	}
 
 	/**
 	 */
 	public void postRotate(float angle, float ax, float ay, float az) {
-		_rotate(matrix, angle, ax, ay, az);
+		if (ax == 0 && ay == 0 && az == 0 && angle != 0) {
+			throw new IllegalArgumentException();
+		}
+		if (angle == 0) {
+			return;
+		}
+		float len = (float) Math.sqrt(ax * ax + ay * ay + az * az);
+		ax /= len;
+		ay /= len;
+		az /= len;
+		double halfAngle = angle * DEG_TO_RAD * 0.5;
+		float s = (float) Math.sin(halfAngle);
+		postRotateNormalizedQuat(ax * s, ay * s, az * s, (float) Math.cos(halfAngle));
 	}
 
 	/**
 	 */
 	public void postRotateQuat(float qx, float qy, float qz, float qw) {
-		_rotateQuat(matrix, qx, qy, qz, qw);
+		if (qx == 0 && qy == 0 && qz == 0 && qw == 0) {
+			throw new IllegalArgumentException();
+		}
+		float len = (float) Math.sqrt(qx * qx + qy * qy + qz * qz + qw * qw);
+		postRotateNormalizedQuat(qx / len, qy / len, qz / len, qw / len);
 	}
 
 	/**
 	 */
 	public void postTranslate(float tx, float ty, float tz) {
-		_translate(matrix, tx, ty, tz);
+		float[] m = elem;
+		switch (type) {
+			case TYPE_IDENTITY:
+				m[3] = tx;
+				m[7] = ty;
+				m[11] = tz;
+				type = TYPE_TRANSLATION;
+				break;
+			case TYPE_TRANSLATION:
+				m[3] += tx;
+				m[7] += ty;
+				m[11] += tz;
+				break;
+			default:
+				int rows = type == TYPE_GENERIC ? 16 : 12;
+				for (int i = 0; i < rows; i += 4) {
+					m[i + 3] += m[i] * tx + m[i + 1] * ty + m[i + 2] * tz;
+				}
+				break;
+		}
+		nativeDirty = true;
 	}
 
 	/**
@@ -111,9 +249,30 @@ public class Transform {
 		if ((v.length % 4) != 0) {
 			throw new IllegalArgumentException();
 		}
+		if (type == TYPE_IDENTITY) {
+			return;
+		}
 
-		if (v.length != 0) {
-			_transformTable(matrix, v);
+		float[] m = elem;
+		float m0 = m[0], m1 = m[1], m2 = m[2], m3 = m[3];
+		float m4 = m[4], m5 = m[5], m6 = m[6], m7 = m[7];
+		float m8 = m[8], m9 = m[9], m10 = m[10], m11 = m[11];
+		if (type == TYPE_GENERIC) {
+			float m12 = m[12], m13 = m[13], m14 = m[14], m15 = m[15];
+			for (int i = 0; i < v.length; i += 4) {
+				float x = v[i], y = v[i + 1], z = v[i + 2], w = v[i + 3];
+				v[i] = m0 * x + m1 * y + m2 * z + m3 * w;
+				v[i + 1] = m4 * x + m5 * y + m6 * z + m7 * w;
+				v[i + 2] = m8 * x + m9 * y + m10 * z + m11 * w;
+				v[i + 3] = m12 * x + m13 * y + m14 * z + m15 * w;
+			}
+		} else {
+			for (int i = 0; i < v.length; i += 4) {
+				float x = v[i], y = v[i + 1], z = v[i + 2], w = v[i + 3];
+				v[i] = m0 * x + m1 * y + m2 * z + m3 * w;
+				v[i + 1] = m4 * x + m5 * y + m6 * z + m7 * w;
+				v[i + 2] = m8 * x + m9 * y + m10 * z + m11 * w;
+			}
 		}
 	}
 
@@ -124,35 +283,200 @@ public class Transform {
 			throw new NullPointerException();
 		}
 
-		_transformArray(matrix, in.handle, out, W);
+		_transformArray(getNativeMatrix(), in.handle, out, W);
 	}
 
 	//------------------------------------------------------------------
-	// Private methods
+	// Package methods
 	//------------------------------------------------------------------
 
-	// Native methods
-	private static native void _mul(byte[] prod, byte[] left, byte[] right);
+	/**
+	 * Returns the native representation of this transformation,
+	 * converting it from the Java-side matrix if it has changed.
+	 * The returned array must be treated as read-only.
+	 */
+	byte[] getNativeMatrix() {
+		if (nativeDirty) {
+			_setMatrix(matrix, elem);
+			nativeDirty = false;
+		}
+		return matrix;
+	}
 
-	private static native void _setIdentity(byte[] matrix);
+	/**
+	 * Returns the native representation of this transformation
+	 * to be filled by native code. {@link #nativeMatrixChanged()}
+	 * must be called after the native call has completed.
+	 */
+	byte[] getNativeMatrixForWrite() {
+		nativeDirty = true;
+		return matrix;
+	}
 
-	private static native void _setMatrix(byte[] matrix, float[] srcMatrix);
+	/**
+	 * Pulls the matrix written by native code back into the Java-side matrix.
+	 */
+	void nativeMatrixChanged() {
+		_getMatrix(matrix, elem);
+		classify();
+		nativeDirty = false;
+	}
 
-	private static native void _getMatrix(byte[] matrix, float[] dstMatrix);
+	//------------------------------------------------------------------
+	// Private methods
+	//------------------------------------------------------------------
+
+	private void classify() {
+		float[] m = elem;
+		nativeDirty = true;
+		if (m[12] != 0.0f || m[13] != 0.0f || m[14] != 0.0f || m[15] != 1.0f) {
+			type = TYPE_GENERIC;
+		} else if (m[0] != 1.0f || m[1] != 0.0f || m[2] != 0.0f
+				|| m[4] != 0.0f || m[5] != 1.0f || m[6] != 0.0f
+				|| m[8] != 0.0f || m[9] != 0.0f || m[10] != 1.0f) {
+			type = TYPE_AFFINE;
+		} else if (m[3] != 0.0f || m[7] != 0.0f || m[11] != 0.0f) {
+			type = TYPE_TRANSLATION;
+		} else {
+			type = TYPE_IDENTITY;
+		}
+	}
 
-	private static native void _invert(byte[] matrix);
+	private void postRotateNormalizedQuat(float qx, float qy, float qz, float qw) {
+		float xx = qx * qx, yy = qy * qy, zz = qz * qz;
+		float xy = qx * qy, xz = qx * qz, yz = qy * qz;
+		float wx = qw * qx, wy = qw * qy, wz = qw * qz;
+
+		float r0 = 1.0f - 2.0f * (yy + zz);
+		float r1 = 2.0f * (xy - wz);
+		float r2 = 2.0f * (xz + wy);
+		float r4 = 2.0f * (xy + wz);
+		float r5 = 1.0f - 2.0f * (xx + zz);
+		float r6 = 2.0f * (yz - wx);
+		float r8 = 2.0f * (xz - wy);
+		float r9 = 2.0f * (yz + wx);
+		float r10 = 1.0f - 2.0f * (xx + yy);
+
+		float[] m = elem;
+		int rows = type == TYPE_GENERIC ? 16 : 12;
+		for (int i = 0; i < rows; i += 4) {
+			float a = m[i], b = m[i + 1], c = m[i + 2];
+			m[i] = a * r0 + b * r4 + c * r8;
+			m[i + 1] = a * r1 + b * r5 + c * r9;
+			m[i + 2] = a * r2 + b * r6 + c * r10;
+		}
+		if (type < TYPE_AFFINE) {
+			type = TYPE_AFFINE;
+		}
+		nativeDirty = true;
+	}
 
-	private static native void _transpose(byte[] matrix);
+	// m = m * r, both having the bottom row (0, 0, 0, 1)
+	private static void mulAffine(float[] m, float[] r) {
+		for (int i = 0; i < 12; i += 4) {
+			float a = m[i], b = m[i + 1], c = m[i + 2], d = m[i + 3];
+			m[i] = a * r[0] + b * r[4] + c * r[8];
+			m[i + 1] = a * r[1] + b * r[5] + c * r[9];
+			m[i + 2] = a * r[2] + b * r[6] + c * r[10];
+			m[i + 3] = a * r[3] + b * r[7] + c * r[11] + d;
+		}
+	}
 
-	private static native void _rotate(byte[] matrix, float angle, float ax, float ay, float az);
+	// m = m * r
+	private static void mulGeneric(float[] m, float[] r) {
+		for (int i = 0; i < 16; i += 4) {
+			float a = m[i], b = m[i + 1], c = m[i + 2], d = m[i + 3];
+			m[i] = a * r[0] + b * r[4] + c * r[8] + d * r[12];
+			m[i + 1] = a * r[1] + b * r[5] + c * r[9] + d * r[13];
+			m[i + 2] = a * r[2] + b * r[6] + c * r[10] + d * r[14];
+			m[i + 3] = a * r[3] + b * r[7] + c * r[11] + d * r[15];
+		}
+	}
 
-	private static native void _rotateQuat(byte[] matrix, float qx, float qy, float qz, float qw);
+	private static void invertAffine(float[] m) {
+		float a = m[0], b = m[1], c = m[2];
+		float d = m[4], e = m[5], f = m[6];
+		float g = m[8], h = m[9], i = m[10];
+
+		float c0 = e * i - f * h;
+		float c1 = f * g - d * i;
+		float c2 = d * h - e * g;
+		float det = a * c0 + b * c1 + c * c2;
+		if (det == 0.0f) {
+			throw new ArithmeticException();
+		}
+		float inv = 1.0f / det;
+
+		float n0 = c0 * inv;
+		float n1 = (c * h - b * i) * inv;
+		float n2 = (b * f - c * e) * inv;
+		float n4 = c1 * inv;
+		float n5 = (a * i - c * g) * inv;
+		float n6 = (c * d - a * f) * inv;
+		float n8 = c2 * inv;
+		float n9 = (b * g - a * h) * inv;
+		float n10 = (a * e - b * d) * inv;
+
+		float tx = m[3], ty = m[7], tz = m[11];
+		m[0] = n0; m[1] = n1; m[2] = n2;
+		m[4] = n4; m[5] = n5; m[6] = n6;
+		m[8] = n8; m[9] = n9; m[10] = n10;
+		m[3] = -(n0 * tx + n1 * ty + n2 * tz);
+		m[7] = -(n4 * tx + n5 * ty + n6 * tz);
+		m[11] = -(n8 * tx + n9 * ty + n10 * tz);
+	}
+
+	private static void invertGeneric(float[] m) {
+		float[] inv = new float[16];
+		inv[0] = m[5] * m[10] * m[15] - m[5] * m[11] * m[14] - m[9] * m[6] * m[15]
+				+ m[9] * m[7] * m[14] + m[13] * m[6] * m[11] - m[13] * m[7] * m[10];
+		inv[4] = -m[4] * m[10] * m[15] + m[4] * m[11] * m[14] + m[8] * m[6] * m[15]
+				- m[8] * m[7] * m[14] - m[12] * m[6] * m[11] + m[12] * m[7] * m[10];
+		inv[8] = m[4] * m[9] * m[15] - m[4] * m[11] * m[13] - m[8] * m[5] * m[15]
+				+ m[8] * m[7] * m[13] + m[12] * m[5] * m[11] - m[12] * m[7] * m[9];
+		inv[12] = -m[4] * m[9] * m[14] + m[4] * m[10] * m[13] + m[8] * m[5] * m[14]
+				- m[8] * m[6] * m[13] - m[12] * m[5] * m[10] + m[12] * m[6] * m[9];
+
+		float det = m[0] * inv[0] + m[1] * inv[4] + m[2] * inv[8] + m[3] * inv[12];
+		if (det == 0.0f) {
+			throw new ArithmeticException();
+		}
 
-	private static native void _scale(byte[] matrix, float sx, float sy, float sz);
+		inv[1] = -m[1] * m[10] * m[15] + m[1] * m[11] * m[14] + m[9] * m[2] * m[15]
+				- m[9] * m[3] * m[14] - m[13] * m[2] * m[11] + m[13] * m[3] * m[10];
+		inv[5] = m[0] * m[10] * m[15] - m[0] * m[11] * m[14] - m[8] * m[2] * m[15]
+				+ m[8] * m[3] * m[14] + m[12] * m[2] * m[11] - m[12] * m[3] * m[10];
+		inv[9] = -m[0] * m[9] * m[15] + m[0] * m[11] * m[13] + m[8] * m[1] * m[15]
+				- m[8] * m[3] * m[13] - m[12] * m[1] * m[11] + m[12] * m[3] * m[9];
+		inv[13] = m[0] * m[9] * m[14] - m[0] * m[10] * m[13] - m[8] * m[1] * m[14]
+				+ m[8] * m[2] * m[13] + m[12] * m[1] * m[10] - m[12] * m[2] * m[9];
+		inv[2] = m[1] * m[6] * m[15] - m[1] * m[7] * m[14] - m[5] * m[2] * m[15]
+				+ m[5] * m[3] * m[14] + m[13] * m[2] * m[7] - m[13] * m[3] * m[6];
+		inv[6] = -m[0] * m[6] * m[15] + m[0] * m[7] * m[14] + m[4] * m[2] * m[15]
+				- m[4] * m[3] * m[14] - m[12] * m[2] * m[7] + m[12] * m[3] * m[6];
+		inv[10] = m[0] * m[5] * m[15] - m[0] * m[7] * m[13] - m[4] * m[1] * m[15]
+				+ m[4] * m[3] * m[13] + m[12] * m[1] * m[7] - m[12] * m[3] * m[5];
+		inv[14] = -m[0] * m[5] * m[14] + m[0] * m[6] * m[13] + m[4] * m[1] * m[14]
+				- m[4] * m[2] * m[13] - m[12] * m[1] * m[6] + m[12] * m[2] * m[5];
+		inv[3] = -m[1] * m[6] * m[11] + m[1] * m[7] * m[10] + m[5] * m[2] * m[11]
+				- m[5] * m[3] * m[10] - m[9] * m[2] * m[7] + m[9] * m[3] * m[6];
+		inv[7] = m[0] * m[6] * m[11] - m[0] * m[7] * m[10] - m[4] * m[2] * m[11]
+				+ m[4] * m[3] * m[10] + m[8] * m[2] * m[7] - m[8] * m[3] * m[6];
+		inv[11] = -m[0] * m[5] * m[11] + m[0] * m[7] * m[9] + m[4] * m[1] * m[11]
+				- m[4] * m[3] * m[9] - m[8] * m[1] * m[7] + m[8] * m[3] * m[5];
+		inv[15] = m[0] * m[5] * m[10] - m[0] * m[6] * m[9] - m[4] * m[1] * m[10]
+				+ m[4] * m[2] * m[9] + m[8] * m[1] * m[6] - m[8] * m[2] * m[5];
+
+		float invDet = 1.0f / det;
+		for (int i = 0; i < 16; i++) {
+			m[i] = inv[i] * invDet;
+		}
+	}
 
-	private static native void _translate(byte[] matrix, float tx, float ty, float tz);
+	// Native methods
+	private static native void _setMatrix(byte[] matrix, float[] srcMatrix);
 
-	private static native void _transformTable(byte[] matrix, float[] v);
+	private static native void _getMatrix(byte[] matrix, float[] dstMatrix);
 
 	private static native void _transformArray(byte[] matrix, long handle, float[] out, boolean W);
 }
@@ -19,8 +19,14 @@ package javax.microedition.media;
 import android.media.MediaPlayer;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 
 public class AndroidPlayer extends MediaPlayer {
+	/** Max number of idle players kept for reuse */
+	private static final int POOL_SIZE = Integer.getInteger("mmapi.player.pool.size", 4);
+
+	private static final ArrayDeque<AndroidPlayer> pool = new ArrayDeque<>();
+
 	private boolean loaded;
 	private String path;
 	private float leftVolume, rightVolume;
@@ -33,6 +39,39 @@ public class AndroidPlayer extends MediaPlayer {
 		this.rightVolume = 1.0f;
 	}
 
+	/**
+	 * @return an idle player from the pool, or a new one if the pool is empty
+	 */
+	static AndroidPlayer obtain() {
+		synchronized (pool) {
+			AndroidPlayer player = pool.poll();
+			if (player != null) {
+				return player;
+			}
+		}
+		return new AndroidPlayer();
+	}
+
+	/**
+	 * Resets the player to the initial state and returns it to the pool,
+	 * the player is released if the pool is full.
+	 */
+	void recycle() {
+		reset();
+		setOnCompletionListener(null);
+		path = null;
+		leftVolume = rightVolume = 1.0f;
+		timePos = 0;
+		looping = false;
+		synchronized (pool) {
+			if (pool.size() < POOL_SIZE) {
+				pool.push(this);
+				return;
+			}
+		}
+		release();
+	}
+
 	@Override
 	public void setDataSource(String path) throws IOException, IllegalArgumentException, IllegalStateException, SecurityException {
 		this.path = path;
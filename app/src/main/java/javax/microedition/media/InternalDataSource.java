@@ -27,42 +27,73 @@ import com.arthenica.mobileffmpeg.MediaInformation;
 import com.arthenica.mobileffmpeg.StreamInformation;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
+import java.util.Arrays;
 
 import ru.woesss.j2me.mmapi.FileCacheDataSource;
+import ru.woesss.j2me.mmapi.FileCleaner;
+import ru.woesss.j2me.mmapi.MediaCache;
 
 class InternalDataSource extends FileCacheDataSource {
 	private static final String TAG = InternalDataSource.class.getSimpleName();
 
-	InternalDataSource(InputStream stream, String type) throws IllegalArgumentException, IOException {
-		super(type);
+	private MediaCache.Entry cacheEntry;
 
-		final String name = mediaFile.getName();
-		Log.d(TAG, "Starting media pipe: " + name);
+	private InternalDataSource(String type, MediaCache.Entry entry) {
+		super(type, entry.file);
+		cacheEntry = entry;
+	}
 
-		try (RandomAccessFile raf = new RandomAccessFile(mediaFile, "rw")) {
-			int length = stream.available();
-			if (length >= 0) {
-				raf.setLength(length);
-				Log.d(TAG, "Changing file size to " + length + " bytes: " + name);
-			}
-			byte[] buf = new byte[4096];
-			int read;
-			while ((read = stream.read(buf)) != -1) {
-				raf.write(buf, 0, read);
+	static byte[] readAll(InputStream stream) throws IOException {
+		int available = stream.available();
+		byte[] buf = new byte[Math.max(available, 4096)];
+		int length = 0;
+		int read;
+		while ((read = stream.read(buf, length, buf.length - length)) != -1) {
+			length += read;
+			if (length == buf.length) {
+				buf = Arrays.copyOf(buf, length * 2);
 			}
+		}
+		return length == buf.length ? buf : Arrays.copyOf(buf, length);
+	}
+
+	static InternalDataSource create(InputStream stream, String type) throws IOException {
+		return create(readAll(stream), type);
+	}
+
+	/**
+	 * Creates the data source from the data. The data is prepared once,
+	 * sources created again from identical data share the prepared file.
+	 */
+	static InternalDataSource create(byte[] buf, String type) throws IOException {
+		int length = buf.length;
+		String key = MediaCache.getKey(buf, length, type);
+		MediaCache.Entry entry = MediaCache.acquire(key);
+		if (entry != null) {
+			Log.d(TAG, "Media cache hit: " + entry.file.getName());
+			return new InternalDataSource(type, entry);
+		}
+
+		File file = createCacheFile(type, null);
+		final String name = file.getName();
+		Log.d(TAG, "Starting media pipe: " + name);
+		try (FileOutputStream fos = new FileOutputStream(file)) {
+			fos.write(buf, 0, length);
 		} catch (IOException e) {
 			Log.d(TAG, "Media pipe failure: " + e);
+			FileCleaner.delete(file);
 			throw e;
 		}
 		Log.d(TAG, "Media pipe closed: " + name);
 
-		convert();
+		file = convert(file);
+		return new InternalDataSource(type, MediaCache.put(key, file));
 	}
 
-	private void convert() {
+	private static File convert(File mediaFile) {
 		try {
 			String path = mediaFile.getPath();
 			MediaInformation mediaInformation = FFprobe.getMediaInformation(path);
@@ -74,17 +105,26 @@ class InternalDataSource extends FileCacheDataSource {
 					int rc = FFmpeg.execute(cmd);
 					if (rc == Config.RETURN_CODE_SUCCESS) {
 						Log.i(TAG, "FFmpeg command execution completed successfully.");
-						if (!mediaFile.delete()) {
-							Log.w(TAG, "convert: error delete file=" + mediaFile);
-						}
-						mediaFile = pcmU8;
+						FileCleaner.delete(mediaFile);
+						return pcmU8;
 					} else {
 						Log.w(TAG, "FFmpeg command execution failed with RETURN_CODE=" + rc);
+						FileCleaner.delete(pcmU8);
 					}
 				}
 			}
 		} catch (Throwable t) {
 			Log.e(TAG, "FFmpeg error", t);
 		}
+		return mediaFile;
+	}
+
+	@Override
+	public synchronized void disconnect() {
+		// the file is owned by the cache and may be shared with other sources
+		if (cacheEntry != null) {
+			MediaCache.release(cacheEntry);
+			cacheEntry = null;
+		}
 	}
 }
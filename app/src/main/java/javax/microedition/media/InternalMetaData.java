@@ -72,6 +72,10 @@ public class InternalMetaData implements MetaDataControl {
 	}
 
 	public void updateMetaData(DataSource source) {
+		if (source.getLocator() == null) {
+			// in-memory source, MediaMetadataRetriever needs a file
+			return;
+		}
 		try {
 			MediaMetadataRetriever retriever = new MediaMetadataRetriever();
 			retriever.setDataSource(source.getLocator());
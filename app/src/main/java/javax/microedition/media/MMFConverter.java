@@ -16,167 +16,391 @@
 
 package javax.microedition.media;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 
+import ru.woesss.j2me.mmapi.MediaCache;
+
+/**
+ * Converts SMAF (MMF) sequences to standard MIDI files.
+ * Events are written to the output as they are parsed, only the pending note-offs are queued.
+ * Converted files are cached by the hash of the source data.
+ */
 public class MMFConverter {
 	static final byte FORMAT_TYPE_HANDY_PHONE = 0x00;
 	static final byte FORMAT_TYPE_MOBILE_STANDARD_COMPRESS = 0x01;
 	static final byte FORMAT_TYPE_MOBILE_STANDARD_NO_COMPRESS = 0x02;
 
-	private abstract static class TrackEvent {
-		int timestamp;
+	private static final int MAX_CACHE_BYTES = Integer.getInteger("mmapi.mmf.cache.size", 1024 * 1024);
+	private static final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+	private static int cacheBytes;
 
-		TrackEvent(int timestamp) {
-			this.timestamp = timestamp;
-		}
+	int timeBaseD;
+	int timeBaseG;
 
-		public int getTimestamp() {
-			return timestamp;
-		}
+	private byte[] out;
+	private int outPos;
+	/** Time of the last written event */
+	private int writtenTime;
+	private int noteSeq;
 
-		abstract void output(DataOutputStream dos, int currentTime) throws IOException;
-	}
+	/** Min-heap of the pending note-offs ordered by time, then by the order of the note-ons */
+	private long[] offKeys = new long[32];
+	private int[] offNotes = new int[32];
+	private int offCount;
 
-	private static class NOPMessage extends TrackEvent {
-		public NOPMessage(int timestamp) {
-			super(timestamp);
+	/**
+	 * @return the converted MIDI file, the returned array is shared and must not be modified
+	 */
+	public byte[] convertToMDI(byte[] data) throws Exception {
+		String key = MediaCache.getKey(data, data.length, "mmf");
+		synchronized (cache) {
+			byte[] midi = cache.get(key);
+			if (midi != null) {
+				return midi;
+			}
 		}
-
-		@Override
-		void output(DataOutputStream dos, int currentTime) throws IOException {
-			System.out.println(String.format("timestamp: %d, NOP", timestamp));
+		byte[] midi = convert(data);
+		if (midi.length <= MAX_CACHE_BYTES) {
+			synchronized (cache) {
+				if (cache.put(key, midi) == null) {
+					cacheBytes += midi.length;
+				}
+				Iterator<byte[]> iterator = cache.values().iterator();
+				while (cacheBytes > MAX_CACHE_BYTES && iterator.hasNext()) {
+					cacheBytes -= iterator.next().length;
+					iterator.remove();
+				}
+			}
 		}
+		return midi;
 	}
 
-	private class EOSMessage extends TrackEvent {
-		public EOSMessage(int timestamp) {
-			super(timestamp);
+	private byte[] convert(byte[] data) throws Exception {
+		int pos = 0;
+		if (!checkId(data, pos, "MMMD", 4)) {
+			throw new Exception("Signature is not match MMMD: " + idToString(data, pos));
 		}
-
-		@Override
-		void output(DataOutputStream dos, int currentTime) throws IOException {
-			writeVariableLengthValue(timestamp - currentTime, dos);
-			dos.write(new byte[]{(byte) 0xFF, 0x2F, 0x00});
-			System.out.println(String.format("timestamp: %d, EOS", timestamp));
+		pos += 8;
+		if (!checkId(data, pos, "CNTI", 4)) {
+			throw new Exception("Signature is not match CNTI: " + idToString(data, pos));
 		}
+		pos = skipChunk(data, pos);
+		if (!checkId(data, pos, "OPDA", 4)) {
+			throw new Exception("Signature is not match OPDA: " + idToString(data, pos));
+		}
+		pos = skipChunk(data, pos);
+		if (!checkId(data, pos, "MTR", 3)) {
+			throw new Exception("Signature is not match MTR: " + idToString(data, pos));
+		}
+		int blockSize = readInt(data, pos + 4);
+		pos += 8;
+		if (blockSize < 0 || blockSize > data.length - pos) {
+			throw new Exception("blockSize does not match");
+		}
+		out = new byte[Math.max(256, blockSize * 2)];
+		outPos = 0;
+		parseMTR(data, pos, pos + blockSize);
+		byte[] result = Arrays.copyOf(out, outPos);
+		out = null;
+		return result;
 	}
 
-	private class NoteMessage extends TrackEvent {
-		int channel;
-		int noteNumber;
-		int keyVelocity;
-		int gateTime;
-		boolean noteOn;
-
-		public NoteMessage(int timestamp, boolean noteOn, int channel, int noteNumber, int keyVelocity, int gateTime) {
-			super(timestamp);
-			this.channel = channel;
-			this.noteOn = noteOn;
-			this.noteNumber = noteNumber;
-			this.keyVelocity = keyVelocity;
-			this.gateTime = gateTime;
+	private void parseMTR(byte[] data, int pos, int end) throws Exception {
+		if (end - pos < 4) {
+			return;
+		}
+		byte formatType = data[pos];
+		this.timeBaseD = convertTimebase(data[pos + 2]);
+		this.timeBaseG = convertTimebase(data[pos + 3]);
+		pos += 4;
+
+		if (formatType == FORMAT_TYPE_MOBILE_STANDARD_COMPRESS
+				|| formatType == FORMAT_TYPE_MOBILE_STANDARD_NO_COMPRESS) {
+			// 16 byte channel status
+			pos += 16;
+		} else {
+			pos += 2;
 		}
 
-		void output(DataOutputStream dos, int currentTime) throws IOException {
-			// if (channel == 1) return;
-			writeVariableLengthValue(timestamp - currentTime, dos);
-			if (noteOn) {
-				dos.writeByte(0x9F & (0xF0 | channel));
-			} else {
-				dos.writeByte(0x8F & (0xF0 | channel));
+		// Mspl (Seek & Phrase Info Chunk), Mtsu (Setup Data Chunk),
+		// Mtsp (Stream PCM Data Chunk) are skipped, only Mtsq (Sequence Data Chunk) is converted
+		while (end - pos >= 8) {
+			int chunkSize = readInt(data, pos + 4);
+			int chunkStart = pos + 8;
+			if (chunkSize < 0 || chunkSize > end - chunkStart) {
+				throw new Exception("chunkSize is not match: " + chunkSize);
+			}
+			if (checkId(data, pos, "Mtsq", 4)) {
+				writeTrack(data, chunkStart, chunkStart + chunkSize);
 			}
-			dos.writeByte(noteNumber);
-			dos.writeByte(keyVelocity);
+			pos = chunkStart + chunkSize;
 		}
 	}
 
-	private static class ControlChange extends TrackEvent {
-		int channel;
-		int controlNumber;
-		int controlValue;
+	private void writeTrack(byte[] data, int pos, int end) throws Exception {
+		write(new byte[]{'M', 'T', 'h', 'd', 0x00, 0x00, 0x00, 0x06});
+		write(new byte[]{0x00, 0x01}); // format
+		write(new byte[]{0x00, 0x01}); // track num
+		write(new byte[]{0x01, (byte) 0xE0}); // time (defined by tempo and time)
+		write(new byte[]{'M', 'T', 'r', 'k', 0, 0, 0, 0});
+		int trackStart = outPos;
+
+		// set tempo
+		int timeBase = 480;
+		int tempo = timeBase * 1000 * timeBaseD;
+		write(new byte[]{0x00, (byte) 0xFF, 0x51, 0x03,
+				(byte) (tempo >>> 16), (byte) (tempo >>> 8), (byte) tempo});
+
+		writtenTime = 0;
+		offCount = 0;
+		noteSeq = 0;
+		parseSequenceData(data, pos, end);
+		flushNoteOffs(Integer.MAX_VALUE);
+
+		int trackSize = outPos - trackStart;
+		out[trackStart - 4] = (byte) (trackSize >>> 24);
+		out[trackStart - 3] = (byte) (trackSize >>> 16);
+		out[trackStart - 2] = (byte) (trackSize >>> 8);
+		out[trackStart - 1] = (byte) trackSize;
+	}
 
-		public ControlChange(int timestamp, int channel, int controlNumber, int controlValue) {
-			super(timestamp);
-			this.channel = channel;
-			this.controlNumber = controlNumber;
-			this.controlValue = controlValue;
-		}
+	private void parseSequenceData(byte[] data, int pos, int end) throws Exception {
+		int[] velocities = new int[16];
+		Arrays.fill(velocities, 64);
+		int globalTime = 0;
+		int[] vlv = new int[2]; // value, next position
+		while (pos < end) {
+			// parse Duration
+			int duration = data[pos] & 0x7F;
+			if ((data[pos++] & 0x80) != 0) {
+				if (pos >= end) return;
+				duration = (duration << 7) + (data[pos++] & 0x7F);
+			}
 
-		@Override
-		void output(DataOutputStream dos, int currentTime) throws IOException {
-			// not implemented
+			// parse Event
+			if (pos >= end) return;
+			int eventHeader = data[pos++] & 0xFF;
+			globalTime += duration;
+			int channel = eventHeader & 0x0F;
+			switch (eventHeader >>> 4) {
+				case 0x8: {
+					// Note Message with no velocity
+					// notenumber 60 equals center C
+					if (pos >= end) return;
+					int noteNumber = data[pos++] & 0x7F;
+					if (!readVariableLengthValue(data, pos, end, vlv)) return;
+					pos = vlv[1];
+					writeNote(globalTime, channel, noteNumber, velocities[channel], vlv[0]);
+					break;
+				}
+				case 0x9: {
+					// Note Message with velocity
+					if (end - pos < 2) return;
+					int noteNumber = data[pos++] & 0x7F;
+					int keyVelocity = data[pos++] & 0x7F;
+					if (!readVariableLengthValue(data, pos, end, vlv)) return;
+					pos = vlv[1];
+					velocities[channel] = keyVelocity;
+					writeNote(globalTime, channel, noteNumber, keyVelocity, vlv[0]);
+					break;
+				}
+				case 0xB: // Control Change (not implemented)
+				case 0xE: // Pitch Bend (not implemented)
+					pos += 2;
+					break;
+				case 0xC: {
+					// Program Change
+					if (pos >= end) return;
+					int programNumber = data[pos++] & 0x7F;
+					flushNoteOffs(globalTime);
+					writeDeltaTime(globalTime);
+					writeByte(0xC0 | channel);
+					writeByte(programNumber);
+					break;
+				}
+				case 0xF: {
+					if (eventHeader == 0xF0) {
+						// System Exclusive
+						if (!readVariableLengthValue(data, pos, end, vlv)) return;
+						int x = vlv[0];
+						pos = vlv[1];
+						if (x <= 0 || x > end - pos || data[pos + x - 1] != (byte) 0xF7) {
+							throw new Exception("Malformed");
+						}
+						pos += x;
+					} else if (eventHeader == 0xFF) {
+						// EOS or NOP
+						if (pos >= end) return;
+						int next = data[pos++];
+						if (next == 0x2F) {
+							if (pos >= end) return;
+							if (data[pos++] != 0x00) {
+								throw new Exception("Not Implemented");
+							}
+							flushNoteOffs(Integer.MAX_VALUE);
+							writeDeltaTime(Math.max(globalTime, writtenTime));
+							write(new byte[]{(byte) 0xFF, 0x2F, 0x00});
+						} else if (next != 0x00) {
+							throw new Exception("Not Implemented");
+						}
+					}
+					// else Reserved
+					break;
+				}
+				default:
+					// 0xA, 0xD - Reserved
+					throw new Exception("Not Implemented: " + toHex((byte) (eventHeader >>> 4)));
+			}
 		}
 	}
 
-	private class ProgramChange extends TrackEvent {
-		int channel;
-		int programNumber;
+	private void writeNote(int time, int channel, int noteNumber, int velocity, int gateTime) {
+		flushNoteOffs(time);
+		writeDeltaTime(time);
+		writeByte(0x90 | channel);
+		writeByte(noteNumber);
+		writeByte(velocity);
+		addNoteOff(time + gateTime, channel << 8 | noteNumber);
+	}
 
-		public ProgramChange(int timestamp, int channel, int programNumber) {
-			super(timestamp);
-			this.channel = channel;
-			this.programNumber = programNumber;
+	private void writeDeltaTime(int time) {
+		writeVariableLengthValue(time - writtenTime);
+		writtenTime = time;
+	}
+
+	private void addNoteOff(int time, int note) {
+		if (offCount == offKeys.length) {
+			offKeys = Arrays.copyOf(offKeys, offCount * 2);
+			offNotes = Arrays.copyOf(offNotes, offCount * 2);
+		}
+		long key = (long) time << 32 | noteSeq++ & 0xFFFFFFFFL;
+		int i = offCount++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (offKeys[parent] <= key) {
+				break;
+			}
+			offKeys[i] = offKeys[parent];
+			offNotes[i] = offNotes[parent];
+			i = parent;
 		}
+		offKeys[i] = key;
+		offNotes[i] = note;
+	}
 
-		@Override
-		void output(DataOutputStream dos, int currentTime) throws IOException {
-			writeVariableLengthValue(timestamp - currentTime, dos);
-			dos.writeByte(0xCF & ((byte) 0xF0 | channel));
-			dos.writeByte(programNumber);
+	/** Writes the pending note-offs with time not after the given one */
+	private void flushNoteOffs(int time) {
+		while (offCount > 0 && (int) (offKeys[0] >>> 32) <= time) {
+			writeDeltaTime((int) (offKeys[0] >>> 32));
+			int note = offNotes[0];
+			writeByte(0x80 | note >>> 8);
+			writeByte(note & 0x7F);
+			writeByte(0);
+
+			// remove the heap root
+			long key = offKeys[--offCount];
+			int value = offNotes[offCount];
+			int i = 0;
+			int half = offCount >>> 1;
+			while (i < half) {
+				int child = 2 * i + 1;
+				if (child + 1 < offCount && offKeys[child + 1] < offKeys[child]) {
+					child++;
+				}
+				if (key <= offKeys[child]) {
+					break;
+				}
+				offKeys[i] = offKeys[child];
+				offNotes[i] = offNotes[child];
+				i = child;
+			}
+			offKeys[i] = key;
+			offNotes[i] = value;
 		}
 	}
 
-	private static class PitchBend extends TrackEvent {
-		int channel;
-		int pitchBendChangeLSB;
-		int pitchBendChangeMSB;
+	/**
+	 * Reads a variable length value starting at pos.
+	 *
+	 * @param result receives the value and the position after it
+	 * @return false if the data is truncated
+	 */
+	private static boolean readVariableLengthValue(byte[] data, int pos, int end, int[] result) {
+		int value = 0;
+		int next;
+		do {
+			if (pos >= end) {
+				return false;
+			}
+			next = data[pos++];
+			value = (value << 7) + (next & 0x7F);
+		} while ((next & 0x80) != 0);
+		result[0] = value;
+		result[1] = pos;
+		return true;
+	}
 
-		public PitchBend(int channel, int pitchBendChangeLSB, int pitchBendChangeMSB) {
-			super(0);
-			this.channel = channel;
-			this.pitchBendChangeLSB = pitchBendChangeLSB;
-			this.pitchBendChangeMSB = pitchBendChangeMSB;
+	private void writeVariableLengthValue(int val) {
+		int shift = 28;
+		while (shift > 0 && (val >>> shift) == 0) {
+			shift -= 7;
 		}
+		for (; shift > 0; shift -= 7) {
+			writeByte((val >>> shift) & 0x7F | 0x80);
+		}
+		writeByte(val & 0x7F);
+	}
 
-		@Override
-		void output(DataOutputStream dos, int currentTime) {
-			// not implemented
+	private void writeByte(int b) {
+		if (outPos == out.length) {
+			out = Arrays.copyOf(out, outPos * 2);
 		}
+		out[outPos++] = (byte) b;
 	}
 
+	private void write(byte[] b) {
+		if (outPos + b.length > out.length) {
+			out = Arrays.copyOf(out, Math.max(outPos * 2, outPos + b.length));
+		}
+		System.arraycopy(b, 0, out, outPos, b.length);
+		outPos += b.length;
+	}
 
-	int readVariableLengthValue(DataInputStream dis) throws IOException {
-		int result = 0;
-		boolean readNext = true;
-		while (readNext) {
-			byte next = dis.readByte();
-			result = (result << 7) + (next & (byte) 0x7F);
-			readNext = (next & (byte) 0x80) == (byte) 0x80;
+	private static int readInt(byte[] data, int pos) {
+		if (data.length - pos < 4) {
+			return -1;
 		}
-		return result;
+		return data[pos] << 24 | (data[pos + 1] & 0xFF) << 16 | (data[pos + 2] & 0xFF) << 8 | data[pos + 3] & 0xFF;
+	}
+
+	/** @return position after the chunk */
+	private static int skipChunk(byte[] data, int pos) throws Exception {
+		int size = readInt(data, pos + 4);
+		if (size < 0 || size > data.length - pos - 8) {
+			throw new Exception("track is not found");
+		}
+		return pos + 8 + size;
 	}
 
-	void writeVariableLengthValue(int val, DataOutputStream dos) throws IOException {
-		ArrayList<Byte> bytes = new ArrayList<>();
-		int tmp = val;
-		bytes.add((byte) (tmp & 0x7F)); // 0b01111111
-		while ((tmp = tmp >>> 7) > 0) {
-			bytes.add((byte) ((tmp & 0x7F) | (byte) 0x80));
+	private static boolean checkId(byte[] data, int pos, String id, int length) {
+		if (data.length - pos < 4) {
+			return false;
 		}
-		Collections.reverse(bytes);
-		for (Byte byte1 : bytes) {
-			dos.writeByte(byte1);
+		for (int i = 0; i < length; i++) {
+			if (data[pos + i] != id.charAt(i)) {
+				return false;
+			}
 		}
+		return true;
+	}
+
+	private static String idToString(byte[] data, int pos) {
+		if (pos >= data.length) {
+			return "";
+		}
+		return new String(data, pos, Math.min(4, data.length - pos));
 	}
 
 	String toHex(byte v) {
@@ -188,126 +412,6 @@ public class MMFConverter {
 		return result;
 	}
 
-	ArrayList<TrackEvent> parseSequenceDataChunk(byte[] data) throws Exception {
-		ArrayList<TrackEvent> result = new ArrayList<>();
-		Map<Integer, Integer> mapVel = new HashMap<>();
-
-		try (ByteArrayInputStream is = new ByteArrayInputStream(data);
-			 DataInputStream dis = new DataInputStream(is)) {
-			// parse Duration;
-			byte[] firstByte = new byte[1];
-			int globalTime = 0;
-			while (dis.read(firstByte, 0, 1) == 1) {
-				int duration = firstByte[0] & 0x7F;
-				if ((firstByte[0] & 0b10000000) == 0b10000000) {
-					// MSB = 1
-					duration = (duration << 7) + (dis.readByte() & 0x7F);
-				}
-
-				// parse Event
-				byte eventHeader = dis.readByte();
-				globalTime += duration;
-				int upper4bit = (eventHeader & 0xFF) >>> 4;
-				switch (upper4bit) {
-					case 0x8: {
-						// Note Message with no velocity
-						int channel = eventHeader & (byte) 0x0F;
-						int noteNumber = dis.readByte() & (byte) 0x7F;
-						// notenumber 60 equals center C
-						int gateTime = readVariableLengthValue(dis);
-						Integer prevVel = mapVel.get(channel);
-						if (prevVel == null) {
-							prevVel = 64;
-							mapVel.put(channel, prevVel);
-						}
-						result.add(new NoteMessage(globalTime, true, channel, noteNumber, prevVel, gateTime));
-						result.add(new NoteMessage(globalTime + gateTime, false, channel, noteNumber, 0, gateTime));
-						break;
-					}
-					case 0x9: {
-						// Note Message with velocity
-						int channel = eventHeader & 0x0F;
-						int noteNumber = dis.readByte() & 0x7F;
-						int keyVelocity = dis.readByte() & 0x7F;
-						int gateTime = readVariableLengthValue(dis);
-						mapVel.put(channel, keyVelocity);
-						result.add(new NoteMessage(globalTime, true, channel, noteNumber, keyVelocity, gateTime));
-						result.add(new NoteMessage(globalTime + gateTime, false, channel, noteNumber, 0, gateTime));
-						break;
-					}
-					case 0xA: {
-						// Reserved
-						throw new Exception("Not Implemented");
-						// break;
-					}
-					case 0xB: {
-						// Control Change
-						int channel = eventHeader & 0x0F;
-						int controlNumber = dis.readByte() & 0x7F;
-						int controlValue = dis.readByte() & 0x7F;
-						result.add(new ControlChange(globalTime, channel, controlNumber, controlValue));
-						break;
-					}
-					case 0xC: {
-						// Program Change
-						int channel = eventHeader & 0x0F;
-						int programNumber = dis.readByte() & 0x7F;
-						result.add(new ProgramChange(globalTime, channel, programNumber));
-						break;
-					}
-					case 0xD: {
-						// Reserved
-						throw new Exception("Not Implemented");
-						// break;
-					}
-					case 0xE: {
-						// Pitch Bend
-						int channel = eventHeader & 0x0F;
-						int pitchBendChangeLSB = dis.readByte() & 0x7F;
-						int pitchBendChangeMSB = dis.readByte() & 0x7F;
-						result.add(new PitchBend(globalTime, pitchBendChangeLSB, pitchBendChangeMSB));
-						break;
-					}
-					case 0xF: {
-						if (eventHeader == (byte) 0xF0) {
-							// System Exclusive
-							int x = readVariableLengthValue(dis);
-							byte[] dataToEnd = new byte[x];
-							if (dis.read(dataToEnd, 0, x) != x || dataToEnd[x - 1] != (byte) 0xF7) {
-								throw new Exception("Malformed");
-							}
-						} else if (eventHeader == (byte) 0xFF) {
-							// EOS or NOP
-							byte next = dis.readByte();
-							if ((byte) 0x00 == next) {
-								result.add(new NOPMessage(globalTime));
-							} else if ((byte) 0x2F == next) {
-								if (dis.readByte() == (byte) 0x00) {
-									result.add(new EOSMessage(globalTime));
-								} else {
-									throw new Exception("Not Implemented");
-								}
-							} else {
-								throw new Exception("Not Implemented");
-							}
-						} else {
-							// Reserved
-						}
-						break;
-					}
-					default:
-						throw new Exception("Not Implemented: " + toHex((byte) upper4bit));
-				}
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		return result;
-	}
-
-	int timeBaseD;
-	int timeBaseG;
-
 	int convertTimebase(byte timebase) {
 		switch (timebase) {
 			case 0x01:
@@ -329,128 +433,4 @@ public class MMFConverter {
 				return 1;
 		}
 	}
-
-	void parseMTR(byte[] data, DataOutputStream dos) throws Exception {
-		try (ByteArrayInputStream is = new ByteArrayInputStream(data);
-			 DataInputStream dis = new DataInputStream(is)) {
-			byte formatType = dis.readByte();
-			byte sequenceType = dis.readByte();
-			this.timeBaseD = convertTimebase(dis.readByte());
-			this.timeBaseG = convertTimebase(dis.readByte());
-
-			byte[] channelStatus;
-			if (formatType == FORMAT_TYPE_MOBILE_STANDARD_COMPRESS
-					|| formatType == FORMAT_TYPE_MOBILE_STANDARD_NO_COMPRESS) {
-				// read 16byte channel status
-				channelStatus = new byte[16];
-				dis.read(channelStatus, 0, 16);
-			} else {
-				channelStatus = new byte[2];
-				dis.read(channelStatus, 0, 2);
-			}
-
-			byte[] chunkId = new byte[4];
-			while (dis.read(chunkId, 0, 4) == 4) {
-				// Mspl (Seek & Phrase Info Chunk)
-				// Mtsu (Setup Data Chunk)
-				// Mtsq (Sequence Data Chunk)
-				if (Arrays.equals(chunkId, "Mtsq".getBytes())) {
-					int chunkSize = dis.readInt();
-					byte[] chunkDat = new byte[chunkSize];
-					if (dis.read(chunkDat, 0, chunkSize) != chunkSize)
-						throw new Exception("chunkSize is not match: " + chunkSize);
-					ArrayList<TrackEvent> trk = parseSequenceDataChunk(chunkDat);
-					dos.write("MThd".getBytes());
-					dos.writeInt(6);
-					dos.write(new byte[]{0x00, 0x01}); // format
-					dos.write(new byte[]{0x00, 0x01}); // track num
-					dos.write(new byte[]{0x01, (byte) 0xE0}); // time (defined by tempo and time)
-					dos.write("MTrk".getBytes());
-
-					try (ByteArrayOutputStream os = new ByteArrayOutputStream();
-						 DataOutputStream ddos = new DataOutputStream(os)) {
-						// set tempo
-						int timeBase = 480;
-						int tempo = timeBase * 1000 * timeBaseD;
-						ddos.write(new byte[]{0x00, (byte) 0xFF, 0x51, 0x03});
-						ddos.writeByte((tempo >>> 16) & (byte) 0xFF);
-						ddos.writeByte((tempo >>> 8) & (byte) 0xFF);
-						ddos.writeByte((tempo >>> 0) & (byte) 0xFF);
-
-						Collections.sort(trk, (o1, o2) -> o1.getTimestamp() - o2.getTimestamp());
-
-						int globalTime = 0;
-						for (TrackEvent trackEvent : trk) {
-							trackEvent.output(ddos, globalTime);
-							globalTime = trackEvent.getTimestamp();
-						}
-						dos.writeInt(ddos.size());
-						dos.write(os.toByteArray());
-					}
-				} else if (Arrays.equals(chunkId, "MspI".getBytes())) {
-					int chunkSize = dis.readInt();
-					byte[] chunkDat = new byte[chunkSize];
-					if (dis.read(chunkDat, 0, chunkSize) != chunkSize)
-						throw new Exception("chunkSize is not match: " + chunkSize);
-				} else if (Arrays.equals(chunkId, "Mtsu".getBytes())) {
-					int chunkSize = dis.readInt();
-					byte[] chunkDat = new byte[chunkSize];
-					if (dis.read(chunkDat, 0, chunkSize) != chunkSize)
-						throw new Exception("chunkSize is not match: " + chunkSize);
-				}
-				// Mtsp (Stream PCM Data Chunk)
-			}
-
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
-
-	public byte[] convertToMDI(byte[] data) throws Exception {
-		byte[] magic = new byte[4];
-		try (ByteArrayInputStream is = new ByteArrayInputStream(data);
-			 DataInputStream dis = new DataInputStream(is)) {
-			dis.read(magic, 0, 4);
-			if (!Arrays.equals(magic, "MMMD".getBytes())) {
-				throw new Exception("Signature is not match MMMD: " + Arrays.toString(magic));
-			}
-			dis.readInt();
-			dis.read(magic, 0, 4);
-			if (!Arrays.equals(magic, "CNTI".getBytes())) {
-				throw new Exception("Signature is not match CNTI: " + Arrays.toString(magic));
-			}
-			int blockSize = dis.readInt();
-			byte[] cntiBlock = new byte[blockSize];
-			dis.read(cntiBlock, 0, blockSize);
-
-			dis.read(magic, 0, 4);
-			if (!Arrays.equals(magic, "OPDA".getBytes())) {
-				throw new Exception("Signature is not match OPDA: " + Arrays.toString(magic));
-			}
-			blockSize = dis.readInt();
-			byte[] blockData = new byte[blockSize];
-			dis.read(blockData, 0, blockSize);
-
-			dis.read(magic, 0, 4);
-			if (!Arrays.equals(Arrays.copyOf(magic, 3), "MTR".getBytes())) {
-				throw new Exception("Signature is not match MTR: " + new String(magic));
-			}
-			blockSize = dis.readInt();
-			blockData = new byte[blockSize];
-			if (dis.read(blockData, 0, blockSize) != blockSize) {
-				throw new Exception("blockSize does not match");
-			}
-			try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
-				 DataOutputStream dos = new DataOutputStream(bos)) {
-				parseMTR(blockData, dos);
-				return bos.toByteArray();
-			}
-
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-
-		throw new Exception("track is not found");
-	}
 }
-
@@ -33,7 +33,9 @@ import javax.microedition.media.protocol.SourceStream;
 import javax.microedition.media.tone.ToneManager;
 import javax.microedition.util.ContextHolder;
 
+import ru.woesss.j2me.mmapi.MemoryDataSource;
 import ru.woesss.j2me.mmapi.Plugin;
+import ru.woesss.j2me.mmapi.synth.PrerenderCache;
 import ru.woesss.j2me.mmapi.synth.SynthPluginFactory;
 
 public class Manager {
@@ -85,8 +87,8 @@ public class Manager {
 			}
 			SourceStream sourceStream = sourceStreams[0];
 			InputStream stream = new InternalSourceStream(sourceStream);
-			InternalDataSource datasource = new InternalDataSource(stream, type);
-			return new MicroPlayer(datasource);
+			InternalDataSource datasource = InternalDataSource.create(stream, type);
+			return createInternalPlayer(datasource);
 		} else {
 			return new BasePlayer();
 		}
@@ -97,19 +99,45 @@ public class Manager {
 		if (stream == null) {
 			throw new IllegalArgumentException();
 		}
-		InternalDataSource datasource = new InternalDataSource(stream, type);
+		byte[] data = InternalDataSource.readAll(stream);
+		// small media never touches the file system if a plugin can play it from memory
+		DataSource source = data.length <= MemoryDataSource.MAX_SIZE
+				? new MemoryDataSource(type, data) : InternalDataSource.create(data, type);
+		Player player = createPluginPlayer(source);
+		if (player != null) {
+			return player;
+		}
+		String[] supportedTypes = getSupportedContentTypes(null);
+		if (type != null && Arrays.asList(supportedTypes).contains(type.toLowerCase())) {
+			InternalDataSource datasource = source instanceof InternalDataSource
+					? (InternalDataSource) source : InternalDataSource.create(data, type);
+			return createInternalPlayer(datasource);
+		} else {
+			source.disconnect();
+			return new BasePlayer();
+		}
+	}
+
+	private static Player createPluginPlayer(DataSource datasource) {
+		DataSource rendered = PrerenderCache.getRenderedSource(datasource);
+		if (rendered != null) {
+			return new MicroPlayer(rendered);
+		}
 		for (Plugin plugin : PLUGINS) {
 			Player player = plugin.createPlayer(datasource);
 			if (player != null) {
 				return player;
 			}
 		}
-		String[] supportedTypes = getSupportedContentTypes(null);
-		if (type != null && Arrays.asList(supportedTypes).contains(type.toLowerCase())) {
-			return new MicroPlayer(datasource);
-		} else {
-			return new BasePlayer();
+		return null;
+	}
+
+	private static Player createInternalPlayer(InternalDataSource datasource) {
+		SoundPool.Clip clip = SoundPool.acquire(datasource);
+		if (clip != null) {
+			return new PooledPlayer(datasource, clip);
 		}
+		return new MicroPlayer(datasource);
 	}
 
 	public static String[] getSupportedContentTypes(String str) {
@@ -23,10 +23,12 @@ import android.util.Log;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.microedition.amms.control.PanControl;
 import javax.microedition.amms.control.audioeffect.EqualizerControl;
@@ -46,16 +48,29 @@ class MicroPlayer extends BasePlayer implements MediaPlayer.OnCompletionListener
 	private static final String TAG = MicroPlayer.class.getSimpleName();
 
 	protected final HashMap<String, Control> controls = new HashMap<>();
-	protected final MediaPlayer player = new AndroidPlayer();
+	protected final AndroidPlayer player = AndroidPlayer.obtain();
 	protected final DataSource source;
 	protected int state = UNREALIZED;
 
-	private final ExecutorService callbackExecutor = Executors.newSingleThreadExecutor(r -> {
+	private static final int CALLBACK_THREADS = 8;
+	/**
+	 * Shared by all instances, players are created and closed too often to own a thread.
+	 * A thread is added while a listener blocks, up to the limit, idle threads end.
+	 */
+	private static final ThreadPoolExecutor callbackPool = new ThreadPoolExecutor(
+			CALLBACK_THREADS, CALLBACK_THREADS, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
 		Thread thread = new Thread(r, "MidletPlayerCallback");
-		thread.setUncaughtExceptionHandler((t, e) ->
-				Log.e(t.getName(), "UncaughtException in " + t, e));
+		thread.setDaemon(true);
 		return thread;
 	});
+
+	static {
+		callbackPool.allowCoreThreadTimeOut(true);
+	}
+
+	/** Callbacks of the player run in order, one at a time */
+	private final ArrayDeque<Runnable> callbacks = new ArrayDeque<>();
+	private boolean callbacksRunning;
 	private final ArrayList<PlayerListener> listeners = new ArrayList<>();
 	private final InternalMetaData metadata;
 
@@ -120,7 +135,36 @@ class MicroPlayer extends BasePlayer implements MediaPlayer.OnCompletionListener
 	private synchronized void postEvent(String event, Object eventData) {
 		for (PlayerListener listener : listeners) {
 			// Callbacks should be async
-			callbackExecutor.execute(() -> listener.playerUpdate(this, event, eventData));
+			postCallback(() -> listener.playerUpdate(this, event, eventData));
+		}
+	}
+
+	private void postCallback(Runnable callback) {
+		synchronized (callbacks) {
+			callbacks.add(callback);
+			if (callbacksRunning) {
+				return;
+			}
+			callbacksRunning = true;
+		}
+		callbackPool.execute(this::runCallbacks);
+	}
+
+	private void runCallbacks() {
+		while (true) {
+			Runnable callback;
+			synchronized (callbacks) {
+				callback = callbacks.poll();
+				if (callback == null) {
+					callbacksRunning = false;
+					return;
+				}
+			}
+			try {
+				callback.run();
+			} catch (Throwable e) {
+				Log.e(TAG, "Exception in the player listener", e);
+			}
 		}
 	}
 
@@ -216,7 +260,7 @@ class MicroPlayer extends BasePlayer implements MediaPlayer.OnCompletionListener
 	@Override
 	public synchronized void close() {
 		if (state != CLOSED) {
-			player.release();
+			player.recycle();
 		}
 
 		source.disconnect();
@@ -240,7 +284,7 @@ class MicroPlayer extends BasePlayer implements MediaPlayer.OnCompletionListener
 	}
 
 	@Override
-	public long setMediaTime(long now) throws MediaException {
+	public synchronized long setMediaTime(long now) throws MediaException {
 		checkRealized();
 		if (state < PREFETCHED) {
 			return 0;
@@ -254,7 +298,7 @@ class MicroPlayer extends BasePlayer implements MediaPlayer.OnCompletionListener
 	}
 
 	@Override
-	public long getMediaTime() {
+	public synchronized long getMediaTime() {
 		checkClosed();
 		if (state < PREFETCHED) {
 			return TIME_UNKNOWN;
@@ -264,7 +308,7 @@ class MicroPlayer extends BasePlayer implements MediaPlayer.OnCompletionListener
 	}
 
 	@Override
-	public long getDuration() {
+	public synchronized long getDuration() {
 		checkClosed();
 		if (state < PREFETCHED) {
 			return TIME_UNKNOWN;
@@ -274,7 +318,7 @@ class MicroPlayer extends BasePlayer implements MediaPlayer.OnCompletionListener
 	}
 
 	@Override
-	public void setLoopCount(int count) {
+	public synchronized void setLoopCount(int count) {
 		checkClosed();
 		if (state == STARTED)
 			throw new IllegalStateException("player must not be in STARTED state while using setLoopCount()");
@@ -329,7 +373,7 @@ class MicroPlayer extends BasePlayer implements MediaPlayer.OnCompletionListener
 	}
 
 	@Override
-	public void setMute(boolean mute) {
+	public synchronized void setMute(boolean mute) {
 		if (state == CLOSED) {
 			// Avoid IllegalStateException in MediaPlayer.setVolume()
 			return;
@@ -345,7 +389,7 @@ class MicroPlayer extends BasePlayer implements MediaPlayer.OnCompletionListener
 	}
 
 	@Override
-	public int setLevel(int level) {
+	public synchronized int setLevel(int level) {
 		if (state == CLOSED) {
 			// Avoid IllegalStateException in MediaPlayer.setVolume()
 			return this.level;
@@ -372,7 +416,12 @@ class MicroPlayer extends BasePlayer implements MediaPlayer.OnCompletionListener
 	// PanControl
 
 	@Override
-	public int setPan(int pan) {
+	public synchronized int setPan(int pan) {
+		if (state == CLOSED) {
+			// Avoid IllegalStateException in MediaPlayer.setVolume()
+			return this.pan;
+		}
+
 		if (pan < -100) {
 			pan = -100;
 		} else if (pan > 100) {
@@ -393,7 +442,7 @@ class MicroPlayer extends BasePlayer implements MediaPlayer.OnCompletionListener
 	// ToneControl
 
 	@Override
-	public void setSequence(byte[] sequence) {
+	public synchronized void setSequence(byte[] sequence) {
 		if (state >= PREFETCHED) {
 			throw new IllegalStateException();
 		} else if (sequence == null) {
@@ -0,0 +1,409 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.media;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.microedition.amms.control.PanControl;
+import javax.microedition.amms.control.audioeffect.EqualizerControl;
+import javax.microedition.media.control.MetaDataControl;
+import javax.microedition.media.control.VolumeControl;
+import javax.microedition.media.protocol.DataSource;
+
+import ru.woesss.j2me.mmapi.AudioMixer;
+
+/**
+ * Player of a short clip from the {@link SoundPool}.
+ * Plays through the shared {@link AudioMixer} instead of own MediaPlayer,
+ * all instances share one callback thread.
+ */
+class PooledPlayer extends BasePlayer implements AudioMixer.Source, VolumeControl, PanControl {
+	private static final String TAG = PooledPlayer.class.getSimpleName();
+
+	private static final ExecutorService callbackExecutor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "PooledPlayerCallback");
+		thread.setDaemon(true);
+		thread.setUncaughtExceptionHandler((t, e) ->
+				Log.e(t.getName(), "UncaughtException in " + t, e));
+		return thread;
+	});
+
+	private final HashMap<String, Control> controls = new HashMap<>();
+	private final ArrayList<PlayerListener> listeners = new ArrayList<>();
+	private final InternalMetaData metadata = new InternalMetaData();
+	private final DataSource source;
+	private final long step;
+	private SoundPool.Clip clip;
+	private boolean metadataLoaded;
+	private int state = UNREALIZED;
+
+	/** Playback position in frames of the clip, 32.32 fixed point */
+	private long position;
+	private int loopCount = 1;
+	private int loopsDone;
+	private volatile int leftGain;
+	private volatile int rightGain;
+	private boolean mute;
+	private int level = 100;
+	private int pan;
+
+	PooledPlayer(DataSource source, SoundPool.Clip clip) {
+		this.source = source;
+		this.clip = clip;
+		step = ((long) clip.sampleRate << 32) / AudioMixer.SAMPLE_RATE;
+		controls.put(VolumeControl.class.getName(), this);
+		controls.put(PanControl.class.getName(), this);
+		controls.put(MetaDataControl.class.getName(), metadata);
+		controls.put(EqualizerControl.class.getName(), new InternalEqualizer());
+		updateVolume();
+	}
+
+	@Override
+	public Control getControl(String controlType) {
+		checkRealized();
+		if (!controlType.contains(".")) {
+			controlType = "javax.microedition.media.control." + controlType;
+		}
+		Control control = controls.get(controlType);
+		if (control == metadata) {
+			loadMetaData();
+		}
+		return control;
+	}
+
+	@Override
+	public Control[] getControls() {
+		checkRealized();
+		loadMetaData();
+		return controls.values().toArray(new Control[0]);
+	}
+
+	private void loadMetaData() {
+		// MediaMetadataRetriever is slow, so it is used only if the metadata is really needed
+		if (!metadataLoaded) {
+			metadataLoaded = true;
+			metadata.updateMetaData(source);
+		}
+	}
+
+	@Override
+	public synchronized void addPlayerListener(PlayerListener playerListener) {
+		checkClosed();
+		if (!listeners.contains(playerListener) && playerListener != null) {
+			listeners.add(playerListener);
+		}
+	}
+
+	@Override
+	public synchronized void removePlayerListener(PlayerListener playerListener) {
+		checkClosed();
+		listeners.remove(playerListener);
+	}
+
+	private synchronized void postEvent(String event, Object eventData) {
+		for (PlayerListener listener : listeners) {
+			// Callbacks should be async
+			callbackExecutor.execute(() -> listener.playerUpdate(this, event, eventData));
+		}
+	}
+
+	@Override
+	public synchronized void realize() throws MediaException {
+		checkClosed();
+
+		if (state == UNREALIZED) {
+			try {
+				source.connect();
+			} catch (IOException e) {
+				throw new MediaException(e.getMessage());
+			}
+			state = REALIZED;
+		}
+	}
+
+	@Override
+	public synchronized void prefetch() throws MediaException {
+		checkClosed();
+
+		if (state == UNREALIZED) {
+			realize();
+		}
+
+		if (state == REALIZED) {
+			state = PREFETCHED;
+		}
+	}
+
+	@Override
+	public synchronized void start() throws MediaException {
+		prefetch();
+
+		if (state == PREFETCHED) {
+			state = STARTED;
+			AudioMixer.getInstance().add(this);
+			postEvent(PlayerListener.STARTED, getMediaTime());
+		}
+	}
+
+	@Override
+	public synchronized void stop() {
+		checkClosed();
+		if (state == STARTED) {
+			AudioMixer.getInstance().remove(this);
+			state = PREFETCHED;
+			postEvent(PlayerListener.STOPPED, getMediaTime());
+		}
+	}
+
+	@Override
+	public synchronized void deallocate() {
+		stop();
+
+		if (state == PREFETCHED) {
+			state = REALIZED;
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (state == CLOSED) {
+			return;
+		}
+		AudioMixer.getInstance().remove(this);
+		SoundPool.release(clip);
+		source.disconnect();
+
+		state = CLOSED;
+		postEvent(PlayerListener.CLOSED, null);
+	}
+
+	@Override
+	public synchronized boolean mix(int[] buffer, int frames) {
+		if (state != STARTED) {
+			return false;
+		}
+		SoundPool.Clip clip = this.clip;
+		short[] samples = clip.samples;
+		int channels = clip.channels;
+		int length = clip.frames;
+		int left = leftGain;
+		int right = rightGain;
+		long position = this.position;
+		long step = this.step;
+		for (int i = 0, o = 0; i < frames; i++, o += 2) {
+			int frame = (int) (position >>> 32);
+			if (frame >= length) {
+				if (!onEndOfMedia()) {
+					this.position = 0;
+					return false;
+				}
+				position = 0;
+				frame = 0;
+			}
+			int s = frame * channels;
+			int l = samples[s];
+			int r = channels == 2 ? samples[s + 1] : l;
+			buffer[o] += l * left >> 16;
+			buffer[o + 1] += r * right >> 16;
+			position += step;
+		}
+		this.position = position;
+		return true;
+	}
+
+	/** @return true if the playback must continue from the start */
+	private boolean onEndOfMedia() {
+		if (loopCount == -1) {
+			return true;
+		}
+		long duration = clip.getDuration();
+		postEvent(PlayerListener.END_OF_MEDIA, duration);
+		if (++loopsDone < loopCount) {
+			postEvent(PlayerListener.STARTED, 0L);
+			return true;
+		}
+		loopsDone = 0;
+		state = PREFETCHED;
+		return false;
+	}
+
+	@Override
+	public synchronized long setMediaTime(long now) throws MediaException {
+		checkRealized();
+		if (state < PREFETCHED) {
+			return 0;
+		}
+		long duration = clip.getDuration();
+		if (now < 0) {
+			now = 0;
+		} else if (now > duration) {
+			now = duration;
+		}
+		position = (now * clip.sampleRate / 1000000L) << 32;
+		return getMediaTime();
+	}
+
+	@Override
+	public synchronized long getMediaTime() {
+		checkClosed();
+		if (state < PREFETCHED) {
+			return TIME_UNKNOWN;
+		}
+		return (position >>> 32) * 1000000L / clip.sampleRate;
+	}
+
+	@Override
+	public long getDuration() {
+		checkClosed();
+		if (state < PREFETCHED) {
+			return TIME_UNKNOWN;
+		}
+		return clip.getDuration();
+	}
+
+	@Override
+	public synchronized void setLoopCount(int count) {
+		checkClosed();
+		if (state == STARTED)
+			throw new IllegalStateException("player must not be in STARTED state while using setLoopCount()");
+
+		if (count == 0) {
+			throw new IllegalArgumentException("loop count must not be 0");
+		}
+
+		loopCount = count;
+		loopsDone = 0;
+	}
+
+	@Override
+	public int getState() {
+		return state;
+	}
+
+	@Override
+	public String getContentType() {
+		checkRealized();
+		return source.getContentType();
+	}
+
+	private void checkClosed() {
+		if (state == CLOSED) {
+			throw new IllegalStateException("player is closed");
+		}
+	}
+
+	private void checkRealized() {
+		checkClosed();
+
+		if (state == UNREALIZED) {
+			throw new IllegalStateException("call realize() before using the player");
+		}
+	}
+
+	// VolumeControl
+
+	private void updateVolume() {
+		float left, right;
+
+		if (mute) {
+			left = right = 0;
+		} else {
+			left = right = volumeToGain(level);
+			if (pan > 0) {
+				left = volumeToGain(level * (100 - pan) / 100);
+			} else if (pan < 0) {
+				right = volumeToGain(level * (100 + pan) / 100);
+			}
+		}
+
+		leftGain = (int) (left * 65536);
+		rightGain = (int) (right * 65536);
+		postEvent(PlayerListener.VOLUME_CHANGED, this);
+	}
+
+	private float volumeToGain(int volume) {
+		if (volume <= 0) {
+			return 0.0f;
+		} else if (volume >= 100) {
+			return 1.0f;
+		}
+		return (float) (1 - (Math.log(100 - volume) / Math.log(100)));
+	}
+
+	@Override
+	public synchronized void setMute(boolean mute) {
+		if (state == CLOSED) {
+			return;
+		}
+
+		this.mute = mute;
+		updateVolume();
+	}
+
+	@Override
+	public boolean isMuted() {
+		return mute;
+	}
+
+	@Override
+	public synchronized int setLevel(int level) {
+		if (state == CLOSED) {
+			return this.level;
+		}
+
+		if (level < 0) {
+			level = 0;
+		} else if (level > 100) {
+			level = 100;
+		}
+
+		this.level = level;
+		updateVolume();
+
+		return level;
+	}
+
+	@Override
+	public int getLevel() {
+		return level;
+	}
+
+	// PanControl
+
+	@Override
+	public synchronized int setPan(int pan) {
+		if (pan < -100) {
+			pan = -100;
+		} else if (pan > 100) {
+			pan = 100;
+		}
+
+		this.pan = pan;
+		updateVolume();
+
+		return pan;
+	}
+
+	@Override
+	public int getPan() {
+		return pan;
+	}
+}
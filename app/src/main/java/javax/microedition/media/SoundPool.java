@@ -0,0 +1,191 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.media;
+
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.microedition.media.protocol.DataSource;
+
+/**
+ * Memory pool of short clips decoded to PCM, played by {@link PooledPlayer}.
+ * Clips are shared between players created from the same prepared file
+ * and kept while they fit into the memory budget.
+ */
+final class SoundPool {
+	private static final String TAG = SoundPool.class.getSimpleName();
+	private static final boolean DISABLED = Boolean.getBoolean("mmapi.soundpool.disabled");
+	/** Max size of the decoded PCM data of a single clip */
+	private static final int MAX_CLIP_BYTES = Integer.getInteger("mmapi.soundpool.clip.size", 512 * 1024);
+	private static final long MAX_UNUSED_BYTES = Integer.getInteger("mmapi.soundpool.size", 4 * 1024 * 1024);
+
+	private static final LinkedHashMap<String, Clip> clips = new LinkedHashMap<>(16, 0.75f, true);
+	private static long unusedBytes;
+
+	private SoundPool() {}
+
+	/**
+	 * @return decoded clip of the source with an acquired reference,
+	 * or {@code null} if the source is not a short PCM WAV file
+	 */
+	static Clip acquire(DataSource source) {
+		if (DISABLED) {
+			return null;
+		}
+		String path = source.getLocator();
+		synchronized (clips) {
+			Clip clip = clips.get(path);
+			if (clip != null) {
+				if (clip.refCount++ == 0) {
+					unusedBytes -= clip.size;
+				}
+				return clip;
+			}
+		}
+		Clip clip;
+		try {
+			clip = decode(new File(path));
+		} catch (IOException e) {
+			Log.w(TAG, "acquire: decode failed", e);
+			return null;
+		}
+		if (clip == null) {
+			return null;
+		}
+		synchronized (clips) {
+			Clip c = clips.get(path);
+			if (c != null) {
+				clip = c;
+				if (clip.refCount++ == 0) {
+					unusedBytes -= clip.size;
+				}
+			} else {
+				clip.refCount = 1;
+				clips.put(path, clip);
+			}
+			return clip;
+		}
+	}
+
+	static void release(Clip clip) {
+		synchronized (clips) {
+			if (--clip.refCount > 0) {
+				return;
+			}
+			unusedBytes += clip.size;
+			Iterator<Clip> iterator = clips.values().iterator();
+			while (unusedBytes > MAX_UNUSED_BYTES && iterator.hasNext()) {
+				Clip c = iterator.next();
+				if (c.refCount > 0) {
+					continue;
+				}
+				iterator.remove();
+				unusedBytes -= c.size;
+			}
+		}
+	}
+
+	/** Decodes RIFF WAVE files with 8 or 16-bit PCM data */
+	private static Clip decode(File file) throws IOException {
+		long length = file.length();
+		if (length < 44 || length > MAX_CLIP_BYTES * 2L + 1024) {
+			return null;
+		}
+		try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+			if (dis.readInt() != 0x52494646 /* RIFF */) {
+				return null;
+			}
+			dis.skipBytes(4);
+			if (dis.readInt() != 0x57415645 /* WAVE */) {
+				return null;
+			}
+			int channels = 0;
+			int sampleRate = 0;
+			int bits = 0;
+			while (true) {
+				int id = dis.readInt();
+				int size = Integer.reverseBytes(dis.readInt());
+				if (size < 0) {
+					return null;
+				}
+				if (id == 0x666d7420 /* fmt */) {
+					int format = Short.reverseBytes(dis.readShort()) & 0xffff;
+					channels = Short.reverseBytes(dis.readShort());
+					sampleRate = Integer.reverseBytes(dis.readInt());
+					dis.skipBytes(6);
+					bits = Short.reverseBytes(dis.readShort());
+					dis.skipBytes(size - 16 + (size & 1));
+					if (format != 1 && format != 0xfffe || channels < 1 || channels > 2
+							|| bits != 8 && bits != 16 || sampleRate <= 0) {
+						return null;
+					}
+				} else if (id == 0x64617461 /* data */) {
+					if (channels == 0) {
+						return null;
+					}
+					int bytes = bits / 8;
+					int frames = size / (bytes * channels);
+					int samplesLen = frames * channels;
+					if (samplesLen * 2 > MAX_CLIP_BYTES) {
+						return null;
+					}
+					byte[] data = new byte[samplesLen * bytes];
+					dis.readFully(data);
+					short[] samples = new short[samplesLen];
+					if (bits == 8) {
+						for (int i = 0; i < samplesLen; i++) {
+							samples[i] = (short) (((data[i] & 0xff) - 128) << 8);
+						}
+					} else {
+						for (int i = 0, p = 0; i < samplesLen; i++, p += 2) {
+							samples[i] = (short) ((data[p] & 0xff) | data[p + 1] << 8);
+						}
+					}
+					return new Clip(samples, channels, sampleRate);
+				} else {
+					dis.skipBytes(size + (size & 1));
+				}
+			}
+		}
+	}
+
+	static final class Clip {
+		final short[] samples;
+		final int channels;
+		final int sampleRate;
+		final int frames;
+		final int size;
+		int refCount;
+
+		Clip(short[] samples, int channels, int sampleRate) {
+			this.samples = samples;
+			this.channels = channels;
+			this.sampleRate = sampleRate;
+			this.frames = samples.length / channels;
+			this.size = samples.length * 2;
+		}
+
+		/** @return duration in microseconds */
+		long getDuration() {
+			return frames * 1000000L / sampleRate;
+		}
+	}
+}
@@ -23,8 +23,8 @@ import javax.microedition.media.control.ToneControl;
  * Event processor class for tone sequence BLOCK_END events
  */
 public class BlockEndEvent extends Event {
-	BlockEndEvent(byte[] sequence, MidiSequence midiSequence) {
-		super(sequence, midiSequence);
+	BlockEndEvent(Event parent) {
+		super(parent);
 	}
 
 	public int advance(int position) throws MidiSequenceException, IllegalArgumentException {
@@ -23,8 +23,8 @@ import javax.microedition.media.control.ToneControl;
  * Event processor class for tone sequence BLOCK_START events
  */
 public class BlockStartEvent extends Event {
-	BlockStartEvent(byte[] sequence, MidiSequence midiSequence) {
-		super(sequence, midiSequence);
+	BlockStartEvent(Event parent) {
+		super(parent);
 	}
 
 	public int advance(int position) throws MidiSequenceException, IllegalArgumentException {
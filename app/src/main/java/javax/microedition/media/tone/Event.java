@@ -36,34 +36,37 @@ public abstract class Event {
 	/* Holds the new tone sequence converted to MIDI */
 	protected MidiSequence midiSequence;
 
-	/* Stack for tone event processors. Used by the method advance. */
-	protected static Stack<Integer> returnPositionStack;
+	/* Stack for tone event processors. Used by the method advance.
+	   Shared by all processors of one sequence. */
+	protected final Stack<Integer> returnPositionStack;
 
 	/* Current block number holder for validating blocks. If not in any
 	   block, the value is -1. Manipulated by accessor methods. */
-	private static Stack<Integer> currentBlockNumStack;
+	private final Stack<Integer> currentBlockNumStack;
 
-	// Static initialization
-	static {
+	protected Event(byte[] sequence, MidiSequence midiSequence) {
+		this.sequence = sequence;
+		this.midiSequence = midiSequence;
 		returnPositionStack = new Stack<>();
 		currentBlockNumStack = new Stack<>();
 	}
 
-	protected Event(byte[] sequence, MidiSequence midiSequence) {
-		this.sequence = sequence;
-		this.midiSequence = midiSequence;
+	/**
+	 * Creates event processor sharing the sequence and the state with the parent
+	 */
+	protected Event(Event parent) {
+		sequence = parent.sequence;
+		midiSequence = parent.midiSequence;
+		returnPositionStack = parent.returnPositionStack;
+		currentBlockNumStack = parent.currentBlockNumStack;
 	}
 
 	/**
 	 * Reset events for reuse
 	 */
 	public void reset() {
-		if (!returnPositionStack.empty()) {
-			returnPositionStack = new Stack<>();
-		}
-		if (!currentBlockNumStack.isEmpty()) {
-			currentBlockNumStack = new Stack<>();
-		}
+		returnPositionStack.clear();
+		currentBlockNumStack.clear();
 	}
 
 	/**
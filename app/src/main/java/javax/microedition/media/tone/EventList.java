@@ -33,12 +33,12 @@ public class EventList extends Event {
 
 		events = new Vector<>(EVENT_PROCESSOR_COUNT);
 
-		events.addElement(new ToneEvent(sequence, midiSequence));
-		events.addElement(new BlockStartEvent(sequence, midiSequence));
-		events.addElement(new BlockEndEvent(sequence, midiSequence));
-		events.addElement(new PlayBlockEvent(sequence, midiSequence));
-		events.addElement(new RepeatEvent(sequence, midiSequence));
-		events.addElement(new VolumeEvent(sequence, midiSequence));
+		events.addElement(new ToneEvent(this));
+		events.addElement(new BlockStartEvent(this));
+		events.addElement(new BlockEndEvent(this));
+		events.addElement(new PlayBlockEvent(this));
+		events.addElement(new RepeatEvent(this));
+		events.addElement(new VolumeEvent(this));
 	}
 
 	public int advance(int position) throws MidiSequenceException {
@@ -19,7 +19,6 @@ package javax.microedition.media.tone;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 
 /**
  * This class represents midi sequence
@@ -152,40 +151,24 @@ public class MidiSequence {
 	/**
 	 * Get midi stream
 	 */
-	public ByteArrayInputStream getStream() throws IOException {
-		midiTrackEvents.flush();
-		byte[] midiTrackEvents = this.midiTrackEvents.toByteArray();
-		int size = FILE_HEADER_LENGTH + MTRK_HEADER_LENGTH + TRACK_HEADER_LENGTH +
-				midiTrackEvents.length + TRACK_TRAILER_LENGTH;
-		ByteArrayOutputStream concateStream = new ByteArrayOutputStream(size);
-
-		writeHeader(concateStream, midiTrackEvents.length);
-		concateStream.write(midiTrackEvents);
-		writeTrailer(concateStream);
-
-		ByteArrayInputStream midi = new ByteArrayInputStream(concateStream.toByteArray());
-
-		concateStream.close();
-		return midi;
+	public ByteArrayInputStream getStream() {
+		return new ByteArrayInputStream(getByteArray());
 	}
 
 	/**
 	 * Get midi file data as byte[]
 	 */
-	public byte[] getByteArray() throws IOException {
-		midiTrackEvents.flush();
+	public byte[] getByteArray() {
 		byte[] midiTrackEvents = this.midiTrackEvents.toByteArray();
 		int size = FILE_HEADER_LENGTH + MTRK_HEADER_LENGTH + TRACK_HEADER_LENGTH +
 				midiTrackEvents.length + TRACK_TRAILER_LENGTH;
 		ByteArrayOutputStream concateStream = new ByteArrayOutputStream(size);
 
 		writeHeader(concateStream, midiTrackEvents.length);
-		concateStream.write(midiTrackEvents);
+		concateStream.write(midiTrackEvents, 0, midiTrackEvents.length);
 		writeTrailer(concateStream);
 
-		byte[] midi = concateStream.toByteArray();
-		concateStream.close();
-		return midi;
+		return concateStream.toByteArray();
 	}
 
 	/**
@@ -319,20 +302,20 @@ public class MidiSequence {
 	 * @param aOut              output stream
 	 * @param aMidiEventsLength lenght of midi event content in bytes
 	 */
-	private void writeHeader(ByteArrayOutputStream aOut, int aMidiEventsLength) throws IOException {
+	private void writeHeader(ByteArrayOutputStream aOut, int aMidiEventsLength) {
 		// MIDI FILE HEADER
 
 		// write 'MThd' block id
-		aOut.write(MIDI_HEADER_MTHD);
+		aOut.write(MIDI_HEADER_MTHD, 0, MIDI_HEADER_MTHD.length);
 
 		// write MThd block length
-		aOut.write(MIDI_HEADER_MTHD_LENGTH);
+		aOut.write(MIDI_HEADER_MTHD_LENGTH, 0, MIDI_HEADER_MTHD_LENGTH.length);
 
 		// write midi format; format is 0
-		aOut.write(MIDI_HEADER_MIDI_FORMAT);
+		aOut.write(MIDI_HEADER_MIDI_FORMAT, 0, MIDI_HEADER_MIDI_FORMAT.length);
 
 		// write MTrk chunk amount; only one track
-		aOut.write(MIDI_HEADER_MTRK_CHUNK_AMOUNT);
+		aOut.write(MIDI_HEADER_MTRK_CHUNK_AMOUNT, 0, MIDI_HEADER_MTRK_CHUNK_AMOUNT.length);
 
 		// write PPQN resolution (pulses per quarternote)
 		aOut.write(MIDI_HEADER_PPQN_FIRST_BYTE);
@@ -341,7 +324,7 @@ public class MidiSequence {
 		// MTrk HEADER
 
 		// write 'MTrk' for the only track
-		aOut.write(MIDI_HEADER_MTRK);
+		aOut.write(MIDI_HEADER_MTRK, 0, MIDI_HEADER_MTRK.length);
 
 		// calculate real track length
 		int trackLength = TRACK_HEADER_LENGTH + aMidiEventsLength + TRACK_TRAILER_LENGTH;
@@ -357,7 +340,7 @@ public class MidiSequence {
 		// TRACK HEADER
 
 		// write tempo change at beginning
-		aOut.write(TRACK_HEADER_TEMPO_CHANGE);
+		aOut.write(TRACK_HEADER_TEMPO_CHANGE, 0, TRACK_HEADER_TEMPO_CHANGE.length);
 
 		// calculate tempo in microseconds per quarter note
 		int mpqn = MINUTE_AS_MICROSECONDS / tempo;
@@ -380,8 +363,8 @@ public class MidiSequence {
 	 *
 	 * @param aOut output stream
 	 */
-	private void writeTrailer(ByteArrayOutputStream aOut) throws IOException {
-		aOut.write(TRACK_TRAILER);
+	private void writeTrailer(ByteArrayOutputStream aOut) {
+		aOut.write(TRACK_TRAILER, 0, TRACK_TRAILER.length);
 	}
 
 	/**
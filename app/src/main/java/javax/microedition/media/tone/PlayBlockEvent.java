@@ -27,8 +27,8 @@ public class PlayBlockEvent extends Event {
 	public static final int PLAY_BLOCK_MAX_VALUE = 127;
 	public static final int PLAY_BLOCK_MIN_VALUE = 0;
 
-	PlayBlockEvent(byte[] sequence, MidiSequence midiSequence) {
-		super(sequence, midiSequence);
+	PlayBlockEvent(Event parent) {
+		super(parent);
 	}
 
 	/**
@@ -30,12 +30,11 @@ public class RepeatEvent extends Event {
 	/**
 	 * RepeatEvent constructor
 	 *
-	 * @param sequence     tone sequence byte array (input)
-	 * @param midiSequence midi sequence object where to output midi events.
+	 * @param parent event processor whose sequence and state are shared
 	 */
 
-	RepeatEvent(byte[] sequence, MidiSequence midiSequence) {
-		super(sequence, midiSequence);
+	RepeatEvent(Event parent) {
+		super(parent);
 	}
 
 	/**
@@ -26,11 +26,10 @@ public class ToneEvent extends Event {
 	/**
 	 * ToneEvent constructor
 	 *
-	 * @param sequence     tone sequence byte array (input)
-	 * @param midiSequence midi sequence object where to output midi events.
+	 * @param parent event processor whose sequence and state are shared
 	 */
-	ToneEvent(byte[] sequence, MidiSequence midiSequence) {
-		super(sequence, midiSequence);
+	ToneEvent(Event parent) {
+		super(parent);
 	}
 
 	/**
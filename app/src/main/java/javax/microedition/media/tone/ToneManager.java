@@ -19,16 +19,13 @@ package javax.microedition.media.tone;
 
 import android.util.Log;
 
-import java.util.Vector;
-
 import javax.microedition.media.Manager;
 import javax.microedition.media.MediaException;
 import javax.microedition.media.Player;
-import javax.microedition.media.PlayerListener;
 import javax.microedition.media.control.ToneControl;
 
 /** Manager.playTone implementation */
-public class ToneManager implements PlayerListener {
+public class ToneManager {
 	private static final String TAG = ToneManager.class.getSimpleName();
 
 	private static final int TONE_SEQUENCE_VERSION = 1;
@@ -37,10 +34,6 @@ public class ToneManager implements PlayerListener {
 	private static final int DURATION_DIVIDE = 240000;
 	private static final String CANNOT_PLAY_TONE = "Cannot play tone";
 
-	/** @noinspection MismatchedQueryAndUpdateOfCollection*/
-	// Holds tone players
-	private final Vector<Player> players = new Vector<>();
-
 	private ToneManager() {}
 
 	public static ToneManager getInstance() {
@@ -96,23 +89,27 @@ public class ToneManager implements PlayerListener {
 	 *
 	 * @see Manager#playTone(int, int, int)
 	 */
-	synchronized public void playTone(int note, int duration, int volume) throws MediaException {
-		Player p = createPlayer(note, duration, volume);
+	public void playTone(int note, int duration, int volume) throws MediaException {
+		if (volume < MidiToneConstants.TONE_MIN_VOLUME) {
+			volume = MidiToneConstants.TONE_MIN_VOLUME;
+		} else if (volume > MidiToneConstants.TONE_MAX_VOLUME) {
+			volume = MidiToneConstants.TONE_MAX_VOLUME;
+		}
 
-		p.addPlayerListener(this);
-		players.addElement(p);
-		try {
-			p.start();
-		} catch (MediaException me) {
-			players.removeElement(p);
-			throw me;
+		if (note > MidiToneConstants.TONE_MAX_NOTE || note < MidiToneConstants.TONE_MIN_NOTE) {
+			throw new IllegalArgumentException("Note is out of range, " +
+					"valid range is 0 <= Note <= 127");
 		}
-	}
 
-	public void playerUpdate(Player player, String event, Object eventData) {
-		if (END_OF_MEDIA.equals(event) || ERROR.equals(event)) {
-			player.close();
-			players.removeElement(player);
+		if (duration <= 0) {
+			throw new IllegalArgumentException("Duration must be positive");
+		}
+
+		try {
+			ToneSynth.getInstance().play(note, duration, volume);
+		} catch (Exception e) {
+			Log.e(TAG, "playTone: " + CANNOT_PLAY_TONE, e);
+			throw new MediaException(CANNOT_PLAY_TONE);
 		}
 	}
 
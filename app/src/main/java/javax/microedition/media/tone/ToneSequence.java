@@ -21,34 +21,61 @@ import android.util.Log;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 
 import javax.microedition.media.control.ToneControl;
 
+import ru.woesss.j2me.mmapi.MediaCache;
+
 /**
- * This class represents tone sequence for tone to midi conversion
+ * This class represents tone sequence for tone to midi conversion.
+ * Converted sequences are cached by the hash of the tone sequence data.
  */
 public class ToneSequence {
 	private static final String TAG = ToneSequence.class.getName();
+	private static final int MAX_CACHE_BYTES = Integer.getInteger("mmapi.tone.cache.size", 256 * 1024);
+
+	private static final LinkedHashMap<String, Compiled> cache = new LinkedHashMap<>(16, 0.75f, true);
+	private static int cacheBytes;
 
 	/* Hold original tone sequence bytes */
 	private final byte[] toneSequence;
 
-	/* Holds the new tone sequence converted to MIDI */
-	private final MidiSequence midiSequence;
-
-	/* Event list used to hold tone event processors */
-	private final EventList eventList;
+	/* The tone sequence converted to MIDI */
+	private Compiled compiled;
 
 	public ToneSequence(byte[] sequence) {
 		toneSequence = sequence;
-		midiSequence = new MidiSequence(MidiToneConstants.MIDI_TONE_CHANNEL,
-				MidiToneConstants.MIDI_TONE_INSTRUMENT);
-		eventList = new EventList(toneSequence, midiSequence);
 	}
 
 	public void process() {
-		// Reset static base class variables of events before processing.
-		eventList.reset();
+		String key = MediaCache.getKey(toneSequence, toneSequence.length, "tone");
+		synchronized (cache) {
+			compiled = cache.get(key);
+		}
+		if (compiled != null) {
+			return;
+		}
+		MidiSequence midiSequence = new MidiSequence(MidiToneConstants.MIDI_TONE_CHANNEL,
+				MidiToneConstants.MIDI_TONE_INSTRUMENT);
+		compile(midiSequence);
+		compiled = new Compiled(midiSequence.getByteArray(), midiSequence.getCumulativeDuration());
+		synchronized (cache) {
+			if (cache.put(key, compiled) == null) {
+				cacheBytes += compiled.midi.length;
+			}
+			Iterator<Compiled> iterator = cache.values().iterator();
+			while (cacheBytes > MAX_CACHE_BYTES && iterator.hasNext()) {
+				cacheBytes -= iterator.next().midi.length;
+				iterator.remove();
+			}
+		}
+	}
+
+	private void compile(MidiSequence midiSequence) {
+		// Event list used to hold tone event processors
+		EventList eventList = new EventList(toneSequence, midiSequence);
 
 		// Check input; tone sequence must be even length
 		// ie. multiple of event size
@@ -150,17 +177,34 @@ public class ToneSequence {
 	}
 
 	public ByteArrayInputStream getStream() throws IOException {
-		return midiSequence.getStream();
+		return new ByteArrayInputStream(getCompiled().midi);
 	}
 
 	public byte[] getByteArray() throws IOException {
-		return midiSequence.getByteArray();
+		return getCompiled().midi.clone();
 	}
 
 	/**
 	 * Get duration of tone sequence
 	 */
 	public long getDuration() {
-		return midiSequence.getCumulativeDuration();
+		return getCompiled().duration;
+	}
+
+	private Compiled getCompiled() {
+		if (compiled == null) {
+			process();
+		}
+		return compiled;
+	}
+
+	private static final class Compiled {
+		final byte[] midi;
+		final long duration;
+
+		Compiled(byte[] midi, long duration) {
+			this.midi = midi;
+			this.duration = duration;
+		}
 	}
 }
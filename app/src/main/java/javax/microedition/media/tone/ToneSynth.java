@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.media.tone;
+
+import ru.woesss.j2me.mmapi.AudioMixer;
+
+/**
+ * Oscillator based tone generator for {@link javax.microedition.media.Manager#playTone}.
+ * Renders straight into the {@link AudioMixer}, a fixed number of voices is used,
+ * the voice closest to its end is replaced when all of them are busy.
+ */
+final class ToneSynth implements AudioMixer.Source {
+	private static final int MAX_VOICES = 8;
+	/** Length of the attack and release ramps, removes clicks at tone edges */
+	private static final int RAMP_FRAMES = AudioMixer.SAMPLE_RATE / 500;
+	private static final int MAX_AMPLITUDE = 8192;
+	private static final boolean SINE = "sine".equals(System.getProperty("mmapi.tone.waveform"));
+	private static final int SINE_BITS = 10;
+	private static final short[] SINE_TABLE = new short[1 << SINE_BITS];
+
+	private final int[] phases = new int[MAX_VOICES];
+	private final int[] steps = new int[MAX_VOICES];
+	private final int[] amplitudes = new int[MAX_VOICES];
+	private final int[] positions = new int[MAX_VOICES];
+	private final int[] lengths = new int[MAX_VOICES];
+	private int active;
+
+	private ToneSynth() {}
+
+	static ToneSynth getInstance() {
+		return InstanceHolder.instance;
+	}
+
+	/**
+	 * @param note     MIDI note number
+	 * @param duration duration in milliseconds
+	 * @param volume   volume 0-100
+	 */
+	void play(int note, int duration, int volume) {
+		double freq = 440.0 * Math.pow(2.0, (note - 69) / 12.0);
+		int frames = (int) Math.min((long) duration * AudioMixer.SAMPLE_RATE / 1000, Integer.MAX_VALUE);
+		synchronized (this) {
+			int voice = 0;
+			int minRemaining = Integer.MAX_VALUE;
+			for (int i = 0; i < MAX_VOICES; i++) {
+				int remaining = lengths[i] - positions[i];
+				if (remaining < minRemaining) {
+					minRemaining = remaining;
+					voice = i;
+				}
+			}
+			if (minRemaining <= 0) {
+				active++;
+			}
+			phases[voice] = 0;
+			steps[voice] = (int) (freq * 4294967296.0 / AudioMixer.SAMPLE_RATE);
+			amplitudes[voice] = MAX_AMPLITUDE * volume / 100;
+			positions[voice] = 0;
+			lengths[voice] = frames;
+		}
+		AudioMixer.getInstance().add(this);
+	}
+
+	@Override
+	public synchronized boolean mix(int[] buffer, int frames) {
+		for (int v = 0; v < MAX_VOICES; v++) {
+			int position = positions[v];
+			int length = lengths[v];
+			if (position >= length) {
+				continue;
+			}
+			int phase = phases[v];
+			int step = steps[v];
+			int amplitude = amplitudes[v];
+			int end = Math.min(frames, length - position);
+			for (int i = 0, o = 0; i < end; i++, o += 2, position++) {
+				int env = amplitude;
+				if (position < RAMP_FRAMES) {
+					env = env * position / RAMP_FRAMES;
+				}
+				int release = length - position;
+				if (release < RAMP_FRAMES) {
+					env = env * release / RAMP_FRAMES;
+				}
+				int s;
+				if (SINE) {
+					s = SINE_TABLE[phase >>> (32 - SINE_BITS)] * env >> 15;
+				} else {
+					s = phase < 0 ? -env : env;
+				}
+				buffer[o] += s;
+				buffer[o + 1] += s;
+				phase += step;
+			}
+			phases[v] = phase;
+			positions[v] = position;
+			if (position >= length) {
+				active--;
+			}
+		}
+		return active > 0;
+	}
+
+	static {
+		for (int i = 0; i < SINE_TABLE.length; i++) {
+			SINE_TABLE[i] = (short) Math.round(Math.sin(i * 2.0 * Math.PI / SINE_TABLE.length) * Short.MAX_VALUE);
+		}
+	}
+
+	private static final class InstanceHolder {
+		static final ToneSynth instance = new ToneSynth();
+	}
+}
@@ -24,13 +24,12 @@ import javax.microedition.media.control.ToneControl;
  */
 public class VolumeEvent extends Event {
 	/**
-	 * ToneEvent constructor
+	 * VolumeEvent constructor
 	 *
-	 * @param sequence     tone sequence byte array (input)
-	 * @param midiSequence midi sequence object where to output midi events.
+	 * @param parent event processor whose sequence and state are shared
 	 */
-	VolumeEvent(byte[] sequence, MidiSequence midiSequence) {
-		super(sequence, midiSequence);
+	VolumeEvent(Event parent) {
+		super(parent);
 	}
 
 	/**
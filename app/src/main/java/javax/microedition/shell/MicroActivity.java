@@ -78,8 +78,11 @@ import javax.microedition.lcdui.keyboard.VirtualKeyboard;
 import javax.microedition.lcdui.skin.SkinLayer;
 import javax.microedition.util.ContextHolder;
 
+import io.reactivex.Single;
 import io.reactivex.SingleObserver;
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 import ru.playsoftware.j2meloader.BuildConfig;
 import ru.playsoftware.j2meloader.R;
 import ru.playsoftware.j2meloader.config.Config;
@@ -422,6 +425,7 @@ public class MicroActivity extends AppCompatActivity {
 
 	@Override
 	public boolean onPrepareOptionsMenu(Menu menu) {
+		menu.findItem(R.id.action_profiler).setChecked(SamplingProfiler.isRunning());
 		if (current instanceof Canvas) {
 			menu.setGroupVisible(R.id.action_group_canvas, true);
 			VirtualKeyboard vk = ContextHolder.getVk();
@@ -442,6 +446,8 @@ public class MicroActivity extends AppCompatActivity {
 			showExitConfirmation();
 		} else if (id == R.id.action_save_log) {
 			saveLog();
+		} else if (id == R.id.action_profiler) {
+			toggleProfiler();
 		} else if (id == R.id.action_lock_orientation) {
 			if (item.isChecked()) {
 				VirtualKeyboard vk = ContextHolder.getVk();
@@ -550,6 +556,24 @@ public class MicroActivity extends AppCompatActivity {
 		}
 	}
 
+	@SuppressLint("CheckResult")
+	private void toggleProfiler() {
+		if (!SamplingProfiler.isRunning()) {
+			SamplingProfiler.start();
+			Toast.makeText(this, R.string.profiler_started, Toast.LENGTH_SHORT).show();
+			return;
+		}
+		Single.fromCallable(SamplingProfiler::stop)
+				.subscribeOn(Schedulers.io())
+				.observeOn(AndroidSchedulers.mainThread())
+				.subscribe(path -> Toast.makeText(this, getString(R.string.profile_saved)
+								+ " " + path, Toast.LENGTH_LONG).show(),
+						e -> {
+							e.printStackTrace();
+							Toast.makeText(this, R.string.error, Toast.LENGTH_SHORT).show();
+						});
+	}
+
 	private void showHideButtonDialog() {
 		final VirtualKeyboard vk = ContextHolder.getVk();
 		boolean[] states = vk.getKeysVisibility();
@@ -197,6 +197,9 @@ public class MicroLoader {
 			}
 			ClassLoader loader = new AppClassLoader(dexSource.getAbsolutePath(),
 					dexOptDir.getAbsolutePath(), context.getClassLoader(), appDir);
+			// the threads started by the MIDlet inherit it, the profiler finds them by it
+			Thread.currentThread().setContextClassLoader(loader);
+			Display.setClassLoader(loader);
 			Log.i(TAG, "loadMIDletList main: " + mainClass + " from dex:" + dexSource.getPath());
 			//noinspection unchecked
 			Class<MIDlet> clazz = (Class<MIDlet>) loader.loadClass(mainClass);
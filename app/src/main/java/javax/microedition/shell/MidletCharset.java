@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell;
+
+import androidx.annotation.Keep;
+
+import java.nio.charset.Charset;
+
+/**
+ * Resolved {@code microedition.encoding} for the string conversions in the MIDlet code.
+ * The class converter passes these fields instead of looking up the property
+ * and the charset by name on every conversion. The property is set by {@link MicroLoader}
+ * before any MIDlet class runs and the process serves a single MIDlet.
+ */
+@Keep
+public final class MidletCharset {
+	public static final Charset CHARSET;
+	public static final String NAME;
+
+	private MidletCharset() {}
+
+	static {
+		Charset charset;
+		try {
+			charset = Charset.forName(System.getProperty("microedition.encoding"));
+		} catch (Exception e) {
+			charset = Charset.forName("ISO-8859-1");
+		}
+		CHARSET = charset;
+		NAME = charset.name();
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell;
+
+import androidx.annotation.Keep;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Virtual time of the MIDlet, the class converter routes {@link System#currentTimeMillis()},
+ * {@link Thread#sleep(long)}, {@link Object#wait(long)}, {@code new Date()}
+ * and {@link Calendar#getInstance()} of the MIDlet code here.
+ * The clock stops while the MIDlet is paused, so games do not see the pause as a lag
+ * to catch up on resume, and sleeping threads stay asleep until the resume.
+ * The clock runs {@code midlet.clock.speed} times faster than the real one (0.125-16, default 1),
+ * the custom {@code Timer} and the event queue follow it too.
+ * It starts at the wall clock time, after a pause it lags behind the wall clock.
+ */
+@Keep
+public final class MidletClock {
+	private static final double SPEED;
+	private static final long START_MILLIS = System.currentTimeMillis();
+	/** Longer timeouts are cut, so the deadlines in nanoseconds do not overflow */
+	private static final long MAX_MILLIS = Long.MAX_VALUE / 4_000_000L;
+	/** Timed waits on MIDlet monitors can't be woken by the resume, they check the clock this often */
+	private static final long PAUSED_WAIT_NANOS = 50_000_000L;
+
+	private static final Object lock = new Object();
+	private static volatile Timeline timeline = new Timeline(System.nanoTime(), 0, false);
+
+	private MidletClock() {}
+
+	public static long currentTimeMillis() {
+		return START_MILLIS + timeline.virtualNanos(System.nanoTime()) / 1_000_000L;
+	}
+
+	public static Calendar getCalendar() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(currentTimeMillis());
+		return calendar;
+	}
+
+	public static Calendar getCalendar(TimeZone zone) {
+		Calendar calendar = Calendar.getInstance(zone);
+		calendar.setTimeInMillis(currentTimeMillis());
+		return calendar;
+	}
+
+	public static void sleep(long millis) throws InterruptedException {
+		if (millis < 0) {
+			throw new IllegalArgumentException("timeout value is negative");
+		}
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		long deadline = timeline.virtualNanos(System.nanoTime()) + Math.min(millis, MAX_MILLIS) * 1_000_000L;
+		while (true) {
+			Timeline t = timeline;
+			if (t.paused) {
+				awaitRunning();
+				continue;
+			}
+			long timeout = t.realNanosUntil(deadline, System.nanoTime());
+			if (timeout <= 0) {
+				return;
+			}
+			Thread.sleep(timeout / 1_000_000L, (int) (timeout % 1_000_000L));
+		}
+	}
+
+	/**
+	 * Timed {@link Object#wait(long)} in the virtual time, the caller must own the monitor.
+	 * Returns on notify like the original, while paused it keeps waiting in short slices.
+	 */
+	public static void waitOn(Object monitor, long millis) throws InterruptedException {
+		if (millis <= 0) {
+			monitor.wait(millis);
+			return;
+		}
+		long deadline = timeline.virtualNanos(System.nanoTime()) + Math.min(millis, MAX_MILLIS) * 1_000_000L;
+		while (true) {
+			Timeline t = timeline;
+			long now = System.nanoTime();
+			long timeout = t.paused ? PAUSED_WAIT_NANOS : t.realNanosUntil(deadline, now);
+			if (timeout <= 0) {
+				return;
+			}
+			monitor.wait(timeout / 1_000_000L, (int) (timeout % 1_000_000L));
+			if (System.nanoTime() - now < timeout) {
+				// notified or woken spuriously, the latter is allowed for the original too
+				return;
+			}
+		}
+	}
+
+	/** Blocks while the clock is paused */
+	public static void awaitRunning() throws InterruptedException {
+		if (!timeline.paused) {
+			return;
+		}
+		synchronized (lock) {
+			while (timeline.paused) {
+				lock.wait();
+			}
+		}
+	}
+
+	static void pause() {
+		synchronized (lock) {
+			Timeline t = timeline;
+			if (t.paused) {
+				return;
+			}
+			long now = System.nanoTime();
+			timeline = new Timeline(now, t.virtualNanos(now), true);
+		}
+	}
+
+	static void resume() {
+		synchronized (lock) {
+			Timeline t = timeline;
+			if (!t.paused) {
+				return;
+			}
+			timeline = new Timeline(System.nanoTime(), t.virtualStart, false);
+			lock.notifyAll();
+		}
+	}
+
+	static {
+		float speed = 1.0f;
+		String value = System.getProperty("midlet.clock.speed");
+		if (value != null) {
+			try {
+				speed = Float.parseFloat(value);
+			} catch (NumberFormatException ignored) {
+			}
+		}
+		SPEED = speed > 0 ? Math.max(0.125, Math.min(speed, 16)) : 1.0;
+	}
+
+	/** Clock state since the last pause or resume, replaced as a whole so readers need no lock */
+	private static final class Timeline {
+		final long realStart;
+		final long virtualStart;
+		final boolean paused;
+
+		Timeline(long realStart, long virtualStart, boolean paused) {
+			this.realStart = realStart;
+			this.virtualStart = virtualStart;
+			this.paused = paused;
+		}
+
+		long virtualNanos(long now) {
+			if (paused) {
+				return virtualStart;
+			}
+			long elapsed = now - realStart;
+			return virtualStart + (SPEED == 1.0 ? elapsed : (long) (elapsed * SPEED));
+		}
+
+		/** @return real nanoseconds until the virtual time reaches the deadline */
+		long realNanosUntil(long deadline, long now) {
+			long remaining = deadline - virtualNanos(now);
+			return SPEED == 1.0 || remaining <= 0 ? remaining : (long) Math.ceil(remaining / SPEED);
+		}
+	}
+}
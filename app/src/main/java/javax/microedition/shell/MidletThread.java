@@ -92,6 +92,8 @@ public class MidletThread extends HandlerThread implements Handler.Callback {
 
 	static void destroyApp() {
 		Thread.setDefaultUncaughtExceptionHandler(uncaughtExceptionHandler);
+		// let the MIDlet threads and events run to the end
+		MidletClock.resume();
 		new Thread(() -> {
 			try {
 				Thread.sleep(1000);
@@ -134,9 +136,11 @@ public class MidletThread extends HandlerThread implements Handler.Callback {
 				}
 				try {
 					state = STARTED;
+					MidletClock.resume();
 					mMidlet.startApp();
 				} catch (MIDletStateChangeException e) {
 					state = PAUSED;
+					MidletClock.pause();
 					Log.w(TAG, "Midlet doesn't want to start!", e);
 				} catch (Throwable t) {
 					state = DESTROYED;
@@ -150,6 +154,7 @@ public class MidletThread extends HandlerThread implements Handler.Callback {
 				try {
 					mMidlet.pauseApp();
 					state = PAUSED;
+					MidletClock.pause();
 				} catch (Throwable t) {
 					state = DESTROYED;
 					try {
@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell;
+
+import androidx.annotation.Keep;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replacement of {@link Thread#yield()} in the MIDlet code. Busy-wait loops yield thousands
+ * of times per second, a fixed sleep makes each iteration lose up to a millisecond
+ * and a bare yield burns the CPU. The adaptive policy backs off while the thread does nothing
+ * but yield: the first calls return at once, next ones yield, then the thread parks
+ * for a growing time up to 0.25 ms. Any work between the calls resets the backoff.
+ * The policy is selected by the {@code midlet.yield} property of the profile:
+ * {@code adaptive} (default), {@code yield} or {@code sleep} (the old 1 ms sleep).
+ * Backoff stages are tuned by {@code midlet.yield.spins}, {@code midlet.yield.yields}
+ * and {@code midlet.yield.park.max} (microseconds).
+ */
+@Keep
+public final class MidletYield {
+	static final int ADAPTIVE = 0, YIELD = 1, SLEEP = 2;
+	private static final int POLICY;
+	/** Calls returning at once, then yielding, before the thread starts parking */
+	private static final int SPINS = Integer.getInteger("midlet.yield.spins", 8);
+	private static final int YIELDS = SPINS + Integer.getInteger("midlet.yield.yields", 32);
+	private static final long MIN_PARK_NANOS = 50_000;
+	private static final long MAX_PARK_NANOS = Integer.getInteger("midlet.yield.park.max", 250) * 1000L;
+	/** Longer time between the calls means the caller does some work */
+	private static final long RESET_NANOS = 100_000;
+
+	private static final ThreadLocal<State> states = new ThreadLocal<State>() {
+		@Override
+		protected State initialValue() {
+			return new State();
+		}
+	};
+
+	private MidletYield() {}
+
+	/**
+	 * Like the replaced sleep, throws if the thread is interrupted,
+	 * MIDlets stop their loops this way.
+	 */
+	public static void yieldThread() throws InterruptedException {
+		yieldThread(POLICY);
+	}
+
+	static void yieldThread(int policy) throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		switch (policy) {
+			case YIELD:
+				Thread.yield();
+				return;
+			case SLEEP:
+				Thread.sleep(1);
+				return;
+		}
+		State state = states.get();
+		long now = System.nanoTime();
+		if (now - state.lastReturn > RESET_NANOS) {
+			state.calls = 0;
+			state.park = MIN_PARK_NANOS;
+		}
+		int calls = state.calls++;
+		if (calls < SPINS) {
+			// the caller loop is the spin
+		} else if (calls < YIELDS) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(state.park);
+			state.park = Math.min(state.park * 2, MAX_PARK_NANOS);
+		}
+		state.lastReturn = System.nanoTime();
+	}
+
+	private static final class State {
+		int calls;
+		long park = MIN_PARK_NANOS;
+		long lastReturn;
+	}
+
+	static {
+		String policy = System.getProperty("midlet.yield", "adaptive");
+		switch (policy) {
+			case "yield":
+				POLICY = YIELD;
+				break;
+			case "sleep":
+				POLICY = SLEEP;
+				break;
+			default:
+				POLICY = ADAPTIVE;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell;
+
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Periodically captures the stacks of the MIDlet threads: the main MIDlet thread,
+ * the event queue, the Timer threads and the threads started by the MIDlet.
+ * They are the threads with the MIDlet class loader as the context one, the main and event
+ * threads get it when the MIDlet is loaded and the threads started from them inherit it.
+ * Stacks are aggregated in the folded format (one "thread;frame;frame count" line per stack,
+ * root frame first), it is read by flamegraph.pl, speedscope and similar tools.
+ * Each thread is sampled on its own, so only the sampled thread is suspended.
+ * By default only running and lock-blocked threads are counted, sleeping and waiting
+ * ones are skipped, set {@code midlet.profiler.wall=true} to count them too.
+ */
+public final class SamplingProfiler implements Runnable {
+	private static final String TAG = SamplingProfiler.class.getSimpleName();
+	/** Samples per second */
+	private static final int RATE = Math.max(1, Math.min(1000, Integer.getInteger("midlet.profiler.rate", 100)));
+	private static final boolean WALL_CLOCK = Boolean.getBoolean("midlet.profiler.wall");
+	private static final int MAX_DEPTH = 256;
+	/** Stacks beyond this count are added to the "[other]" stack of the thread */
+	private static final int MAX_STACKS = 32768;
+
+	private static SamplingProfiler instance;
+
+	private final HashMap<String, int[]> stacks = new HashMap<>();
+	private final StringBuilder sb = new StringBuilder(1024);
+	private final Thread thread;
+	/** Null if the MIDlet is built into the emulator, then all threads are sampled */
+	private final ClassLoader midletLoader = AppClassLoader.getInstance();
+	private Thread[] threads = new Thread[64];
+	private volatile boolean running = true;
+	private int samples;
+	private long sampleTime;
+	private long startTime;
+	private long stopTime;
+
+	private SamplingProfiler() {
+		thread = new Thread(this, TAG);
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+	}
+
+	public static synchronized boolean isRunning() {
+		return instance != null;
+	}
+
+	public static synchronized void start() {
+		if (instance != null) {
+			return;
+		}
+		instance = new SamplingProfiler();
+		instance.thread.start();
+	}
+
+	/**
+	 * Stops the sampling and writes the collected stacks to a file.
+	 *
+	 * @return path of the written file
+	 */
+	public static String stop() throws IOException {
+		SamplingProfiler profiler;
+		synchronized (SamplingProfiler.class) {
+			profiler = instance;
+			instance = null;
+		}
+		if (profiler == null) {
+			throw new IllegalStateException("profiler is not running");
+		}
+		profiler.running = false;
+		LockSupport.unpark(profiler.thread);
+		try {
+			profiler.thread.join();
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+		return profiler.write();
+	}
+
+	@Override
+	public void run() {
+		long period = 1_000_000_000L / RATE;
+		startTime = System.nanoTime();
+		long deadline = startTime;
+		while (running) {
+			long now = System.nanoTime();
+			if (now < deadline) {
+				LockSupport.parkNanos(deadline - now);
+				continue;
+			}
+			sample();
+			long end = System.nanoTime();
+			sampleTime += end - now;
+			deadline += period;
+			if (end - deadline > period) {
+				// sampling takes longer than the period, skip the missed samples
+				deadline = end;
+			}
+		}
+		stopTime = System.nanoTime();
+	}
+
+	private void sample() {
+		int count;
+		while ((count = Thread.enumerate(threads)) == threads.length) {
+			threads = new Thread[threads.length * 2];
+		}
+		for (int i = 0; i < count; i++) {
+			Thread t = threads[i];
+			threads[i] = null;
+			if (!isMidletThread(t)) {
+				continue;
+			}
+			if (!WALL_CLOCK) {
+				Thread.State state = t.getState();
+				if (state != Thread.State.RUNNABLE && state != Thread.State.BLOCKED) {
+					continue;
+				}
+			}
+			StackTraceElement[] trace = t.getStackTrace();
+			if (trace.length == 0) {
+				// the thread is terminated
+				continue;
+			}
+			add(t.getName(), trace);
+		}
+		samples++;
+	}
+
+	private boolean isMidletThread(Thread t) {
+		if (t == thread) {
+			return false;
+		}
+		return midletLoader == null || t.getContextClassLoader() == midletLoader;
+	}
+
+	private void add(String threadName, StackTraceElement[] trace) {
+		StringBuilder sb = this.sb;
+		sb.setLength(0);
+		sb.append(threadName);
+		int depth = Math.min(trace.length, MAX_DEPTH);
+		if (depth < trace.length) {
+			sb.append(";[truncated]");
+		}
+		for (int i = depth - 1; i >= 0; i--) {
+			StackTraceElement e = trace[i];
+			sb.append(';').append(e.getClassName()).append('.').append(e.getMethodName());
+		}
+		String key = sb.toString();
+		int[] counter = stacks.get(key);
+		if (counter == null) {
+			if (stacks.size() >= MAX_STACKS) {
+				key = threadName + ";[other]";
+				counter = stacks.get(key);
+			}
+			if (counter == null) {
+				counter = new int[1];
+				stacks.put(key, counter);
+			}
+		}
+		counter[0]++;
+	}
+
+	private String write() throws IOException {
+		File dir = new File(AppClassLoader.getDataDir(), "profiler");
+		if (!dir.exists() && !dir.mkdirs()) {
+			throw new IOException("Can't create directory: " + dir);
+		}
+		//noinspection SpellCheckingInspection
+		SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US);
+		File file = new File(dir, "Profile_" + format.format(new Date()) + ".folded");
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+			for (Map.Entry<String, int[]> entry : stacks.entrySet()) {
+				writer.write(entry.getKey());
+				writer.write(' ');
+				writer.write(Integer.toString(entry.getValue()[0]));
+				writer.newLine();
+			}
+		}
+		long duration = stopTime - startTime;
+		Log.i(TAG, String.format(Locale.US, "%d samples in %.1f s, %d stacks, sampling took %.2f%% of a core",
+				samples, duration / 1e9, stacks.size(), duration > 0 ? sampleTime * 100.0 / duration : 0.0));
+		return file.getAbsolutePath();
+	}
+}
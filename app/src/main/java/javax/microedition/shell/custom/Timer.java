@@ -17,15 +17,24 @@
 
 package javax.microedition.shell.custom;
 
+import java.util.ArrayDeque;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.microedition.shell.MidletClock;
 
 /**
  * Timers schedule one-shot or recurring {@link TimerTask tasks} for execution.
  * Prefer {@link java.util.concurrent.ScheduledThreadPoolExecutor
  * ScheduledThreadPoolExecutor} for new code.
  *
- * <p>Each timer has one thread on which tasks are executed sequentially. When
- * this thread is busy running a task, runnable tasks may be subject to delays.
+ * <p>Tasks of each timer are executed sequentially. When a task of the timer is
+ * running, other runnable tasks of this timer may be subject to delays. All timers
+ * share one {@link TimerWheel} thread, the tasks run on a fixed set of threads, each timer
+ * is bound to one of them, so a long task may delay the timers bound to the same thread.
+ * Times are taken from the {@link MidletClock}, so the tasks stop with it during a pause.
  *
  * <p>One-shot tasks are scheduled to run at an absolute time or after a relative
  * delay.
@@ -44,7 +53,7 @@ import java.util.Date;
  * </ul>
  *
  * <p>When a timer is no longer needed, users should call {@link #cancel}, which
- * releases the timer's thread and other resources. Timers not explicitly
+ * releases the timer's tasks and other resources. Timers not explicitly
  * cancelled may hold resources indefinitely.
  *
  * <p>This class does not offer guarantees about the real-time nature of task
@@ -53,311 +62,49 @@ import java.util.Date;
  */
 public class Timer {
 
-    private static final class TimerImpl extends Thread {
-
-        private static final class TimerHeap {
-            private int DEFAULT_HEAP_SIZE = 256;
-
-            private TimerTask[] timers = new TimerTask[DEFAULT_HEAP_SIZE];
-
-            private int size = 0;
-
-            private int deletedCancelledNumber = 0;
-
-            public TimerTask minimum() {
-                return timers[0];
-            }
-
-            public boolean isEmpty() {
-                return size == 0;
-            }
-
-            public void insert(TimerTask task) {
-                if (timers.length == size) {
-                    TimerTask[] appendedTimers = new TimerTask[size * 2];
-                    System.arraycopy(timers, 0, appendedTimers, 0, size);
-                    timers = appendedTimers;
-                }
-                timers[size++] = task;
-                upHeap();
-            }
-
-            public void delete(int pos) {
-                // posible to delete any position of the heap
-                if (pos >= 0 && pos < size) {
-                    timers[pos] = timers[--size];
-                    timers[size] = null;
-                    downHeap(pos);
-                }
-            }
-
-            private void upHeap() {
-                int current = size - 1;
-                int parent = (current - 1) / 2;
-
-                while (timers[current].when < timers[parent].when) {
-                    // swap the two
-                    TimerTask tmp = timers[current];
-                    timers[current] = timers[parent];
-                    timers[parent] = tmp;
-
-                    // update pos and current
-                    current = parent;
-                    parent = (current - 1) / 2;
-                }
-            }
+    private static final int WORKER_COUNT = 8;
 
-            private void downHeap(int pos) {
-                int current = pos;
-                int child = 2 * current + 1;
-
-                while (child < size && size > 0) {
-                    // compare the children if they exist
-                    if (child + 1 < size
-                            && timers[child + 1].when < timers[child].when) {
-                        child++;
-                    }
-
-                    // compare selected child with parent
-                    if (timers[current].when < timers[child].when) {
-                        break;
-                    }
-
-                    // swap the two
-                    TimerTask tmp = timers[current];
-                    timers[current] = timers[child];
-                    timers[child] = tmp;
-
-                    // update pos and current
-                    current = child;
-                    child = 2 * current + 1;
-                }
-            }
-
-            public void reset() {
-                timers = new TimerTask[DEFAULT_HEAP_SIZE];
-                size = 0;
-            }
-
-            public void adjustMinimum() {
-                downHeap(0);
-            }
-
-            public void deleteIfCancelled() {
-                for (int i = 0; i < size; i++) {
-                    if (timers[i].cancelled) {
-                        deletedCancelledNumber++;
-                        delete(i);
-                        // re-try this point
-                        i--;
-                    }
-                }
-            }
-
-            private int getTask(TimerTask task) {
-                for (int i = 0; i < timers.length; i++) {
-                    if (timers[i] == task) {
-                        return i;
-                    }
-                }
-                return -1;
-            }
-
-        }
-
-        /**
-         * True if the method cancel() of the Timer was called or the !!!stop()
-         * method was invoked
-         */
-        private boolean cancelled;
-
-        /**
-         * True if the Timer has become garbage
-         */
-        private boolean finished;
-
-        /**
-         * Contains scheduled events, sorted according to
-         * {@code when} field of TaskScheduled object.
-         */
-        private TimerHeap tasks = new TimerHeap();
-
-        /**
-         * Starts a new timer.
-         *
-         * @param name thread's name
-         * @param isDaemon daemon thread or not
-         */
-        TimerImpl(String name, boolean isDaemon) {
-            this.setName(name);
-            this.setDaemon(isDaemon);
-            this.start();
-        }
-
-        /**
-         * This method will be launched on separate thread for each Timer
-         * object.
-         */
-        @Override
-        public void run() {
-            while (true) {
-                TimerTask task;
-                synchronized (this) {
-                    // need to check cancelled inside the synchronized block
-                    if (cancelled) {
-                        return;
-                    }
-                    if (tasks.isEmpty()) {
-                        if (finished) {
-                            return;
-                        }
-                        // no tasks scheduled -- sleep until any task appear
-                        try {
-                            this.wait();
-                        } catch (InterruptedException ignored) {
-                        }
-                        continue;
-                    }
-
-                    long currentTime = System.currentTimeMillis();
-
-                    task = tasks.minimum();
-                    long timeToSleep;
-
-                    synchronized (task.lock) {
-                        if (task.cancelled) {
-                            tasks.delete(0);
-                            continue;
-                        }
-
-                        // check the time to sleep for the first task scheduled
-                        timeToSleep = task.when - currentTime;
-                    }
-
-                    if (timeToSleep > 0) {
-                        // sleep!
-                        try {
-                            this.wait(timeToSleep);
-                        } catch (InterruptedException ignored) {
-                        }
-                        continue;
-                    }
-
-                    // no sleep is necessary before launching the task
-
-                    synchronized (task.lock) {
-                        int pos = 0;
-                        if (tasks.minimum().when != task.when) {
-                            pos = tasks.getTask(task);
-                        }
-                        if (task.cancelled) {
-                            tasks.delete(tasks.getTask(task));
-                            continue;
-                        }
-
-                        // set time to schedule
-                        task.setScheduledTime(task.when);
-
-                        // remove task from queue
-                        tasks.delete(pos);
-
-                        // set when the next task should be launched
-                        if (task.period >= 0) {
-                            // this is a repeating task,
-                            if (task.fixedRate) {
-                                // task is scheduled at fixed rate
-                                task.when = task.when + task.period;
-                            } else {
-                                // task is scheduled at fixed delay
-                                task.when = System.currentTimeMillis()
-                                        + task.period;
-                            }
-
-                            // insert this task into queue
-                            insertTask(task);
-                        } else {
-                            task.when = 0;
-                        }
-                    }
-                }
-
-                boolean taskCompletedNormally = false;
-                try {
-                    task.run();
-                    taskCompletedNormally = true;
-                // Changes: J2ME compat
-                } catch (Exception e) {
-                    task.cancel();
-                    taskCompletedNormally = true;
-                // End changes
-                } finally {
-                    if (!taskCompletedNormally) {
-                        synchronized (this) {
-                            cancelled = true;
-                        }
-                    }
-                }
-            }
-        }
-
-        private void insertTask(TimerTask newTask) {
-            // callers are synchronized
-            tasks.insert(newTask);
-            this.notify();
-        }
+    /*
+     * Single threads running the due tasks, started on the first use. Each timer is bound
+     * to one of them, so its tasks always run on the same thread as with a thread per timer.
+     */
+    private static final ExecutorService[] workers = new ExecutorService[WORKER_COUNT];
 
-        /**
-         * Cancels timer.
-         */
-        public synchronized void cancel() {
-            cancelled = true;
-            tasks.reset();
-            this.notify();
-        }
+    private static long timerId;
 
-        public int purge() {
-            if (tasks.isEmpty()) {
-                return 0;
-            }
-            // callers are synchronized
-            tasks.deletedCancelledNumber = 0;
-            tasks.deleteIfCancelled();
-            return tasks.deletedCancelledNumber;
-        }
+    private static int workerId;
 
+    private synchronized static long nextId() {
+        return timerId++;
     }
 
-    private static final class FinalizerHelper {
-        private final TimerImpl impl;
-
-        FinalizerHelper(TimerImpl impl) {
-            this.impl = impl;
-        }
-
-        @Override protected void finalize() throws Throwable {
-            try {
-                synchronized (impl) {
-                    impl.finished = true;
-                    impl.notify();
-                }
-            } finally {
-                super.finalize();
-            }
+    private synchronized static ExecutorService nextWorker() {
+        int id = workerId++ % WORKER_COUNT;
+        ExecutorService worker = workers[id];
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "TimerWorker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            workers[id] = worker;
         }
+        return worker;
     }
 
-    private static long timerId;
+    private final String name;
 
-    private synchronized static long nextId() {
-        return timerId++;
-    }
+    /* The thread running the tasks of the timer, shared with other timers */
+    private final ExecutorService worker;
+
+    /* Due tasks waiting to run, in order of their expiration */
+    private final ArrayDeque<TimerTask> queue = new ArrayDeque<>();
 
-    /* This object will be used in synchronization purposes */
-    private final TimerImpl impl;
+    /* True if the tasks of the queue are running on a worker thread */
+    private boolean draining;
 
-    // Used to finalize thread
-    @SuppressWarnings("unused")
-    private final FinalizerHelper finalizer;
+    /* True if the method cancel() of the Timer was called */
+    private boolean cancelled;
 
     /**
      * Creates a new named {@code Timer} which may be specified to be run as a
@@ -369,8 +116,9 @@ public class Timer {
         if (name == null) {
             throw new NullPointerException("name == null");
         }
-        this.impl = new TimerImpl(name, isDaemon);
-        this.finalizer = new FinalizerHelper(impl);
+        // tasks run on the shared daemon threads, isDaemon has no effect
+        this.name = name;
+        this.worker = nextWorker();
     }
 
     /**
@@ -404,7 +152,14 @@ public class Timer {
      * on this {@code Timer}. Subsequent calls do nothing.
      */
     public void cancel() {
-        impl.cancel();
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            queue.clear();
+        }
+        TimerWheel.getInstance().purge(this, true);
     }
 
     /**
@@ -416,9 +171,16 @@ public class Timer {
      *         queue.
      */
     public int purge() {
-        synchronized (impl) {
-            return impl.purge();
+        int removed = 0;
+        synchronized (this) {
+            for (Iterator<TimerTask> iterator = queue.iterator(); iterator.hasNext(); ) {
+                if (iterator.next().cancelled) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
         }
+        return removed + TimerWheel.getInstance().purge(this, false);
     }
 
     /**
@@ -439,7 +201,7 @@ public class Timer {
         if (when.getTime() < 0) {
             throw new IllegalArgumentException("when < 0: " + when.getTime());
         }
-        long delay = when.getTime() - System.currentTimeMillis();
+        long delay = when.getTime() - MidletClock.currentTimeMillis();
         scheduleImpl(task, delay < 0 ? 0 : delay, -1, false);
     }
 
@@ -505,7 +267,7 @@ public class Timer {
         if (period <= 0 || when.getTime() < 0) {
             throw new IllegalArgumentException();
         }
-        long delay = when.getTime() - System.currentTimeMillis();
+        long delay = when.getTime() - MidletClock.currentTimeMillis();
         scheduleImpl(task, delay < 0 ? 0 : delay, period, false);
     }
 
@@ -552,7 +314,7 @@ public class Timer {
         if (period <= 0 || when.getTime() < 0) {
             throw new IllegalArgumentException();
         }
-        long delay = when.getTime() - System.currentTimeMillis();
+        long delay = when.getTime() - MidletClock.currentTimeMillis();
         scheduleImpl(task, delay, period, true);
     }
 
@@ -560,12 +322,12 @@ public class Timer {
      * Schedule a task.
      */
     private void scheduleImpl(TimerTask task, long delay, long period, boolean fixed) {
-        synchronized (impl) {
-            if (impl.cancelled) {
+        synchronized (this) {
+            if (cancelled) {
                 throw new IllegalStateException("Timer was canceled");
             }
 
-            long when = delay + System.currentTimeMillis();
+            long when = delay + MidletClock.currentTimeMillis();
 
             if (when < 0) {
                 throw new IllegalArgumentException("Illegal delay to start the TimerTask: " + when);
@@ -583,10 +345,102 @@ public class Timer {
                 task.when = when;
                 task.period = period;
                 task.fixedRate = fixed;
+                task.timer = this;
+            }
+
+            TimerWheel.getInstance().insert(task, when);
+        }
+    }
+
+    /*
+     * Called by the TimerWheel thread when the task expires.
+     */
+    void dispatch(TimerTask task) {
+        synchronized (this) {
+            if (cancelled) {
+                return;
             }
+            queue.add(task);
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        worker.execute(this::drain);
+    }
+
+    /*
+     * Runs the due tasks one by one on a worker thread.
+     */
+    private void drain() {
+        Thread thread = Thread.currentThread();
+        thread.setName(name);
+        boolean drained = false;
+        try {
+            while (true) {
+                TimerTask task;
+                synchronized (this) {
+                    task = queue.poll();
+                    if (task == null || cancelled) {
+                        draining = false;
+                        drained = true;
+                        return;
+                    }
+                }
+
+                long next;
+                synchronized (task.lock) {
+                    if (task.cancelled) {
+                        continue;
+                    }
+
+                    // set time to schedule
+                    task.setScheduledTime(task.when);
 
-            // insert the newTask into queue
-            impl.insertTask(task);
+                    // set when the next task should be launched
+                    if (task.period >= 0) {
+                        // this is a repeating task,
+                        if (task.fixedRate) {
+                            // task is scheduled at fixed rate
+                            task.when = task.when + task.period;
+                        } else {
+                            // task is scheduled at fixed delay
+                            task.when = MidletClock.currentTimeMillis()
+                                    + task.period;
+                        }
+                        next = task.when;
+                    } else {
+                        task.when = 0;
+                        next = 0;
+                    }
+                }
+                if (next != 0) {
+                    synchronized (this) {
+                        if (!cancelled) {
+                            TimerWheel.getInstance().insert(task, next);
+                        }
+                    }
+                }
+
+                try {
+                    task.run();
+                // Changes: J2ME compat
+                } catch (Exception e) {
+                    task.cancel();
+                // End changes
+                } catch (Error e) {
+                    cancel();
+                    throw e;
+                }
+            }
+        } finally {
+            if (!drained) {
+                // thrown out of a task, the next dispatch starts a new drain
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+            thread.setName("TimerWorker");
         }
     }
 }
@@ -38,6 +38,13 @@ public abstract class TimerTask implements Runnable {
 
     boolean fixedRate;
 
+    /* Slots used by TimerWheel, guarded by its lock */
+    Timer timer;
+
+    long deadline;
+
+    TimerTask wheelNext;
+
     /*
      * The time when task will be executed, or the time when task was launched
      * if this is task in progress.
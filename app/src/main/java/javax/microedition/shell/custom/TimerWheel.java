@@ -0,0 +1,226 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell.custom;
+
+import java.util.ArrayList;
+
+import javax.microedition.shell.MidletClock;
+
+/**
+ * Hierarchical timing wheel shared by all {@link Timer}s, 4 levels of 64 slots with 1 ms ticks
+ * of the {@link MidletClock}.
+ * A single thread sleeps until the nearest occupied slot and hands due tasks to their timers.
+ */
+final class TimerWheel implements Runnable {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    /* Longer delays are placed at the wheel end and placed again on cascade */
+    private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private static final TimerWheel instance = new TimerWheel(MidletClock.currentTimeMillis());
+
+    private final TimerTask[][] slots = new TimerTask[LEVELS][1 << SLOT_BITS];
+    /* Bitmaps of the non-empty slots per level */
+    private final long[] occupied = new long[LEVELS];
+    private int size;
+    /* The last processed tick */
+    private long time;
+    /* Time the wheel thread sleeps until, 0 if it is awake */
+    private long wakeTime;
+    private Thread thread;
+
+    TimerWheel(long time) {
+        this.time = time;
+    }
+
+    static TimerWheel getInstance() {
+        return instance;
+    }
+
+    synchronized void insert(TimerTask task, long when) {
+        if (size == 0) {
+            // nothing to cascade, skip the idle ticks
+            time = Math.max(time, MidletClock.currentTimeMillis());
+        }
+        add(task, when);
+        if (thread == null) {
+            thread = new Thread(this, "TimerWheel");
+            thread.setDaemon(true);
+            thread.start();
+        } else if (when < wakeTime) {
+            notify();
+        }
+    }
+
+    /**
+     * Removes tasks of the timer from the wheel.
+     *
+     * @param all remove all tasks if true, only cancelled ones otherwise
+     * @return the number of removed tasks
+     */
+    synchronized int purge(Timer timer, boolean all) {
+        int removed = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            TimerTask[] wheel = slots[level];
+            for (int slot = 0; slot < wheel.length; slot++) {
+                TimerTask kept = null;
+                for (TimerTask task = wheel[slot]; task != null; ) {
+                    TimerTask next = task.wheelNext;
+                    if (task.timer == timer && (all || task.cancelled)) {
+                        task.wheelNext = null;
+                        removed++;
+                    } else {
+                        task.wheelNext = kept;
+                        kept = task;
+                    }
+                    task = next;
+                }
+                wheel[slot] = kept;
+                if (kept == null) {
+                    occupied[level] &= ~(1L << slot);
+                }
+            }
+        }
+        size -= removed;
+        return removed;
+    }
+
+    @Override
+    public void run() {
+        ArrayList<TimerTask> due = new ArrayList<>();
+        while (true) {
+            synchronized (this) {
+                long now = MidletClock.currentTimeMillis();
+                advance(now, due);
+                if (due.isEmpty()) {
+                    long next = size == 0 ? Long.MAX_VALUE : nextExpiration();
+                    wakeTime = next;
+                    try {
+                        if (next == Long.MAX_VALUE) {
+                            wait();
+                        } else {
+                            MidletClock.waitOn(this, Math.max(next - now, 1));
+                        }
+                    } catch (InterruptedException ignored) {
+                    }
+                    wakeTime = 0;
+                    continue;
+                }
+            }
+            // timers take their own locks, so the tasks are passed out of the wheel lock
+            for (int i = 0, n = due.size(); i < n; i++) {
+                TimerTask task = due.get(i);
+                task.timer.dispatch(task);
+            }
+            due.clear();
+        }
+    }
+
+    /*
+     * Places the task without waking the wheel thread, called under the wheel lock.
+     */
+    void add(TimerTask task, long when) {
+        task.deadline = when;
+        place(task, null);
+        size++;
+    }
+
+    private void place(TimerTask task, ArrayList<TimerTask> due) {
+        long delay = task.deadline - time;
+        if (delay <= 0) {
+            if (due != null) {
+                due.add(task);
+                size--;
+                return;
+            }
+            // inserted late, runs on the next tick
+            delay = 1;
+        } else if (delay > MAX_DELAY) {
+            delay = MAX_DELAY;
+        }
+        int level = 0;
+        while (delay >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((time + delay) >>> (SLOT_BITS * level)) & SLOT_MASK;
+        task.wheelNext = slots[level][slot];
+        slots[level][slot] = task;
+        occupied[level] |= 1L << slot;
+    }
+
+    /*
+     * Moves the wheel to the time, the expired tasks are added to the list.
+     * Called under the wheel lock.
+     */
+    void advance(long now, ArrayList<TimerTask> due) {
+        while (time < now) {
+            if (size == 0) {
+                time = now;
+                return;
+            }
+            long tick = ++time;
+            for (int level = 1; level < LEVELS; level++) {
+                if ((tick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                int slot = (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+                TimerTask task = take(level, slot);
+                while (task != null) {
+                    TimerTask next = task.wheelNext;
+                    task.wheelNext = null;
+                    place(task, due);
+                    task = next;
+                }
+            }
+            TimerTask task = take(0, (int) tick & SLOT_MASK);
+            while (task != null) {
+                TimerTask next = task.wheelNext;
+                task.wheelNext = null;
+                due.add(task);
+                size--;
+                task = next;
+            }
+        }
+    }
+
+    private TimerTask take(int level, int slot) {
+        TimerTask task = slots[level][slot];
+        if (task != null) {
+            slots[level][slot] = null;
+            occupied[level] &= ~(1L << slot);
+        }
+        return task;
+    }
+
+    /*
+     * Time of the nearest tick that has something to run or to cascade.
+     */
+    long nextExpiration() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            long bits = occupied[level];
+            if (bits == 0) {
+                continue;
+            }
+            int shift = SLOT_BITS * level;
+            long current = time >>> shift;
+            int start = (int) (current + 1) & SLOT_MASK;
+            int distance = Long.numberOfTrailingZeros(Long.rotateRight(bits, start));
+            next = Math.min(next, (current + 1 + distance) << shift);
+        }
+        return next;
+    }
+}
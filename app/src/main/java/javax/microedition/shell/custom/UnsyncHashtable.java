@@ -0,0 +1,488 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell.custom;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * {@link Hashtable} allocated by the MIDlet classes whose code runs on a single thread.
+ * With the {@code midlet.collections.unsync} profile property the entries are kept
+ * in a {@link HashMap} without the monitor, otherwise it is a plain Hashtable.
+ * The private Hashtable storage is not reachable, so every method is delegated.
+ * Enumerations iterate the map, as Hashtable ones they survive the changes of the table:
+ * the entry just enumerated is removed through the iterator (MIDlets remove entries while
+ * enumerating them), before other structural changes the enumerations in progress copy
+ * the keys not enumerated yet. Changes through the collection views are not tracked.
+ */
+public class UnsyncHashtable<K, V> extends Hashtable<K, V> {
+    /** Enumerations tracked for the changes of the table, older ones are detached */
+    private static final int MAX_LIVE = 4;
+
+    private HashMap<K, V> map;
+    /** Enumerations in progress, the most recent first */
+    private LiveEnumeration<?> live;
+
+    public UnsyncHashtable(int initialCapacity, float loadFactor) {
+        super(UnsyncVector.ENABLED ? 1 : initialCapacity, loadFactor);
+        if (UnsyncVector.ENABLED) {
+            map = new HashMap<>(initialCapacity, loadFactor);
+        }
+    }
+
+    public UnsyncHashtable(int initialCapacity) {
+        this(initialCapacity, 0.75f);
+    }
+
+    public UnsyncHashtable() {
+        this(11, 0.75f);
+    }
+
+    @Override
+    public int size() {
+        if (map == null) {
+            return super.size();
+        }
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (map == null) {
+            return super.isEmpty();
+        }
+        return map.isEmpty();
+    }
+
+    @Override
+    public Enumeration<K> keys() {
+        if (map == null) {
+            return super.keys();
+        }
+        return track(new LiveEnumeration<>(true));
+    }
+
+    @Override
+    public Enumeration<V> elements() {
+        if (map == null) {
+            return super.elements();
+        }
+        return track(new LiveEnumeration<>(false));
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        if (map == null) {
+            return super.contains(value);
+        }
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        return map.containsValue(value);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return contains(value);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (map == null) {
+            return super.containsKey(key);
+        }
+        return map.containsKey(checkKey(key));
+    }
+
+    @Override
+    public V get(Object key) {
+        if (map == null) {
+            return super.get(key);
+        }
+        return map.get(checkKey(key));
+    }
+
+    @Override
+    protected void rehash() {
+        if (map == null) {
+            super.rehash();
+        }
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (map == null) {
+            return super.put(key, value);
+        }
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        if (live != null && !map.containsKey(checkKey(key))) {
+            detach(null);
+        }
+        return map.put(checkKey(key), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (map == null) {
+            return super.remove(key);
+        }
+        checkKey(key);
+        if (live == null) {
+            return map.remove(key);
+        }
+        LiveEnumeration<?> owner = null;
+        for (LiveEnumeration<?> e = live; e != null; e = e.next) {
+            if (e.isLast(key)) {
+                owner = e;
+                break;
+            }
+        }
+        if (owner == null && !map.containsKey(key)) {
+            return null;
+        }
+        detach(owner);
+        if (owner != null) {
+            return owner.removeLast();
+        }
+        return map.remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> t) {
+        if (map == null) {
+            super.putAll(t);
+            return;
+        }
+        for (Map.Entry<? extends K, ? extends V> e : t.entrySet()) {
+            put(e.getKey(), e.getValue());
+        }
+    }
+
+    @Override
+    public void clear() {
+        if (map == null) {
+            super.clear();
+            return;
+        }
+        detach(null);
+        map.clear();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        UnsyncHashtable<K, V> clone = (UnsyncHashtable<K, V>) super.clone();
+        if (map != null) {
+            clone.map = (HashMap<K, V>) map.clone();
+            clone.live = null;
+        }
+        return clone;
+    }
+
+    @Override
+    public String toString() {
+        if (map == null) {
+            return super.toString();
+        }
+        return map.toString();
+    }
+
+    @Override
+    public Set<K> keySet() {
+        if (map == null) {
+            return super.keySet();
+        }
+        return map.keySet();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (map == null) {
+            return super.entrySet();
+        }
+        return map.entrySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        if (map == null) {
+            return super.values();
+        }
+        return map.values();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (map == null) {
+            return super.equals(o);
+        }
+        return o == this || map.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        if (map == null) {
+            return super.hashCode();
+        }
+        return map.hashCode();
+    }
+
+    // Map defaults overridden by Hashtable since API 24, called only there
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.N)
+    public V getOrDefault(Object key, V defaultValue) {
+        if (map == null) {
+            return super.getOrDefault(key, defaultValue);
+        }
+        V value = map.get(checkKey(key));
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.N)
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (map == null) {
+            super.forEach(action);
+            return;
+        }
+        map.forEach(action);
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.N)
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (map == null) {
+            super.replaceAll(function);
+            return;
+        }
+        map.replaceAll((k, v) -> checkValue(function.apply(k, v)));
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.N)
+    public V putIfAbsent(K key, V value) {
+        if (map == null) {
+            return super.putIfAbsent(key, value);
+        }
+        detach(null);
+        return map.putIfAbsent(checkKey(key), checkValue(value));
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.N)
+    public boolean remove(Object key, Object value) {
+        if (map == null) {
+            return super.remove(key, value);
+        }
+        detach(null);
+        return map.remove(checkKey(key), value);
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.N)
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (map == null) {
+            return super.replace(key, oldValue, newValue);
+        }
+        return map.replace(checkKey(key), checkValue(oldValue), checkValue(newValue));
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.N)
+    public V replace(K key, V value) {
+        if (map == null) {
+            return super.replace(key, value);
+        }
+        return map.replace(checkKey(key), checkValue(value));
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.N)
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        if (map == null) {
+            return super.computeIfAbsent(key, mappingFunction);
+        }
+        detach(null);
+        return map.computeIfAbsent(checkKey(key), mappingFunction);
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.N)
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (map == null) {
+            return super.computeIfPresent(key, remappingFunction);
+        }
+        detach(null);
+        return map.computeIfPresent(checkKey(key), remappingFunction);
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.N)
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (map == null) {
+            return super.compute(key, remappingFunction);
+        }
+        detach(null);
+        return map.compute(checkKey(key), remappingFunction);
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.N)
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (map == null) {
+            return super.merge(key, value, remappingFunction);
+        }
+        detach(null);
+        return map.merge(checkKey(key), checkValue(value), remappingFunction);
+    }
+
+    private static <T> T checkKey(T key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return key;
+    }
+
+    private static <T> T checkValue(T value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        return value;
+    }
+
+    private <T> Enumeration<T> track(LiveEnumeration<T> enumeration) {
+        LiveEnumeration<?> tail = enumeration;
+        int count = 1;
+        for (LiveEnumeration<?> e = live; e != null; e = e.next) {
+            if (!e.isLive()) {
+                continue;
+            }
+            if (count == MAX_LIVE) {
+                e.detach();
+                continue;
+            }
+            tail.next = e;
+            tail = e;
+            count++;
+        }
+        tail.next = null;
+        live = enumeration;
+        return enumeration;
+    }
+
+    /** Detaches the enumerations in progress but the one removing its entry */
+    private void detach(LiveEnumeration<?> except) {
+        for (LiveEnumeration<?> e = live; e != null; e = e.next) {
+            if (e != except) {
+                e.detach();
+            }
+        }
+        live = except;
+        if (except != null) {
+            except.next = null;
+        }
+    }
+
+    private final class LiveEnumeration<T> implements Enumeration<T> {
+        private final boolean keys;
+        private Iterator<Map.Entry<K, V>> iterator;
+        private Map.Entry<K, V> last;
+        /** Keys not enumerated yet when the table was changed */
+        private ArrayList<K> rest;
+        private int index;
+        LiveEnumeration<?> next;
+
+        LiveEnumeration(boolean keys) {
+            this.keys = keys;
+            iterator = map.entrySet().iterator();
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            if (iterator != null) {
+                if (iterator.hasNext()) {
+                    return true;
+                }
+                iterator = null;
+                last = null;
+            }
+            if (rest == null) {
+                return false;
+            }
+            // the entries removed since are skipped, as Hashtable does
+            while (index < rest.size() && !map.containsKey(rest.get(index))) {
+                index++;
+            }
+            return index < rest.size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T nextElement() {
+            if (!hasMoreElements()) {
+                throw new NoSuchElementException("Hashtable Enumerator");
+            }
+            if (iterator != null) {
+                last = iterator.next();
+                return (T) (keys ? last.getKey() : last.getValue());
+            }
+            K key = rest.get(index++);
+            return (T) (keys ? key : map.get(key));
+        }
+
+        boolean isLive() {
+            return iterator != null && iterator.hasNext();
+        }
+
+        boolean isLast(Object key) {
+            return iterator != null && last != null && last.getKey().equals(key);
+        }
+
+        V removeLast() {
+            V value = last.getValue();
+            iterator.remove();
+            last = null;
+            return value;
+        }
+
+        void detach() {
+            if (iterator == null) {
+                return;
+            }
+            rest = new ArrayList<>();
+            while (iterator.hasNext()) {
+                rest.add(iterator.next().getKey());
+            }
+            iterator = null;
+            last = null;
+        }
+    }
+}
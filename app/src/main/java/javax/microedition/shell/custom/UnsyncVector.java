@@ -0,0 +1,346 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell.custom;
+
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.Vector;
+
+/**
+ * {@link Vector} allocated by the MIDlet classes whose code runs on a single thread.
+ * With the {@code midlet.collections.unsync} profile property the CLDC methods
+ * don't take the monitor, otherwise it is a plain Vector.
+ */
+public class UnsyncVector<E> extends Vector<E> {
+    static final boolean ENABLED = Boolean.getBoolean("midlet.collections.unsync");
+
+    public UnsyncVector(int initialCapacity, int capacityIncrement) {
+        super(initialCapacity, capacityIncrement);
+    }
+
+    public UnsyncVector(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    public UnsyncVector() {
+        super();
+    }
+
+    @Override
+    public void copyInto(Object[] anArray) {
+        if (!ENABLED) {
+            super.copyInto(anArray);
+            return;
+        }
+        System.arraycopy(elementData, 0, anArray, 0, elementCount);
+    }
+
+    @Override
+    public void trimToSize() {
+        if (!ENABLED) {
+            super.trimToSize();
+            return;
+        }
+        modCount++;
+        if (elementCount < elementData.length) {
+            Object[] data = new Object[elementCount];
+            System.arraycopy(elementData, 0, data, 0, elementCount);
+            elementData = data;
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        if (!ENABLED) {
+            super.ensureCapacity(minCapacity);
+            return;
+        }
+        if (minCapacity > 0) {
+            modCount++;
+            grow(minCapacity);
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int oldCapacity = elementData.length;
+        if (minCapacity <= oldCapacity) {
+            return;
+        }
+        int newCapacity = oldCapacity + (capacityIncrement > 0 ? capacityIncrement : oldCapacity);
+        if (newCapacity < minCapacity) {
+            newCapacity = minCapacity;
+        }
+        Object[] data = new Object[newCapacity];
+        System.arraycopy(elementData, 0, data, 0, elementCount);
+        elementData = data;
+    }
+
+    @Override
+    public void setSize(int newSize) {
+        if (!ENABLED) {
+            super.setSize(newSize);
+            return;
+        }
+        modCount++;
+        if (newSize > elementCount) {
+            grow(newSize);
+        } else {
+            for (int i = newSize; i < elementCount; i++) {
+                elementData[i] = null;
+            }
+        }
+        elementCount = newSize;
+    }
+
+    @Override
+    public int capacity() {
+        if (!ENABLED) {
+            return super.capacity();
+        }
+        return elementData.length;
+    }
+
+    @Override
+    public int size() {
+        if (!ENABLED) {
+            return super.size();
+        }
+        return elementCount;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (!ENABLED) {
+            return super.isEmpty();
+        }
+        return elementCount == 0;
+    }
+
+    @Override
+    public Enumeration<E> elements() {
+        if (!ENABLED) {
+            return super.elements();
+        }
+        return new Enumeration<E>() {
+            int count = 0;
+
+            @Override
+            public boolean hasMoreElements() {
+                return count < elementCount;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E nextElement() {
+                if (count < elementCount) {
+                    return (E) elementData[count++];
+                }
+                throw new NoSuchElementException("Vector Enumeration");
+            }
+        };
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!ENABLED) {
+            return super.contains(o);
+        }
+        return indexOf(o, 0) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!ENABLED) {
+            return super.indexOf(o);
+        }
+        return indexOf(o, 0);
+    }
+
+    @Override
+    public int indexOf(Object o, int index) {
+        if (!ENABLED) {
+            return super.indexOf(o, index);
+        }
+        Object[] data = elementData;
+        int count = elementCount;
+        if (o == null) {
+            for (int i = index; i < count; i++) {
+                if (data[i] == null) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = index; i < count; i++) {
+                if (o.equals(data[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        if (!ENABLED) {
+            return super.lastIndexOf(o);
+        }
+        return lastIndexOf(o, elementCount - 1);
+    }
+
+    @Override
+    public int lastIndexOf(Object o, int index) {
+        if (!ENABLED) {
+            return super.lastIndexOf(o, index);
+        }
+        if (index >= elementCount) {
+            throw new IndexOutOfBoundsException(index + " >= " + elementCount);
+        }
+        Object[] data = elementData;
+        if (o == null) {
+            for (int i = index; i >= 0; i--) {
+                if (data[i] == null) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = index; i >= 0; i--) {
+                if (o.equals(data[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E elementAt(int index) {
+        if (!ENABLED) {
+            return super.elementAt(index);
+        }
+        if (index >= elementCount) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + elementCount);
+        }
+        return (E) elementData[index];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E firstElement() {
+        if (!ENABLED) {
+            return super.firstElement();
+        }
+        if (elementCount == 0) {
+            throw new NoSuchElementException();
+        }
+        return (E) elementData[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E lastElement() {
+        if (!ENABLED) {
+            return super.lastElement();
+        }
+        if (elementCount == 0) {
+            throw new NoSuchElementException();
+        }
+        return (E) elementData[elementCount - 1];
+    }
+
+    @Override
+    public void setElementAt(E obj, int index) {
+        if (!ENABLED) {
+            super.setElementAt(obj, index);
+            return;
+        }
+        if (index >= elementCount) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + elementCount);
+        }
+        elementData[index] = obj;
+    }
+
+    @Override
+    public void removeElementAt(int index) {
+        if (!ENABLED) {
+            super.removeElementAt(index);
+            return;
+        }
+        if (index >= elementCount) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + elementCount);
+        } else if (index < 0) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        modCount++;
+        int j = elementCount - index - 1;
+        if (j > 0) {
+            System.arraycopy(elementData, index + 1, elementData, index, j);
+        }
+        elementData[--elementCount] = null;
+    }
+
+    @Override
+    public void insertElementAt(E obj, int index) {
+        if (!ENABLED) {
+            super.insertElementAt(obj, index);
+            return;
+        }
+        if (index > elementCount) {
+            throw new ArrayIndexOutOfBoundsException(index + " > " + elementCount);
+        }
+        modCount++;
+        grow(elementCount + 1);
+        System.arraycopy(elementData, index, elementData, index + 1, elementCount - index);
+        elementData[index] = obj;
+        elementCount++;
+    }
+
+    @Override
+    public void addElement(E obj) {
+        if (!ENABLED) {
+            super.addElement(obj);
+            return;
+        }
+        modCount++;
+        grow(elementCount + 1);
+        elementData[elementCount++] = obj;
+    }
+
+    @Override
+    public boolean removeElement(Object obj) {
+        if (!ENABLED) {
+            return super.removeElement(obj);
+        }
+        int i = indexOf(obj, 0);
+        if (i >= 0) {
+            removeElementAt(i);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void removeAllElements() {
+        if (!ENABLED) {
+            super.removeAllElements();
+            return;
+        }
+        modCount++;
+        for (int i = 0; i < elementCount; i++) {
+            elementData[i] = null;
+        }
+        elementCount = 0;
+    }
+}
@@ -16,6 +16,10 @@
 
 package ru.woesss.j2me.installer;
 
+import static ru.playsoftware.j2meloader.util.Constants.PREF_DEFAULT_PROFILE;
+import static ru.playsoftware.j2meloader.util.Constants.PREF_DEX_OPTIMIZE;
+
+import android.content.SharedPreferences;
 import android.net.Uri;
 import android.util.Log;
 
@@ -35,15 +39,20 @@ import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.jar.JarFile;
 
+import androidx.preference.PreferenceManager;
+
 import io.reactivex.SingleEmitter;
 import ru.playsoftware.j2meloader.EmulatorApplication;
 import ru.playsoftware.j2meloader.applist.AppItem;
 import ru.playsoftware.j2meloader.applist.AppListModel;
 import ru.playsoftware.j2meloader.config.Config;
+import ru.playsoftware.j2meloader.config.ProfileModel;
+import ru.playsoftware.j2meloader.config.ProfilesManager;
 import ru.playsoftware.j2meloader.util.ConverterException;
 import ru.playsoftware.j2meloader.util.FileUtils;
 import ru.playsoftware.j2meloader.util.IOUtils;
@@ -53,6 +62,12 @@ import ru.woesss.util.zip.ZipFile;
 
 public class AppInstaller {
 	private static final String TAG = AppInstaller.class.getSimpleName();
+	/**
+	 * SSA passes used for the MIDlet code, the escape analysis is left out:
+	 * it rewrites array allocations and gains little on J2ME code
+	 */
+	private static final String OPTIMIZE_STEPS =
+			"--optimize-steps=MOVE_PARAM_COMBINER,SCCP,LITERAL_UPGRADE,CONST_COLLECTOR";
 	static final int STATUS_OLDEST = -1;
 	static final int STATUS_EQUAL = 0;
 	static final int STATUS_NEWEST = 1;
@@ -248,6 +263,31 @@ public class AppInstaller {
 		throw new ConverterException("Can't download jad", exception);
 	}
 
+	/**
+	 * The thread confinement pass over all classes runs only for the apps with the
+	 * 'midlet.collections.unsync' property in the profile (the default one for a new app),
+	 * after the property is changed the app must be reinstalled.
+	 */
+	private boolean isUnsyncCollections(SharedPreferences sp) {
+		ProfileModel params = ProfilesManager.loadConfig(new File(Config.getConfigsDir(), appDirName));
+		if (params == null) {
+			String defProfile = sp.getString(PREF_DEFAULT_PROFILE, null);
+			if (defProfile != null) {
+				params = ProfilesManager.loadConfig(new File(Config.getProfilesDir(), defProfile));
+			}
+		}
+		if (params == null || params.systemProperties == null) {
+			return false;
+		}
+		for (String line : params.systemProperties.split("\n")) {
+			String[] prop = line.split(": *", 2);
+			if (prop.length == 2 && prop[0].equals("midlet.collections.unsync")) {
+				return Boolean.parseBoolean(prop[1].trim());
+			}
+		}
+		return false;
+	}
+
 	/** Install app */
 	void install(SingleEmitter<Integer> emitter) throws ConverterException, IOException {
 		if (!cacheDir.exists() && !cacheDir.mkdirs()) {
@@ -265,10 +305,16 @@ public class AppInstaller {
 				return;
 			}
 		}
+		SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(EmulatorApplication.getInstance());
+		String optimize = sp.getBoolean(PREF_DEX_OPTIMIZE, false) ? OPTIMIZE_STEPS : "--no-optimize";
+		ArrayList<String> args = new ArrayList<>(Arrays.asList(optimize, "--optimize-fallback"));
+		if (isUnsyncCollections(sp)) {
+			args.add("--unsync-collections");
+		}
+		args.add("--output=" + tmpDir + Config.MIDLET_DEX_ARCH);
+		args.add(srcJar.getAbsolutePath());
 		try {
-			Main.main(new String[]{"--no-optimize",
-					"--output=" + tmpDir + Config.MIDLET_DEX_ARCH,
-					srcJar.getAbsolutePath()});
+			Main.main(args.toArray(new String[0]));
 		} catch (Throwable e) {
 			throw new ConverterException("Dexing error", e);
 		}
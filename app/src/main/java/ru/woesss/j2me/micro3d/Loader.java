@@ -22,7 +22,9 @@ import android.util.SparseIntArray;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 
 class Loader {
 	private static final int BMP_FILE_HEADER_SIZE = 14;
@@ -332,33 +334,33 @@ class Loader {
 			throw new RuntimeException("Unsupported BMP version = " + dibHeaderSize);
 		}
 
-		int paletteOffset = BMP_FILE_HEADER_SIZE + dibHeaderSize;
+		int paletteOffset = offset + BMP_FILE_HEADER_SIZE + dibHeaderSize;
+		rasterOffset += offset;
 
 		TextureData textureData = new TextureData(width, height);
 		ByteBuffer raster = textureData.getRaster();
+
+		// RGBA texels packed in the raster's byte order, written by one int per pixel
+		boolean littleEndian = raster.order() == ByteOrder.LITTLE_ENDIAN;
+		int[] palette = new int[256];
+		int colors = Math.min(palette.length, (data.length - paletteOffset) / 4);
+		for (int i = 0, p = paletteOffset; i < colors; i++, p += 4) {
+			int b = data[p] & 0xff;
+			int g = data[p + 1] & 0xff;
+			int r = data[p + 2] & 0xff;
+			int a = i == 0 ? 0 : 0xff;
+			palette[i] = littleEndian
+					? a << 24 | b << 16 | g << 8 | r
+					: r << 24 | g << 16 | b << 8 | a;
+		}
+
+		IntBuffer pixels = raster.asIntBuffer();
 		int remainder = width % 4;
 		int stride = remainder == 0 ? width : width + 4 - remainder;
-		if (reversed) {
-			for (int i = height - 1; i >= 0; i--) {
-				for (int j = rasterOffset + i * stride, s = j + width; j < s; j++) {
-					byte idx = data[j];
-					int p = (idx & 0xff) * 4 + paletteOffset;
-					byte b = data[p++];
-					byte g = data[p++];
-					byte r = data[p];
-					raster.put(r).put(g).put(b).put((byte) (idx == 0 ? 0 : 0xff));
-				}
-			}
-		} else {
-			for (int i = 0; i < height; i++) {
-				for (int j = rasterOffset + i * stride, s = j + width; j < s; j++) {
-					byte idx = data[j];
-					int p = (idx & 0xff) * 4 + paletteOffset;
-					byte b = data[p++];
-					byte g = data[p++];
-					byte r = data[p];
-					raster.put(r).put(g).put(b).put((byte) (idx == 0 ? 0 : 0xff));
-				}
+		for (int row = 0; row < height; row++) {
+			int i = reversed ? height - 1 - row : row;
+			for (int j = rasterOffset + i * stride, s = j + width; j < s; j++) {
+				pixels.put(palette[data[j] & 0xff]);
 			}
 		}
 
@@ -76,6 +76,8 @@ public class Render {
 	private IntBuffer bufHandles;
 	private int clearColor;
 	private TextureImpl targetTexture;
+	private SoftwareRasterizer software =
+			Boolean.getBoolean("micro3d.v3.render.software") ? new SoftwareRasterizer() : null;
 
 	/**
 	 * Utility method for debugging OpenGL calls.
@@ -118,7 +120,10 @@ public class Render {
 				EGL10.EGL_NONE
 		};
 		EGLConfig[] eglConfigs = new EGLConfig[1];
-		egl.eglChooseConfig(eglDisplay, attribs, eglConfigs, 1, num_config);
+		if (!egl.eglChooseConfig(eglDisplay, attribs, eglConfigs, 1, num_config) || num_config[0] == 0) {
+			initSoftware();
+			return;
+		}
 		eglConfig = eglConfigs[0];
 
 		int EGL_CONTEXT_CLIENT_VERSION = 0x3098;
@@ -127,6 +132,18 @@ public class Render {
 				EGL10.EGL_NONE
 		};
 		eglContext = egl.eglCreateContext(eglDisplay, eglConfig, EGL10.EGL_NO_CONTEXT, attrib_list);
+		if (eglContext == null || eglContext == EGL10.EGL_NO_CONTEXT) {
+			initSoftware();
+		}
+	}
+
+	private void initSoftware() {
+		Log.e(Utils.TAG, "GLES2 context is not available, fallback to software rendering");
+		EGL10 egl = (EGL10) EGLContext.getEGL();
+		egl.eglTerminate(eglDisplay);
+		eglDisplay = null;
+		eglContext = null;
+		software = new SoftwareRasterizer();
 	}
 
 	public synchronized void bind(Graphics graphics) {
@@ -134,9 +151,23 @@ public class Render {
 		Canvas canvas = graphics.getCanvas();
 		int width = canvas.getWidth();
 		int height = canvas.getHeight();
-		if (eglContext == null) {
+		if (eglContext == null && software == null) {
 			init();
 		}
+		if (software != null) {
+			if (env.width != width || env.height != height) {
+				software.resize(width, height);
+				env.width = width;
+				env.height = height;
+				software.clearColor(0xff000000);
+			}
+			canvas.getClipBounds(clip);
+			gClip.set(clip);
+			software.setClip(clip.left, clip.top, clip.right, clip.bottom);
+			software.clearDepth();
+			backCopied = false;
+			return;
+		}
 		EGL10 egl = (EGL10) EGLContext.getEGL();
 		if (env.width != width || env.height != height) {
 
@@ -182,9 +213,23 @@ public class Render {
 		targetTexture = tex;
 		int width = tex.getWidth();
 		int height = tex.getHeight();
-		if (eglContext == null) {
+		if (eglContext == null && software == null) {
 			init();
 		}
+		if (software != null) {
+			if (env.width != width || env.height != height) {
+				software.resize(width, height);
+				env.width = width;
+				env.height = height;
+			}
+			clip.set(0, 0, width, height);
+			gClip.set(clip);
+			software.setClip(0, 0, width, height);
+			software.clearColor(0xff000000 | clearColor);
+			software.clearDepth();
+			backCopied = false;
+			return;
+		}
 		EGL10 egl = (EGL10) EGLContext.getEGL();
 		if (env.width != width || env.height != height) {
 
@@ -257,6 +302,10 @@ public class Render {
 		if (targetTexture != null) {// render to texture
 			return;
 		}
+		if (software != null) {
+			copy2dSoftware(preProcess);
+			return;
+		}
 		if (!glIsTexture(bgTextureId.get(0))) {
 			bgTextureId.rewind();
 			glGenTextures(1, bgTextureId);
@@ -313,16 +362,35 @@ public class Render {
 		backCopied = true;
 	}
 
+	private void copy2dSoftware(boolean preProcess) {
+		Bitmap targetImage = targetGraphics.getBitmap();
+		if (!preProcess) {
+			software.blendBitmap(targetImage);
+			return;
+		}
+		software.loadBitmap(targetImage);
+		if (postCopy2D) {
+			targetImage.setHasAlpha(true);
+			Canvas canvas = new Canvas(targetImage);
+			canvas.clipRect(gClip);
+			canvas.drawColor(0, PorterDuff.Mode.SRC);
+			targetImage.setHasAlpha(false);
+		}
+		backCopied = true;
+	}
+
 	@Override
 	protected void finalize() throws Throwable {
 		try {
 			// Destroy EGL
-			EGL10 egl = (EGL10) EGLContext.getEGL();
-			egl.eglMakeCurrent(eglDisplay, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_CONTEXT);
-			if (eglWindowSurface != null)
-				egl.eglDestroySurface(eglDisplay, eglWindowSurface);
-			egl.eglDestroyContext(eglDisplay, eglContext);
-			egl.eglTerminate(eglDisplay);
+			if (eglContext != null) {
+				EGL10 egl = (EGL10) EGLContext.getEGL();
+				egl.eglMakeCurrent(eglDisplay, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_CONTEXT);
+				if (eglWindowSurface != null)
+					egl.eglDestroySurface(eglDisplay, eglWindowSurface);
+				egl.eglDestroyContext(eglDisplay, eglContext);
+				egl.eglTerminate(eglDisplay);
+			}
 		} finally {
 			super.finalize();
 		}
@@ -347,9 +415,14 @@ public class Render {
 			return;
 		}
 
+		MathUtil.multiplyMM(MVP_TMP, projMatrix, viewMatrix);
+		if (software != null) {
+			renderFigureSoftware(model, textures, attrs, viewMatrix, vertices, normals,
+					light, specular, toonThreshold, toonHigh, toonLow, isTransparency);
+			return;
+		}
 		glEnable(GL_DEPTH_TEST);
 		glDepthMask(flushStep == 1);
-		MathUtil.multiplyMM(MVP_TMP, projMatrix, viewMatrix);
 		if (bufHandles == null) {
 			bufHandles = BufferUtils.createIntBuffer(3);
 			glGenBuffers(3, bufHandles);
@@ -441,6 +514,99 @@ public class Render {
 		}
 	}
 
+	private void renderFigureSoftware(Model model,
+									  TextureImpl[] textures,
+									  int attrs,
+									  float[] viewMatrix,
+									  FloatBuffer vertices,
+									  FloatBuffer normals,
+									  Light light,
+									  TextureImpl specular,
+									  int toonThreshold,
+									  int toonHigh,
+									  int toonLow,
+									  boolean enableBlending) {
+		SoftwareRasterizer software = this.software;
+		software.setDepthTest(true);
+		software.setDepthMask(flushStep == 1);
+		software.setMatrices(MVP_TMP, viewMatrix);
+		boolean isLight = (attrs & Graphics3D.ENV_ATTR_LIGHTING) != 0 && normals != null;
+		if (isLight) {
+			software.setLight(light);
+			software.setSphere((attrs & Graphics3D.ENV_ATTR_SPHERE_MAP) == 0 ? null : specular);
+			software.setToonShading(attrs, toonThreshold, toonHigh, toonLow);
+		} else {
+			software.setLight(null);
+		}
+		SoftwareRasterizer.Input in = software.getInput();
+		in.positions = vertices;
+		in.normals = isLight ? normals : null;
+		in.data = model.texCoordArray;
+		in.dataStride = 5;
+		if (model.hasPolyT && textures != null && textures.length > 0) {
+			in.textured = true;
+			in.materialOffset = 2;
+			int[][][] meshes = model.subMeshesLengthsT;
+			int length = meshes.length;
+			int blendMode = 0;
+			int pos = 0;
+			if (flushStep == 1) {
+				if (enableBlending) length = 1;
+				software.setBlending(0);
+			} else {
+				for (int[] lens : meshes[blendMode++]) {
+					for (int len : lens) {
+						pos += len;
+					}
+				}
+			}
+			for (; blendMode < length; blendMode++) {
+				int[][] texMesh = meshes[blendMode];
+				if (flushStep == 2) {
+					software.setBlending(blendMode << 1);
+				}
+				for (int face = 0; face < texMesh.length; face++) {
+					int[] lens = texMesh[face];
+					software.setTexture(face >= textures.length ? null : textures[face]);
+					software.setCullFace(true);
+					software.drawTriangles(in, pos, lens[0]);
+					pos += lens[0];
+					software.setCullFace(false);
+					software.drawTriangles(in, pos, lens[1]);
+					pos += lens[1];
+				}
+			}
+		}
+		if (model.hasPolyC) {
+			in.textured = false;
+			in.materialOffset = 3;
+			int[][] meshes = model.subMeshesLengthsC;
+			int length = meshes.length;
+			int blendMode = 0;
+			int pos = model.numVerticesPolyT;
+			if (flushStep == 1) {
+				if (enableBlending) length = 1;
+				software.setBlending(0);
+			} else {
+				for (int len : meshes[blendMode++]) {
+					pos += len;
+				}
+			}
+			for (; blendMode < length; blendMode++) {
+				int[] mesh = meshes[blendMode];
+				if (flushStep == 2) {
+					software.setBlending(blendMode << 1);
+				}
+				software.setCullFace(true);
+				software.drawTriangles(in, pos, mesh[0]);
+				pos += mesh[0];
+				software.setCullFace(false);
+				software.drawTriangles(in, pos, mesh[1]);
+				pos += mesh[1];
+			}
+		}
+	}
+
 	private void renderModel(TextureImpl[] textures, Model model, boolean enableBlending) {
 		if (textures == null || textures.length == 0) return;
 		Program.Tex program = Program.tex;
@@ -534,14 +700,13 @@ public class Render {
 		stack.clear();
 		bindEglContext();
 		if (targetTexture != null) {
-			glReadPixels(0, 0, 256, 256, GL_RGBA, GL_UNSIGNED_BYTE, targetTexture.image.getRaster());
+			readPixels();
 			targetTexture = null;
 		} else if (targetGraphics != null) {
 			if (postCopy2D) {
 				copy2d(false);
 			}
-			Rect clip = this.gClip;
-			Utils.glReadPixels(clip.left, clip.top, clip.width(), clip.height(), targetGraphics.getBitmap());
+			readPixels();
 			targetGraphics = null;
 		}
 		releaseEglContext();
@@ -565,16 +730,43 @@ public class Render {
 				r.render(this);
 				r.recycle();
 			}
-			glDisable(GL_BLEND);
-			glDepthMask(true);
-			glClear(GL_DEPTH_BUFFER_BIT);
-			glFlush();
+			finishFrame();
 		} finally {
 			stack.clear();
 			releaseEglContext();
 		}
 	}
 
+	private void finishFrame() {
+		if (software != null) {
+			software.clearDepth();
+			return;
+		}
+		glDisable(GL_BLEND);
+		glDepthMask(true);
+		glClear(GL_DEPTH_BUFFER_BIT);
+		glFlush();
+	}
+
+	private void readPixels() {
+		if (targetTexture != null) {
+			TextureData image = targetTexture.image;
+			if (software != null) {
+				software.readPixels(image);
+			} else {
+				glReadPixels(0, 0, 256, 256, GL_RGBA, GL_UNSIGNED_BYTE, image.getRaster());
+				image.invalidate();
+			}
+		} else if (targetGraphics != null) {
+			Rect clip = this.gClip;
+			if (software != null) {
+				software.readPixels(clip, targetGraphics.getBitmap());
+			} else {
+				Utils.glReadPixels(clip.left, clip.top, clip.width(), clip.height(), targetGraphics.getBitmap());
+			}
+		}
+	}
+
 	private void renderMeshC(RenderNode.PrimitiveNode node) {
 		int command = node.command;
 		Program.Color program = Program.color;
@@ -765,8 +957,13 @@ public class Render {
 	}
 
 	private void updateClip() {
-		bindEglContext();
 		Rect clip = this.clip;
+		if (software != null) {
+			software.finish();
+			software.setClip(clip.left, clip.top, clip.right, clip.bottom);
+			return;
+		}
+		bindEglContext();
 		int l = clip.left;
 		int t = clip.top;
 		int r = clip.right;
@@ -1127,19 +1324,19 @@ public class Render {
 					env.toonHigh,
 					env.toonLow);
 
-			glDisable(GL_BLEND);
-			glDepthMask(true);
-			glClear(GL_DEPTH_BUFFER_BIT);
+			finishFrame();
 		} finally {
 			releaseEglContext();
 		}
 	}
 
 	private void bindEglContext() {
+		if (software != null) return;
 		((EGL10) EGLContext.getEGL()).eglMakeCurrent(eglDisplay, eglWindowSurface, eglWindowSurface, eglContext);
 	}
 
 	private void releaseEglContext() {
+		if (software != null) return;
 		((EGL10) EGLContext.getEGL()).eglMakeCurrent(eglDisplay, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_CONTEXT);
 	}
 
@@ -1204,6 +1401,10 @@ public class Render {
 			return;
 		}
 		MathUtil.multiplyMM(MVP_TMP, node.projMatrix, node.viewMatrix);
+		if (software != null) {
+			renderPrimitiveSoftware(node, blend);
+			return;
+		}
 		glEnable(GL_DEPTH_TEST);
 		glDepthFunc(GL_LESS);
 		glDepthMask(flushStep == 1);
@@ -1252,6 +1453,84 @@ public class Render {
 
 	}
 
+	private void renderPrimitiveSoftware(RenderNode.PrimitiveNode node, int blend) {
+		SoftwareRasterizer software = this.software;
+		int command = node.command;
+		software.setDepthTest(true);
+		software.setDepthMask(flushStep == 1);
+		software.setCullFace(false);
+		software.setBlending(blend);
+		software.setMatrices(MVP_TMP, node.viewMatrix);
+		software.setLight(null);
+		SoftwareRasterizer.Input in = software.getInput();
+		in.positions = node.vertices;
+		int count = node.vertices.capacity() / 3;
+		switch ((command & 0x7000000)) {
+			case Graphics3D.PRIMITVE_POINTS:
+				setSoftwareColors(in, node);
+				software.drawPoints(in, count);
+				break;
+			case Graphics3D.PRIMITVE_LINES:
+				setSoftwareColors(in, node);
+				software.drawLines(in, count);
+				break;
+			case Graphics3D.PRIMITVE_TRIANGLES:
+			case Graphics3D.PRIMITVE_QUADS: {
+				int material = 0;
+				if ((node.attrs & Graphics3D.ENV_ATTR_LIGHTING) != 0 && (command & Graphics3D.PATTR_LIGHTING) != 0 && node.normals != null) {
+					TextureImpl sphere = node.specular;
+					if ((node.attrs & Graphics3D.ENV_ATTR_SPHERE_MAP) != 0 && (command & Graphics3D.PATTR_SPHERE_MAP) != 0 && sphere != null) {
+						material = SoftwareRasterizer.MATERIAL_LIGHTING | SoftwareRasterizer.MATERIAL_REFLECT;
+						software.setSphere(sphere);
+					} else {
+						material = SoftwareRasterizer.MATERIAL_LIGHTING;
+						software.setSphere(null);
+					}
+					software.setLight(node.light);
+					software.setToonShading(node.attrs, node.toonThreshold, node.toonHigh, node.toonLow);
+					in.normals = node.normals;
+				}
+				if ((command & PDATA_TEXCOORD_MASK) == Graphics3D.PDATA_TEXURE_COORD) {
+					if ((command & Graphics3D.PATTR_COLORKEY) != 0) {
+						material |= SoftwareRasterizer.MATERIAL_COLORKEY;
+					}
+					in.textured = true;
+					in.data = node.texCoords;
+					in.dataStride = 2;
+					software.setTexture(node.texture);
+				} else if ((command & PDATA_COLOR_MASK) != Graphics3D.PDATA_COLOR_NONE) {
+					setSoftwareColors(in, node);
+				} else {
+					return;
+				}
+				in.material = material;
+				software.drawTriangles(in, 0, count);
+				break;
+			}
+			case Graphics3D.PRIMITVE_POINT_SPRITES: {
+				in.positionSize = 4;
+				in.textured = true;
+				in.data = node.texCoords;
+				in.dataStride = 2;
+				if ((command & Graphics3D.PATTR_COLORKEY) != 0) {
+					in.material = SoftwareRasterizer.MATERIAL_COLORKEY;
+				}
+				software.setTexture(node.texture);
+				software.drawTriangles(in, 0, (command >> 16 & 0xff) * 6);
+				break;
+			}
+		}
+	}
+
+	private static void setSoftwareColors(SoftwareRasterizer.Input in, RenderNode.PrimitiveNode node) {
+		if ((node.command & PDATA_COLOR_MASK) == Graphics3D.PDATA_COLOR_PER_COMMAND) {
+			in.setColor(node.colors);
+		} else {
+			in.data = node.colors;
+			in.dataStride = 3;
+		}
+	}
+
 	private void renderMesh(RenderNode.PrimitiveNode node, int type) {
 		Program.Color program = Program.color;
 		program.use();
@@ -1443,16 +1722,8 @@ public class Render {
 				r.render(this);
 				r.recycle();
 			}
-			glDisable(GL_BLEND);
-			glDepthMask(true);
-			glClear(GL_DEPTH_BUFFER_BIT);
-			glFlush();
-			if (targetTexture != null) {
-				glReadPixels(0, 0, 256, 256, GL_RGBA, GL_UNSIGNED_BYTE, targetTexture.image.getRaster());
-			} else if (targetGraphics != null) {
-				Rect clip = this.gClip;
-				Utils.glReadPixels(clip.left, clip.top, clip.width(), clip.height(), targetGraphics.getBitmap());
-			}
+			finishFrame();
+			readPixels();
 		} finally {
 			stack.clear();
 			releaseEglContext();
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.woesss.j2me.micro3d;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Java implementation of the vertex processing done natively in libmicro3d
+ * (see utils.cpp). Used when the native library is unavailable
+ * and as a reference for the native output.
+ */
+final class Skinning {
+	/** Size of the native Bone struct: length, parent and a 3x4 matrix */
+	private static final int BONE_SIZE = (2 + 12) * 4;
+
+	private Skinning() {}
+
+	static void fillBuffer(FloatBuffer buffer, FloatBuffer vertices, int[] indices) {
+		for (int i = 0, d = 0, len = indices.length; i < len; i++, d += 3) {
+			int s = indices[i] * 3;
+			buffer.put(d, vertices.get(s));
+			buffer.put(d + 1, vertices.get(s + 1));
+			buffer.put(d + 2, vertices.get(s + 2));
+		}
+	}
+
+	static void transform(FloatBuffer srcVertices, FloatBuffer dstVertices,
+						  FloatBuffer srcNormals, FloatBuffer dstNormals,
+						  ByteBuffer bones, float[] actionMatrices) {
+		int bonesLen = bones.capacity() / BONE_SIZE;
+		int actionsLen = actionMatrices == null ? 0 : actionMatrices.length / 12;
+		float[] matrices = new float[bonesLen * 12];
+		float[] r = new float[12];
+		int pos = 0;
+		for (int i = 0; i < bonesLen; i++) {
+			int bone = i * BONE_SIZE;
+			int length = bones.getInt(bone);
+			int parent = bones.getInt(bone + 4);
+			int m = i * 12;
+			if (parent == -1) {
+				for (int j = 0, b = bone + 8; j < 12; j++, b += 4) {
+					matrices[m + j] = bones.getFloat(b);
+				}
+			} else {
+				for (int j = 0, b = bone + 8; j < 12; j++, b += 4) {
+					r[j] = bones.getFloat(b);
+				}
+				multiply(matrices, m, matrices, parent * 12, r, 0);
+			}
+			if (i < actionsLen) {
+				multiply(matrices, m, matrices, m, actionMatrices, i * 12);
+			}
+			transformBone(matrices, m, srcVertices, dstVertices, pos, length, true);
+			if (srcNormals != null) {
+				transformBone(matrices, m, srcNormals, dstNormals, pos, length, false);
+			}
+			pos += length * 3;
+		}
+	}
+
+	private static void transformBone(float[] mtx, int m,
+									  FloatBuffer src, FloatBuffer dst,
+									  int pos, int length, boolean translate) {
+		float m00 = mtx[m], m01 = mtx[m + 1], m02 = mtx[m + 2];
+		float m10 = mtx[m + 4], m11 = mtx[m + 5], m12 = mtx[m + 6];
+		float m20 = mtx[m + 8], m21 = mtx[m + 9], m22 = mtx[m + 10];
+		float m03 = 0.0f, m13 = 0.0f, m23 = 0.0f;
+		if (translate) {
+			m03 = mtx[m + 3];
+			m13 = mtx[m + 7];
+			m23 = mtx[m + 11];
+		}
+		for (int i = pos, end = pos + length * 3; i < end; i += 3) {
+			float x = src.get(i);
+			float y = src.get(i + 1);
+			float z = src.get(i + 2);
+			dst.put(i, x * m00 + y * m01 + z * m02 + m03);
+			dst.put(i + 1, x * m10 + y * m11 + z * m12 + m13);
+			dst.put(i + 2, x * m20 + y * m21 + z * m22 + m23);
+		}
+	}
+
+	/** dst = l * r, for 3x4 row-major affine matrices, dst may be the same as l */
+	private static void multiply(float[] dst, int d, float[] l, int lo, float[] r, int ro) {
+		float l00 = l[lo], l01 = l[lo + 1], l02 = l[lo + 2], l03 = l[lo + 3];
+		float l10 = l[lo + 4], l11 = l[lo + 5], l12 = l[lo + 6], l13 = l[lo + 7];
+		float l20 = l[lo + 8], l21 = l[lo + 9], l22 = l[lo + 10], l23 = l[lo + 11];
+		float r00 = r[ro], r01 = r[ro + 1], r02 = r[ro + 2], r03 = r[ro + 3];
+		float r10 = r[ro + 4], r11 = r[ro + 5], r12 = r[ro + 6], r13 = r[ro + 7];
+		float r20 = r[ro + 8], r21 = r[ro + 9], r22 = r[ro + 10], r23 = r[ro + 11];
+
+		dst[d] = l00 * r00 + l01 * r10 + l02 * r20;
+		dst[d + 1] = l00 * r01 + l01 * r11 + l02 * r21;
+		dst[d + 2] = l00 * r02 + l01 * r12 + l02 * r22;
+		dst[d + 3] = l00 * r03 + l01 * r13 + l02 * r23 + l03;
+		dst[d + 4] = l10 * r00 + l11 * r10 + l12 * r20;
+		dst[d + 5] = l10 * r01 + l11 * r11 + l12 * r21;
+		dst[d + 6] = l10 * r02 + l11 * r12 + l12 * r22;
+		dst[d + 7] = l10 * r03 + l11 * r13 + l12 * r23 + l13;
+		dst[d + 8] = l20 * r00 + l21 * r10 + l22 * r20;
+		dst[d + 9] = l20 * r01 + l21 * r11 + l22 * r21;
+		dst[d + 10] = l20 * r02 + l21 * r12 + l22 * r22;
+		dst[d + 11] = l20 * r03 + l21 * r13 + l22 * r23 + l23;
+	}
+}
@@ -0,0 +1,874 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.woesss.j2me.micro3d;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.util.Log;
+
+import com.mascotcapsule.micro3d.v3.Graphics3D;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Renders micro3d primitives into an int[] color buffer without GLES.
+ * Follows the GL pipeline used by {@link Render} and the shaders from assets:
+ * vertices are transformed and clipped immediately, the rasterization is deferred
+ * until {@link #finish()} and is done in horizontal bands by a pool of threads.
+ * Primitives within a band are drawn in submission order, so blending is exact.
+ */
+final class SoftwareRasterizer {
+	static final int MATERIAL_LIGHTING = 1;
+	static final int MATERIAL_REFLECT = 2;
+	static final int MATERIAL_COLORKEY = 4;
+
+	private static final int BAND_HEIGHT = 32;
+	private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	private static final int PRIMITIVE_TRIANGLE = 0;
+	private static final int PRIMITIVE_LINE = 1;
+	private static final int PRIMITIVE_POINT = 2;
+
+	/** Clip space vertex: x, y, z, w and attributes: a0, a1, a2, nx, ny, nz */
+	private static final int CLIP_SIZE = 10;
+	/** Screen space vertex: x, y, z, 1/w and attributes divided by w */
+	private static final int VERTEX_SIZE = 10;
+	private static final int PRIMITIVE_SIZE = VERTEX_SIZE * 3;
+	/** Primitive info: type, state index, material */
+	private static final int INFO_SIZE = 3;
+
+	private static ExecutorService executor;
+
+	int width;
+	int height;
+	int[] colorBuffer = new int[0];
+	private float[] depthBuffer = new float[0];
+	private int clipLeft;
+	private int clipTop;
+	private int clipRight;
+	private int clipBottom;
+
+	private final float[] mvp = new float[16];
+	private final float[] normalMatrix = new float[9];
+	private State state = new State();
+	private boolean stateChanged = true;
+	private final ArrayList<State> states = new ArrayList<>();
+
+	private float[] vertexData = new float[PRIMITIVE_SIZE * 256];
+	private int[] primitiveInfo = new int[INFO_SIZE * 256];
+	private int numPrimitives;
+	private int[][] bins = new int[0][];
+	private int[] binSizes = new int[0];
+
+	private final float[] clipIn = new float[CLIP_SIZE * 9];
+	private final float[] clipOut = new float[CLIP_SIZE * 9];
+	private final Input input = new Input();
+
+	void resize(int width, int height) {
+		finish();
+		this.width = width;
+		this.height = height;
+		int len = width * height;
+		if (colorBuffer.length != len) {
+			colorBuffer = new int[len];
+			depthBuffer = new float[len];
+		}
+		int numBins = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+		bins = new int[numBins][64];
+		binSizes = new int[numBins];
+		setClip(0, 0, width, height);
+	}
+
+	void setClip(int l, int t, int r, int b) {
+		clipLeft = Math.max(l, 0);
+		clipTop = Math.max(t, 0);
+		clipRight = Math.min(r, width);
+		clipBottom = Math.min(b, height);
+	}
+
+	void clearColor(int color) {
+		finish();
+		int[] buffer = colorBuffer;
+		int w = width;
+		for (int y = clipTop; y < clipBottom; y++) {
+			Arrays.fill(buffer, y * w + clipLeft, y * w + clipRight, color);
+		}
+	}
+
+	void clearDepth() {
+		finish();
+		Arrays.fill(depthBuffer, 1.0f);
+	}
+
+	/** Replaces the color buffer with the bitmap content, like the background copy in GL */
+	void loadBitmap(Bitmap bitmap) {
+		finish();
+		bitmap.getPixels(colorBuffer, 0, width, 0, 0,
+				Math.min(width, bitmap.getWidth()), Math.min(height, bitmap.getHeight()));
+	}
+
+	/** Alpha-blends the bitmap over the color buffer */
+	void blendBitmap(Bitmap bitmap) {
+		finish();
+		int w = Math.min(width, bitmap.getWidth());
+		int h = Math.min(height, bitmap.getHeight());
+		int[] row = new int[w];
+		int[] color = colorBuffer;
+		for (int y = 0; y < h; y++) {
+			bitmap.getPixels(row, 0, w, 0, y, w, 1);
+			for (int x = 0, idx = y * width; x < w; x++, idx++) {
+				int src = row[x];
+				int a = src >>> 24;
+				if (a == 0) {
+					continue;
+				}
+				if (a == 0xff) {
+					color[idx] = src;
+					continue;
+				}
+				int dst = color[idx];
+				int na = 0xff - a;
+				int r = ((src >> 16 & 0xff) * a + (dst >> 16 & 0xff) * na) / 0xff;
+				int g = ((src >> 8 & 0xff) * a + (dst >> 8 & 0xff) * na) / 0xff;
+				int b = ((src & 0xff) * a + (dst & 0xff) * na) / 0xff;
+				int da = (a * a + (dst >>> 24) * na) / 0xff;
+				color[idx] = da << 24 | r << 16 | g << 8 | b;
+			}
+		}
+	}
+
+	void readPixels(Rect rect, Bitmap bitmap) {
+		finish();
+		bitmap.setPixels(colorBuffer, rect.top * width + rect.left, width,
+				rect.left, rect.top, rect.width(), rect.height());
+	}
+
+	void readPixels(TextureData image) {
+		finish();
+		ByteBuffer raster = image.getRaster();
+		int[] color = colorBuffer;
+		int len = Math.min(color.length, image.width * image.height);
+		for (int i = 0, p = 0; i < len; i++, p += 4) {
+			int c = color[i];
+			raster.put(p, (byte) (c >> 16));
+			raster.put(p + 1, (byte) (c >> 8));
+			raster.put(p + 2, (byte) c);
+			raster.put(p + 3, (byte) (c >>> 24));
+		}
+		image.invalidate();
+	}
+
+	Input getInput() {
+		input.reset();
+		return input;
+	}
+
+	void setMatrices(float[] mvp, float[] viewMatrix) {
+		System.arraycopy(mvp, 0, this.mvp, 0, 16);
+		System.arraycopy(viewMatrix, 0, normalMatrix, 0, 9);
+	}
+
+	void setLight(Light light) {
+		State s = mutableState();
+		if (light == null) {
+			s.ambIntensity = -1.0f;
+			return;
+		}
+		s.ambIntensity = MathUtil.clamp(light.ambIntensity, 0, 4096) * MathUtil.TO_FLOAT;
+		s.dirIntensity = MathUtil.clamp(light.dirIntensity, 0, 16384) * MathUtil.TO_FLOAT;
+		float x = light.x;
+		float y = light.y;
+		float z = light.z;
+		float rlf = -1.0f / (float) Math.sqrt(x * x + y * y + z * z);
+		s.lightX = x * rlf;
+		s.lightY = y * rlf;
+		s.lightZ = z * rlf;
+	}
+
+	void setToonShading(int attrs, int threshold, int high, int low) {
+		State s = mutableState();
+		if ((attrs & Graphics3D.ENV_ATTR_TOON_SHADING) != 0) {
+			s.toonThreshold = threshold / 255.0f;
+			s.toonHigh = high / 255.0f;
+			s.toonLow = low / 255.0f;
+		} else {
+			s.toonThreshold = -1.0f;
+		}
+	}
+
+	void setSphere(TextureImpl sphere) {
+		State s = mutableState();
+		if (sphere == null) {
+			s.sphere = null;
+			return;
+		}
+		s.sphere = sphere.image.getPixels();
+		s.sphereWidth = sphere.getWidth();
+		s.sphereHeight = sphere.getHeight();
+	}
+
+	/** Sets the texture for textured primitives, null samples as opaque black like in GL */
+	void setTexture(TextureImpl tex) {
+		State s = mutableState();
+		if (tex == null) {
+			s.texture = null;
+			return;
+		}
+		s.texture = tex.image.getPixels();
+		s.textureWidth = tex.getWidth();
+		s.textureHeight = tex.getHeight();
+	}
+
+	void setBlending(int blendMode) {
+		mutableState().blendMode = blendMode;
+	}
+
+	void setDepthMask(boolean depthWrite) {
+		mutableState().depthWrite = depthWrite;
+	}
+
+	void setDepthTest(boolean depthTest) {
+		mutableState().depthTest = depthTest;
+	}
+
+	void setCullFace(boolean cull) {
+		mutableState().cull = cull;
+	}
+
+	private State mutableState() {
+		if (!stateChanged) {
+			state = state.copy();
+			stateChanged = true;
+		}
+		return state;
+	}
+
+	private int stateIndex() {
+		if (stateChanged) {
+			states.add(state);
+			stateChanged = false;
+		}
+		return states.size() - 1;
+	}
+
+	void drawTriangles(Input in, int first, int count) {
+		if (state.textured != in.textured) {
+			mutableState().textured = in.textured;
+		}
+		int stateIdx = stateIndex();
+		boolean cull = state.cull;
+		float[] clip = clipIn;
+		for (int i = first, end = first + count - 2; i < end; i += 3) {
+			if (!fetch(in, i, clip, 0) || !fetch(in, i + 1, clip, CLIP_SIZE) || !fetch(in, i + 2, clip, CLIP_SIZE * 2)) {
+				continue;
+			}
+			int n = clipPolygon(3);
+			if (n < 3) {
+				continue;
+			}
+			int material = in.getMaterial(i);
+			for (int j = 1; j < n - 1; j++) {
+				addTriangle(clipOut, 0, j * CLIP_SIZE, (j + 1) * CLIP_SIZE, cull, stateIdx, material);
+			}
+		}
+	}
+
+	void drawLines(Input in, int count) {
+		int stateIdx = stateIndex();
+		float[] clip = clipIn;
+		for (int i = 0; i < count - 1; i += 2) {
+			if (!fetch(in, i, clip, 0) || !fetch(in, i + 1, clip, CLIP_SIZE)) {
+				continue;
+			}
+			if (!clipLine()) {
+				continue;
+			}
+			int p = allocate(PRIMITIVE_LINE, stateIdx, 0);
+			project(clip, 0, vertexData, p);
+			project(clip, CLIP_SIZE, vertexData, p + VERTEX_SIZE);
+			float[] v = vertexData;
+			bin(Math.min(v[p + 1], v[p + VERTEX_SIZE + 1]), Math.max(v[p + 1], v[p + VERTEX_SIZE + 1]));
+		}
+	}
+
+	void drawPoints(Input in, int count) {
+		int stateIdx = stateIndex();
+		float[] clip = clipIn;
+		for (int i = 0; i < count; i++) {
+			if (!fetch(in, i, clip, 0)) {
+				continue;
+			}
+			float w = clip[3];
+			if (w <= 0.0f || Math.abs(clip[0]) > w || Math.abs(clip[1]) > w || Math.abs(clip[2]) > w) {
+				continue;
+			}
+			int p = allocate(PRIMITIVE_POINT, stateIdx, 0);
+			project(clip, 0, vertexData, p);
+			bin(vertexData[p + 1], vertexData[p + 1]);
+		}
+	}
+
+	/** Rasterizes all queued primitives */
+	void finish() {
+		if (numPrimitives == 0) {
+			return;
+		}
+		int numBins = binSizes.length;
+		try {
+			int busy = 0;
+			for (int size : binSizes) {
+				if (size > 0) busy++;
+			}
+			if (THREADS == 1 || busy < 2) {
+				for (int b = 0; b < numBins; b++) {
+					rasterizeBand(b);
+				}
+			} else {
+				ExecutorService executor = getExecutor();
+				Future<?>[] tasks = new Future[numBins];
+				for (int b = 0; b < numBins; b++) {
+					if (binSizes[b] == 0) {
+						continue;
+					}
+					final int band = b;
+					tasks[b] = executor.submit(() -> rasterizeBand(band));
+				}
+				for (Future<?> task : tasks) {
+					if (task != null) {
+						task.get();
+					}
+				}
+			}
+		} catch (Exception e) {
+			Log.e(Utils.TAG, "Software rasterization failed", e);
+		} finally {
+			numPrimitives = 0;
+			Arrays.fill(binSizes, 0);
+			states.clear();
+			stateChanged = true;
+		}
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(THREADS, r -> {
+				Thread t = new Thread(r, "Micro3DRasterizer");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return executor;
+	}
+
+	/** Reads a vertex in clip space, returns false if it is invalid */
+	private boolean fetch(Input in, int i, float[] dst, int d) {
+		FloatBuffer positions = in.positions;
+		float x, y, z, w;
+		if (in.positionSize == 4) {
+			int p = i * 4;
+			x = positions.get(p);
+			y = positions.get(p + 1);
+			z = positions.get(p + 2);
+			w = positions.get(p + 3);
+		} else {
+			int p = i * 3;
+			float vx = positions.get(p);
+			float vy = positions.get(p + 1);
+			float vz = positions.get(p + 2);
+			float[] m = mvp;
+			x = m[0] * vx + m[4] * vy + m[8] * vz + m[12];
+			y = m[1] * vx + m[5] * vy + m[9] * vz + m[13];
+			z = m[2] * vx + m[6] * vy + m[10] * vz + m[14];
+			w = m[3] * vx + m[7] * vy + m[11] * vz + m[15];
+		}
+		if (Float.isNaN(x + y + z + w) || Float.isInfinite(x + y + z + w)) {
+			return false;
+		}
+		dst[d] = x;
+		dst[d + 1] = y;
+		dst[d + 2] = z;
+		dst[d + 3] = w;
+		ByteBuffer data = in.data;
+		if (in.textured) {
+			int p = in.dataOffset + i * in.dataStride;
+			dst[d + 4] = data.get(p) & 0xff;
+			dst[d + 5] = data.get(p + 1) & 0xff;
+			dst[d + 6] = 0.0f;
+		} else if (data != null) {
+			int p = in.dataOffset + i * in.dataStride;
+			dst[d + 4] = (data.get(p) & 0xff) / 255.0f;
+			dst[d + 5] = (data.get(p + 1) & 0xff) / 255.0f;
+			dst[d + 6] = (data.get(p + 2) & 0xff) / 255.0f;
+		} else {
+			int color = in.color;
+			dst[d + 4] = (color >> 16 & 0xff) / 255.0f;
+			dst[d + 5] = (color >> 8 & 0xff) / 255.0f;
+			dst[d + 6] = (color & 0xff) / 255.0f;
+		}
+		FloatBuffer normals = in.normals;
+		if (normals != null) {
+			int p = i * 3;
+			float nx = normals.get(p);
+			float ny = normals.get(p + 1);
+			float nz = normals.get(p + 2);
+			float[] m = normalMatrix;
+			dst[d + 7] = m[0] * nx + m[3] * ny + m[6] * nz;
+			dst[d + 8] = m[1] * nx + m[4] * ny + m[7] * nz;
+			dst[d + 9] = m[2] * nx + m[5] * ny + m[8] * nz;
+		} else {
+			dst[d + 7] = 0.0f;
+			dst[d + 8] = 0.0f;
+			dst[d + 9] = 0.0f;
+		}
+		return true;
+	}
+
+	/**
+	 * Clips the polygon in {@link #clipIn} by the near and far planes,
+	 * the result is stored in {@link #clipOut}.
+	 *
+	 * @return number of vertices in the result
+	 */
+	private int clipPolygon(int n) {
+		float[] src = clipIn;
+		float[] dst = clipOut;
+		n = clipPlane(src, n, dst, 1.0f);
+		if (n < 3) {
+			return n;
+		}
+		n = clipPlane(dst, n, src, -1.0f);
+		System.arraycopy(src, 0, dst, 0, n * CLIP_SIZE);
+		return n;
+	}
+
+	/** Sutherland-Hodgman step for the plane w + sign * z >= 0 */
+	private static int clipPlane(float[] src, int n, float[] dst, float sign) {
+		int out = 0;
+		int prev = (n - 1) * CLIP_SIZE;
+		float prevDist = src[prev + 3] + sign * src[prev + 2];
+		for (int i = 0; i < n; i++) {
+			int cur = i * CLIP_SIZE;
+			float dist = src[cur + 3] + sign * src[cur + 2];
+			if ((dist >= 0.0f) != (prevDist >= 0.0f)) {
+				float t = prevDist / (prevDist - dist);
+				int o = out++ * CLIP_SIZE;
+				for (int k = 0; k < CLIP_SIZE; k++) {
+					dst[o + k] = src[prev + k] + (src[cur + k] - src[prev + k]) * t;
+				}
+			}
+			if (dist >= 0.0f) {
+				System.arraycopy(src, cur, dst, out++ * CLIP_SIZE, CLIP_SIZE);
+			}
+			prev = cur;
+			prevDist = dist;
+		}
+		return out;
+	}
+
+	private boolean clipLine() {
+		float[] v = clipIn;
+		for (float sign = 1.0f; sign >= -1.0f; sign -= 2.0f) {
+			float d0 = v[3] + sign * v[2];
+			float d1 = v[CLIP_SIZE + 3] + sign * v[CLIP_SIZE + 2];
+			if (d0 < 0.0f && d1 < 0.0f) {
+				return false;
+			}
+			if (d0 < 0.0f || d1 < 0.0f) {
+				float t = d0 / (d0 - d1);
+				int dst = d0 < 0.0f ? 0 : CLIP_SIZE;
+				for (int k = 0; k < CLIP_SIZE; k++) {
+					v[dst + k] = v[k] + (v[CLIP_SIZE + k] - v[k]) * t;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void project(float[] src, int s, float[] dst, int d) {
+		float rw = 1.0f / src[s + 3];
+		dst[d] = (src[s] * rw + 1.0f) * 0.5f * width;
+		dst[d + 1] = (src[s + 1] * rw + 1.0f) * 0.5f * height;
+		dst[d + 2] = (src[s + 2] * rw + 1.0f) * 0.5f;
+		dst[d + 3] = rw;
+		for (int k = 4; k < VERTEX_SIZE; k++) {
+			dst[d + k] = src[s + k] * rw;
+		}
+	}
+
+	private void addTriangle(float[] clip, int v0, int v1, int v2, boolean cull, int stateIdx, int material) {
+		int p = allocate(PRIMITIVE_TRIANGLE, stateIdx, material);
+		float[] v = vertexData;
+		project(clip, v0, v, p);
+		project(clip, v1, v, p + VERTEX_SIZE);
+		project(clip, v2, v, p + VERTEX_SIZE * 2);
+		float x0 = v[p], y0 = v[p + 1];
+		float x1 = v[p + VERTEX_SIZE], y1 = v[p + VERTEX_SIZE + 1];
+		float x2 = v[p + VERTEX_SIZE * 2], y2 = v[p + VERTEX_SIZE * 2 + 1];
+		float area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+		// front faces are counter-clockwise, as GL default
+		if (area == 0.0f || cull && area < 0.0f
+				|| Math.max(x0, Math.max(x1, x2)) < clipLeft
+				|| Math.min(x0, Math.min(x1, x2)) >= clipRight) {
+			numPrimitives--;
+			return;
+		}
+		bin(Math.min(y0, Math.min(y1, y2)), Math.max(y0, Math.max(y1, y2)));
+	}
+
+	private int allocate(int type, int stateIdx, int material) {
+		int n = numPrimitives++;
+		if ((n + 1) * PRIMITIVE_SIZE > vertexData.length) {
+			vertexData = Arrays.copyOf(vertexData, vertexData.length * 2);
+			primitiveInfo = Arrays.copyOf(primitiveInfo, primitiveInfo.length * 2);
+		}
+		int i = n * INFO_SIZE;
+		primitiveInfo[i] = type;
+		primitiveInfo[i + 1] = stateIdx;
+		primitiveInfo[i + 2] = material;
+		return n * PRIMITIVE_SIZE;
+	}
+
+	private void bin(float minY, float maxY) {
+		int top = Math.max(clipTop, (int) Math.floor(minY));
+		int bottom = Math.min(clipBottom - 1, (int) Math.ceil(maxY));
+		if (top > bottom) {
+			numPrimitives--;
+			return;
+		}
+		int n = numPrimitives - 1;
+		for (int b = top / BAND_HEIGHT, end = bottom / BAND_HEIGHT; b <= end; b++) {
+			int size = binSizes[b];
+			int[] bin = bins[b];
+			if (size == bin.length) {
+				bins[b] = bin = Arrays.copyOf(bin, size * 2);
+			}
+			bin[size] = n;
+			binSizes[b] = size + 1;
+		}
+	}
+
+	private void rasterizeBand(int band) {
+		int top = Math.max(clipTop, band * BAND_HEIGHT);
+		int bottom = Math.min(clipBottom, top - top % BAND_HEIGHT + BAND_HEIGHT);
+		int[] bin = bins[band];
+		float[] attrs = new float[VERTEX_SIZE];
+		for (int i = 0, size = binSizes[band]; i < size; i++) {
+			int n = bin[i];
+			int info = n * INFO_SIZE;
+			State s = states.get(primitiveInfo[info + 1]);
+			switch (primitiveInfo[info]) {
+				case PRIMITIVE_TRIANGLE:
+					rasterizeTriangle(n * PRIMITIVE_SIZE, top, bottom, s, primitiveInfo[info + 2], attrs);
+					break;
+				case PRIMITIVE_LINE:
+					rasterizeLine(n * PRIMITIVE_SIZE, top, bottom, s);
+					break;
+				case PRIMITIVE_POINT:
+					rasterizePoint(n * PRIMITIVE_SIZE, top, bottom, s);
+					break;
+			}
+		}
+	}
+
+	private void rasterizeTriangle(int p, int top, int bottom, State s, int material, float[] attrs) {
+		float[] v = vertexData;
+		int p1 = p + VERTEX_SIZE;
+		int p2 = p + VERTEX_SIZE * 2;
+		float x0 = v[p], y0 = v[p + 1];
+		float x1 = v[p1], y1 = v[p1 + 1];
+		float x2 = v[p2], y2 = v[p2 + 1];
+		int minY = Math.max(top, (int) Math.floor(Math.min(y0, Math.min(y1, y2))));
+		int maxY = Math.min(bottom - 1, (int) Math.ceil(Math.max(y0, Math.max(y1, y2))));
+		int minX = Math.max(clipLeft, (int) Math.floor(Math.min(x0, Math.min(x1, x2))));
+		int maxX = Math.min(clipRight - 1, (int) Math.ceil(Math.max(x0, Math.max(x1, x2))));
+		if (minY > maxY || minX > maxX) {
+			return;
+		}
+		float area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+		float sign = area > 0.0f ? 1.0f : -1.0f;
+		float rArea = sign / area;
+		// pixels exactly on an edge belong to only one of the triangles sharing it
+		boolean edge0 = isTopLeft((y1 - y2) * sign, (x2 - x1) * sign);
+		boolean edge1 = isTopLeft((y2 - y0) * sign, (x0 - x2) * sign);
+		boolean edge2 = isTopLeft((y0 - y1) * sign, (x1 - x0) * sign);
+		int[] color = colorBuffer;
+		float[] depth = depthBuffer;
+		int w = width;
+		boolean depthTest = s.depthTest;
+		boolean depthWrite = s.depthWrite;
+		for (int y = minY; y <= maxY; y++) {
+			float py = y + 0.5f;
+			for (int x = minX, idx = y * w + minX; x <= maxX; x++, idx++) {
+				float px = x + 0.5f;
+				float e0 = ((x2 - x1) * (py - y1) - (y2 - y1) * (px - x1)) * sign;
+				if (e0 < 0.0f || e0 == 0.0f && !edge0) {
+					continue;
+				}
+				float e1 = ((x0 - x2) * (py - y2) - (y0 - y2) * (px - x2)) * sign;
+				if (e1 < 0.0f || e1 == 0.0f && !edge1) {
+					continue;
+				}
+				float e2 = ((x1 - x0) * (py - y0) - (y1 - y0) * (px - x0)) * sign;
+				if (e2 < 0.0f || e2 == 0.0f && !edge2) {
+					continue;
+				}
+				float w0 = e0 * rArea;
+				float w1 = e1 * rArea;
+				float w2 = e2 * rArea;
+				float z = w0 * v[p + 2] + w1 * v[p1 + 2] + w2 * v[p2 + 2];
+				if (depthTest && !(z < depth[idx])) {
+					continue;
+				}
+				float rw = 1.0f / (w0 * v[p + 3] + w1 * v[p1 + 3] + w2 * v[p2 + 3]);
+				for (int k = 4; k < VERTEX_SIZE; k++) {
+					attrs[k] = (w0 * v[p + k] + w1 * v[p1 + k] + w2 * v[p2 + k]) * rw;
+				}
+				int rgb = shade(s, material, attrs);
+				if (rgb == 0) {
+					continue;
+				}
+				color[idx] = blend(s.blendMode, rgb, color[idx]);
+				if (depthWrite) {
+					depth[idx] = z;
+				}
+			}
+		}
+	}
+
+	private static boolean isTopLeft(float dx, float dy) {
+		return dx > 0.0f || dx == 0.0f && dy > 0.0f;
+	}
+
+	/**
+	 * Computes the fragment color like tex.fsh and color.fsh.
+	 *
+	 * @return opaque ARGB color or 0 if the fragment is discarded
+	 */
+	private static int shade(State s, int material, float[] attrs) {
+		float r, g, b;
+		if (s.textured) {
+			int[] tex = s.texture;
+			if (tex == null) {
+				r = g = b = 0.0f;
+			} else {
+				int tx = MathUtil.clamp((int) Math.floor(attrs[4]), 0, s.textureWidth - 1);
+				int ty = MathUtil.clamp((int) Math.floor(attrs[5]), 0, s.textureHeight - 1);
+				int texel = tex[ty * s.textureWidth + tx];
+				if ((material & MATERIAL_COLORKEY) != 0 && texel >>> 24 < 0x80) {
+					return 0;
+				}
+				r = (texel >> 16 & 0xff) / 255.0f;
+				g = (texel >> 8 & 0xff) / 255.0f;
+				b = (texel & 0xff) / 255.0f;
+			}
+		} else {
+			r = attrs[4];
+			g = attrs[5];
+			b = attrs[6];
+		}
+		if (s.ambIntensity > -0.5f && (material & MATERIAL_LIGHTING) != 0) {
+			float nx = attrs[7], ny = attrs[8], nz = attrs[9];
+			float len = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+			float lambert = len == 0.0f ? 0.0f
+					: Math.max((nx * s.lightX + ny * s.lightY + nz * s.lightZ) / len, 0.0f);
+			float light = Math.min(s.ambIntensity + s.dirIntensity * lambert, 1.0f);
+			if (s.toonThreshold > -0.5f) {
+				light = light < s.toonThreshold ? s.toonLow : s.toonHigh;
+			}
+			r *= light;
+			g *= light;
+			b *= light;
+			int[] sphere = s.sphere;
+			if (sphere != null && (material & MATERIAL_REFLECT) != 0) {
+				int sx = MathUtil.clamp((int) Math.floor(nx / 128.0f + 32.0f), 0, s.sphereWidth - 1);
+				int sy = MathUtil.clamp((int) Math.floor(ny / 128.0f + 32.0f), 0, s.sphereHeight - 1);
+				int texel = sphere[sy * s.sphereWidth + sx];
+				r += (texel >> 16 & 0xff) / 255.0f;
+				g += (texel >> 8 & 0xff) / 255.0f;
+				b += (texel & 0xff) / 255.0f;
+			}
+		}
+		return 0xff000000 | toByte(r) << 16 | toByte(g) << 8 | toByte(b);
+	}
+
+	private static int toByte(float c) {
+		if (c <= 0.0f) return 0;
+		if (c >= 1.0f) return 0xff;
+		return (int) (c * 255.0f + 0.5f);
+	}
+
+	private void rasterizeLine(int p, int top, int bottom, State s) {
+		float[] v = vertexData;
+		int p1 = p + VERTEX_SIZE;
+		float x0 = v[p], y0 = v[p + 1], z0 = v[p + 2];
+		float dx = v[p1] - x0, dy = v[p1 + 1] - y0, dz = v[p1 + 2] - z0;
+		int steps = (int) Math.ceil(Math.max(Math.abs(dx), Math.abs(dy)));
+		float rs = steps == 0 ? 0.0f : 1.0f / steps;
+		int rgb = 0xff000000 | toByte(v[p + 4] / v[p + 3]) << 16
+				| toByte(v[p + 5] / v[p + 3]) << 8 | toByte(v[p + 6] / v[p + 3]);
+		for (int i = 0; i <= steps; i++) {
+			float t = i * rs;
+			int x = (int) Math.floor(x0 + dx * t);
+			int y = (int) Math.floor(y0 + dy * t);
+			if (y >= top && y < bottom && x >= clipLeft && x < clipRight) {
+				writePixel(x, y, z0 + dz * t, rgb, s);
+			}
+		}
+	}
+
+	private void rasterizePoint(int p, int top, int bottom, State s) {
+		float[] v = vertexData;
+		int x = (int) Math.floor(v[p]);
+		int y = (int) Math.floor(v[p + 1]);
+		if (y >= top && y < bottom && x >= clipLeft && x < clipRight) {
+			int rgb = 0xff000000 | toByte(v[p + 4] / v[p + 3]) << 16
+					| toByte(v[p + 5] / v[p + 3]) << 8 | toByte(v[p + 6] / v[p + 3]);
+			writePixel(x, y, v[p + 2], rgb, s);
+		}
+	}
+
+	private void writePixel(int x, int y, float z, int rgb, State s) {
+		int idx = y * width + x;
+		if (s.depthTest && !(z < depthBuffer[idx])) {
+			return;
+		}
+		colorBuffer[idx] = blend(s.blendMode, rgb, colorBuffer[idx]);
+		if (s.depthWrite) {
+			depthBuffer[idx] = z;
+		}
+	}
+
+	/** Blending equations from {@link Render} applyBlending() */
+	private static int blend(int mode, int src, int dst) {
+		switch (mode) {
+			case Model.Polygon.BLEND_HALF:
+				return 0xff000000 | ((src & 0xfefefe) >> 1) + ((dst & 0xfefefe) >> 1)
+						+ (src & dst & 0x010101);
+			case Model.Polygon.BLEND_ADD: {
+				int r = Math.min((src >> 16 & 0xff) + (dst >> 16 & 0xff), 0xff);
+				int g = Math.min((src >> 8 & 0xff) + (dst >> 8 & 0xff), 0xff);
+				int b = Math.min((src & 0xff) + (dst & 0xff), 0xff);
+				return 0xff000000 | r << 16 | g << 8 | b;
+			}
+			case Model.Polygon.BLEND_SUB: {
+				int r = Math.max((dst >> 16 & 0xff) - (src >> 16 & 0xff), 0);
+				int g = Math.max((dst >> 8 & 0xff) - (src >> 8 & 0xff), 0);
+				int b = Math.max((dst & 0xff) - (src & 0xff), 0);
+				return dst & 0xff000000 | r << 16 | g << 8 | b;
+			}
+			default:
+				return src;
+		}
+	}
+
+	/** Per-draw vertex data description, mirrors the GL vertex attribute setup */
+	static final class Input {
+		FloatBuffer positions;
+		/** 3 - object space, transformed by MVP; 4 - already in clip space */
+		int positionSize;
+		FloatBuffer normals;
+		/** Texture coordinates (2 unsigned bytes) or colors (3 normalized bytes) */
+		ByteBuffer data;
+		int dataStride;
+		int dataOffset;
+		boolean textured;
+		/** Color used when there is no color data */
+		int color;
+		/** Offset of the per-vertex material bytes in the data, or -1 to use {@link #material} */
+		int materialOffset;
+		int material;
+
+		void reset() {
+			positions = null;
+			positionSize = 3;
+			normals = null;
+			data = null;
+			dataStride = 0;
+			dataOffset = 0;
+			textured = false;
+			color = 0;
+			materialOffset = -1;
+			material = 0;
+		}
+
+		void setColor(ByteBuffer rgb) {
+			color = (rgb.get(0) & 0xff) << 16 | (rgb.get(1) & 0xff) << 8 | rgb.get(2) & 0xff;
+		}
+
+		int getMaterial(int i) {
+			if (materialOffset < 0) {
+				return material;
+			}
+			int p = materialOffset + i * dataStride;
+			int m = 0;
+			if (data.get(p) != 0) m |= MATERIAL_LIGHTING;
+			if (data.get(p + 1) != 0) m |= MATERIAL_REFLECT;
+			if (textured && data.get(p + 2) != 0) m |= MATERIAL_COLORKEY;
+			return m;
+		}
+	}
+
+	private static final class State {
+		boolean textured;
+		int[] texture;
+		int textureWidth;
+		int textureHeight;
+		int[] sphere;
+		int sphereWidth;
+		int sphereHeight;
+		float ambIntensity = -1.0f;
+		float dirIntensity;
+		float lightX;
+		float lightY;
+		float lightZ;
+		float toonThreshold = -1.0f;
+		float toonHigh;
+		float toonLow;
+		int blendMode;
+		boolean depthTest = true;
+		boolean depthWrite = true;
+		boolean cull;
+
+		State copy() {
+			State s = new State();
+			s.textured = textured;
+			s.texture = texture;
+			s.textureWidth = textureWidth;
+			s.textureHeight = textureHeight;
+			s.sphere = sphere;
+			s.sphereWidth = sphereWidth;
+			s.sphereHeight = sphereHeight;
+			s.ambIntensity = ambIntensity;
+			s.dirIntensity = dirIntensity;
+			s.lightX = lightX;
+			s.lightY = lightY;
+			s.lightZ = lightZ;
+			s.toonThreshold = toonThreshold;
+			s.toonHigh = toonHigh;
+			s.toonLow = toonLow;
+			s.blendMode = blendMode;
+			s.depthTest = depthTest;
+			s.depthWrite = depthWrite;
+			s.cull = cull;
+			return s;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.woesss.j2me.micro3d;
+
+import static android.opengl.GLES20.*;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.IntBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Shares decoded and uploaded immutable textures between all {@link TextureImpl}
+ * created from identical BMP data. Entries are reference counted, unreferenced ones
+ * are kept for reuse while they fit into the memory budget.
+ */
+public final class TextureCache {
+	private static final long MAX_UNUSED_BYTES =
+			Integer.getInteger("micro3d.v3.texture.cache.size", 4 * 1024 * 1024);
+
+	private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private static final ArrayList<Integer> pendingDelete = new ArrayList<>();
+	private static long unusedBytes;
+
+	private static int uploads;
+	private static int uploadsAvoided;
+	private static int decodesAvoided;
+	private static long bytesSaved;
+
+	private TextureCache() {}
+
+	static Entry acquire(byte[] data, int offset, int length) throws IOException {
+		String key = hash(data, offset, length);
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				if (entry.refCount++ == 0) {
+					unusedBytes -= entry.size;
+				}
+				decodesAvoided++;
+				bytesSaved += entry.size;
+				return entry;
+			}
+			entry = new Entry(key, Loader.loadBmpData(data, offset, length));
+			entry.refCount = 1;
+			entries.put(key, entry);
+			return entry;
+		}
+	}
+
+	static void release(Entry entry) {
+		synchronized (entries) {
+			if (--entry.refCount > 0) {
+				return;
+			}
+			unusedBytes += entry.size;
+			Iterator<Entry> iterator = entries.values().iterator();
+			while (unusedBytes > MAX_UNUSED_BYTES && iterator.hasNext()) {
+				Entry e = iterator.next();
+				if (e.refCount > 0) {
+					continue;
+				}
+				iterator.remove();
+				unusedBytes -= e.size;
+				if (e.texId != -1) {
+					// textures can be deleted only while the GL context is current
+					pendingDelete.add(e.texId);
+					e.texId = -1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the GL texture of the entry, uploading it if this is not done yet.
+	 * Must be called with the render GL context current.
+	 *
+	 * @param firstUse true if the calling {@link TextureImpl} has never been bound before
+	 */
+	static int getId(Entry entry, boolean firstUse) {
+		synchronized (entries) {
+			deletePending();
+			if (entry.texId != -1 && glIsTexture(entry.texId)) {
+				if (firstUse) {
+					uploadsAvoided++;
+					bytesSaved += entry.size;
+				}
+				return entry.texId;
+			}
+			entry.texId = TextureImpl.generateId();
+			TextureImpl.upload(entry.texId, entry.data);
+			uploads++;
+			return entry.texId;
+		}
+	}
+
+	private static void deletePending() {
+		int size = pendingDelete.size();
+		if (size == 0) {
+			return;
+		}
+		IntBuffer ids = BufferUtils.createIntBuffer(size);
+		for (int i = 0; i < size; i++) {
+			ids.put(pendingDelete.get(i));
+		}
+		ids.rewind();
+		glDeleteTextures(size, ids);
+		pendingDelete.clear();
+	}
+
+	private static String hash(byte[] data, int offset, int length) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			md.update(data, offset, length);
+			return new BigInteger(1, md.digest()).toString(16) + ':' + length;
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** Number of textures uploaded to GL through the cache */
+	public static int getUploads() {
+		return uploads;
+	}
+
+	/** Number of textures that reused an already uploaded GL texture */
+	public static int getUploadsAvoided() {
+		return uploadsAvoided;
+	}
+
+	/** Number of textures that reused already decoded data */
+	public static int getDecodesAvoided() {
+		return decodesAvoided;
+	}
+
+	/** Total size of texture data not decoded or not uploaded again thanks to the cache */
+	public static long getBytesSaved() {
+		return bytesSaved;
+	}
+
+	static final class Entry {
+		final String key;
+		final TextureData data;
+		final int size;
+		int refCount;
+		int texId = -1;
+
+		Entry(String key, TextureData data) {
+			this.key = key;
+			this.data = data;
+			this.size = data.width * data.height * 4;
+		}
+	}
+}
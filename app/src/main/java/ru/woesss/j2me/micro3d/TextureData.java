@@ -22,6 +22,7 @@ class TextureData {
 	private final ByteBuffer raster;
 	final int width;
 	final int height;
+	private int[] pixels;
 
 	TextureData(int width, int height) {
 		this.raster = BufferUtils.createByteBuffer(width * height * 4);
@@ -33,4 +34,31 @@ class TextureData {
 		raster.rewind();
 		return raster;
 	}
+
+	/**
+	 * Returns the raster as ARGB pixels for the software renderer.
+	 * The array is cached until {@link #invalidate()} is called.
+	 */
+	synchronized int[] getPixels() {
+		int[] pixels = this.pixels;
+		if (pixels != null) {
+			return pixels;
+		}
+		int len = width * height;
+		pixels = new int[len];
+		ByteBuffer raster = this.raster;
+		for (int i = 0, p = 0; i < len; i++, p += 4) {
+			pixels[i] = (raster.get(p + 3) & 0xff) << 24
+					| (raster.get(p) & 0xff) << 16
+					| (raster.get(p + 1) & 0xff) << 8
+					| raster.get(p + 2) & 0xff;
+		}
+		this.pixels = pixels;
+		return pixels;
+	}
+
+	/** Must be called after the raster is changed */
+	synchronized void invalidate() {
+		pixels = null;
+	}
 }
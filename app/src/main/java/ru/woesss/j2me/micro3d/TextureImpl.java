@@ -31,6 +31,7 @@ public final class TextureImpl {
 
 	final TextureData image;
 	private final boolean isMutable;
+	private TextureCache.Entry cacheEntry;
 
 	int mTexId = -1;
 
@@ -44,11 +45,12 @@ public final class TextureImpl {
 			throw new NullPointerException();
 		}
 		try {
-			image = Loader.loadBmpData(b, 0, b.length);
+			cacheEntry = TextureCache.acquire(b, 0, b.length);
 		} catch (IOException e) {
 			Log.e(Utils.TAG, "Error loading data", e);
 			throw new RuntimeException(e);
 		}
+		image = cacheEntry.data;
 		isMutable = false;
 	}
 
@@ -60,11 +62,12 @@ public final class TextureImpl {
 			throw new ArrayIndexOutOfBoundsException();
 		}
 		try {
-			image = Loader.loadBmpData(b, offset, length);
+			cacheEntry = TextureCache.acquire(b, offset, length);
 		} catch (Exception e) {
 			Log.e(Utils.TAG, "Error loading data", e);
 			throw e;
 		}
+		image = cacheEntry.data;
 		isMutable = false;
 	}
 
@@ -77,11 +80,12 @@ public final class TextureImpl {
 			throw new IOException();
 		}
 		try {
-			image = Loader.loadBmpData(b, 0, b.length);
+			cacheEntry = TextureCache.acquire(b, 0, b.length);
 		} catch (IOException e) {
 			Log.e(Utils.TAG, "Error loading data from [" + name + "]", e);
 			throw new RuntimeException(e);
 		}
+		image = cacheEntry.data;
 		isMutable = false;
 	}
 
@@ -104,20 +108,29 @@ public final class TextureImpl {
 		this.image.getRaster().asIntBuffer().put(pixels);
 	}
 
-	public void dispose() {
+	public synchronized void dispose() {
+		if (cacheEntry != null) {
+			TextureCache.release(cacheEntry);
+			cacheEntry = null;
+		}
 	}
 
 	public boolean isMutable() {
 		return isMutable;
 	}
 
-	int getId() {
+	synchronized int getId() {
+		if (cacheEntry != null) {
+			boolean firstUse = mTexId == -1;
+			mTexId = TextureCache.getId(cacheEntry, firstUse);
+			return mTexId;
+		}
 		if (!glIsTexture(mTexId)) {
-			generateId();
+			mTexId = generateId();
 		} else if (!isMutable) {
 			return mTexId;
 		}
-		loadToGL();
+		upload(mTexId, image);
 		return mTexId;
 	}
 
@@ -129,22 +142,24 @@ public final class TextureImpl {
 		return image.height;
 	}
 
-	private void generateId() {
+	static int generateId() {
 		final IntBuffer textureIds = BufferUtils.createIntBuffer(1);
+		int id;
 		synchronized (TextureImpl.class) {
 			while (textureIds.get(0) <= sLastId) {
 				textureIds.rewind();
 				glGenTextures(1, textureIds);
 			}
 			sLastId = textureIds.get(0);
-			mTexId = textureIds.get(0);
+			id = textureIds.get(0);
 		}
 		Render.checkGlError("glGenTextures");
+		return id;
 	}
 
-	private void loadToGL() {
+	static void upload(int texId, TextureData image) {
 		glActiveTexture(GL_TEXTURE0);
-		glBindTexture(GL_TEXTURE_2D, mTexId);
+		glBindTexture(GL_TEXTURE_2D, texId);
 
 		boolean filter = Boolean.getBoolean("micro3d.v3.texture.filter");
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, filter ? GL_LINEAR : GL_NEAREST);
@@ -18,6 +18,8 @@ package ru.woesss.j2me.micro3d;
 
 import android.content.SharedPreferences;
 import android.graphics.Bitmap;
+import android.opengl.GLES20;
+import android.util.Log;
 
 import androidx.preference.PreferenceManager;
 
@@ -32,6 +34,8 @@ import ru.playsoftware.j2meloader.R;
 
 public class Utils {
 	static final String TAG = "micro3d";
+	private static final boolean NATIVE_LOADED;
+	private static final boolean USE_NATIVE;
 
 	static void getSpriteVertex(float[] vertex, float angle, float halfW, float halfH) {
 		angle *= MathUtil.TO_RADIANS;
@@ -86,13 +90,49 @@ public class Utils {
 		v[3] = x * m[3] + y * m[7] + z * m[11] + w * m[15];
 	}
 
-	static native void fillBuffer(FloatBuffer buffer, FloatBuffer vertices, int[] indices);
+	static void fillBuffer(FloatBuffer buffer, FloatBuffer vertices, int[] indices) {
+		if (USE_NATIVE) {
+			nFillBuffer(buffer, vertices, indices);
+		} else {
+			Skinning.fillBuffer(buffer, vertices, indices);
+		}
+	}
+
+	static void transform(FloatBuffer srcVertices, FloatBuffer dstVertices,
+						  FloatBuffer srcNormals, FloatBuffer dstNormals,
+						  ByteBuffer boneMatrices, float[] actionMatrices) {
+		if (USE_NATIVE) {
+			nTransform(srcVertices, dstVertices, srcNormals, dstNormals, boneMatrices, actionMatrices);
+		} else {
+			Skinning.transform(srcVertices, dstVertices, srcNormals, dstNormals, boneMatrices, actionMatrices);
+		}
+	}
 
-	static native void transform(FloatBuffer srcVertices, FloatBuffer dstVertices,
-								 FloatBuffer srcNormals, FloatBuffer dstNormals,
-								 ByteBuffer boneMatrices, float[] actionMatrices);
+	private static native void nFillBuffer(FloatBuffer buffer, FloatBuffer vertices, int[] indices);
 
-	static native void glReadPixels(int x, int y, int width, int height, Bitmap bitmapBuffer);
+	private static native void nTransform(FloatBuffer srcVertices, FloatBuffer dstVertices,
+										  FloatBuffer srcNormals, FloatBuffer dstNormals,
+										  ByteBuffer boneMatrices, float[] actionMatrices);
+
+	static void glReadPixels(int x, int y, int width, int height, Bitmap bitmapBuffer) {
+		if (NATIVE_LOADED) {
+			nGlReadPixels(x, y, width, height, bitmapBuffer);
+			return;
+		}
+		ByteBuffer buffer = BufferUtils.createByteBuffer(width * height * 4);
+		GLES20.glReadPixels(x, y, width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, buffer);
+		int[] pixels = new int[width * height];
+		for (int i = 0, p = 0; i < pixels.length; i++, p += 4) {
+			int r = buffer.get(p) & 0xff;
+			int g = buffer.get(p + 1) & 0xff;
+			int b = buffer.get(p + 2) & 0xff;
+			int a = buffer.get(p + 3) & 0xff;
+			pixels[i] = a << 24 | r << 16 | g << 8 | b;
+		}
+		bitmapBuffer.setPixels(pixels, 0, width, x, y, width, height);
+	}
+
+	private static native void nGlReadPixels(int x, int y, int width, int height, Bitmap bitmapBuffer);
 
 	static {
 		MicroActivity microActivity = ContextHolder.getActivity();
@@ -100,7 +140,16 @@ public class Utils {
 		if (sp.getBoolean("micro3d_using_message", false)) {
 			microActivity.toast(R.string.msg_mascot_capsule);
 		}
-		System.loadLibrary("c++_shared");
-		System.loadLibrary("micro3d");
+		boolean loaded;
+		try {
+			System.loadLibrary("c++_shared");
+			System.loadLibrary("micro3d");
+			loaded = true;
+		} catch (UnsatisfiedLinkError e) {
+			Log.w(TAG, "Native library is unavailable, using Java implementation", e);
+			loaded = false;
+		}
+		NATIVE_LOADED = loaded;
+		USE_NATIVE = loaded && !Boolean.getBoolean("micro3d.v3.skinning.java");
 	}
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.woesss.j2me.mmapi;
+
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Mixes any number of PCM sources into a single {@link AudioTrack} on one audio thread.
+ * The thread and the track are idle while there is nothing to play.
+ */
+public final class AudioMixer implements Runnable {
+	private static final String TAG = AudioMixer.class.getSimpleName();
+	public static final int SAMPLE_RATE = 44100;
+	/** Frames mixed per block, about 6 ms */
+	public static final int BLOCK_FRAMES = 256;
+
+	private final ArrayList<Source> sources = new ArrayList<>();
+	/** Sources added again while they were playing, they survive one finished block */
+	private final HashSet<Source> restarted = new HashSet<>();
+	private Source[] snapshot = new Source[0];
+	private boolean changed;
+	private Thread thread;
+
+	private AudioMixer() {}
+
+	public static AudioMixer getInstance() {
+		return InstanceHolder.instance;
+	}
+
+	public synchronized void add(Source source) {
+		if (sources.contains(source)) {
+			restarted.add(source);
+			return;
+		}
+		sources.add(source);
+		changed = true;
+		if (thread == null) {
+			thread = new Thread(this, "AudioMixer");
+			thread.setPriority(Thread.MAX_PRIORITY);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		notifyAll();
+	}
+
+	public synchronized void remove(Source source) {
+		restarted.remove(source);
+		if (sources.remove(source)) {
+			changed = true;
+		}
+	}
+
+	private synchronized void finished(Source source) {
+		if (!restarted.remove(source) && sources.remove(source)) {
+			changed = true;
+		}
+	}
+
+	@Override
+	public void run() {
+		int minSize = AudioTrack.getMinBufferSize(SAMPLE_RATE,
+				AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+		AudioTrack track = new AudioTrack(AudioManager.STREAM_MUSIC, SAMPLE_RATE,
+				AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT,
+				Math.max(minSize, BLOCK_FRAMES * 4 * 2), AudioTrack.MODE_STREAM);
+		int[] mix = new int[BLOCK_FRAMES * 2];
+		short[] out = new short[BLOCK_FRAMES * 2];
+		boolean playing = false;
+		try {
+			while (true) {
+				Source[] list;
+				synchronized (this) {
+					while (sources.isEmpty()) {
+						if (playing) {
+							track.pause();
+							track.flush();
+							playing = false;
+						}
+						wait();
+					}
+					if (changed) {
+						snapshot = sources.toArray(snapshot.length == sources.size() ? snapshot : new Source[sources.size()]);
+						changed = false;
+					}
+					list = snapshot;
+				}
+				Arrays.fill(mix, 0);
+				for (Source source : list) {
+					boolean active;
+					try {
+						active = source.mix(mix, BLOCK_FRAMES);
+					} catch (Exception e) {
+						Log.e(TAG, "mix: source failed", e);
+						active = false;
+					}
+					if (!active) {
+						finished(source);
+					}
+				}
+				for (int i = 0; i < out.length; i++) {
+					int s = mix[i];
+					out[i] = (short) (s > Short.MAX_VALUE ? Short.MAX_VALUE : s < Short.MIN_VALUE ? Short.MIN_VALUE : s);
+				}
+				if (!playing) {
+					track.play();
+					playing = true;
+				}
+				track.write(out, 0, out.length);
+			}
+		} catch (InterruptedException e) {
+			Log.w(TAG, "Mixer thread interrupted");
+		} finally {
+			track.release();
+			synchronized (this) {
+				thread = null;
+			}
+		}
+	}
+
+	public interface Source {
+		/**
+		 * Adds the next frames of the source to the stereo interleaved buffer,
+		 * called on the mixer thread.
+		 *
+		 * @return false if the source is finished and must be removed from the mixer
+		 */
+		boolean mix(int[] buffer, int frames);
+	}
+
+	private static final class InstanceHolder {
+		static final AudioMixer instance = new AudioMixer();
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ru.woesss.j2me.mmapi;
+
+import android.util.Log;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes temporary media files. Files that can't be deleted right away are retried
+ * a few times instead of being registered with {@link File#deleteOnExit()},
+ * the rest is removed with the cache directory on the next start.
+ */
+public final class FileCleaner {
+	private static final String TAG = FileCleaner.class.getSimpleName();
+	private static final long RETRY_DELAY_SECONDS = 10;
+	private static final int MAX_RETRIES = 6;
+
+	/** Files to delete and the retries left */
+	private static final HashMap<File, Integer> pending = new HashMap<>();
+	private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "FileCleaner");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private static boolean scheduled;
+
+	private FileCleaner() {}
+
+	/**
+	 * @return true if the file is deleted now, false if it is scheduled for deletion
+	 */
+	public static boolean delete(File file) {
+		if (file.delete() || !file.exists()) {
+			return true;
+		}
+		Log.w(TAG, "delete: deferred, file=" + file);
+		synchronized (pending) {
+			pending.put(file, MAX_RETRIES);
+			schedule();
+		}
+		return false;
+	}
+
+	private static void schedule() {
+		if (!scheduled) {
+			scheduled = true;
+			executor.schedule(FileCleaner::retry, RETRY_DELAY_SECONDS, TimeUnit.SECONDS);
+		}
+	}
+
+	private static void retry() {
+		synchronized (pending) {
+			scheduled = false;
+			for (Iterator<Map.Entry<File, Integer>> iterator = pending.entrySet().iterator(); iterator.hasNext(); ) {
+				Map.Entry<File, Integer> entry = iterator.next();
+				File file = entry.getKey();
+				if (file.delete() || !file.exists()) {
+					iterator.remove();
+				} else if (entry.getValue() <= 1) {
+					Log.w(TAG, "retry: gave up, file=" + file);
+					iterator.remove();
+				} else {
+					entry.setValue(entry.getValue() - 1);
+				}
+			}
+			if (!pending.isEmpty()) {
+				schedule();
+			}
+		}
+	}
+}
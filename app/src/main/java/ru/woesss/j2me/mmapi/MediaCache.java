@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.woesss.j2me.mmapi;
+
+import android.util.Log;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Keeps prepared (probed and converted) media files keyed by the hash of the source data,
+ * so players created again from the same data reuse the file instead of writing it again.
+ * Entries are reference counted, unreferenced ones are kept while they fit into the disk budget.
+ */
+public final class MediaCache {
+	private static final String TAG = MediaCache.class.getSimpleName();
+	private static final long MAX_UNUSED_BYTES =
+			Integer.getInteger("mmapi.media.cache.size", 8 * 1024 * 1024);
+
+	private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private static long unusedBytes;
+
+	private MediaCache() {}
+
+	public static String getKey(byte[] data, int length, String type) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			md.update(data, 0, length);
+			return new BigInteger(1, md.digest()).toString(16) + ':' + length + ':' + type;
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return the entry for the key with an acquired reference, or {@code null} if there is none
+	 */
+	public static Entry acquire(String key) {
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (!entry.file.exists()) {
+				entries.remove(key);
+				if (entry.refCount == 0) {
+					unusedBytes -= entry.size;
+				}
+				return null;
+			}
+			if (entry.refCount++ == 0) {
+				unusedBytes -= entry.size;
+			}
+			return entry;
+		}
+	}
+
+	/**
+	 * Adds the prepared file to the cache. If the same data was prepared concurrently,
+	 * the file is deleted and the existing entry is returned.
+	 *
+	 * @return the entry with an acquired reference
+	 */
+	public static Entry put(String key, File file) {
+		synchronized (entries) {
+			Entry entry = acquire(key);
+			if (entry != null) {
+				if (!file.equals(entry.file)) {
+					FileCleaner.delete(file);
+				}
+				return entry;
+			}
+			entry = new Entry(key, file);
+			entry.refCount = 1;
+			entries.put(key, entry);
+			return entry;
+		}
+	}
+
+	public static void release(Entry entry) {
+		synchronized (entries) {
+			if (--entry.refCount > 0) {
+				return;
+			}
+			if (entries.get(entry.key) != entry) {
+				// already evicted or replaced
+				deleteFile(entry);
+				return;
+			}
+			unusedBytes += entry.size;
+			Iterator<Entry> iterator = entries.values().iterator();
+			while (unusedBytes > MAX_UNUSED_BYTES && iterator.hasNext()) {
+				Entry e = iterator.next();
+				if (e.refCount > 0) {
+					continue;
+				}
+				iterator.remove();
+				unusedBytes -= e.size;
+				deleteFile(e);
+			}
+		}
+	}
+
+	private static void deleteFile(Entry entry) {
+		if (FileCleaner.delete(entry.file)) {
+			Log.d(TAG, "Cached file deleted: " + entry.file);
+		}
+	}
+
+	public static final class Entry {
+		final String key;
+		public final File file;
+		final long size;
+		int refCount;
+
+		Entry(String key, File file) {
+			this.key = key;
+			this.file = file;
+			this.size = file.length();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ru.woesss.j2me.mmapi;
+
+import javax.microedition.media.Control;
+import javax.microedition.media.protocol.DataSource;
+import javax.microedition.media.protocol.SourceStream;
+
+/**
+ * Small media kept in memory and never written to the file system.
+ * Used by players able to take the data directly, the others get a file backed source.
+ */
+public class MemoryDataSource extends DataSource {
+	/** Max size of the media kept in memory */
+	public static final int MAX_SIZE = Integer.getInteger("mmapi.memory.source.size", 64 * 1024);
+
+	private final String type;
+	private final byte[] data;
+
+	public MemoryDataSource(String type, byte[] data) {
+		super(null);
+		this.type = type;
+		this.data = data;
+	}
+
+	/**
+	 * @return the media data, the returned array is shared and must not be modified
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	@Override
+	public String getContentType() {
+		return type;
+	}
+
+	@Override
+	public void connect() {
+	}
+
+	@Override
+	public void disconnect() {
+	}
+
+	@Override
+	public void start() {
+	}
+
+	@Override
+	public void stop() {
+	}
+
+	@Override
+	public SourceStream[] getStreams() {
+		return new SourceStream[0];
+	}
+
+	@Override
+	public Control[] getControls() {
+		return new Control[0];
+	}
+
+	@Override
+	public Control getControl(String control) {
+		return null;
+	}
+}
@@ -34,6 +34,9 @@ public interface Library {
 	void setListener(long handle, Object listener);
 	void setDataSource(long handle, byte[] data);
 	int writeMIDI(long handle, byte[] data, int offset, int length);
+	void setMixerEnabled(boolean enabled);
+	/** Renders the MIDI data to the 16-bit stereo WAV file, returns 0 on success */
+	int render(byte[] data, String output, int maxSeconds);
 
 	boolean hasToneControl();
 }
@@ -0,0 +1,301 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.woesss.j2me.mmapi.synth;
+
+import android.util.Log;
+
+import com.arthenica.mobileffmpeg.Config;
+import com.arthenica.mobileffmpeg.FFmpeg;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.microedition.media.protocol.DataSource;
+import javax.microedition.shell.MicroLoader;
+import javax.microedition.util.ContextHolder;
+
+import kotlin.io.FilesKt;
+import ru.woesss.j2me.mmapi.FileCacheDataSource;
+import ru.woesss.j2me.mmapi.MemoryDataSource;
+
+/**
+ * Renders looping MIDI music to a FLAC file once, on a low priority background thread.
+ * Rendered files are kept on disk keyed by the hash of the MIDI data, the synth engine,
+ * the sound bank and the sample rate, players created later from the same data play the file
+ * instead of the live synthesis. The file names start with the length of the MIDI data,
+ * the data of other lengths is not read nor hashed.
+ */
+public final class PrerenderCache {
+	private static final String TAG = PrerenderCache.class.getSimpleName();
+	private static final boolean ENABLED = Boolean.getBoolean("mmapi.synth.prerender");
+	private static final int SAMPLE_RATE = 44100;
+	/** Longer songs are left to the live synthesis */
+	private static final int MAX_SECONDS = Integer.getInteger("mmapi.synth.prerender.length", 600);
+	private static final long MAX_BYTES = Integer.getInteger("mmapi.synth.prerender.size", 64 * 1024 * 1024);
+	private static final String[] EXTENSIONS = {".flac", ".wav"};
+
+	private static final HashSet<String> pending = new HashSet<>();
+	/** Lengths of the rendered MIDI data, loaded from the file names on the first use */
+	private static HashSet<Long> renderedLengths;
+	/** Engine of the first synth plugin, it plays the sources */
+	private static String engine;
+	private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "SynthPrerender");
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private PrerenderCache() {}
+
+	static synchronized void registerEngine(Library library) {
+		if (engine == null) {
+			engine = library.getClass().getSimpleName();
+		}
+	}
+
+	/**
+	 * @return source of the rendered file for the MIDI source,
+	 * or {@code null} if it is not rendered (yet)
+	 */
+	public static DataSource getRenderedSource(DataSource source) {
+		String engine;
+		synchronized (PrerenderCache.class) {
+			engine = PrerenderCache.engine;
+		}
+		if (engine == null || !isSupported(source) || !isRenderedLength(getLength(source))) {
+			return null;
+		}
+		byte[] data = readData(source);
+		if (data == null) {
+			return null;
+		}
+		File file = findFile(getKey(data, engine));
+		if (file == null) {
+			return null;
+		}
+		// keep recently used files on trim
+		if (!file.setLastModified(System.currentTimeMillis())) {
+			Log.w(TAG, "getRenderedSource: can't touch " + file);
+		}
+		Log.d(TAG, "Prerendered file used: " + file.getName());
+		return new RenderedDataSource(source, file);
+	}
+
+	/**
+	 * Starts rendering of the source in the background, if it is not rendered yet.
+	 */
+	static void schedule(Library library, DataSource source) {
+		if (!isSupported(source)) {
+			return;
+		}
+		byte[] data = readData(source);
+		if (data == null) {
+			return;
+		}
+		String key = getKey(data, library.getClass().getSimpleName());
+		synchronized (pending) {
+			if (!pending.add(key)) {
+				return;
+			}
+		}
+		executor.execute(() -> {
+			try {
+				render(library, data, key);
+			} finally {
+				synchronized (pending) {
+					pending.remove(key);
+				}
+			}
+		});
+	}
+
+	private static boolean isSupported(DataSource source) {
+		if (!ENABLED) {
+			return false;
+		}
+		String locator = source.getLocator();
+		// the file player has no MIDI or tone control
+		if (locator == null && !(source instanceof MemoryDataSource)
+				|| SynthPlayer.hasSynthControls(locator)) {
+			return false;
+		}
+		String type = source.getContentType();
+		return type != null && (type.contains("mid") || type.contains("xmf"));
+	}
+
+	private static byte[] readData(DataSource source) {
+		if (source instanceof MemoryDataSource) {
+			return ((MemoryDataSource) source).getData();
+		}
+		try {
+			return FilesKt.readBytes(new File(source.getLocator()));
+		} catch (Exception e) {
+			Log.w(TAG, "readData: can't read source", e);
+			return null;
+		}
+	}
+
+	private static long getLength(DataSource source) {
+		if (source instanceof MemoryDataSource) {
+			return ((MemoryDataSource) source).getData().length;
+		}
+		return new File(source.getLocator()).length();
+	}
+
+	private static synchronized boolean isRenderedLength(long length) {
+		if (renderedLengths == null) {
+			renderedLengths = new HashSet<>();
+			String[] names = getDir().list();
+			if (names != null) {
+				for (String name : names) {
+					int end = name.indexOf('_');
+					if (end > 0) {
+						try {
+							renderedLengths.add(Long.parseLong(name.substring(0, end)));
+						} catch (NumberFormatException ignored) {
+						}
+					}
+				}
+			}
+		}
+		return renderedLengths.contains(length);
+	}
+
+	private static synchronized void addRenderedLength(long length) {
+		if (renderedLengths != null) {
+			renderedLengths.add(length);
+		}
+	}
+
+	private static String getKey(byte[] data, String engine) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			md.update(data);
+			md.update(engine.getBytes());
+			String soundBank = MicroLoader.getSoundBank();
+			if (soundBank != null) {
+				File file = new File(soundBank);
+				md.update((file.getName() + ':' + file.length() + ':' + file.lastModified()).getBytes());
+			}
+			md.update(Integer.toString(SAMPLE_RATE).getBytes());
+			return data.length + "_" + new BigInteger(1, md.digest()).toString(16);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static File getDir() {
+		File dir = new File(ContextHolder.getAppContext().getFilesDir(), "prerender");
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			Log.w(TAG, "getDir: can't create " + dir);
+		}
+		return dir;
+	}
+
+	private static File findFile(String key) {
+		File dir = getDir();
+		for (String ext : EXTENSIONS) {
+			File file = new File(dir, key + ext);
+			if (file.isFile()) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	private static void render(Library library, byte[] data, String key) {
+		if (findFile(key) != null) {
+			return;
+		}
+		File dir = getDir();
+		File wav = new File(dir, key + ".tmp.wav");
+		long start = System.currentTimeMillis();
+		int result = library.render(data, wav.getPath(), MAX_SECONDS);
+		if (result != 0) {
+			Log.w(TAG, "render: failed with code " + result);
+			deleteFile(wav);
+			return;
+		}
+		File flac = new File(dir, key + ".tmp.flac");
+		int rc = FFmpeg.execute(new String[]{"-i", wav.getPath(), "-c:a", "flac", "-y", flac.getPath()});
+		if (rc == Config.RETURN_CODE_SUCCESS && flac.renameTo(new File(dir, key + ".flac"))) {
+			deleteFile(wav);
+			addRenderedLength(data.length);
+		} else {
+			Log.w(TAG, "render: FFmpeg failed with code " + rc + ", PCM file is kept");
+			deleteFile(flac);
+			if (wav.renameTo(new File(dir, key + ".wav"))) {
+				addRenderedLength(data.length);
+			} else {
+				deleteFile(wav);
+			}
+		}
+		Log.d(TAG, "Prerendered in " + (System.currentTimeMillis() - start) + " ms: " + key);
+		trim(dir);
+	}
+
+	/** Deletes the least recently used files over the disk budget */
+	private static void trim(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
+		long size = 0;
+		boolean deleted = false;
+		for (File file : files) {
+			size += file.length();
+			if (size > MAX_BYTES || file.getName().contains(".tmp.")) {
+				deleteFile(file);
+				deleted = true;
+			}
+		}
+		if (deleted) {
+			synchronized (PrerenderCache.class) {
+				renderedLengths = null;
+			}
+		}
+	}
+
+	private static void deleteFile(File file) {
+		if (file.exists() && !file.delete()) {
+			Log.w(TAG, "deleteFile: can't delete " + file);
+		}
+	}
+
+	/**
+	 * Source of the rendered file, the file is owned by the cache.
+	 */
+	private static final class RenderedDataSource extends FileCacheDataSource {
+		private final DataSource origin;
+
+		RenderedDataSource(DataSource origin, File file) {
+			super(origin.getContentType(), file);
+			this.origin = origin;
+		}
+
+		@Override
+		public void disconnect() {
+			origin.disconnect();
+		}
+	}
+}
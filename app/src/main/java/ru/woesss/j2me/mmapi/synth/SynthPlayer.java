@@ -44,6 +44,7 @@ import javax.microedition.media.control.VolumeControl;
 import javax.microedition.media.protocol.DataSource;
 import javax.microedition.media.tone.ToneSequence;
 
+import ru.woesss.j2me.mmapi.MemoryDataSource;
 import ru.woesss.j2me.mmapi.control.MIDIControlImpl;
 import ru.woesss.j2me.mmapi.protocol.device.DeviceMetaData;
 
@@ -67,6 +68,8 @@ class SynthPlayer extends BasePlayer implements VolumeControl, PanControl, ToneC
 	private int volume = 100;
 	private boolean mute;
 	private int pan;
+	private int loopCount = 1;
+	private boolean prerenderScheduled;
 
 	SynthPlayer(Library library, DataSource dataSource) {
 		String locator = dataSource.getLocator();
@@ -77,7 +80,19 @@ class SynthPlayer extends BasePlayer implements VolumeControl, PanControl, ToneC
 		}
 		this.library = library;
 		this.dataSource = dataSource;
-		handle = library.createPlayer(locator);
+		if (dataSource instanceof MemoryDataSource) {
+			// the tone device player takes any sequence from memory
+			handle = library.createPlayer(TONE_DEVICE_LOCATOR);
+			try {
+				library.setDataSource(handle, ((MemoryDataSource) dataSource).getData());
+			} catch (Exception e) { // MediaException thrown by native code
+				// the player is not returned, finalize() won't be called
+				library.finalize(handle);
+				throw e;
+			}
+		} else {
+			handle = library.createPlayer(locator);
+		}
 		library.setListener(handle, this);
 	}
 
@@ -90,6 +105,7 @@ class SynthPlayer extends BasePlayer implements VolumeControl, PanControl, ToneC
 			if (controls == null) {
 				controls = new HashMap<>();
 				String locator = dataSource.getLocator();
+				// keep in sync with hasSynthControls()
 				if (MIDI_DEVICE_LOCATOR.equals(locator)) {
 					controls.put(MIDIControl.class.getName(), new MIDIControlImpl(this, library, handle));
 				} else if (TONE_DEVICE_LOCATOR.equals(locator)) {
@@ -131,6 +147,11 @@ class SynthPlayer extends BasePlayer implements VolumeControl, PanControl, ToneC
 
 		if (state == PREFETCHED) {
 			library.start(handle);
+			if (loopCount == -1 && !prerenderScheduled) {
+				// endless background music, next players of it may use the rendered file
+				prerenderScheduled = true;
+				PrerenderCache.schedule(library, dataSource);
+			}
 
 			state = STARTED;
 			postEvent(PlayerListener.STARTED, getMediaTime());
@@ -205,6 +226,7 @@ class SynthPlayer extends BasePlayer implements VolumeControl, PanControl, ToneC
 			throw new IllegalArgumentException("loop count must not be 0");
 		}
 		library.setRepeat(handle, count);
+		loopCount = count;
 	}
 
 	@Override
@@ -370,7 +392,8 @@ class SynthPlayer extends BasePlayer implements VolumeControl, PanControl, ToneC
 			throw new IllegalArgumentException("sequence is NULL");
 		}
 		try {
-			if (!library.hasToneControl()) {
+			// a MIDI sequence is taken as is, as by the constructor from memory
+			if (!library.hasToneControl() && !isMidi(sequence)) {
 				ToneSequence tone = new ToneSequence(sequence);
 				tone.process();
 				sequence = tone.getByteArray();
@@ -382,6 +405,18 @@ class SynthPlayer extends BasePlayer implements VolumeControl, PanControl, ToneC
 		}
 	}
 
+	/**
+	 * @return true if the player of the locator has the controls the file players lack
+	 * (MIDIControl, ToneControl), the other sources may be played from a rendered file
+	 */
+	static boolean hasSynthControls(String locator) {
+		return MIDI_DEVICE_LOCATOR.equals(locator) || TONE_DEVICE_LOCATOR.equals(locator);
+	}
+
+	private static boolean isMidi(byte[] data) {
+		return data.length > 4 && data[0] == 'M' && data[1] == 'T' && data[2] == 'h' && data[3] == 'd';
+	}
+
 	@Override
 	protected void finalize() throws Throwable {
 		library.finalize(handle);
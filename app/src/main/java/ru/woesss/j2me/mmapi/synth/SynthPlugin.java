@@ -21,20 +21,29 @@ import android.util.Log;
 import javax.microedition.media.Player;
 import javax.microedition.media.protocol.DataSource;
 
+import ru.woesss.j2me.mmapi.MemoryDataSource;
 import ru.woesss.j2me.mmapi.Plugin;
 import ru.woesss.j2me.mmapi.protocol.device.DeviceDataSource;
 
 public class SynthPlugin implements Plugin {
 	private static final String TAG = SynthPlugin.class.getSimpleName();
+	/** Render all players through one native audio stream */
+	private static final boolean MIXER = Boolean.getBoolean("mmapi.synth.mixer");
 
 	private final Library library;
 
 	public SynthPlugin(Library library) {
 		this.library = library;
+		library.setMixerEnabled(MIXER);
+		PrerenderCache.registerEngine(library);
 	}
 
 	@Override
 	public Player createPlayer(DataSource dataSource) {
+		if (dataSource instanceof MemoryDataSource && isSampled((MemoryDataSource) dataSource)) {
+			// left to the platform players, the synth would fail on it
+			return null;
+		}
 		try {
 			return new SynthPlayer(library, dataSource);
 		} catch (Exception e) {
@@ -52,4 +61,45 @@ public class SynthPlugin implements Plugin {
 			return null;
 		}
 	}
+
+	/** Checks the content type and the signature of the data, MIDlets often declare a wrong type */
+	private static boolean isSampled(MemoryDataSource source) {
+		String type = source.getContentType();
+		if (type != null) {
+			switch (type.toLowerCase()) {
+				case "audio/wav":
+				case "audio/x-wav":
+				case "audio/mpeg":
+				case "audio/mp3":
+				case "audio/aac":
+				case "audio/amr":
+				case "audio/amr-wb":
+				case "audio/mp4":
+				case "audio/ogg":
+				case "audio/mmf":
+					return true;
+			}
+		}
+		byte[] data = source.getData();
+		if (data.length < 12) {
+			return false;
+		}
+		return startsWith(data, 0, "RIFF") && startsWith(data, 8, "WAVE")
+				|| startsWith(data, 0, "ID3")
+				|| startsWith(data, 0, "#!AMR")
+				|| startsWith(data, 0, "OggS")
+				|| startsWith(data, 0, "MMMD")
+				|| startsWith(data, 4, "ftyp")
+				// MPEG audio or ADTS frame sync
+				|| (data[0] & 0xff) == 0xff && (data[1] & 0xe0) == 0xe0;
+	}
+
+	private static boolean startsWith(byte[] data, int offset, String signature) {
+		for (int i = 0; i < signature.length(); i++) {
+			if (data[offset + i] != signature.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
@@ -60,6 +60,10 @@ public class LibEAS implements Library {
 	public native void setDataSource(long handle, byte[] data);
 	@Override
 	public native int writeMIDI(long handle, byte[] data, int offset, int length);
+	@Override
+	public native void setMixerEnabled(boolean enabled);
+	@Override
+	public native int render(byte[] data, String output, int maxSeconds);
 
 	@Override
 	public boolean hasToneControl() {
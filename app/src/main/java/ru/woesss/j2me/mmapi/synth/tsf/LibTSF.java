@@ -60,6 +60,10 @@ public class LibTSF implements Library {
 	public int writeMIDI(long handle, byte[] data, int offset, int length) {
 		return 0;
 	}
+	@Override
+	public native void setMixerEnabled(boolean enabled);
+	@Override
+	public native int render(byte[] data, String output, int maxSeconds);
 
 	@Override
 	public boolean hasToneControl() {
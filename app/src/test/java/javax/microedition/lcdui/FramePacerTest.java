@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.lcdui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * The pacer runs on a simulated clock with a 60 Hz display, the frame work is simulated too.
+ */
+public class FramePacerTest {
+	private static final long MS = 1_000_000;
+	private static final long REFRESH = 16_666_667;
+
+	@Test
+	public void fixedCapKeepsTheRate() {
+		SimulatedClock clock = new SimulatedClock(new Random(1));
+		FramePacer pacer = new FramePacer(clock, false);
+		long[] presented = run(clock, pacer, 60, 601, i -> 2 * MS + clock.random.nextInt(10) * MS);
+		double fps = 600 * 1e9 / (presented[600] - presented[0]);
+		assertEquals(60.0, fps, 0.05);
+
+		long[] old = runOldLimiter(new SimulatedClock(new Random(1)), 60, 601);
+		double oldFps = 600 * 1e9 / (old[600] - old[0]);
+		System.out.printf("fps: pacer %.2f, old limiter %.2f%n", fps, oldFps);
+	}
+
+	@Test
+	public void frameTimesVaryLessThanWithTheOldLimiter() {
+		SimulatedClock clock = new SimulatedClock(new Random(2));
+		long[] presented = run(clock, new FramePacer(clock, false), 60, 601,
+				i -> 2 * MS + clock.random.nextInt(10) * MS);
+		long[] old = runOldLimiter(new SimulatedClock(new Random(2)), 60, 601);
+		double deviation = deviation(presented);
+		double oldDeviation = deviation(old);
+		System.out.printf("frame time deviation: pacer %.3f ms, old limiter %.3f ms%n",
+				deviation / MS, oldDeviation / MS);
+		assertTrue(deviation * 4 < oldDeviation);
+	}
+
+	@Test
+	public void lateFrameDoesNotBurst() {
+		SimulatedClock clock = new SimulatedClock(new Random(3));
+		FramePacer pacer = new FramePacer(clock, false);
+		long[] presented = run(clock, pacer, 50, 40, i -> i == 20 ? 100 * MS : MS);
+		for (int i = 22; i < presented.length; i++) {
+			long interval = presented[i] - presented[i - 1];
+			assertTrue("frame " + i + ": " + interval, interval >= 20 * MS - MS / 10);
+		}
+	}
+
+	@Test
+	public void adaptivePeriodFollowsTheFrameCost() {
+		SimulatedClock clock = new SimulatedClock(new Random(4));
+		FramePacer pacer = new FramePacer(clock, true);
+		// frames longer than a refresh interval step down to 30 fps
+		long[] slow = run(clock, pacer, 60, 120, i -> 20 * MS);
+		for (int i = 100; i < slow.length; i++) {
+			assertEquals(2 * REFRESH, slow[i] - slow[i - 1], MS / 10);
+			assertEquals(0, clock.refreshPhase(slow[i]), MS / 10);
+		}
+		// and go back to 60 fps when they get short
+		long[] fast = run(clock, pacer, 60, 120, i -> 5 * MS);
+		for (int i = 100; i < fast.length; i++) {
+			assertEquals(REFRESH, fast[i] - fast[i - 1], MS / 10);
+		}
+	}
+
+	private interface Work {
+		long nanos(int frame);
+	}
+
+	/** @return the times the frames were presented */
+	private static long[] run(SimulatedClock clock, FramePacer pacer, int fps, int frames, Work work) {
+		long[] presented = new long[frames];
+		for (int i = 0; i < frames; i++) {
+			clock.time += work.nanos(i);
+			pacer.pace(fps);
+			presented[i] = clock.time;
+		}
+		return presented;
+	}
+
+	/** The limiter replaced by the pacer, sleeping whole milliseconds from the last wake up */
+	private static long[] runOldLimiter(SimulatedClock clock, int fps, int frames) {
+		long[] presented = new long[frames];
+		long lastFrameTime = clock.time / MS;
+		for (int i = 0; i < frames; i++) {
+			clock.time += 2 * MS + clock.random.nextInt(10) * MS;
+			long millis = (1000 / fps) - (clock.time / MS - lastFrameTime);
+			if (millis > 0) {
+				clock.sleep(millis * MS);
+			}
+			lastFrameTime = clock.time / MS;
+			presented[i] = clock.time;
+		}
+		return presented;
+	}
+
+	private static double deviation(long[] presented) {
+		int n = presented.length - 1;
+		double mean = (double) (presented[n] - presented[0]) / n;
+		double sum = 0;
+		for (int i = 1; i <= n; i++) {
+			double d = presented[i] - presented[i - 1] - mean;
+			sum += d * d;
+		}
+		return Math.sqrt(sum / n);
+	}
+
+	private static final class SimulatedClock implements FramePacer.Clock {
+		final Random random;
+		long time = 1_000_000_000L;
+		/** Time of a display refresh */
+		final long vsync = time + 3 * MS;
+
+		SimulatedClock(Random random) {
+			this.random = random;
+		}
+
+		@Override
+		public long nanoTime() {
+			return time;
+		}
+
+		@Override
+		public void sleepUntil(long target, long wait) {
+			// the pacer yields the tail of the wait, it wakes up a few microseconds late
+			time = target + random.nextInt(50_000);
+		}
+
+		/** Thread.sleep wakes up to 1.5 ms late */
+		void sleep(long nanos) {
+			time += nanos + random.nextInt(1_500_000);
+		}
+
+		@Override
+		public long getRefreshInterval() {
+			return REFRESH;
+		}
+
+		@Override
+		public long alignToRefresh(long target) {
+			long k = Math.round((double) (target - vsync) / REFRESH);
+			return vsync + k * REFRESH;
+		}
+
+		long refreshPhase(long t) {
+			long phase = Math.floorMod(t - vsync, REFRESH);
+			return phase > REFRESH / 2 ? phase - REFRESH : phase;
+		}
+	}
+}
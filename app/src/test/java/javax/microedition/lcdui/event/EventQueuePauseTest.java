@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.lcdui.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.microedition.shell.MidletClock;
+
+public class EventQueuePauseTest {
+
+	@After
+	public void tearDown() throws Exception {
+		setPaused(false);
+	}
+
+	@Test(timeout = 10_000)
+	public void listModeHoldsOnlyGameEvents() throws Exception {
+		holdsOnlyGameEvents(new EventQueue(false));
+	}
+
+	@Test(timeout = 10_000)
+	public void ringModeHoldsOnlyGameEvents() throws Exception {
+		holdsOnlyGameEvents(new EventQueue(true));
+	}
+
+	@Test(timeout = 10_000)
+	public void listModeStopsWhilePaused() throws Exception {
+		stopsWhilePaused(new EventQueue(false));
+	}
+
+	@Test(timeout = 10_000)
+	public void ringModeStopsWhilePaused() throws Exception {
+		stopsWhilePaused(new EventQueue(true));
+	}
+
+	private static void holdsOnlyGameEvents(EventQueue queue) throws Exception {
+		setPaused(true);
+		queue.startProcessing();
+		try {
+			CountDownLatch system = new CountDownLatch(1);
+			CountDownLatch game = new CountDownLatch(1);
+			queue.postEvent(new TestEvent(false, system::countDown));
+			assertTrue(system.await(2, TimeUnit.SECONDS));
+
+			queue.postEvent(new TestEvent(true, game::countDown));
+			assertFalse(game.await(200, TimeUnit.MILLISECONDS));
+
+			setPaused(false);
+			assertTrue(game.await(2, TimeUnit.SECONDS));
+		} finally {
+			queue.stopProcessing();
+		}
+	}
+
+	private static void stopsWhilePaused(EventQueue queue) throws Exception {
+		setPaused(true);
+		queue.startProcessing();
+		AtomicInteger runs = new AtomicInteger();
+		queue.postEvent(new TestEvent(true, runs::incrementAndGet));
+		Thread.sleep(100);
+
+		Thread stopper = new Thread(queue::stopProcessing);
+		stopper.start();
+		stopper.join(2000);
+		assertFalse("stopProcessing() blocked", stopper.isAlive());
+		assertEquals(0, runs.get());
+	}
+
+	private static void setPaused(boolean paused) throws Exception {
+		Method method = MidletClock.class.getDeclaredMethod(paused ? "pause" : "resume");
+		method.setAccessible(true);
+		method.invoke(null);
+	}
+
+	private static class TestEvent extends SimpleEvent {
+		private final boolean held;
+		private final Runnable action;
+
+		TestEvent(boolean held, Runnable action) {
+			this.held = held;
+			this.action = action;
+		}
+
+		@Override
+		public void process() {
+			action.run();
+		}
+
+		@Override
+		public boolean heldWhilePaused() {
+			return held;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.lcdui.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class EventQueueRingTest {
+	/**
+	 * A callback that blocks the event thread must not make the producers wait:
+	 * events beyond the ring capacity go to the overflow list and still arrive in order.
+	 */
+	@Test(timeout = 30_000)
+	public void fullRingDoesNotBlockProducer() throws InterruptedException {
+		EventQueue queue = new EventQueue(true);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ArrayList<Integer> processed = new ArrayList<>();
+		int count = 5000;
+		CountDownLatch done = new CountDownLatch(count);
+		queue.startProcessing();
+		try {
+			queue.postEvent(new TestEvent(() -> {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException ignored) {
+				}
+			}));
+			assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+			long start = System.nanoTime();
+			for (int i = 0; i < count; i++) {
+				int n = i;
+				queue.postEvent(new TestEvent(() -> {
+					processed.add(n);
+					done.countDown();
+				}));
+			}
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			assertTrue("posting took " + elapsed + " ms", elapsed < 2000);
+
+			release.countDown();
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			for (int i = 0; i < count; i++) {
+				assertEquals(i, (int) processed.get(i));
+			}
+			assertTrue(queue.isEmpty());
+		} finally {
+			release.countDown();
+			queue.stopProcessing();
+		}
+	}
+
+	private static class TestEvent extends SimpleEvent {
+		private final Runnable action;
+
+		TestEvent(Runnable action) {
+			this.action = action;
+		}
+
+		@Override
+		public void process() {
+			action.run();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.lcdui.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+public class EventRingTest {
+	private static final int PRODUCERS = 4;
+	private static final int EVENTS_PER_PRODUCER = 200_000;
+
+	@Test
+	public void rejectsWhenFullAndReusesSlots() {
+		EventRing ring = new EventRing(4);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(ring.offer(new TestEvent(0, i)));
+		}
+		assertFalse(ring.offer(new TestEvent(0, 4)));
+
+		for (int round = 0; round < 10; round++) {
+			TestEvent first = (TestEvent) ring.poll();
+			assertEquals(round, first.seq);
+			assertTrue(ring.offer(new TestEvent(0, round + 4)));
+			assertFalse(ring.offer(new TestEvent(0, -1)));
+		}
+		assertEquals(10, ring.head());
+		assertEquals(14, ring.tail());
+	}
+
+	@Test
+	public void peekDoesNotConsume() {
+		EventRing ring = new EventRing(2);
+		assertNull(ring.peek());
+		TestEvent event = new TestEvent(0, 0);
+		ring.offer(event);
+		assertSame(event, ring.peek());
+		assertSame(event, ring.poll());
+		assertNull(ring.poll());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void capacityMustBePowerOfTwo() {
+		new EventRing(1000);
+	}
+
+	/**
+	 * Several producers against one consumer on a small ring, so the producers keep hitting
+	 * the full ring: no event may be lost or duplicated and each producer's order is kept.
+	 */
+	@Test(timeout = 60_000)
+	public void concurrentProducersKeepTheirOrder() throws InterruptedException {
+		EventRing ring = new EventRing(64);
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] producers = new Thread[PRODUCERS];
+		for (int p = 0; p < PRODUCERS; p++) {
+			int producer = p;
+			producers[p] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+					TestEvent event = new TestEvent(producer, i);
+					while (!ring.offer(event)) {
+						Thread.yield();
+					}
+				}
+			});
+			producers[p].start();
+		}
+		start.countDown();
+
+		int[] next = new int[PRODUCERS];
+		int total = PRODUCERS * EVENTS_PER_PRODUCER;
+		for (int received = 0; received < total; ) {
+			TestEvent event = (TestEvent) ring.poll();
+			if (event == null) {
+				Thread.yield();
+				continue;
+			}
+			assertEquals("producer " + event.producer, next[event.producer], event.seq);
+			next[event.producer]++;
+			received++;
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		assertNull(ring.poll());
+		for (int p = 0; p < PRODUCERS; p++) {
+			assertEquals(EVENTS_PER_PRODUCER, next[p]);
+		}
+	}
+
+	private static class TestEvent extends SimpleEvent {
+		final int producer;
+		final int seq;
+
+		TestEvent(int producer, int seq) {
+			this.producer = producer;
+			this.seq = seq;
+		}
+
+		@Override
+		public void process() {
+		}
+	}
+}
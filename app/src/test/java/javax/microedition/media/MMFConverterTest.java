@@ -0,0 +1,194 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.media;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/**
+ * Converts a generated corpus of handy phone SMAF sequences, real MMF files are not shipped.
+ */
+public class MMFConverterTest {
+	private static final int CORPUS = 64;
+
+	@Test
+	public void outputIsValidMidi() throws Exception {
+		Random random = new Random(1);
+		for (int i = 0; i < CORPUS; i++) {
+			byte[] midi = new MMFConverter().convertToMDI(generate(random, 50 + random.nextInt(2000), i));
+			checkMidi(midi);
+		}
+	}
+
+	@Test
+	public void convertedFilesAreCached() throws Exception {
+		byte[] mmf = generate(new Random(2), 500, 0);
+		byte[] midi = new MMFConverter().convertToMDI(mmf);
+		assertSame(midi, new MMFConverter().convertToMDI(mmf.clone()));
+	}
+
+	/**
+	 * Conversion throughput and allocation without the cache, each file of the corpus
+	 * is converted once per round with a different tag. Not a precise benchmark.
+	 */
+	@Test
+	public void conversionBenchmark() throws Exception {
+		Random random = new Random(3);
+		int rounds = 20;
+		byte[][] corpus = new byte[CORPUS * rounds][];
+		long inputBytes = 0;
+		for (int i = 0; i < corpus.length; i++) {
+			corpus[i] = generate(random, 200 + random.nextInt(4000), 1000 + i);
+			inputBytes += corpus[i].length;
+		}
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		boolean allocation = bean instanceof com.sun.management.ThreadMXBean;
+		long id = Thread.currentThread().getId();
+		long allocatedStart = allocation ? ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(id) : 0;
+		long outputBytes = 0;
+		long start = System.nanoTime();
+		for (byte[] mmf : corpus) {
+			outputBytes += new MMFConverter().convertToMDI(mmf).length;
+		}
+		long time = System.nanoTime() - start;
+		long allocated = allocation
+				? ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(id) - allocatedStart : -1;
+		System.out.printf("%d files, %.1f MB/s of MMF, %d KB in, %d KB out, %d KB allocated%n",
+				corpus.length, inputBytes * 1e3 / time, inputBytes / 1024, outputBytes / 1024, allocated / 1024);
+
+		start = System.nanoTime();
+		for (byte[] mmf : corpus) {
+			new MMFConverter().convertToMDI(mmf);
+		}
+		System.out.printf("cached: %.1f MB/s of MMF%n", inputBytes * 1e3 / (System.nanoTime() - start));
+	}
+
+	/** Checks the header, the track length and that every note-on has its note-off */
+	private static void checkMidi(byte[] midi) {
+		assertEquals("MThd", new String(midi, 0, 4));
+		assertEquals("MTrk", new String(midi, 14, 4));
+		int length = (midi[18] & 0xFF) << 24 | (midi[19] & 0xFF) << 16 | (midi[20] & 0xFF) << 8 | midi[21] & 0xFF;
+		assertEquals(midi.length - 22, length);
+		int[] playing = new int[16 * 128];
+		int pos = 22;
+		boolean ended = false;
+		while (pos < midi.length) {
+			int c;
+			do {
+				c = midi[pos++] & 0xFF;
+			} while ((c & 0x80) != 0);
+			int status = midi[pos++] & 0xFF;
+			if (status == 0xFF) {
+				int type = midi[pos++];
+				ended = type == 0x2F;
+				pos += midi[pos] + 1;
+			} else if ((status & 0xF0) == 0xC0) {
+				pos++;
+			} else {
+				int note = (status & 0x0F) << 7 | midi[pos];
+				if ((status & 0xF0) == 0x90) {
+					playing[note]++;
+				} else {
+					assertEquals(0x80, status & 0xF0);
+					assertTrue(playing[note]-- > 0);
+				}
+				pos += 2;
+			}
+		}
+		assertTrue(ended);
+		for (int count : playing) {
+			assertEquals(0, count);
+		}
+	}
+
+	/** A handy phone sequence of random notes, program changes, controls and NOPs */
+	private static byte[] generate(Random random, int events, int tag) throws IOException {
+		ByteArrayOutputStream seq = new ByteArrayOutputStream();
+		for (int i = 0; i < events; i++) {
+			writeValue(seq, random.nextInt(3) == 0 ? 0 : random.nextInt(200));
+			switch (random.nextInt(6)) {
+				case 0:
+				case 1:
+					seq.write(0x90 | random.nextInt(4));
+					seq.write(40 + random.nextInt(40));
+					seq.write(random.nextInt(127));
+					writeValue(seq, random.nextInt(300));
+					break;
+				case 2:
+					seq.write(0x80 | random.nextInt(4));
+					seq.write(40 + random.nextInt(40));
+					writeValue(seq, random.nextInt(300));
+					break;
+				case 3:
+					seq.write(0xC0 | random.nextInt(4));
+					seq.write(random.nextInt(127));
+					break;
+				case 4:
+					seq.write(0xB0);
+					seq.write(7);
+					seq.write(100);
+					break;
+				default:
+					seq.write(0xFF);
+					seq.write(0);
+			}
+		}
+		seq.write(0);
+		seq.write(0xFF);
+		seq.write(0x2F);
+		seq.write(0);
+		byte[] sequence = seq.toByteArray();
+
+		ByteArrayOutputStream mtr = new ByteArrayOutputStream();
+		DataOutputStream track = new DataOutputStream(mtr);
+		// handy phone format, time bases of 2 ms
+		track.write(new byte[]{MMFConverter.FORMAT_TYPE_HANDY_PHONE, 0, 2, 2, 0, 0});
+		track.writeBytes("Mtsq");
+		track.writeInt(sequence.length);
+		track.write(sequence);
+
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(file);
+		out.writeBytes("MMMD");
+		out.writeInt(0);
+		out.writeBytes("CNTI");
+		out.writeInt(4);
+		out.writeInt(tag);
+		out.writeBytes("OPDA");
+		out.writeInt(0);
+		out.writeBytes("MTR");
+		out.write(0);
+		out.writeInt(mtr.size());
+		mtr.writeTo(out);
+		return file.toByteArray();
+	}
+
+	private static void writeValue(ByteArrayOutputStream out, int value) {
+		if (value >= 128) {
+			out.write(0x80 | value >> 7);
+		}
+		out.write(value & 0x7F);
+	}
+}
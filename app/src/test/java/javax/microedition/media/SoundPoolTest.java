@@ -0,0 +1,231 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.media;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.microedition.media.protocol.DataSource;
+import javax.microedition.media.protocol.SourceStream;
+
+/**
+ * Decoding and sharing of pooled clips. The mixing latency and the thread count of
+ * the playback need an AudioTrack, they are not measured here.
+ */
+public class SoundPoolTest {
+	/** Unused clips kept by the pool, set before the pool is loaded */
+	private static final int POOL_BYTES = 64 * 1024;
+
+	private static File dir;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		System.setProperty("mmapi.soundpool.size", String.valueOf(POOL_BYTES));
+		dir = Files.createTempDirectory("soundpool").toFile();
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void decodes16BitStereo() throws IOException {
+		byte[] data = {0x01, 0x00, (byte) 0xFF, (byte) 0xFF, 0x00, (byte) 0x80, (byte) 0xFF, 0x7F};
+		SoundPool.Clip clip = SoundPool.acquire(source(writeWav("stereo16", 1, 2, 16, 22050, data)));
+		assertNotNull(clip);
+		assertEquals(2, clip.channels);
+		assertEquals(22050, clip.sampleRate);
+		assertEquals(2, clip.frames);
+		assertArrayEquals(new short[]{1, -1, Short.MIN_VALUE, Short.MAX_VALUE}, clip.samples);
+		SoundPool.release(clip);
+	}
+
+	@Test
+	public void decodes8BitMono() throws IOException {
+		byte[] data = {(byte) 0x80, 0x00, (byte) 0xFF, 0x40, 0x01};
+		SoundPool.Clip clip = SoundPool.acquire(source(writeWav("mono8", 1, 1, 8, 8000, data)));
+		assertNotNull(clip);
+		assertEquals(1, clip.channels);
+		assertEquals(5, clip.frames);
+		assertArrayEquals(new short[]{0, Short.MIN_VALUE, 127 << 8, -64 << 8, -127 << 8}, clip.samples);
+		assertEquals(625, clip.getDuration());
+		SoundPool.release(clip);
+	}
+
+	@Test
+	public void unsupportedFilesAreNotPooled() throws IOException {
+		assertNull(SoundPool.acquire(source(writeWav("float", 3, 1, 32, 44100, new byte[64]))));
+		assertNull(SoundPool.acquire(source(writeWav("24bit", 1, 2, 24, 44100, new byte[60]))));
+		assertNull(SoundPool.acquire(source(writeWav("long", 1, 2, 16, 44100, new byte[1024 * 1024]))));
+
+		File midi = new File(dir, "tune.mid");
+		try (FileOutputStream out = new FileOutputStream(midi)) {
+			out.write("MThd".getBytes());
+			out.write(new byte[60]);
+		}
+		assertNull(SoundPool.acquire(source(midi)));
+	}
+
+	@Test
+	public void playersShareTheClip() throws IOException {
+		File file = writeWav("shared", 1, 1, 16, 44100, new byte[2000]);
+		SoundPool.Clip first = SoundPool.acquire(source(file));
+		SoundPool.Clip second = SoundPool.acquire(source(file));
+		assertSame(first, second);
+		assertEquals(2, first.refCount);
+		SoundPool.release(second);
+		assertEquals(1, first.refCount);
+		SoundPool.release(first);
+		assertEquals(0, first.refCount);
+		// unused but within the budget, kept by the pool
+		assertSame(first, SoundPool.acquire(source(file)));
+		SoundPool.release(first);
+	}
+
+	@Test
+	public void unusedClipsAreEvictedOverBudget() throws IOException {
+		// each clip takes 3/8 of the budget
+		byte[] data = new byte[POOL_BYTES * 3 / 8];
+		File a = writeWav("a", 1, 1, 16, 44100, data);
+		File b = writeWav("b", 1, 1, 16, 44100, data);
+		File c = writeWav("c", 1, 1, 16, 44100, data);
+		SoundPool.Clip clipA = SoundPool.acquire(source(a));
+		SoundPool.Clip clipB = SoundPool.acquire(source(b));
+		SoundPool.Clip clipC = SoundPool.acquire(source(c));
+		SoundPool.release(clipA);
+		SoundPool.release(clipB);
+		// a clip in use is never evicted, the least recently used unused one goes first
+		SoundPool.release(clipC);
+		SoundPool.Clip againA = SoundPool.acquire(source(a));
+		assertNotSame(clipA, againA);
+		SoundPool.Clip againC = SoundPool.acquire(source(c));
+		assertSame(clipC, againC);
+		SoundPool.release(againA);
+		SoundPool.release(againC);
+	}
+
+	/**
+	 * Time to get a one second clip decoded from the file and from the pool,
+	 * the first is paid by every prepare without the pool. Not a precise benchmark.
+	 */
+	@Test
+	public void acquireBenchmark() throws IOException {
+		int files = 20;
+		DataSource[] sources = new DataSource[files];
+		for (int i = 0; i < files; i++) {
+			sources[i] = source(writeWav("bench" + i, 1, 2, 16, 22050, new byte[22050 * 4]));
+		}
+		long start = System.nanoTime();
+		SoundPool.Clip[] clips = new SoundPool.Clip[files];
+		for (int i = 0; i < files; i++) {
+			clips[i] = SoundPool.acquire(sources[i]);
+		}
+		long decode = System.nanoTime() - start;
+
+		int rounds = 1000;
+		start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			for (int i = 0; i < files; i++) {
+				SoundPool.release(SoundPool.acquire(sources[i]));
+			}
+		}
+		long pooled = System.nanoTime() - start;
+		for (SoundPool.Clip clip : clips) {
+			SoundPool.release(clip);
+		}
+		System.out.printf("1 s clip: decoded in %.0f us, from the pool in %.2f us%n",
+				decode / 1e3 / files, pooled / 1e3 / files / rounds);
+	}
+
+	private static File writeWav(String name, int format, int channels, int bits, int sampleRate,
+								 byte[] data) throws IOException {
+		File file = new File(dir, name + ".wav");
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeBytes("RIFF");
+			out.writeInt(Integer.reverseBytes(36 + 10 + data.length));
+			out.writeBytes("WAVE");
+			// odd-sized chunk before the format, skipped with its pad byte
+			out.writeBytes("LIST");
+			out.writeInt(Integer.reverseBytes(1));
+			out.writeShort(0);
+			out.writeBytes("fmt ");
+			out.writeInt(Integer.reverseBytes(16));
+			out.writeShort(Short.reverseBytes((short) format));
+			out.writeShort(Short.reverseBytes((short) channels));
+			out.writeInt(Integer.reverseBytes(sampleRate));
+			out.writeInt(Integer.reverseBytes(sampleRate * channels * bits / 8));
+			out.writeShort(Short.reverseBytes((short) (channels * bits / 8)));
+			out.writeShort(Short.reverseBytes((short) bits));
+			out.writeBytes("data");
+			out.writeInt(Integer.reverseBytes(data.length));
+			out.write(data);
+		}
+		return file;
+	}
+
+	private static DataSource source(File file) {
+		return new DataSource(file.getAbsolutePath()) {
+			@Override
+			public String getContentType() {
+				return "audio/wav";
+			}
+
+			@Override
+			public void connect() {}
+
+			@Override
+			public void disconnect() {}
+
+			@Override
+			public void start() {}
+
+			@Override
+			public void stop() {}
+
+			@Override
+			public SourceStream[] getStreams() {
+				return new SourceStream[0];
+			}
+
+			@Override
+			public Control[] getControls() {
+				return new Control[0];
+			}
+
+			@Override
+			public Control getControl(String control) {
+				return null;
+			}
+		};
+	}
+}
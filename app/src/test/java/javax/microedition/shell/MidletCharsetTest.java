@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+
+public class MidletCharsetTest {
+
+	@BeforeClass
+	public static void setEncoding() {
+		// read once, when the class is loaded
+		System.setProperty("microedition.encoding", "Cp1251");
+	}
+
+	@Test
+	public void propertyIsResolved() {
+		assertEquals(Charset.forName("windows-1251"), MidletCharset.CHARSET);
+		assertEquals("windows-1251", MidletCharset.NAME);
+	}
+
+	/**
+	 * {@code new String(bytes)} of the MIDlet code as converted before, with the property
+	 * looked up and the charset resolved by name, and now with the cached charset.
+	 * Not a precise benchmark, the results are only printed.
+	 */
+	@Test
+	public void newStringBenchmark() throws UnsupportedEncodingException {
+		byte[] bytes = new byte[32];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) (0xC0 + i);
+		}
+		int rounds = 1_000_000;
+		int length = 0;
+		for (int warmup = 0; warmup < 3; warmup++) {
+			length += byProperty(bytes, rounds / 10) + byCharset(bytes, rounds / 10);
+		}
+		long start = System.nanoTime();
+		length += byProperty(bytes, rounds);
+		long property = System.nanoTime() - start;
+		start = System.nanoTime();
+		length += byCharset(bytes, rounds);
+		long charset = System.nanoTime() - start;
+		System.out.printf("new String(bytes): by property %.1f M/s, cached charset %.1f M/s (%d)%n",
+				rounds * 1e3 / property, rounds * 1e3 / charset, length);
+	}
+
+	private static int byProperty(byte[] bytes, int rounds) throws UnsupportedEncodingException {
+		int length = 0;
+		for (int i = 0; i < rounds; i++) {
+			length += new String(bytes, System.getProperty("microedition.encoding")).length();
+		}
+		return length;
+	}
+
+	private static int byCharset(byte[] bytes, int rounds) {
+		int length = 0;
+		for (int i = 0; i < rounds; i++) {
+			length += new String(bytes, MidletCharset.CHARSET).length();
+		}
+		return length;
+	}
+}
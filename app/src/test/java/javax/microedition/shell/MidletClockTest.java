@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class MidletClockTest {
+
+	@After
+	public void tearDown() {
+		MidletClock.resume();
+	}
+
+	@Test
+	public void clockStopsWhilePaused() throws InterruptedException {
+		MidletClock.pause();
+		long paused = MidletClock.currentTimeMillis();
+		Thread.sleep(100);
+		assertEquals(paused, MidletClock.currentTimeMillis());
+
+		MidletClock.resume();
+		Thread.sleep(50);
+		long elapsed = MidletClock.currentTimeMillis() - paused;
+		assertTrue("elapsed " + elapsed, elapsed >= 50 && elapsed < 100);
+		assertTrue(System.currentTimeMillis() - MidletClock.currentTimeMillis() >= 100);
+	}
+
+	@Test(timeout = 10_000)
+	public void sleepDoesNotAdvanceDuringPause() throws InterruptedException {
+		CountDownLatch woke = new CountDownLatch(1);
+		Thread sleeper = new Thread(() -> {
+			try {
+				MidletClock.sleep(100);
+				woke.countDown();
+			} catch (InterruptedException ignored) {
+			}
+		});
+		MidletClock.pause();
+		sleeper.start();
+		assertFalse(woke.await(300, TimeUnit.MILLISECONDS));
+
+		MidletClock.resume();
+		assertTrue(woke.await(2, TimeUnit.SECONDS));
+	}
+
+	@Test(timeout = 10_000)
+	public void awaitRunningIsInterruptible() throws InterruptedException {
+		MidletClock.pause();
+		boolean[] interrupted = new boolean[1];
+		Thread waiter = new Thread(() -> {
+			try {
+				MidletClock.awaitRunning();
+			} catch (InterruptedException e) {
+				interrupted[0] = true;
+			}
+		});
+		waiter.start();
+		waiter.join(100);
+		assertTrue(waiter.isAlive());
+		waiter.interrupt();
+		waiter.join();
+		assertTrue(interrupted[0]);
+	}
+
+	@Test
+	public void calendarUsesVirtualTime() throws InterruptedException {
+		MidletClock.pause();
+		Thread.sleep(100);
+		long now = MidletClock.currentTimeMillis();
+		Calendar calendar = MidletClock.getCalendar();
+		assertEquals(now, calendar.getTimeInMillis());
+	}
+}
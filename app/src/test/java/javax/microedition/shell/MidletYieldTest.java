@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+public class MidletYieldTest {
+	private static final String[] NAMES = {"adaptive", "yield", "sleep"};
+	private static final long RUN_NANOS = 300_000_000L;
+
+	@Test(expected = InterruptedException.class)
+	public void interruptedThreadThrows() throws InterruptedException {
+		Thread.currentThread().interrupt();
+		MidletYield.yieldThread(MidletYield.ADAPTIVE);
+	}
+
+	/**
+	 * A busy-wait loop doing nothing but yield: iterations per second and the CPU time
+	 * of the looping thread for each policy. Not a precise benchmark, the adaptive policy
+	 * must only run well above the 1 ms sleep.
+	 */
+	@Test
+	public void idleLoopBenchmark() throws InterruptedException {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		double[] rates = new double[NAMES.length];
+		for (int policy = 0; policy < NAMES.length; policy++) {
+			long cpuStart = bean.getCurrentThreadCpuTime();
+			long start = System.nanoTime();
+			long end = start + RUN_NANOS;
+			int iterations = 0;
+			long now;
+			while ((now = System.nanoTime()) < end) {
+				MidletYield.yieldThread(policy);
+				iterations++;
+			}
+			long cpu = bean.getCurrentThreadCpuTime() - cpuStart;
+			rates[policy] = iterations * 1e9 / (now - start);
+			System.out.printf("%-8s %9.0f iterations/s, %5.1f%% CPU%n",
+					NAMES[policy], rates[policy], cpu * 100.0 / (now - start));
+		}
+		assertTrue(rates[MidletYield.ADAPTIVE] > rates[MidletYield.SLEEP] * 2);
+	}
+
+	/** Delay between a flag set by another thread and the waiting loop seeing it */
+	@Test
+	public void wakeUpLatencyBenchmark() throws InterruptedException {
+		for (int policy = 0; policy < NAMES.length; policy++) {
+			int rounds = 100;
+			long total = 0;
+			for (int i = 0; i < rounds; i++) {
+				Flag flag = new Flag();
+				Thread setter = new Thread(() -> {
+					try {
+						Thread.sleep(2);
+					} catch (InterruptedException ignored) {
+					}
+					flag.setTime = System.nanoTime();
+					flag.set = true;
+				});
+				setter.start();
+				while (!flag.set) {
+					MidletYield.yieldThread(policy);
+				}
+				total += System.nanoTime() - flag.setTime;
+				setter.join();
+			}
+			System.out.printf("%-8s %6.1f us wake-up latency%n", NAMES[policy], total / rounds / 1000.0);
+		}
+	}
+
+	private static final class Flag {
+		volatile long setTime;
+		volatile boolean set;
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell.custom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The wheel is driven by the test with explicit times, without its thread.
+ */
+public class TimerWheelTest {
+	/* 64 ^ 3, the end of the third level */
+	private static final long LEVEL_3 = 1L << 18;
+
+	@Test
+	public void tasksCascadeToTheirDeadline() {
+		long start = 1_000_003;
+		long[] delays = {1, 63, 64, 65, 100, 4095, 4096, 4097, 5000, LEVEL_3 - 1, LEVEL_3, 300_000,
+				// longer than the wheel, placed again on cascade
+				(1L << 24) + 7};
+		TimerWheel wheel = new TimerWheel(start);
+		TestTask[] tasks = new TestTask[delays.length];
+		for (int i = 0; i < delays.length; i++) {
+			tasks[i] = new TestTask();
+			wheel.add(tasks[i], start + delays[i]);
+		}
+		ArrayList<TimerTask> due = new ArrayList<>();
+		long end = start + delays[delays.length - 1];
+		for (long now = start + 1; now <= end; now++) {
+			wheel.advance(now, due);
+			for (TimerTask task : due) {
+				((TestTask) task).expired = now;
+			}
+			due.clear();
+		}
+		for (int i = 0; i < delays.length; i++) {
+			assertEquals("delay " + delays[i], start + delays[i], tasks[i].expired);
+		}
+	}
+
+	@Test
+	public void slotsWrapAround() {
+		// every level is a few ticks before the end of its slots
+		long start = (1L << 24) - 3;
+		TimerWheel wheel = new TimerWheel(start);
+		TestTask[] tasks = new TestTask[8];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new TestTask();
+			wheel.add(tasks[i], start + (1L << (3 * i)));
+		}
+		runByExpiration(wheel, start);
+		for (int i = 0; i < tasks.length; i++) {
+			assertEquals("delay " + (1L << (3 * i)), start + (1L << (3 * i)), tasks[i].expired);
+		}
+	}
+
+	@Test
+	public void randomDeadlines() {
+		Random random = new Random(3);
+		long start = random.nextInt(Integer.MAX_VALUE);
+		TimerWheel wheel = new TimerWheel(start);
+		TestTask[] tasks = new TestTask[2000];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new TestTask();
+			long delay = random.nextBoolean() ? random.nextInt(5000) : random.nextInt(1 << 22);
+			tasks[i].deadline = start + delay;
+			wheel.add(tasks[i], tasks[i].deadline);
+		}
+		runByExpiration(wheel, start);
+		for (TestTask task : tasks) {
+			long expected = Math.max(task.deadline, start + 1);
+			assertEquals(expected, task.expired);
+		}
+	}
+
+	@Test
+	public void lateAdvanceExpiresAllDue() {
+		long start = 500;
+		TimerWheel wheel = new TimerWheel(start);
+		TestTask near = new TestTask();
+		TestTask far = new TestTask();
+		TestTask later = new TestTask();
+		wheel.add(near, start + 10);
+		wheel.add(far, start + 70_000);
+		wheel.add(later, start + 70_001);
+		ArrayList<TimerTask> due = new ArrayList<>();
+		// the wheel thread woke up late
+		wheel.advance(start + 70_000, due);
+		assertEquals(2, due.size());
+		assertTrue(due.contains(near) && due.contains(far));
+		due.clear();
+		wheel.advance(start + 70_001, due);
+		assertEquals(1, due.size());
+		assertTrue(due.contains(later));
+	}
+
+	@Test(timeout = 10_000)
+	public void timerTasksRunOnOneThread() throws InterruptedException {
+		Timer timer = new Timer();
+		CountDownLatch done = new CountDownLatch(5);
+		Thread[] threads = new Thread[5];
+		timer.schedule(new TimerTask() {
+			int runs;
+
+			@Override
+			public void run() {
+				threads[runs++] = Thread.currentThread();
+				done.countDown();
+			}
+		}, 0, 5);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		timer.cancel();
+		for (Thread thread : threads) {
+			assertEquals(threads[0], thread);
+		}
+	}
+
+	@Test(timeout = 10_000)
+	public void timerRunsAfterError() throws InterruptedException {
+		Timer timer = new Timer();
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				throw new StackOverflowError();
+			}
+		}, 0);
+		// one timer per worker thread, the failed one included
+		Timer[] timers = new Timer[8];
+		CountDownLatch done = new CountDownLatch(timers.length);
+		for (int i = 0; i < timers.length; i++) {
+			timers[i] = new Timer();
+			timers[i].schedule(new TimerTask() {
+				@Override
+				public void run() {
+					done.countDown();
+				}
+			}, 20);
+		}
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		for (Timer t : timers) {
+			t.cancel();
+		}
+	}
+
+	/* Jumps from one expiration to the next, as the wheel thread does */
+	private static void runByExpiration(TimerWheel wheel, long start) {
+		ArrayList<TimerTask> due = new ArrayList<>();
+		long now = start;
+		while (true) {
+			long next = wheel.nextExpiration();
+			if (next == Long.MAX_VALUE) {
+				return;
+			}
+			assertTrue(next > now);
+			now = next;
+			wheel.advance(now, due);
+			for (TimerTask task : due) {
+				((TestTask) task).expired = now;
+			}
+			due.clear();
+		}
+	}
+
+	private static class TestTask extends TimerTask {
+		long expired;
+
+		@Override
+		public void run() {
+		}
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package javax.microedition.shell.custom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Vector;
+
+/**
+ * The unsynchronized collections must behave as the CLDC ones: the same random
+ * operations are applied to both and the contents are compared.
+ */
+public class UnsyncCollectionsTest {
+
+	@BeforeClass
+	public static void enable() {
+		// read once, when the class is loaded
+		System.setProperty("midlet.collections.unsync", "true");
+		assertTrue(UnsyncVector.ENABLED);
+	}
+
+	@Test
+	public void vectorMatchesVector() {
+		Random random = new Random(1);
+		Vector<Integer> expected = new Vector<>();
+		UnsyncVector<Integer> actual = new UnsyncVector<>(2, 3);
+		for (int i = 0; i < 20_000; i++) {
+			int size = expected.size();
+			int value = random.nextInt(100);
+			switch (random.nextInt(8)) {
+				case 0:
+				case 1:
+					expected.addElement(value);
+					actual.addElement(value);
+					break;
+				case 2:
+					int at = random.nextInt(size + 1);
+					expected.insertElementAt(value, at);
+					actual.insertElementAt(value, at);
+					break;
+				case 3:
+					if (size > 0) {
+						int index = random.nextInt(size);
+						expected.removeElementAt(index);
+						actual.removeElementAt(index);
+					}
+					break;
+				case 4:
+					assertEquals(expected.removeElement(value), actual.removeElement(value));
+					break;
+				case 5:
+					if (size > 0) {
+						int index = random.nextInt(size);
+						expected.setElementAt(value, index);
+						actual.setElementAt(value, index);
+					}
+					break;
+				case 6:
+					assertEquals(expected.indexOf(value), actual.indexOf(value));
+					assertEquals(expected.lastIndexOf(value), actual.lastIndexOf(value));
+					break;
+				case 7:
+					if (random.nextInt(50) == 0) {
+						expected.removeAllElements();
+						actual.removeAllElements();
+					}
+					break;
+			}
+			assertEquals(expected.size(), actual.size());
+		}
+		assertEquals(expected, actual);
+		Enumeration<Integer> e = actual.elements();
+		for (Integer value : expected) {
+			assertEquals(value, e.nextElement());
+		}
+		assertFalse(e.hasMoreElements());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void vectorMutatorsInvalidateIterators() {
+		UnsyncVector<Integer> vector = new UnsyncVector<>();
+		vector.addElement(1);
+		vector.addElement(2);
+		Iterator<Integer> iterator = vector.iterator();
+		iterator.next();
+		vector.removeElementAt(0);
+		iterator.next();
+	}
+
+	@Test
+	public void vectorSetKeepsIterators() {
+		// Vector.setElementAt is not a structural change
+		UnsyncVector<Integer> vector = new UnsyncVector<>();
+		vector.addElement(1);
+		vector.addElement(2);
+		Iterator<Integer> iterator = vector.iterator();
+		iterator.next();
+		vector.setElementAt(3, 1);
+		assertEquals(3, (int) iterator.next());
+	}
+
+	@Test
+	public void hashtableMatchesHashtable() {
+		Random random = new Random(2);
+		Hashtable<Integer, Integer> expected = new Hashtable<>();
+		UnsyncHashtable<Integer, Integer> actual = new UnsyncHashtable<>();
+		for (int i = 0; i < 20_000; i++) {
+			Integer key = random.nextInt(200);
+			Integer value = random.nextInt();
+			switch (random.nextInt(5)) {
+				case 0:
+				case 1:
+					assertEquals(expected.put(key, value), actual.put(key, value));
+					break;
+				case 2:
+					assertEquals(expected.remove(key), actual.remove(key));
+					break;
+				case 3:
+					assertEquals(expected.get(key), actual.get(key));
+					assertEquals(expected.containsKey(key), actual.containsKey(key));
+					break;
+				case 4:
+					if (random.nextInt(100) == 0) {
+						expected.clear();
+						actual.clear();
+					}
+					break;
+			}
+			assertEquals(expected.size(), actual.size());
+		}
+		assertEquals(expected, actual);
+		assertEquals(new HashSet<>(expected.values()), collect(actual.elements()));
+	}
+
+	@Test
+	public void removeWhileEnumerating() {
+		Hashtable<Integer, Integer> expected = new Hashtable<>();
+		UnsyncHashtable<Integer, Integer> actual = new UnsyncHashtable<>();
+		for (int i = 0; i < 100; i++) {
+			expected.put(i, i);
+			actual.put(i, i);
+		}
+		HashSet<Integer> seen = new HashSet<>();
+		for (Enumeration<Integer> e = actual.keys(); e.hasMoreElements(); ) {
+			Integer key = e.nextElement();
+			seen.add(key);
+			if (key % 2 == 0) {
+				actual.remove(key);
+				expected.remove(key);
+			}
+		}
+		assertEquals(100, seen.size());
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void changeWhileEnumerating() {
+		UnsyncHashtable<Integer, Integer> table = new UnsyncHashtable<>();
+		for (int i = 0; i < 100; i++) {
+			table.put(i, i);
+		}
+		Enumeration<Integer> keys = table.keys();
+		Enumeration<Integer> values = table.elements();
+		HashSet<Integer> seen = new HashSet<>();
+		for (int i = 0; i < 50; i++) {
+			seen.add(keys.nextElement());
+			values.nextElement();
+		}
+		// removes the keys not enumerated yet and adds new ones
+		for (int i = 0; i < 100; i++) {
+			if (!seen.contains(i) && i % 2 == 0) {
+				table.remove(i);
+			}
+		}
+		table.put(1000, 1000);
+
+		HashSet<Integer> rest = collect(keys);
+		for (Integer key : rest) {
+			assertFalse(seen.contains(key));
+			assertTrue(table.containsKey(key));
+		}
+		assertEquals(25, rest.size());
+		assertEquals(25, collect(values).size());
+	}
+
+	@Test
+	public void abandonedEnumerationsAreDetached() {
+		UnsyncHashtable<Integer, Integer> table = new UnsyncHashtable<>();
+		for (int i = 0; i < 10; i++) {
+			table.put(i, i);
+		}
+		ArrayList<Enumeration<Integer>> enumerations = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			Enumeration<Integer> e = table.keys();
+			e.nextElement();
+			enumerations.add(e);
+		}
+		table.remove(5);
+		table.put(20, 20);
+		for (Enumeration<Integer> e : enumerations) {
+			HashSet<Integer> rest = collect(e);
+			assertEquals(8, rest.size());
+			assertFalse(rest.contains(5));
+		}
+	}
+
+	/** Not a precise benchmark, only to catch a regression of the unsynchronized path */
+	@Test
+	public void benchmark() {
+		int rounds = 200;
+		long vector = 0, unsyncVector = 0, hashtable = 0, unsyncHashtable = 0;
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			fillVector(new Vector<>());
+			vector += System.nanoTime() - start;
+			start = System.nanoTime();
+			fillVector(new UnsyncVector<>());
+			unsyncVector += System.nanoTime() - start;
+			start = System.nanoTime();
+			fillHashtable(new Hashtable<>());
+			hashtable += System.nanoTime() - start;
+			start = System.nanoTime();
+			fillHashtable(new UnsyncHashtable<>());
+			unsyncHashtable += System.nanoTime() - start;
+		}
+		System.out.printf("Vector %d us, UnsyncVector %d us, Hashtable %d us, UnsyncHashtable %d us%n",
+				vector / rounds / 1000, unsyncVector / rounds / 1000,
+				hashtable / rounds / 1000, unsyncHashtable / rounds / 1000);
+	}
+
+	private static int fillVector(Vector<Integer> vector) {
+		int sum = 0;
+		for (int i = 0; i < 10_000; i++) {
+			vector.addElement(i);
+		}
+		for (int i = 0; i < vector.size(); i++) {
+			sum += vector.elementAt(i);
+		}
+		while (!vector.isEmpty()) {
+			vector.removeElementAt(vector.size() - 1);
+		}
+		return sum;
+	}
+
+	private static int fillHashtable(Hashtable<Integer, Integer> table) {
+		int sum = 0;
+		for (int i = 0; i < 10_000; i++) {
+			table.put(i, i);
+		}
+		for (Enumeration<Integer> e = table.elements(); e.hasMoreElements(); ) {
+			sum += e.nextElement();
+		}
+		for (int i = 0; i < 10_000; i++) {
+			table.remove(i);
+		}
+		return sum;
+	}
+
+	private static <T> HashSet<T> collect(Enumeration<T> e) {
+		HashSet<T> set = new HashSet<>();
+		while (e.hasMoreElements()) {
+			set.add(e.nextElement());
+		}
+		return set;
+	}
+}
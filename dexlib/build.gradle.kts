@@ -30,4 +30,6 @@ dependencies {
     implementation(fileTree("dir" to "libs", "include" to listOf("*.jar")))
     api("net.lingala.zip4j:zip4j:2.11.5")
     implementation("org.ow2.asm:asm:9.6")
+
+    testImplementation("junit:junit:4.13.2")
 }
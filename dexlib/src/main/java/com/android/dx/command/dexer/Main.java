@@ -38,8 +38,10 @@ import com.android.dx.rop.annotation.Annotations;
 import com.android.dx.rop.annotation.AnnotationsList;
 import com.android.dx.rop.cst.CstNat;
 import com.android.dx.rop.cst.CstString;
+import com.android.dx.ssa.Optimizer;
 
 import org.microemu.android.asm.AndroidProducer;
+import org.microemu.android.asm.ThreadConfinement;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
@@ -53,6 +55,7 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -168,6 +171,12 @@ public class Main {
     /** true if any files are successfully processed */
     private volatile boolean anyFilesProcessed;
 
+    /**
+     * Classes of the input running on a single thread, resolved before the translation,
+     * {@code null} unless {@code --unsync-collections} is given
+     */
+    private ThreadConfinement threadConfinement;
+
     /** class files older than this must be defined in the target dex file. */
     private long minimumFileAge = 0;
 
@@ -297,6 +306,10 @@ public class Main {
         String[] fileNames = args.fileNames;
         Arrays.sort(fileNames);
 
+        if (args.unsyncCollections) {
+            analyzeThreadConfinement(fileNames);
+        }
+
         // translate classes in parallel
         classTranslatorPool = new ThreadPoolExecutor(args.numThreads,
                args.numThreads, 0, TimeUnit.SECONDS,
@@ -373,6 +386,26 @@ public class Main {
         return true;
     }
 
+    /**
+     * Reads all classes of the input before any of them is instrumented,
+     * the analysis needs the whole class graph.
+     */
+    private void analyzeThreadConfinement(String[] fileNames) {
+        ThreadConfinement confinement = new ThreadConfinement();
+        ConfinementConsumer consumer = new ConfinementConsumer(confinement);
+        for (String fileName : fileNames) {
+            new ClassPathOpener(fileName, true,
+                    path -> path.toLowerCase(Locale.US).endsWith(".class"), consumer).process();
+        }
+        if (consumer.failed) {
+            // a missed class may be the one sharing data between threads
+            threadConfinement = null;
+            return;
+        }
+        confinement.resolve();
+        threadConfinement = confinement;
+    }
+
     private void createDexFile() {
         outputDex = new DexFile(args.dexOptions);
 
@@ -464,7 +497,7 @@ public class Main {
 
         try {
             // modify byte-code with ASM-java
-            bytes = AndroidProducer.instrument(bytes, name, crc);
+            bytes = AndroidProducer.instrument(bytes, name, crc, threadConfinement);
 
             new DirectClassFileConsumer(name, bytes, null).call(
                     new ClassParserTask(name, bytes).call());
@@ -946,6 +979,18 @@ public class Main {
         /** whether to do SSA/register optimization */
         public boolean optimize = true;
 
+        /** Optional optimization steps to run, all of them if {@code null} */
+        public EnumSet<Optimizer.OptionalStep> optimizeSteps = null;
+
+        /** Whether methods failing the optimization are left unoptimized */
+        public boolean optimizeFallback = false;
+
+        /**
+         * Whether the collections allocated by the classes confined to one thread
+         * are replaced with the unsynchronized ones, needs a pass over all classes
+         */
+        public boolean unsyncCollections = false;
+
         /** Filename containg list of methods to optimize */
         public String optimizeListFile = null;
 
@@ -1099,6 +1144,24 @@ public class Main {
                     coreLibrary = true;
                 } else if (parser.isArg("--statistics")) {
                     statistics = true;
+                } else if (parser.isArg("--optimize-steps=")) {
+                    optimize = true;
+                    optimizeSteps = EnumSet.noneOf(Optimizer.OptionalStep.class);
+                    for (String step : parser.getLastValue().split(",")) {
+                        if (step.isEmpty()) {
+                            continue;
+                        }
+                        try {
+                            optimizeSteps.add(Optimizer.OptionalStep.valueOf(step));
+                        } catch (IllegalArgumentException e) {
+                            context.err.println("unknown optimization step: " + step);
+                            throw new UsageException();
+                        }
+                    }
+                } else if (parser.isArg("--optimize-fallback")) {
+                    optimizeFallback = true;
+                } else if (parser.isArg("--unsync-collections")) {
+                    unsyncCollections = true;
                 } else if (parser.isArg("--optimize-list=")) {
                     if (dontOptimizeListFile != null) {
                         context.err.println("--optimize-list and "
@@ -1247,6 +1310,8 @@ public class Main {
             cfOptions.localInfo = localInfo;
             cfOptions.strictNameCheck = strictNameCheck;
             cfOptions.optimize = optimize;
+            cfOptions.optimizeSteps = optimizeSteps;
+            cfOptions.optimizeFallback = optimizeFallback;
             cfOptions.optimizeListFile = optimizeListFile;
             cfOptions.dontOptimizeListFile = dontOptimizeListFile;
             cfOptions.statistics = statistics;
@@ -1263,6 +1328,36 @@ public class Main {
         }
     }
 
+    /**
+     * Callback class passing the classes to the thread confinement analysis.
+     */
+    private static class ConfinementConsumer implements ClassPathOpener.Consumer {
+        private final ThreadConfinement confinement;
+        boolean failed;
+
+        ConfinementConsumer(ThreadConfinement confinement) {
+            this.confinement = confinement;
+        }
+
+        @Override
+        public boolean processFileBytes(String name, long crc, byte[] bytes) {
+            if (name.toLowerCase(Locale.US).endsWith(".class")) {
+                AndroidProducer.analyze(bytes, crc, confinement);
+            }
+            return false;
+        }
+
+        @Override
+        public void onException(Exception ex) {
+            // reported by the translation pass
+            failed = true;
+        }
+
+        @Override
+        public void onProcessArchiveStart(File file) {
+        }
+    }
+
     /**
      * Callback class for processing input file bytes, produced by the
      * ClassPathOpener.
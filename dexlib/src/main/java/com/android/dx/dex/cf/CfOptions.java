@@ -17,7 +17,10 @@
 package com.android.dx.dex.cf;
 
 import com.android.dx.dex.code.PositionList;
+import com.android.dx.ssa.Optimizer;
+
 import java.io.PrintStream;
+import java.util.EnumSet;
 
 /**
  * A class to contain options passed into dex.cf
@@ -35,6 +38,15 @@ public class CfOptions {
     /** whether to do SSA/register optimization */
     public boolean optimize = false;
 
+    /** optional optimization steps to run, all of them if {@code null} */
+    public EnumSet<Optimizer.OptionalStep> optimizeSteps = null;
+
+    /**
+     * whether a method failing the optimization is translated without it
+     * instead of failing the whole compile
+     */
+    public boolean optimizeFallback = false;
+
     /** filename containing list of methods to optimize */
     public String optimizeListFile = null;
 
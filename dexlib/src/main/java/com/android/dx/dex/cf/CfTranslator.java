@@ -299,9 +299,11 @@ public class CfTranslator {
                         }
 
                         nonOptRmeth = rmeth;
-                        rmeth = Optimizer.optimize(rmeth,
-                                paramSize, isStatic, cfOptions.localInfo, advice);
+                        rmeth = optimize(cfOptions, canonicalName, rmeth,
+                                paramSize, isStatic, advice);
+                    }
 
+                    if (nonOptRmeth != null && rmeth != nonOptRmeth) {
                         if (DEBUG) {
                             context.optimizerOptions.compareOptimizerStep(nonOptRmeth,
                                     paramSize, isStatic, cfOptions, advice, rmeth);
@@ -319,10 +321,24 @@ public class CfTranslator {
                         locals = LocalVariableExtractor.extract(rmeth);
                     }
 
-                    code = RopTranslator.translate(rmeth, cfOptions.positionInfo,
-                            locals, paramSize, dexOptions);
+                    try {
+                        code = RopTranslator.translate(rmeth, cfOptions.positionInfo,
+                                locals, paramSize, dexOptions);
+                    } catch (RuntimeException | StackOverflowError ex) {
+                        if (!cfOptions.optimizeFallback || nonOptRmeth == null
+                                || rmeth == nonOptRmeth) {
+                            throw ex;
+                        }
+                        warnFallback(cfOptions, canonicalName, ex);
+                        rmeth = nonOptRmeth;
+                        if (cfOptions.localInfo) {
+                            locals = LocalVariableExtractor.extract(rmeth);
+                        }
+                        code = RopTranslator.translate(rmeth, cfOptions.positionInfo,
+                                locals, paramSize, dexOptions);
+                    }
 
-                    if (cfOptions.statistics && nonOptRmeth != null) {
+                    if (cfOptions.statistics && nonOptRmeth != null && rmeth != nonOptRmeth) {
                         updateDexStatistics(context, cfOptions, dexOptions, rmeth, nonOptRmeth, locals,
                                 paramSize, concrete.getCode().size());
                     }
@@ -376,6 +392,37 @@ public class CfTranslator {
         }
     }
 
+    /**
+     * Runs the selected optimization steps on a method.
+     *
+     * @return the optimized method, or {@code rmeth} itself if the optimizer
+     * failed and the fallback is enabled
+     */
+    private static RopMethod optimize(CfOptions cfOptions, String canonicalName,
+            RopMethod rmeth, int paramSize, boolean isStatic,
+            TranslationAdvice advice) {
+        try {
+            if (cfOptions.optimizeSteps == null) {
+                return Optimizer.optimize(rmeth, paramSize, isStatic,
+                        cfOptions.localInfo, advice);
+            }
+            return Optimizer.optimize(rmeth, paramSize, isStatic,
+                    cfOptions.localInfo, advice, cfOptions.optimizeSteps);
+        } catch (RuntimeException | StackOverflowError ex) {
+            if (!cfOptions.optimizeFallback) {
+                throw ex;
+            }
+            warnFallback(cfOptions, canonicalName, ex);
+            return rmeth;
+        }
+    }
+
+    private static void warnFallback(CfOptions cfOptions, String canonicalName,
+            Throwable ex) {
+        cfOptions.warn.println("warning: " + canonicalName
+                + " is left unoptimized: " + ex);
+    }
+
     /**
      * Helper that updates the dex statistics.
      */
@@ -34,19 +34,25 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 public class AndroidClassVisitor extends ClassVisitor {
+	private final ThreadConfinement confinement;
+	/** True if the code of the class runs on a single thread */
+	private boolean threadConfined;
 
-	AndroidClassVisitor(ClassVisitor cv) {
+	AndroidClassVisitor(ClassVisitor cv, ThreadConfinement confinement) {
 		super(Opcodes.ASM9, cv);
+		this.confinement = confinement;
 	}
 
 	@Override
 	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
 		desc = desc.replace("java/util/Timer", "javax/microedition/shell/custom/Timer");
-		return new AndroidMethodVisitor(super.visitMethod(access, name, desc, signature, exceptions));
+		return new AndroidMethodVisitor(super.visitMethod(access, name, desc, signature, exceptions),
+				threadConfined);
 	}
 
 	@Override
 	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+		threadConfined = confinement != null && confinement.isConfined(name);
 		superName = superName.replace("java/util/Timer", "javax/microedition/shell/custom/Timer");
 		super.visit(version, access, name, signature, superName, interfaces);
 	}
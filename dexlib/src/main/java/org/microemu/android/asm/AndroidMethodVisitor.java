@@ -36,11 +36,19 @@ import org.objectweb.asm.MethodVisitor;
 import java.util.ArrayList;
 
 public class AndroidMethodVisitor extends MethodVisitor {
+	private static final String UNSYNC_VECTOR = "javax/microedition/shell/custom/UnsyncVector";
+	private static final String UNSYNC_HASHTABLE = "javax/microedition/shell/custom/UnsyncHashtable";
+	private static final String MIDLET_CLOCK = "javax/microedition/shell/MidletClock";
 	static boolean USE_PANIC_LOGGING = false;
 	private final ArrayList<Label> exceptionHandlers = new ArrayList<>();
+	/** Allocate collections that may drop the monitors, see UnsyncVector in the app */
+	private final boolean unsyncCollections;
+	/** Collections allocated by NEW and not yet constructed, innermost last */
+	private int pendingVectors, pendingHashtables;
 
-	public AndroidMethodVisitor(MethodVisitor methodVisitor) {
+	public AndroidMethodVisitor(MethodVisitor methodVisitor, boolean unsyncCollections) {
 		super(ASM9, methodVisitor);
+		this.unsyncCollections = unsyncCollections;
 	}
 
 	@Override
@@ -54,6 +62,11 @@ public class AndroidMethodVisitor extends MethodVisitor {
 
 	@Override
 	public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+		// Object.wait(long) is final, the owner may be any class or interface
+		if (opcode != INVOKESTATIC && name.equals("wait") && desc.equals("(J)V")) {
+			mv.visitMethodInsn(INVOKESTATIC, MIDLET_CLOCK, "waitOn", "(Ljava/lang/Object;J)V", false);
+			return;
+		}
 		switch (owner) {
 			case "java/lang/Class":
 				if (name.equals("getResourceAsStream")) {
@@ -64,44 +77,47 @@ public class AndroidMethodVisitor extends MethodVisitor {
 				break;
 			case "java/lang/Thread":
 				if (name.equals("yield")) {
-					mv.visitLdcInsn(1L);
-					mv.visitMethodInsn(opcode, owner, "sleep", "(J)V", false);
+					mv.visitMethodInsn(INVOKESTATIC, "javax/microedition/shell/MidletYield",
+							"yieldThread", "()V", false);
+					return;
+				} else if (opcode == INVOKESTATIC && name.equals("sleep") && desc.equals("(J)V")) {
+					mv.visitMethodInsn(opcode, MIDLET_CLOCK, name, desc, false);
 					return;
 				}
 				break;
 			case "java/lang/String":
-				if (name.equals("<init>") && desc.startsWith("([B") && !desc.endsWith("Ljava/lang/String;)V")) {
-					injectGetPropertyEncoding();
-					String descriptor = new StringBuilder(desc.length() + 18)
+				if (name.equals("<init>") && (desc.equals("([B)V") || desc.equals("([BII)V"))) {
+					injectCharset();
+					String descriptor = new StringBuilder(desc.length() + 26)
 							.append(desc)
-							.insert(desc.length() - 2, "Ljava/lang/String;")
+							.insert(desc.length() - 2, "Ljava/nio/charset/Charset;")
 							.toString();
 					mv.visitMethodInsn(opcode, owner, name, descriptor, itf);
 					return;
 				} else if (name.equals("getBytes"))
 					if (desc.equals("()[B")) {
-						injectGetPropertyEncoding();
-						mv.visitMethodInsn(opcode, owner, name, "(Ljava/lang/String;)[B", itf);
+						injectCharset();
+						mv.visitMethodInsn(opcode, owner, name, "(Ljava/nio/charset/Charset;)[B", itf);
 						return;
 					}
 				break;
 			case "java/io/InputStreamReader":
 				if (name.equals("<init>") && desc.equals("(Ljava/io/InputStream;)V")) {
-					injectGetPropertyEncoding();
-					mv.visitMethodInsn(opcode, owner, name, "(Ljava/io/InputStream;Ljava/lang/String;)V", itf);
+					injectCharset();
+					mv.visitMethodInsn(opcode, owner, name, "(Ljava/io/InputStream;Ljava/nio/charset/Charset;)V", itf);
 					return;
 				}
 				break;
 			case "java/io/OutputStreamWriter":
 				if (name.equals("<init>") && desc.equals("(Ljava/io/OutputStream;)V")) {
-					injectGetPropertyEncoding();
-					mv.visitMethodInsn(opcode, owner, name, "(Ljava/io/OutputStream;Ljava/lang/String;)V", itf);
+					injectCharset();
+					mv.visitMethodInsn(opcode, owner, name, "(Ljava/io/OutputStream;Ljava/nio/charset/Charset;)V", itf);
 					return;
 				}
 				break;
 			case "java/io/ByteArrayOutputStream":
 				if (name.equals("toString") && desc.equals("()Ljava/lang/String;")) {
-					injectGetPropertyEncoding();
+					injectEncodingName();
 					mv.visitMethodInsn(opcode, owner, name, "(Ljava/lang/String;)Ljava/lang/String;", itf);
 					return;
 				}
@@ -109,7 +125,7 @@ public class AndroidMethodVisitor extends MethodVisitor {
 			case "java/io/PrintStream":
 				if (name.equals("<init>") && desc.equals("(Ljava/io/OutputStream;)V")) {
 					mv.visitInsn(ICONST_0);
-					injectGetPropertyEncoding();
+					injectEncodingName();
 					mv.visitMethodInsn(opcode, owner, name, "(Ljava/io/OutputStream;ZLjava/lang/String;)V", itf);
 					return;
 				}
@@ -123,11 +139,42 @@ public class AndroidMethodVisitor extends MethodVisitor {
 				if (opcode == INVOKESTATIC && name.equals("getProperty")) {
 					mv.visitMethodInsn(opcode, "javax/microedition/shell/MidletSystem", name, desc, itf);
 					return;
+				} else if (opcode == INVOKESTATIC && name.equals("currentTimeMillis")) {
+					mv.visitMethodInsn(opcode, MIDLET_CLOCK, name, desc, false);
+					return;
+				}
+				break;
+			case "java/util/Date":
+				// the current date in the virtual time, like System.currentTimeMillis()
+				if (opcode == INVOKESPECIAL && name.equals("<init>") && desc.equals("()V")) {
+					mv.visitMethodInsn(INVOKESTATIC, MIDLET_CLOCK, "currentTimeMillis", "()J", false);
+					mv.visitMethodInsn(opcode, owner, name, "(J)V", itf);
+					return;
+				}
+				break;
+			case "java/util/Calendar":
+				if (opcode == INVOKESTATIC && name.equals("getInstance")
+						&& (desc.equals("()Ljava/util/Calendar;") || desc.equals("(Ljava/util/TimeZone;)Ljava/util/Calendar;"))) {
+					mv.visitMethodInsn(opcode, MIDLET_CLOCK, "getCalendar", desc, false);
+					return;
 				}
 				break;
 			case "java/util/Timer":
 				owner = "javax/microedition/shell/custom/Timer";
 				break;
+			case "java/util/Vector":
+				// the constructor of an allocated vector, not the super() call of a subclass
+				if (opcode == INVOKESPECIAL && name.equals("<init>") && pendingVectors > 0) {
+					pendingVectors--;
+					owner = UNSYNC_VECTOR;
+				}
+				break;
+			case "java/util/Hashtable":
+				if (opcode == INVOKESPECIAL && name.equals("<init>") && pendingHashtables > 0) {
+					pendingHashtables--;
+					owner = UNSYNC_HASHTABLE;
+				}
+				break;
 			case "java/util/TimerTask":
 				owner = "javax/microedition/shell/custom/TimerTask";
 				break;
@@ -136,10 +183,13 @@ public class AndroidMethodVisitor extends MethodVisitor {
 		mv.visitMethodInsn(opcode, owner, name, desc, itf);
 	}
 
-	private void injectGetPropertyEncoding() {
-		mv.visitLdcInsn("microedition.encoding");
-		mv.visitMethodInsn(INVOKESTATIC, "java/lang/System", "getProperty",
-				"(Ljava/lang/String;)Ljava/lang/String;", false);
+	/** Charset overloads are not available for ByteArrayOutputStream and PrintStream before API 33 */
+	private void injectEncodingName() {
+		mv.visitFieldInsn(GETSTATIC, "javax/microedition/shell/MidletCharset", "NAME", "Ljava/lang/String;");
+	}
+
+	private void injectCharset() {
+		mv.visitFieldInsn(GETSTATIC, "javax/microedition/shell/MidletCharset", "CHARSET", "Ljava/nio/charset/Charset;");
 	}
 
 	@Override
@@ -152,6 +202,15 @@ public class AndroidMethodVisitor extends MethodVisitor {
 
 	@Override
 	public void visitTypeInsn(int opcode, String type) {
+		if (opcode == NEW && unsyncCollections) {
+			if (type.equals("java/util/Vector")) {
+				pendingVectors++;
+				type = UNSYNC_VECTOR;
+			} else if (type.equals("java/util/Hashtable")) {
+				pendingHashtables++;
+				type = UNSYNC_HASHTABLE;
+			}
+		}
 		type = type.replace("java/util/Timer", "javax/microedition/shell/custom/Timer");
 		super.visitTypeInsn(opcode, type);
 	}
@@ -40,24 +40,37 @@ import java.util.Map;
 public class AndroidProducer {
 	private static final Map<Integer, Integer> patches = initPatchFixes();
 
-	public static byte[] instrument(byte[] classData, String classFileName, long crc)
-			throws IllegalArgumentException {
-		Integer patch = patches.get((int) crc);
-		if (patch != null) {
-			classData = patchClass(classData, patch);
-		}
+	/**
+	 * Adds the class to the thread confinement analysis,
+	 * all classes of the jar must be added before the first one is instrumented.
+	 */
+	public static void analyze(byte[] classData, long crc, ThreadConfinement confinement) {
+		confinement.add(patch(classData, crc));
+	}
+
+	public static byte[] instrument(byte[] classData, String classFileName, long crc,
+									ThreadConfinement confinement) throws IllegalArgumentException {
+		classData = patch(classData, crc);
 		ClassReader cr = new ClassReader(classData);
 		if (!cr.getClassName().equals(classFileName.substring(0, classFileName.length() - 6))) {
 			throw new IllegalArgumentException("Class name does not match path");
 		}
 
 		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-		ClassVisitor cv = new AndroidClassVisitor(cw);
+		ClassVisitor cv = new AndroidClassVisitor(cw, confinement);
 		cr.accept(cv, ClassReader.SKIP_DEBUG);
 
 		return cw.toByteArray();
 	}
 
+	private static byte[] patch(byte[] classData, long crc) {
+		Integer patch = patches.get((int) crc);
+		if (patch != null) {
+			classData = patchClass(classData, patch);
+		}
+		return classData;
+	}
+
 	private static byte[] patchClass(byte[] classData, int patch) {
 		try (DataInputStream dis = new DataInputStream(AndroidProducer.class.getResourceAsStream("/assets/dexer/patches.bin"))) {
 			dis.skipBytes(patch);
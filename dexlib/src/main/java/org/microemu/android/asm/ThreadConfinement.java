@@ -0,0 +1,258 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microemu.android.asm;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Finds the classes of a MIDlet whose code runs on a single thread, collections allocated
+ * there may drop the locking (see {@link AndroidMethodVisitor}). All classes of the jar
+ * are added first, then the graph is resolved.
+ * <p>
+ * Threads enter the MIDlet code at the roots: Runnable classes (with Thread and TimerTask),
+ * which may be run by any number of threads, and the classes with a platform supertype
+ * (MIDlet, Canvas, listeners), called back by some platform thread. Each callback type
+ * may be called by its own thread (e.g. a PlayerListener by the player thread, a Canvas by
+ * the event thread), so a class with several platform supertypes is a shared root.
+ * A class reaches the owners of the methods and fields it uses, the subclasses and
+ * implementations of a class are reached with it, as calls are dispatched to them.
+ * A class is confined if it is reached from a single platform root and no class
+ * reachable from it is reached from another root, so its collections can't be passed
+ * to the code of another thread. Classes using reflection reach every class, classes
+ * overriding Object methods are called from anywhere (finalizer, platform collections).
+ * If any class can't be read, no class is confined.
+ */
+public class ThreadConfinement {
+	/** States of a class: reached from no root, from several roots or the root number */
+	private static final int UNREACHED = -1;
+	private static final int SHARED = -2;
+	private final HashMap<String, Node> nodes = new HashMap<>();
+	private boolean incomplete;
+	private boolean resolved;
+
+	public synchronized void add(byte[] classData) {
+		try {
+			new ClassReader(classData).accept(new Collector(), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		} catch (Exception e) {
+			incomplete = true;
+		}
+	}
+
+	public synchronized void resolve() {
+		resolved = true;
+		if (incomplete) {
+			return;
+		}
+		for (Node node : nodes.values()) {
+			link(node, node.superName);
+			for (String itf : node.interfaces) {
+				link(node, itf);
+			}
+			for (String ref : node.refs) {
+				Node target = nodes.get(ref);
+				if (target != null) {
+					node.edges.add(target);
+				}
+			}
+		}
+		for (Node node : nodes.values()) {
+			if (node.reflective) {
+				node.edges.addAll(nodes.values());
+			}
+		}
+
+		int rootId = 0;
+		for (Node node : nodes.values()) {
+			HashSet<String> callbacks = new HashSet<>();
+			if (!collectCallbacks(node, new HashSet<>(), callbacks) || node.anyThread
+					|| callbacks.size() > 1) {
+				propagate(node, SHARED);
+			} else if (callbacks.size() == 1) {
+				propagate(node, rootId++);
+			}
+		}
+
+		// classes reaching the shared ones may pass their collections to another thread
+		HashMap<Node, ArrayList<Node>> callers = new HashMap<>();
+		for (Node node : nodes.values()) {
+			for (Node target : node.edges) {
+				ArrayList<Node> list = callers.get(target);
+				if (list == null) {
+					list = new ArrayList<>();
+					callers.put(target, list);
+				}
+				list.add(node);
+			}
+		}
+		ArrayDeque<Node> queue = new ArrayDeque<>();
+		for (Node node : nodes.values()) {
+			if (node.state == SHARED) {
+				node.tainted = true;
+				queue.add(node);
+			}
+		}
+		while (!queue.isEmpty()) {
+			ArrayList<Node> list = callers.get(queue.poll());
+			if (list == null) {
+				continue;
+			}
+			for (Node caller : list) {
+				if (!caller.tainted) {
+					caller.tainted = true;
+					queue.add(caller);
+				}
+			}
+		}
+	}
+
+	public synchronized boolean isConfined(String className) {
+		if (!resolved || incomplete) {
+			return false;
+		}
+		Node node = nodes.get(className);
+		return node != null && node.state >= 0 && !node.tainted;
+	}
+
+	private void link(Node node, String superName) {
+		Node parent = superName == null ? null : nodes.get(superName);
+		if (parent != null) {
+			node.edges.add(parent);
+			parent.edges.add(node);
+		}
+	}
+
+	/**
+	 * Walks the supertypes, the types outside the jar are the platform callback types.
+	 *
+	 * @return false, if the class may be run by any thread
+	 */
+	private boolean collectCallbacks(Node node, HashSet<String> visited, HashSet<String> callbacks) {
+		ArrayList<String> supers = new ArrayList<>(node.interfaces.length + 1);
+		if (node.superName != null) {
+			supers.add(node.superName);
+		}
+		Collections.addAll(supers, node.interfaces);
+		for (String name : supers) {
+			if (!visited.add(name)) {
+				continue;
+			}
+			switch (name) {
+				case "java/lang/Object":
+					continue;
+				case "java/lang/Runnable":
+				case "java/lang/Thread":
+				case "java/util/TimerTask":
+					return false;
+			}
+			Node parent = nodes.get(name);
+			if (parent == null) {
+				callbacks.add(name);
+			} else if (!collectCallbacks(parent, visited, callbacks)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void propagate(Node root, int id) {
+		ArrayDeque<Node> queue = new ArrayDeque<>();
+		HashSet<Node> visited = new HashSet<>();
+		queue.add(root);
+		visited.add(root);
+		while (!queue.isEmpty()) {
+			Node node = queue.poll();
+			if (node.state == UNREACHED) {
+				node.state = id;
+			} else if (node.state != id) {
+				node.state = SHARED;
+			}
+			for (Node next : node.edges) {
+				if (visited.add(next)) {
+					queue.add(next);
+				}
+			}
+		}
+	}
+
+	private static final class Node {
+		final String superName;
+		final String[] interfaces;
+		final HashSet<String> refs = new HashSet<>();
+		final HashSet<Node> edges = new HashSet<>();
+		boolean reflective;
+		boolean anyThread;
+		int state = UNREACHED;
+		boolean tainted;
+
+		Node(String superName, String[] interfaces) {
+			this.superName = superName;
+			this.interfaces = interfaces == null ? new String[0] : interfaces;
+		}
+	}
+
+	private class Collector extends ClassVisitor {
+		private Node node;
+
+		Collector() {
+			super(Opcodes.ASM9);
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+			node = new Node(superName, interfaces);
+			nodes.put(name, node);
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+			switch (name + descriptor) {
+				case "equals(Ljava/lang/Object;)Z":
+				case "hashCode()I":
+				case "toString()Ljava/lang/String;":
+				case "finalize()V":
+					node.anyThread = true;
+			}
+			return new MethodVisitor(Opcodes.ASM9) {
+				@Override
+				public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+					if (owner.equals("java/lang/Class") && (name.equals("forName") || name.equals("newInstance"))) {
+						node.reflective = true;
+					}
+					node.refs.add(owner);
+				}
+
+				@Override
+				public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+					node.refs.add(owner);
+				}
+
+				@Override
+				public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+					node.reflective = true;
+				}
+			};
+		}
+	}
+}
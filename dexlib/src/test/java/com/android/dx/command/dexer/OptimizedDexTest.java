@@ -0,0 +1,164 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.dx.command.dexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.dex.ClassDef;
+import com.android.dex.Dex;
+
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Dexes generated MIDlet-like classes unoptimized and with the steps of the optimized install.
+ * Only the dex size and the dexing time are compared, the runtime throughput needs a device.
+ */
+public class OptimizedDexTest {
+	private static final String OPTIMIZE_STEPS =
+			"--optimize-steps=MOVE_PARAM_COMBINER,SCCP,LITERAL_UPGRADE,CONST_COLLECTOR";
+	private static final int CLASSES = 100;
+
+	@Test
+	public void optimizedDexIsNotLarger() throws IOException {
+		File dir = Files.createTempDirectory("dex").toFile();
+		File jar = new File(dir, "midlet.jar");
+		writeJar(jar);
+
+		File plain = new File(dir, "plain.dex");
+		File optimized = new File(dir, "optimized.dex");
+		long plainTime = Long.MAX_VALUE, optimizedTime = Long.MAX_VALUE;
+		for (int i = 0; i < 3; i++) {
+			plainTime = Math.min(plainTime, dex(jar, plain, "--no-optimize"));
+			optimizedTime = Math.min(optimizedTime, dex(jar, optimized, OPTIMIZE_STEPS, "--optimize-fallback"));
+		}
+		System.out.printf("unoptimized %d bytes in %d ms, optimized %d bytes in %d ms%n",
+				plain.length(), plainTime / 1_000_000, optimized.length(), optimizedTime / 1_000_000);
+
+		assertEquals(CLASSES, count(new Dex(plain).classDefs()));
+		assertEquals(CLASSES, count(new Dex(optimized).classDefs()));
+		assertTrue(optimized.length() <= plain.length());
+
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	private static long dex(File jar, File out, String... options) throws IOException {
+		String[] args = new String[options.length + 2];
+		System.arraycopy(options, 0, args, 0, options.length);
+		args[options.length] = "--output=" + out.getAbsolutePath();
+		args[options.length + 1] = jar.getAbsolutePath();
+		long start = System.nanoTime();
+		// throws if the dexing fails
+		Main.main(args);
+		return System.nanoTime() - start;
+	}
+
+	private static int count(Iterable<ClassDef> classDefs) {
+		int count = 0;
+		for (ClassDef ignored : classDefs) {
+			count++;
+		}
+		return count;
+	}
+
+	private static void writeJar(File jar) throws IOException {
+		try (OutputStream out = new FileOutputStream(jar);
+			 JarOutputStream jos = new JarOutputStream(out)) {
+			for (int i = 0; i < CLASSES; i++) {
+				String name = "game/Sprite" + i;
+				jos.putNextEntry(new ZipEntry(name + ".class"));
+				jos.write(define(name));
+				jos.closeEntry();
+			}
+		}
+	}
+
+	/**
+	 * The code of a J2ME compiler without optimization: constants kept in locals,
+	 * computed on each use and moved through the stack.
+	 */
+	private static byte[] define(String name) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_2, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		for (int m = 0; m < 10; m++) {
+			// int update(int[] a, int n) {
+			//     int sum = 0; int k = 7 + m; int scale = k * 3;
+			//     for (int i = 0; i < n; i++) sum += a[i] * scale + k;
+			//     return sum;
+			// }
+			mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "update" + m, "([II)I", null, null);
+			mv.visitCode();
+			mv.visitInsn(Opcodes.ICONST_0);
+			mv.visitVarInsn(Opcodes.ISTORE, 3);
+			mv.visitIntInsn(Opcodes.BIPUSH, 7 + m);
+			mv.visitVarInsn(Opcodes.ISTORE, 4);
+			mv.visitVarInsn(Opcodes.ILOAD, 4);
+			mv.visitInsn(Opcodes.ICONST_3);
+			mv.visitInsn(Opcodes.IMUL);
+			mv.visitVarInsn(Opcodes.ISTORE, 5);
+			mv.visitInsn(Opcodes.ICONST_0);
+			mv.visitVarInsn(Opcodes.ISTORE, 6);
+			Label check = new Label();
+			Label body = new Label();
+			mv.visitJumpInsn(Opcodes.GOTO, check);
+			mv.visitLabel(body);
+			mv.visitVarInsn(Opcodes.ILOAD, 3);
+			mv.visitVarInsn(Opcodes.ALOAD, 1);
+			mv.visitVarInsn(Opcodes.ILOAD, 6);
+			mv.visitInsn(Opcodes.IALOAD);
+			mv.visitVarInsn(Opcodes.ILOAD, 5);
+			mv.visitInsn(Opcodes.IMUL);
+			mv.visitVarInsn(Opcodes.ILOAD, 4);
+			mv.visitInsn(Opcodes.IADD);
+			mv.visitInsn(Opcodes.IADD);
+			mv.visitVarInsn(Opcodes.ISTORE, 3);
+			mv.visitIincInsn(6, 1);
+			mv.visitLabel(check);
+			mv.visitVarInsn(Opcodes.ILOAD, 6);
+			mv.visitVarInsn(Opcodes.ILOAD, 2);
+			mv.visitJumpInsn(Opcodes.IF_ICMPLT, body);
+			mv.visitVarInsn(Opcodes.ILOAD, 3);
+			mv.visitInsn(Opcodes.IRETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+}
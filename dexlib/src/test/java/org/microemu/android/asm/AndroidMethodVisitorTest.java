@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microemu.android.asm;
+
+import static org.junit.Assert.assertEquals;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+
+import org.junit.Test;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AndroidMethodVisitorTest {
+	private static final String CHARSET = "GETSTATIC javax/microedition/shell/MidletCharset.CHARSET";
+	private static final String NAME = "GETSTATIC javax/microedition/shell/MidletCharset.NAME";
+
+	@Test
+	public void stringConversionsGetTheCachedCharset() {
+		assertRewrite(INVOKESPECIAL, "java/lang/String", "<init>", "([B)V",
+				CHARSET, "INVOKESPECIAL java/lang/String.<init>([BLjava/nio/charset/Charset;)V");
+		assertRewrite(INVOKESPECIAL, "java/lang/String", "<init>", "([BII)V",
+				CHARSET, "INVOKESPECIAL java/lang/String.<init>([BIILjava/nio/charset/Charset;)V");
+		assertRewrite(INVOKEVIRTUAL, "java/lang/String", "getBytes", "()[B",
+				CHARSET, "INVOKEVIRTUAL java/lang/String.getBytes(Ljava/nio/charset/Charset;)[B");
+		assertRewrite(INVOKESPECIAL, "java/io/InputStreamReader", "<init>", "(Ljava/io/InputStream;)V",
+				CHARSET, "INVOKESPECIAL java/io/InputStreamReader.<init>(Ljava/io/InputStream;Ljava/nio/charset/Charset;)V");
+		assertRewrite(INVOKESPECIAL, "java/io/OutputStreamWriter", "<init>", "(Ljava/io/OutputStream;)V",
+				CHARSET, "INVOKESPECIAL java/io/OutputStreamWriter.<init>(Ljava/io/OutputStream;Ljava/nio/charset/Charset;)V");
+	}
+
+	@Test
+	public void conversionsWithoutCharsetOverloadsGetTheName() {
+		assertRewrite(INVOKEVIRTUAL, "java/io/ByteArrayOutputStream", "toString", "()Ljava/lang/String;",
+				NAME, "INVOKEVIRTUAL java/io/ByteArrayOutputStream.toString(Ljava/lang/String;)Ljava/lang/String;");
+		assertRewrite(INVOKESPECIAL, "java/io/PrintStream", "<init>", "(Ljava/io/OutputStream;)V",
+				"ICONST_0", NAME, "INVOKESPECIAL java/io/PrintStream.<init>(Ljava/io/OutputStream;ZLjava/lang/String;)V");
+	}
+
+	@Test
+	public void explicitEncodingIsKept() {
+		assertRewrite(INVOKESPECIAL, "java/lang/String", "<init>", "([BLjava/lang/String;)V",
+				"INVOKESPECIAL java/lang/String.<init>([BLjava/lang/String;)V");
+		assertRewrite(INVOKEVIRTUAL, "java/lang/String", "getBytes", "(Ljava/lang/String;)[B",
+				"INVOKEVIRTUAL java/lang/String.getBytes(Ljava/lang/String;)[B");
+	}
+
+	@Test
+	public void yieldGoesToTheBackoffHelper() {
+		assertRewrite(INVOKESTATIC, "java/lang/Thread", "yield", "()V",
+				"INVOKESTATIC javax/microedition/shell/MidletYield.yieldThread()V");
+	}
+
+	private static void assertRewrite(int opcode, String owner, String name, String desc, String... expected) {
+		Recorder recorder = new Recorder();
+		new AndroidMethodVisitor(recorder, false).visitMethodInsn(opcode, owner, name, desc, false);
+		assertEquals(Arrays.asList(expected), recorder.instructions);
+	}
+
+	private static final class Recorder extends MethodVisitor {
+		private static final String[] OPCODES = new String[256];
+		final List<String> instructions = new ArrayList<>();
+
+		Recorder() {
+			super(Opcodes.ASM9);
+		}
+
+		@Override
+		public void visitInsn(int opcode) {
+			instructions.add(OPCODES[opcode]);
+		}
+
+		@Override
+		public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+			instructions.add(OPCODES[opcode] + ' ' + owner + '.' + name);
+		}
+
+		@Override
+		public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+			instructions.add(OPCODES[opcode] + ' ' + owner + '.' + name + descriptor);
+		}
+
+		static {
+			OPCODES[Opcodes.ICONST_0] = "ICONST_0";
+			OPCODES[Opcodes.GETSTATIC] = "GETSTATIC";
+			OPCODES[INVOKEVIRTUAL] = "INVOKEVIRTUAL";
+			OPCODES[INVOKESPECIAL] = "INVOKESPECIAL";
+			OPCODES[INVOKESTATIC] = "INVOKESTATIC";
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microemu.android.asm;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class ThreadConfinementTest {
+	private static final String CANVAS = "javax/microedition/lcdui/Canvas";
+	private static final String MIDLET = "javax/microedition/midlet/MIDlet";
+	private static final String COMMAND_LISTENER = "javax/microedition/lcdui/CommandListener";
+	private static final String PLAYER_LISTENER = "javax/microedition/media/PlayerListener";
+
+	@Test
+	public void singleCallbackIsConfined() {
+		ThreadConfinement confinement = new ThreadConfinement();
+		confinement.add(define("GameCanvas", CANVAS, new String[0], "Level"));
+		confinement.add(define("Level", "java/lang/Object", new String[0]));
+		confinement.resolve();
+
+		assertTrue(confinement.isConfined("GameCanvas"));
+		assertTrue(confinement.isConfined("Level"));
+	}
+
+	@Test
+	public void severalCallbacksAreShared() {
+		ThreadConfinement confinement = new ThreadConfinement();
+		confinement.add(define("GameCanvas", CANVAS, new String[]{PLAYER_LISTENER}, "Level"));
+		confinement.add(define("Level", "java/lang/Object", new String[0]));
+		confinement.add(define("Main", MIDLET, new String[]{COMMAND_LISTENER}));
+		confinement.resolve();
+
+		assertFalse(confinement.isConfined("GameCanvas"));
+		assertFalse(confinement.isConfined("Level"));
+		assertFalse(confinement.isConfined("Main"));
+	}
+
+	@Test
+	public void inheritedCallbacksAreShared() {
+		ThreadConfinement confinement = new ThreadConfinement();
+		confinement.add(define("BaseCanvas", CANVAS, new String[0]));
+		confinement.add(define("GameCanvas", "BaseCanvas", new String[]{PLAYER_LISTENER}));
+		confinement.resolve();
+
+		assertFalse(confinement.isConfined("GameCanvas"));
+		// the subclass is reached with its superclass
+		assertFalse(confinement.isConfined("BaseCanvas"));
+	}
+
+	@Test
+	public void classReachedFromTwoRootsIsShared() {
+		ThreadConfinement confinement = new ThreadConfinement();
+		confinement.add(define("GameCanvas", CANVAS, new String[0], "Score"));
+		confinement.add(define("Music", "java/lang/Object", new String[]{PLAYER_LISTENER}, "Score"));
+		confinement.add(define("Score", "java/lang/Object", new String[0]));
+		confinement.resolve();
+
+		assertFalse(confinement.isConfined("Score"));
+		assertFalse(confinement.isConfined("GameCanvas"));
+		assertFalse(confinement.isConfined("Music"));
+	}
+
+	@Test
+	public void runnableIsShared() {
+		ThreadConfinement confinement = new ThreadConfinement();
+		confinement.add(define("GameCanvas", CANVAS, new String[0]));
+		confinement.add(define("Loop", "java/lang/Object", new String[]{"java/lang/Runnable"}, "World"));
+		confinement.add(define("World", "java/lang/Object", new String[0]));
+		confinement.resolve();
+
+		assertTrue(confinement.isConfined("GameCanvas"));
+		assertFalse(confinement.isConfined("Loop"));
+		assertFalse(confinement.isConfined("World"));
+	}
+
+	@Test
+	public void unreadableClassConfinesNothing() {
+		ThreadConfinement confinement = new ThreadConfinement();
+		confinement.add(define("GameCanvas", CANVAS, new String[0]));
+		confinement.add(new byte[]{1, 2, 3});
+		confinement.resolve();
+
+		assertFalse(confinement.isConfined("GameCanvas"));
+	}
+
+	/** A class with a method calling a static method of each of the used classes */
+	private static byte[] define(String name, String superName, String[] interfaces, String... uses) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_2, Opcodes.ACC_PUBLIC, name, null, superName, interfaces);
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "run", "()V", null, null);
+		mv.visitCode();
+		for (String owner : uses) {
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC, owner, "use", "()V", false);
+		}
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+}